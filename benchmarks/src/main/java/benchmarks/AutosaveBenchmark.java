@@ -0,0 +1,119 @@
+package benchmarks;
+
+import commons.Collection;
+import commons.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import server.Main;
+import server.services.CollectionService;
+import server.services.NoteService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of autosaving notes through the server's note service, with the
+ * notes kept in the H2 database through JPA or in the append-only note log.
+ * <p>
+ * Every autosave stores the next note with slightly changed content, the way the client
+ * saves the note being edited. The server runs on a random port with an in-memory database,
+ * so the database side isn't slowed down by a disk either.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutosaveBenchmark {
+
+    @Param({"jpa", "log"})
+    private String storage;
+
+    @Param({"1000"})
+    private int notes;
+
+    // the content column of the database holds at most 255 characters, and the generated
+    // markdown can be somewhat longer than asked for
+    @Param({"150"})
+    private int size;
+
+    private Path logDirectory;
+    private ConfigurableApplicationContext server;
+    private NoteService noteService;
+    private List<Note> saved;
+    private String[] contents;
+    private int next;
+
+    /**
+     * Starts the server with the selected storage and saves the notes.
+     *
+     * @throws IOException if the directory of the log can't be created
+     */
+    @Setup
+    public void setUp() throws IOException {
+        logDirectory = Files.createTempDirectory("note-log");
+        // as arguments, since those take precedence over application.properties
+        server = new SpringApplicationBuilder(Main.class).run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:autosave-" + storage,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--notes.storage=" + storage,
+                "--notes.log.directory=" + logDirectory);
+        noteService = server.getBean(NoteService.class);
+        Collection collection = server.getBean(CollectionService.class)
+                .saveCollection(new Collection("Benchmark", "http://localhost:8080/"));
+
+        contents = new String[16];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = Notes.markdown(size, i);
+        }
+        saved = new ArrayList<>(notes);
+        for (int i = 0; i < notes; i++) {
+            saved.add(noteService.saveNote(new Note("Note " + i, contents[i % 16], collection)));
+        }
+    }
+
+    /**
+     * Stops the server and removes the log.
+     *
+     * @throws IOException if the log can't be removed
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+        FileSystemUtils.deleteRecursively(logDirectory);
+    }
+
+    /**
+     * Autosaves the next note with changed content.
+     *
+     * @return the saved note
+     */
+    @Benchmark
+    public Note autosave() {
+        Note note = saved.get(next % notes);
+        // one ahead of the content the note got last time, so every save changes it
+        note.setContent(contents[(next + 1) % contents.length]);
+        next++;
+        return noteService.saveNote(note);
+    }
+}
@@ -0,0 +1,123 @@
+package benchmarks;
+
+import commons.Collection;
+import commons.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import server.Main;
+import server.services.ArchiveService;
+import server.services.CollectionService;
+import server.services.NoteService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many notes per second the server exports to and imports from a ZIP archive,
+ * for a collection of 100,000 notes.
+ * <p>
+ * The export is written to a stream discarding it and the import reads an archive exported
+ * once during setup, creating a new collection every time. The server runs with an
+ * in-memory database, so neither is slowed down by a disk.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class CollectionArchiveBenchmark {
+    private static final int NOTES = 100_000;
+    private static final int BATCH_SIZE = 1000;
+
+    private ConfigurableApplicationContext server;
+    private ArchiveService archiveService;
+    private Collection collection;
+    private byte[] archive;
+    private int imports;
+
+    /**
+     * Starts the server, saves the notes of the collection and exports it once.
+     *
+     * @throws IOException if the collection can't be exported
+     */
+    @Setup
+    public void setUp() throws IOException {
+        server = new SpringApplicationBuilder(Main.class).run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:archive",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn");
+        archiveService = server.getBean(ArchiveService.class);
+        NoteService noteService = server.getBean(NoteService.class);
+        collection = server.getBean(CollectionService.class)
+                .saveCollection(new Collection("Benchmark", "http://localhost:8080/"));
+
+        // the content column of the database holds at most 255 characters
+        String[] contents = new String[16];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = Notes.markdown(150, i);
+        }
+        List<Note> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < NOTES; i++) {
+            batch.add(new Note("Note " + i, contents[i % contents.length], collection));
+            if (batch.size() == BATCH_SIZE) {
+                noteService.saveNotes(batch);
+                batch.clear();
+            }
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        archiveService.exportCollection(collection, output);
+        archive = output.toByteArray();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Exports the collection.
+     *
+     * @throws IOException if the collection can't be exported
+     */
+    @Benchmark
+    @OperationsPerInvocation(NOTES)
+    public void exportCollection() throws IOException {
+        archiveService.exportCollection(collection, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Imports the archive as a new collection.
+     *
+     * @return the new collection
+     * @throws IOException if the archive can't be imported
+     */
+    @Benchmark
+    @OperationsPerInvocation(NOTES)
+    public Collection importCollection() throws IOException {
+        return archiveService.importCollection(new ByteArrayInputStream(archive),
+                "Import " + imports++);
+    }
+}
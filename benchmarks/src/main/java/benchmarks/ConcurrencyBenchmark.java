@@ -0,0 +1,112 @@
+package benchmarks;
+
+import commons.Collection;
+import commons.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import server.Main;
+import server.services.CollectionService;
+import server.services.NoteService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how many requests the server answers per second when many clients send requests
+ * at the same time, with requests handled on platform threads or on virtual threads.
+ * <p>
+ * Every invocation sends as many requests at once as there are clients and waits for all
+ * answers, so the score times the number of clients is the number of requests per second.
+ * Each request reads a page of notes from the database, which blocks the thread handling it.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"50", "1000"})
+    private int clients;
+
+    private ConfigurableApplicationContext server;
+    private HttpClient client;
+    private HttpRequest request;
+
+    /**
+     * Starts the server with the selected threads and saves the notes to read.
+     */
+    @Setup
+    public void setUp() {
+        // as arguments, since those take precedence over application.properties
+        server = new SpringApplicationBuilder(Main.class).run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:concurrency-" + threads,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--spring.threads.virtual.enabled=" + threads.equals("virtual"));
+        Collection collection = server.getBean(CollectionService.class)
+                .saveCollection(new Collection("Benchmark", "http://localhost:8080/"));
+        NoteService noteService = server.getBean(NoteService.class);
+        for (int i = 0; i < 500; i++) {
+            noteService.saveNote(new Note("Note " + i, Notes.markdown(150, i), collection));
+        }
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String port = server.getEnvironment().getProperty("local.server.port");
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                + "/api/notes?collection=" + collection.id + "&size=20")).build();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Sends a request for every client at the same time and waits for all answers.
+     *
+     * @return the total length of the answers
+     */
+    @Benchmark
+    public long requests() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<HttpResponse<String>>[] responses = new CompletableFuture[clients];
+        for (int i = 0; i < clients; i++) {
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        }
+        long length = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> answer = response.join();
+            if (answer.statusCode() != 200) {
+                throw new IllegalStateException("Request failed with " + answer.statusCode());
+            }
+            length += answer.body().length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,123 @@
+package benchmarks;
+
+import commons.Collection;
+import commons.Note;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the explicit equals of the entities with the reflective equals they used before,
+ * on the two hot paths of the client: filtering the notes by collection, and comparing the
+ * notes with the last undo snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EqualsBenchmark {
+    private static final int COLLECTIONS = 20;
+
+    @Param({"1000", "10000"})
+    private int notes;
+
+    private List<Note> state;
+    private List<Note> snapshot;
+    private Collection selected;
+
+    /**
+     * Creates the notes, spread over the collections, and a snapshot with copies of them.
+     */
+    @Setup
+    public void setUp() {
+        List<Collection> collections = new ArrayList<>();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            Collection collection = new Collection("collection " + i, "http://localhost:8080/");
+            collection.id = i;
+            collections.add(collection);
+        }
+        // a copy, like the selected collection received from the server
+        selected = new Collection("collection 7", "http://localhost:8080/");
+        selected.id = 7;
+
+        state = new ArrayList<>();
+        snapshot = new ArrayList<>();
+        for (int i = 0; i < notes; i++) {
+            Note note = new Note("note " + i, Notes.markdown(256, i),
+                    collections.get(i % COLLECTIONS));
+            note.id = i;
+            state.add(note);
+
+            Note copy = new Note(note.title, note.getContent(), note.collection);
+            copy.id = note.id;
+            snapshot.add(copy);
+        }
+    }
+
+    /**
+     * Counts the notes in the selected collection with the explicit equals.
+     *
+     * @return the number of notes in the collection
+     */
+    @Benchmark
+    public int filterByCollection() {
+        int count = 0;
+        for (Note note : state) {
+            if (Objects.equals(note.collection, selected)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the notes in the selected collection with the reflective equals.
+     *
+     * @return the number of notes in the collection
+     */
+    @Benchmark
+    public int filterByCollectionReflective() {
+        int count = 0;
+        for (Note note : state) {
+            if (EqualsBuilder.reflectionEquals(note.collection, selected)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Compares the notes with the undo snapshot with the explicit equals.
+     *
+     * @return true if nothing changed since the snapshot
+     */
+    @Benchmark
+    public boolean compareSnapshot() {
+        return state.equals(snapshot);
+    }
+
+    /**
+     * Compares the notes with the undo snapshot with the reflective equals.
+     *
+     * @return true if nothing changed since the snapshot
+     */
+    @Benchmark
+    public boolean compareSnapshotReflective() {
+        for (int i = 0; i < state.size(); i++) {
+            if (!EqualsBuilder.reflectionEquals(state.get(i), snapshot.get(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import client.Markdown;
+import client.utils.RenderCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a note to HTML with commonmark, the way the web view of the note is
+ * updated on every edit, and answering the same content from the render cache instead,
+ * on notes of 1 KB, 100 KB and 1 MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownRenderBenchmark {
+
+    @Param({"1024", "102400", "1048576"})
+    private int size;
+
+    private Markdown markdown;
+    private RenderCache cache;
+    private String content;
+
+    /**
+     * Generates the note and renders it into the cache once.
+     */
+    @Setup
+    public void setUp() {
+        markdown = new Markdown();
+        content = Notes.markdown(size, 42);
+        cache = new RenderCache(64, 16_000_000);
+        cache.put(content, 0, markdown.renderHtml(content));
+    }
+
+    /**
+     * Parses the note and renders it to HTML.
+     *
+     * @return the HTML
+     */
+    @Benchmark
+    public String render() {
+        return markdown.renderHtml(content);
+    }
+
+    /**
+     * Looks the rendered note up in the render cache, which compares the whole content.
+     *
+     * @return the HTML
+     */
+    @Benchmark
+    public String cached() {
+        return cache.get(content, 0);
+    }
+}
@@ -0,0 +1,99 @@
+package benchmarks;
+
+import client.Markdown;
+import client.utils.MarkdownSyntaxException;
+import client.utils.MarkdownValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass MarkdownValidator with the multi-pass checks it replaced,
+ * on notes of 1 KB, 100 KB and 5 MB, and measures the validation the editor runs through
+ * Markdown.validateMarkdownSyntax.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per validation.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownValidatorBenchmark {
+
+    @Param({"1024", "102400", "5242880"})
+    private int size;
+
+    private String markdown;
+    private Markdown validator;
+
+    /**
+     * Generates the note to validate.
+     */
+    @Setup
+    public void setUp() {
+        markdown = Notes.markdown(size, 42);
+        validator = new Markdown();
+    }
+
+    /**
+     * Validates the note in a single pass.
+     *
+     * @return the problems found
+     */
+    @Benchmark
+    public List<MarkdownValidator.Problem> singlePass() {
+        return MarkdownValidator.validate(markdown);
+    }
+
+    /**
+     * Validates the note the way the editor does, which reports problems as an exception.
+     *
+     * @return the length of the problem message, 0 if there are none
+     */
+    @Benchmark
+    public int validateMarkdownSyntax() {
+        try {
+            validator.validateMarkdownSyntax(markdown);
+            return 0;
+        } catch (MarkdownSyntaxException e) {
+            return e.getMessage().length();
+        }
+    }
+
+    /**
+     * Validates the note with the checks used before the single-pass validator,
+     * which walk the text once per kind of problem.
+     *
+     * @return the number of problems found
+     */
+    @Benchmark
+    public int multiPass() {
+        int problems = 0;
+        if (markdown.chars().filter(ch -> ch == '*').count() % 2 != 0) problems++;
+        if (markdown.chars().filter(ch -> ch == '_').count() % 2 != 0) problems++;
+        if (markdown.contains("-") && markdown.lines().anyMatch(line ->
+                line.trim().startsWith("-") && !line.trim().matches("^-\\s+.*"))) {
+            problems++;
+        }
+        if (markdown.chars().filter(ch -> ch == '`').count() % 2 != 0) problems++;
+        if (markdown.contains("[")) {
+            if (!markdown.contains("]")) problems++;
+            if (markdown.contains("(") && !markdown.contains(")")) problems++;
+        }
+        return problems;
+    }
+}
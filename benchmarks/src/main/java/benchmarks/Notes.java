@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates note contents for the benchmarks.
+ */
+public final class Notes {
+
+    private static final String[] PARAGRAPHS = {
+        "# Meeting notes\n\n",
+        "Discussed the *roadmap* for the next sprint with the `server` team.\n",
+        "- follow up on the _synchronization_ issue\n",
+        "- review the [design document](https://example.com/design)\n",
+        "Some plain text that goes on for a while without any special characters at all.\n",
+        "Tagged as #work and #planning, see the **summary** below.\n\n",
+    };
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Notes() {
+    }
+
+    /**
+     * Generates valid Markdown of about the given size, built from typical note paragraphs.
+     *
+     * @param size the number of characters to generate
+     * @param seed the seed of the random paragraph order
+     * @return the generated Markdown
+     */
+    public static String markdown(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(size + 128);
+        while (builder.length() < size) {
+            builder.append(PARAGRAPHS[random.nextInt(PARAGRAPHS.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import commons.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass tag scanner of Note with the line- and regex-based parser it
+ * replaced. Setting the content of a note parses its tags, so this runs on every keystroke.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per parse.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseTagsBenchmark {
+
+    @Param({"1024", "102400"})
+    private int size;
+
+    private String content;
+    private Note note;
+
+    /**
+     * Generates the note to parse.
+     */
+    @Setup
+    public void setUp() {
+        content = Notes.markdown(size, 30);
+        note = new Note("title", "", null);
+    }
+
+    /**
+     * Parses the tags with the single-pass scanner.
+     *
+     * @return the parsed tags
+     */
+    @Benchmark
+    public Set<String> scanner() {
+        note.setContent(content);
+        return note.getTags();
+    }
+
+    /**
+     * Parses the tags the way Note did before the scanner.
+     *
+     * @return the parsed tags
+     */
+    @Benchmark
+    public Set<String> regex() {
+        Set<String> tags = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String word : line.split("\\s+")) {
+                    if (word.startsWith("#") && word.length() > 1) {
+                        String tag = word.substring(1).replaceAll("[^a-zA-Z0-9]", "");
+                        if (!tag.isEmpty()) {
+                            tags.add(tag);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tags;
+    }
+}
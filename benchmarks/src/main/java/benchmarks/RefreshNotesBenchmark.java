@@ -0,0 +1,97 @@
+package benchmarks;
+
+import client.utils.ApplicationState;
+import client.utils.ServerUtils;
+import commons.Collection;
+import commons.Note;
+import commons.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures refreshing the list of notes shown by the client, which re-checks every note
+ * against the selected collection, the search query and the selected tags, with none or
+ * one of those filters active.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefreshNotesBenchmark {
+    private static final int COLLECTIONS = 10;
+
+    @Param({"10000"})
+    private int notes;
+
+    @Param({"none", "collection", "search", "tags"})
+    private String filter;
+
+    private ApplicationState state;
+
+    /**
+     * Loads the notes into the application state and applies the filter.
+     */
+    @Setup
+    public void setUp() {
+        List<Collection> collections = new ArrayList<>();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            Collection collection = new Collection("Collection " + i, "http://localhost:8080/");
+            collection.id = i;
+            collections.add(collection);
+        }
+        List<Note> list = new ArrayList<>(notes);
+        Tag work = new Tag("work");
+        for (int i = 0; i < notes; i++) {
+            Note note = new Note("Note " + i, Notes.markdown(300, i),
+                    collections.get(i % COLLECTIONS));
+            note.id = i;
+            list.add(note);
+            if (i % 3 == 0) {
+                work.noteIDs.add(note.id);
+            }
+        }
+
+        // the server isn't contacted by the filters
+        state = new ApplicationState(new ServerUtils());
+        state.setResourceBundle(
+                ResourceBundle.getBundle("Internationalization.Text", Locale.ENGLISH));
+        state.restoreState(list, collections);
+        switch (filter) {
+            case "collection" -> state.setSelectedCollectionFromIndex(3);
+            case "search" -> state.updateSearchQuery("roadmap");
+            case "tags" -> state.setSelectedTags(Set.of(work));
+            default -> {
+                // all notes are shown
+            }
+        }
+    }
+
+    /**
+     * Refreshes the shown notes.
+     *
+     * @return the number of notes shown
+     */
+    @Benchmark
+    public int refresh() {
+        state.refreshObservableNotes();
+        return state.getObservableNotes().size();
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import client.utils.TrigramIndex;
+import commons.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching the notes with the trigram index to scanning every title and content,
+ * which is what the search box did on every keystroke before the index.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per search.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"50000"})
+    private int notes;
+
+    // a title of a single note, and a word that occurs in a sixth of the notes
+    @Param({"Entry 31337", "roadmap"})
+    private String query;
+
+    private List<Note> source;
+    private TrigramIndex index;
+
+    /**
+     * Generates the notes and indexes them.
+     */
+    @Setup
+    public void setUp() {
+        source = new ArrayList<>(notes);
+        for (int i = 0; i < notes; i++) {
+            Note note = new Note("Entry " + i, Notes.markdown(200 + i % 1000, i), null);
+            note.id = i;
+            source.add(note);
+        }
+        index = new TrigramIndex();
+        index.sync(source);
+    }
+
+    /**
+     * Searches with the trigram index.
+     *
+     * @return the ids of the matching notes
+     */
+    @Benchmark
+    public Set<Long> indexed() {
+        return index.search(query);
+    }
+
+    /**
+     * Scans every note the way the search box did before the index.
+     *
+     * @return the ids of the matching notes
+     */
+    @Benchmark
+    public Set<Long> scan() {
+        String lowerCase = query.toLowerCase();
+        Set<Long> result = new HashSet<>();
+        for (Note note : source) {
+            if (note.title.toLowerCase().contains(lowerCase)
+                    || note.getContent().toLowerCase().contains(lowerCase)) {
+                result.add(note.id);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,141 @@
+package benchmarks;
+
+import commons.NoteBitmap;
+import commons.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares filtering notes by tags and computing the available tags with bitmaps to the
+ * boxed sets and streams used before.
+ * <p>
+ * Every note gets a few tags, with a skewed popularity so some tags are on many notes
+ * and most on a few, like tags typed by users.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagFilterBenchmark {
+
+    @Param({"100000"})
+    private int notes;
+
+    @Param({"5000"})
+    private int tagCount;
+
+    private List<Tag> tags;
+    private List<NoteBitmap> bitmaps;
+    private Set<Tag> selected;
+
+    /**
+     * Generates the tags of the notes.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(36);
+        tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(new Tag("tag" + i));
+        }
+        for (long id = 0; id < notes; id++) {
+            int count = 1 + random.nextInt(5);
+            for (int i = 0; i < count; i++) {
+                double skewed = Math.pow(random.nextDouble(), 3);
+                tags.get((int) (skewed * tagCount)).noteIDs.add(id);
+            }
+        }
+
+        bitmaps = new ArrayList<>(tagCount);
+        for (Tag tag : tags) {
+            bitmaps.add(tag.noteBitmap());
+        }
+        selected = Set.of(tags.get(0), tags.get(3), tags.get(10));
+    }
+
+    /**
+     * Counts the notes with all selected tags by intersecting their bitmaps.
+     *
+     * @return the number of notes
+     */
+    @Benchmark
+    public long filterBitmaps() {
+        NoteBitmap result = bitmaps.get(0).and(bitmaps.get(3)).and(bitmaps.get(10));
+        long count = 0;
+        for (long id = 0; id < notes; id++) {
+            if (result.contains(id)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the notes with all selected tags by looking every note up in every tag.
+     *
+     * @return the number of notes
+     */
+    @Benchmark
+    public long filterHashSets() {
+        long count = 0;
+        for (long id = 0; id < notes; id++) {
+            boolean all = true;
+            for (Tag tag : selected) {
+                all &= tag.noteIDs.contains(id);
+            }
+            if (all) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the tags sharing a note with the selected tags, with bitmaps.
+     *
+     * @return the available tags
+     */
+    @Benchmark
+    public Set<Tag> availableTagsBitmaps() {
+        NoteBitmap selectedNotes = bitmaps.get(0).or(bitmaps.get(3)).or(bitmaps.get(10));
+        Set<Tag> available = new HashSet<>();
+        for (int i = 0; i < tagCount; i++) {
+            if (bitmaps.get(i).intersects(selectedNotes)) {
+                available.add(tags.get(i));
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Finds the tags sharing a note with the selected tags, the way ApplicationState
+     * did before the bitmaps.
+     *
+     * @return the available tags
+     */
+    @Benchmark
+    public Set<Tag> availableTagsStreams() {
+        Set<Long> selectedNotes = selected.stream()
+                .flatMap(tag -> tag.noteIDs.stream())
+                .collect(Collectors.toSet());
+        return tags.stream()
+                .filter(tag -> tag.noteIDs.stream().anyMatch(selectedNotes::contains))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import client.utils.ApplicationState;
+import client.utils.ServerUtils;
+import client.utils.UndoRedoManager;
+import commons.Collection;
+import commons.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving the state for undo after editing one note, the way the client does when
+ * a note is edited, with a full history that evicts its oldest state on every save.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per saved state.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UndoRedoBenchmark {
+
+    @Param({"1000", "10000"})
+    private int notes;
+
+    private ApplicationState state;
+    private UndoRedoManager manager;
+    private List<Note> list;
+    private String[] contents;
+    private int next;
+
+    /**
+     * Loads the notes into the application state.
+     */
+    @Setup
+    public void setUp() {
+        Collection collection = new Collection("Collection", "http://localhost:8080/");
+        contents = new String[16];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = Notes.markdown(1000, i);
+        }
+        list = new ArrayList<>(notes);
+        for (int i = 0; i < notes; i++) {
+            Note note = new Note("Note " + i, contents[i % contents.length], collection);
+            note.id = i;
+            list.add(note);
+        }
+
+        state = new ApplicationState(new ServerUtils());
+        state.setResourceBundle(
+                ResourceBundle.getBundle("Internationalization.Text", Locale.ENGLISH));
+        state.restoreState(list, new ArrayList<>(List.of(collection)));
+        manager = new UndoRedoManager(state, 100, 64L * 1024 * 1024);
+    }
+
+    /**
+     * Edits the next note and saves the state.
+     *
+     * @return the number of states that can be undone
+     */
+    @Benchmark
+    public int saveState() {
+        Note note = list.get(next % notes);
+        // one ahead of the content the note got last time, so every save changes it
+        note.setContent(contents[(next + 1) % contents.length]);
+        next++;
+        manager.saveState(state);
+        return manager.getUndoSize();
+    }
+}
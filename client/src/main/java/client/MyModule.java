@@ -20,6 +20,8 @@ import client.scenes.ImageOptionsCtrl;
 import client.scenes.MainCtrl;
 import client.scenes.NoteOverviewCtrl;
 import client.utils.ApplicationState;
+import client.utils.ImageCache;
+import client.utils.MarkdownRenderService;
 import client.utils.ServerUtils;
 import com.google.inject.Binder;
 import com.google.inject.Module;
@@ -47,6 +49,8 @@ public class MyModule implements Module {
         binder.bind(ApplicationState.class).in(Scopes.SINGLETON);
         binder.bind(ServerUtils.class).in(Scopes.SINGLETON);
         binder.bind(Markdown.class).in(Scopes.SINGLETON);
+        binder.bind(MarkdownRenderService.class).in(Scopes.SINGLETON);
+        binder.bind(ImageCache.class).in(Scopes.SINGLETON);
         binder.bind(ImageOptionsCtrl.class).in(Scopes.SINGLETON);
     }
 }
\ No newline at end of file
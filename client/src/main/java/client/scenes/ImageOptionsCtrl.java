@@ -1,5 +1,6 @@
 package client.scenes;
 
+import client.utils.MarkdownRenderService;
 import client.utils.ServerUtils;
 import com.google.inject.Inject;
 import javafx.application.Platform;
@@ -24,6 +25,7 @@ import java.util.concurrent.atomic.AtomicReference;
 public class ImageOptionsCtrl implements Initializable {
     private Scene scene;
     private final ServerUtils server;
+    private final MarkdownRenderService renderService;
     private ResourceBundle resourceBundle;
     private File selectedImage;
 
@@ -39,10 +41,12 @@ public class ImageOptionsCtrl implements Initializable {
      * Constructor for ImageOptionsCtrl.
      *
      * @param server         the server object to communicate with the server
+     * @param renderService  the Markdown renderer, whose cached renders may embed images
      */
     @Inject
-    public ImageOptionsCtrl(ServerUtils server) {
+    public ImageOptionsCtrl(ServerUtils server, MarkdownRenderService renderService) {
         this.server = server;
+        this.renderService = renderService;
         Locale defaultLocale = Locale.ENGLISH;
         Locale.setDefault(Locale.ENGLISH);
 
@@ -149,6 +153,7 @@ public class ImageOptionsCtrl implements Initializable {
             try {
                 boolean success = server.uploadImage(selectedFile);
                 if (success) {
+                    renderService.invalidateImages();
                     showInformation("Image.uploadSuccess");
                     refreshViewList();
                 } else {
@@ -190,6 +195,7 @@ public class ImageOptionsCtrl implements Initializable {
         boolean success = server.deleteImage(id);
 
         if (success) {
+            renderService.invalidateImages();
             imageViewList.getItems().remove(selectedImage);
             showInformation("Image.deleteSuccess");
             refreshViewList();
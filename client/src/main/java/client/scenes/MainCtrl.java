@@ -99,7 +99,7 @@ public class MainCtrl {
         // remove log from importing spring dependencies
         // https://stackoverflow.com/a/78063825
         System.setProperty("slf4j.internal.verbosity", "WARN");
-        state.connectWebsocket();
+        state.connectSync(appConfig.getSyncTransport());
     }
 
     /**
@@ -123,7 +123,8 @@ public class MainCtrl {
 
             try {
                 configService.saveConfig(
-                        appConfig.getSelectedLanguage(), state.getSelectedCollection()
+                        appConfig.getSelectedLanguage(), state.getSelectedCollection(),
+                        appConfig.getSyncTransport()
                 );
             } catch (IOException e) {
                 System.out.println("Config save problem.");
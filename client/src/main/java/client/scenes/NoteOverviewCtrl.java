@@ -20,15 +20,14 @@ import client.utils.*;
 import client.utils.UndoRedoManager;
 import com.google.inject.Inject;
 import commons.AppConfig;
-import commons.Files;
 import commons.Note;
 import commons.Tag;
 import javafx.animation.AnimationTimer;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
-import javafx.beans.InvalidationListener;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -47,15 +46,11 @@ import javafx.scene.web.WebView;
 import javafx.stage.Popup;
 import javafx.stage.StageStyle;
 import javafx.util.Duration;
-import org.commonmark.node.Node;
-import org.commonmark.parser.Parser;
-import org.commonmark.renderer.html.HtmlRenderer;
 
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 
 
@@ -67,6 +62,7 @@ public class NoteOverviewCtrl implements Initializable {
     private final LinkedHashMap<String, Locale> languages = createLanguagesMap();
     private final UndoRedoManager undoRedoManager;
     private final Markdown markdown;
+    private final MarkdownRenderService renderService;
     private PauseTransition idlePause;
 
     @FXML
@@ -117,14 +113,17 @@ public class NoteOverviewCtrl implements Initializable {
      * @param mainCtrl        The main controller
      * @param undoRedoManager The undo redo manager
      * @param markdown        The Markdown syntax checker
+     * @param renderService   The background Markdown renderer of the WebView
      */
     @Inject
     public NoteOverviewCtrl(ApplicationState state, MainCtrl mainCtrl,
-                            UndoRedoManager undoRedoManager, Markdown markdown) {
+                            UndoRedoManager undoRedoManager, Markdown markdown,
+                            MarkdownRenderService renderService) {
         this.state = state;
         this.mainCtrl = mainCtrl;
         this.undoRedoManager = undoRedoManager;
         this.markdown = markdown;
+        this.renderService = renderService;
         Locale initialLocale = mainCtrl.getAppConfig().getSelectedLanguage();
         ResourceBundle initialBundle = ResourceBundle
                 .getBundle("Internationalization.Text", initialLocale);
@@ -187,11 +186,7 @@ public class NoteOverviewCtrl implements Initializable {
             }
         };
 
-        state.getObservableNotes().addListener((InvalidationListener) _ -> {
-            int index = state.getFilteredIndexFromLastNonNullSelectedNote();
-
-            Platform.runLater(() -> myNotesList.getSelectionModel().select(index));
-        });
+        setOnNoteListChangeEventListener();
 
         mySelectedNoteCollection.getSelectionModel().selectedIndexProperty()
                 .addListener(onNoteCollectionChange);
@@ -211,6 +206,7 @@ public class NoteOverviewCtrl implements Initializable {
         });
 
         myNoteContent.textProperty().addListener(onNoteContentChange);
+        state.setOnRemoteContentChange(this::showRemoteContent);
 
         WebEngine webEngine = myWebView.getEngine();
         URL cssUrl = getClass().getClassLoader().getResource("style.css");
@@ -318,6 +314,29 @@ public class NoteOverviewCtrl implements Initializable {
                 });
     }
 
+    /**
+     * Set event listener that keeps the last selected note selected when the note list changes.
+     */
+    private void setOnNoteListChangeEventListener() {
+        state.getObservableNotes().addListener((ListChangeListener<String>) change -> {
+            int index = state.getFilteredIndexFromLastNonNullSelectedNote();
+            boolean selectedReplaced = false;
+            while (change.next()) {
+                selectedReplaced |= change.wasReplaced()
+                        && index >= change.getFrom() && index < change.getTo();
+            }
+
+            // a replaced note has new contents, so select it again to reload it
+            boolean reload = selectedReplaced;
+            Platform.runLater(() -> {
+                if (reload) {
+                    myNotesList.getSelectionModel().clearSelection();
+                }
+                myNotesList.getSelectionModel().select(index);
+            });
+        });
+    }
+
     /**
      * Set event listener when note selection changes.
      */
@@ -363,6 +382,27 @@ public class NoteOverviewCtrl implements Initializable {
     }
 
 
+    /**
+     * Shows the content of the selected note after another client edited it, keeping the
+     * selection and the caret at the same characters and the scroll position as it is.
+     *
+     * @param note      the selected note
+     * @param positions maps positions in the shown content to positions in the new content
+     */
+    private void showRemoteContent(Note note, IntUnaryOperator positions) {
+        String content = note.getContent();
+        if (content.equals(myNoteContent.getText())) {
+            return;
+        }
+        int anchor = Math.min(positions.applyAsInt(myNoteContent.getAnchor()), content.length());
+        int caret = Math.min(positions.applyAsInt(myNoteContent.getCaretPosition()),
+                content.length());
+        double scrollTop = myNoteContent.getScrollTop();
+        myNoteContent.setText(content);
+        myNoteContent.selectRange(anchor, caret);
+        myNoteContent.setScrollTop(scrollTop);
+    }
+
     /**
      * Disable all note elements (or enable).
      *
@@ -570,9 +610,9 @@ public class NoteOverviewCtrl implements Initializable {
     /**
      * Updates the content of the WebView to display the rendered HTML of the given Markdown text.
      * <p>
-     * The method validates the Markdown syntax,
-     * parses it into HTML, and displays the content in the WebView.
-     * If the Markdown content is invalid, an error message is logged to the console.
+     * The Markdown is validated and rendered to HTML in the background by the
+     * MarkdownRenderService, and the result is displayed in the WebView once it is ready.
+     * Only the most recent text is displayed, so renders of outdated content are dropped.
      * The method handles cases where no note is selected,
      * the note list is empty, or the note content is empty.
      * </p>
@@ -587,6 +627,7 @@ public class NoteOverviewCtrl implements Initializable {
 
         if (myNotesList.getSelectionModel().getSelectedIndex() < 0
                 || myNotesList.getItems().isEmpty()) {
+            renderService.cancel();
             String defaultMessage = "<html><body><h2>"
                     + resourceBundle.getString("Note.noSelectedNote")
                     + "</h2><p>"
@@ -597,6 +638,7 @@ public class NoteOverviewCtrl implements Initializable {
         }
 
         if (text == null || text.trim().isEmpty()) {
+            renderService.cancel();
             String emptyNoteMessage = "<html><body><h2>"
                     + resourceBundle.getString("Note.emptyNote")
                     + "</h2><p>"
@@ -606,82 +648,9 @@ public class NoteOverviewCtrl implements Initializable {
             return;
         }
 
-        try {
-            Parser parser = Parser.builder().build();
-            Node document = parser.parse(text);
-            HtmlRenderer renderer = HtmlRenderer.builder().build();
-            String htmlContent = renderer.render(document);
-
-            webEngine.loadContent(htmlContent, "text/html");
-
-            try {
-                markdown.validateMarkdownSyntax(text);
-            } catch (MarkdownSyntaxException e) {
-                System.err.println("Markdown syntax issues:" + e.getMessage());
-            }
-        } catch (Exception e) {
-            String fallbackContent = "<html><body><pre>"
-                    + escapeHtml(text) + "</pre></body></html>";
-            webEngine.loadContent(fallbackContent, "text/html");
-            System.err.println("Error rendering Markdown: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Escapes HTML characters in the text to prevent rendering issues.
-     *
-     * @param text the text the will be modified
-     * @return a string with replaced text
-     */
-    private String escapeHtml(String text) {
-        return text.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#x27;");
+        renderService.render(text, htmlContent -> webEngine.loadContent(htmlContent, "text/html"));
     }
 
-    /**
-     * Returns the Markdown text with the correct image syntax to render.
-     *
-     * @param text the Markdown text to be modified for the image
-     * @return the corrected Markdown text with the correct image syntax
-     */
-    private String markdownImage(String text) {
-        Pattern pattern = Pattern.compile("!\\[.*?]\\(.*?\\)");
-        Matcher matcher = pattern.matcher(text);
-        List<String> markdownPlaceHolders = new ArrayList<>();
-        while (matcher.find()) {
-            markdownPlaceHolders.add(matcher.group());
-        }
-
-        List<Files> filesMap = state.getAllImages();
-
-        for (String markdownPlaceHolder : markdownPlaceHolders) {
-            String imageName = markdownPlaceHolder.substring(
-                    markdownPlaceHolder.indexOf('[') + 1, markdownPlaceHolder.indexOf(']'));
-            String imageType = markdownPlaceHolder.substring(
-                    markdownPlaceHolder.lastIndexOf('.') + 1, markdownPlaceHolder.indexOf(')'));
-
-            Files correspondingFiles = null;
-            for (Files files : filesMap) {
-                if (files.getName().equals(imageName) && files.getType().equals(imageType)) {
-                    correspondingFiles = files;
-                    break;
-                }
-            }
-            if (correspondingFiles != null) {
-                String base64Image = Base64.getEncoder()
-                        .encodeToString(correspondingFiles.getImageByte());
-                String imageSrc = "<img alt='" + imageName + "' src='data:image/" + imageType
-                        + ";base64," + base64Image + "' />";
-                text = text.replace(markdownPlaceHolder, imageSrc);
-            }
-        }
-        return text;
-    }
-
-
     /**
      * Overloaded method of updateWebView.
      * This method ensures that the FXML can initialize the class,
@@ -717,13 +686,9 @@ public class NoteOverviewCtrl implements Initializable {
 
         try {
             markdown.validateMarkdownSyntax(text);
+            markdown.renderHtml(text);
 
-            Parser parser = Parser.builder().build();
-            Node document = parser.parse(text);
-
-            HtmlRenderer renderer = HtmlRenderer.builder().build();
-            renderer.render(document);
-
+            renderService.cancel();
             myWebView.getEngine().loadContent("<html><body><h2>" +
                     resourceBundle.getString("Markdown.syntax") +
                     "</h2><p>" +
@@ -731,10 +696,12 @@ public class NoteOverviewCtrl implements Initializable {
                     "</p></body></html>", "text/html");
 
         } catch (MarkdownSyntaxException e) {
+            renderService.cancel();
             String title = resourceBundle.getString("Note.syntaxError");
             myWebView.getEngine().loadContent("<html><body><h2>" + title + "</h2><p>"
                     + e.getMessage().replaceAll("\n", "<br>") + "</p></body></html>", "text/html");
         } catch (Exception e) {
+            renderService.cancel();
             myWebView.getEngine().loadContent("<html><body><h2>" +
                     resourceBundle.getString("Markdown.unexpectedError") +
                     "</h2><p>"
@@ -18,8 +18,10 @@ import org.springframework.web.socket.messaging.WebSocketStompClient;
 
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.IntUnaryOperator;
 import java.util.prefs.Preferences;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class ApplicationState {
@@ -33,22 +35,32 @@ public class ApplicationState {
     private Collection defaultCollection;
 
     private List<Note> notes; // all notes
-    private final List<Note> filteredNotes; // filtered subset of `notes`
-    private final ObservableList<String> observableNotes; // title of `filteredNotes`
+    private final FilteredNoteView noteView; // filtered subset of `notes` and their titles
     private Note selectedNote;
     private Note lastNonNullSelectedNote;
-    private String searchQuery;
+
+    // titles of the notes per collection id, and of the collections, to find free titles
+    private final Map<Long, TitleIndex> noteTitles = new HashMap<>();
+    private final TitleIndex collectionTitles = new TitleIndex();
 
     private ResourceBundle resourceBundle;
     private final WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
     private WebSocketStompClient stompClient;
     private StompSession stompSession;
+    private SseSyncClient sseSyncClient;
+    // identifies this client's own synchronizations in the server-sent event stream
+    private final String clientId = UUID.randomUUID().toString();
     private final Map<Long, Runnable> autoSyncQueue;
+    // collaborative texts of the notes selected so far, merged with the edits of other clients
+    private final Map<Long, CollaborativeText> texts = new HashMap<>();
+    private final Set<Long> loadingTexts = new HashSet<>(); // ids of the texts being loaded
+    private BiConsumer<Note, IntUnaryOperator> remoteContentListener;
 
 
     private final Set<Tag> tags; // all tags
     private Set<Tag> filteredTags; // filtered subset of tags
     private Set<Tag> selectedTags; // selected tags to filter by
+    private final Map<String, NoteBitmap> tagNotes = new HashMap<>(); // note ids per tag title
 
     private final String defaultCollectionIdKey = "defaultCollectionId";
     private final Preferences preferences = Preferences.userNodeForPackage(ApplicationState.class);
@@ -66,15 +78,15 @@ public class ApplicationState {
         observableCollectionsWithAll = FXCollections.observableArrayList();
 
         notes = new ArrayList<>();
-        filteredNotes = new ArrayList<>();
-        observableNotes = FXCollections.observableArrayList();
+        noteView = new FilteredNoteView(this::noteBitmapOf);
+        noteView.setSource(notes);
 
         tags = new HashSet<>();
         selectedTags = new HashSet<>();
         filteredTags = new HashSet<>();
 
-        searchQuery = "";
-
+        // before the timer starts, which runs at once on its own thread
+        autoSyncQueue = new HashMap<>();
         Timer timer = new Timer(true);
         timer.scheduleAtFixedRate(new TimerTask() {
             @Override
@@ -82,8 +94,6 @@ public class ApplicationState {
                 handleAutoContentSyncTimer();
             }
         }, 0, 3000);
-
-        autoSyncQueue = new HashMap<>();
     }
 
     /**
@@ -121,16 +131,77 @@ public class ApplicationState {
             System.out.println("No default collection set.");
         }
 
+        keepTextContents();
+        rebuildTitleIndexes();
+
         tags.clear();
+        tagNotes.clear();
         List<Tag> serverTags = server.getAllTags();
         if (serverTags != null) {
             tags.addAll(serverTags);
         }
 
+        relinkSelectedNote();
         refreshObservableCollections();
         refreshObservableNotes();
     }
 
+    /**
+     * Gives the notes edited collaboratively the content of their texts, which may be newer
+     * than the saved content, and forgets the texts of notes that no longer exist.
+     */
+    private void keepTextContents() {
+        Set<Long> ids = new HashSet<>();
+        for (Note note : notes) {
+            CollaborativeText text = texts.get(note.id);
+            if (text != null) {
+                note.setContent(text.text());
+                ids.add(note.id);
+            }
+        }
+        texts.keySet().retainAll(ids);
+    }
+
+    /**
+     * Rebuilds the title indexes from the notes and collections lists.
+     */
+    private void rebuildTitleIndexes() {
+        noteTitles.clear();
+        for (Note note : notes) {
+            noteTitlesOf(note.collection).add(note.title);
+        }
+        collectionTitles.clear();
+        for (Collection collection : collections) {
+            collectionTitles.add(collection.title);
+        }
+    }
+
+    /**
+     * Returns the index of the titles of the notes in a collection.
+     *
+     * @param collection the collection, may be null
+     * @return the title index of the collection
+     */
+    private TitleIndex noteTitlesOf(Collection collection) {
+        return noteTitles.computeIfAbsent(collection == null ? null : collection.id,
+                _ -> new TitleIndex());
+    }
+
+    /**
+     * Points the selected note to the instance in the notes list with the same id,
+     * after the notes were replaced by new instances.
+     */
+    private void relinkSelectedNote() {
+        for (Note note : notes) {
+            if (selectedNote != null && note.id == selectedNote.id) {
+                selectedNote = note;
+            }
+            if (lastNonNullSelectedNote != null && note.id == lastNonNullSelectedNote.id) {
+                lastNonNullSelectedNote = note;
+            }
+        }
+    }
+
     /**
      * Returns the list of all notes.
      *
@@ -209,55 +280,17 @@ public class ApplicationState {
      * @return Observable list of note titles
      */
     public ObservableList<String> getObservableNotes() {
-        return observableNotes;
+        return noteView.getTitles();
     }
 
     /**
      * Updates observable note title list to match the notes list.
      * Also makes sure to filter based on current collection and on the search query.
      * Also makes sure to filter based on tags selected by user.
+     * Only the titles that changed are updated in the observable list.
      */
     public void refreshObservableNotes() {
-        if (selectedCollection != null) {
-            List<Note> collectionFiltered = notes.stream()
-                    .filter(n -> Objects.equals(n.collection, selectedCollection)).toList();
-
-            filteredNotes.clear();
-            filteredNotes.addAll(collectionFiltered);
-        } else {
-            filteredNotes.clear();
-            filteredNotes.addAll(notes);
-        }
-
-        List<Note> searchFiltered = filteredNotes.stream()
-                .filter(n -> n.title.toLowerCase().contains(searchQuery.toLowerCase())
-                        || n.getContent().toLowerCase().contains(searchQuery.toLowerCase())
-                ).toList();
-
-        filteredNotes.clear();
-        filteredNotes.addAll(searchFiltered);
-
-        if (!selectedTags.isEmpty()) {
-            List<Note> tagFilteredNotes = new ArrayList<>();
-            for (Note note : filteredNotes) {
-                boolean isInAllTags = true;
-                for (Tag tag : selectedTags) {
-                    if (!tag.noteIDs.contains(note.id)) {
-                        isInAllTags = false;
-                        break;
-                    }
-                }
-                if (isInAllTags) {
-                    tagFilteredNotes.add(note);
-                }
-            }
-
-            filteredNotes.clear();
-            filteredNotes.addAll(tagFilteredNotes);
-        }
-
-        List<String> noteTitles = filteredNotes.stream().map(n -> n.title).toList();
-        observableNotes.setAll(noteTitles);
+        noteView.refresh();
     }
 
     /**
@@ -269,7 +302,9 @@ public class ApplicationState {
     public void restoreState(List<Note> restoredNotes, List<Collection> restoredCollections) {
         this.notes = restoredNotes;
         this.collections = restoredCollections;
-        refreshObservableNotes();
+        rebuildTitleIndexes();
+        relinkSelectedNote();
+        noteView.setSource(restoredNotes);
         refreshObservableCollections();
     }
 
@@ -280,6 +315,7 @@ public class ApplicationState {
      * @return Note data
      */
     public Note getNoteFromFilteredIndex(int index) {
+        List<Note> filteredNotes = noteView.getNotes();
         if (index < 0 || index >= filteredNotes.size()) return null;
 
         return filteredNotes.get(index);
@@ -291,6 +327,7 @@ public class ApplicationState {
      * @param index The current selected note index
      */
     public void setSelectedNoteFromFilteredIndex(int index) {
+        List<Note> filteredNotes = noteView.getNotes();
         if (index >= filteredNotes.size()) return;
         if (index < 0) {
             selectedNote = null;
@@ -299,6 +336,10 @@ public class ApplicationState {
 
         selectedNote = filteredNotes.get(index);
         lastNonNullSelectedNote = selectedNote;
+        if (!texts.containsKey(selectedNote.id)) {
+            // content waiting to be saved is newer than the text on the server
+            openText(selectedNote, autoSyncQueue.remove(selectedNote.id) != null);
+        }
     }
 
     /**
@@ -310,10 +351,7 @@ public class ApplicationState {
         if (lastNonNullSelectedNote == null) return -1;
 
         // find matching note with the same id
-        Note matchingNote = filteredNotes.stream()
-                .filter(n -> n.id == lastNonNullSelectedNote.id).findFirst().orElse(null);
-
-        return filteredNotes.indexOf(matchingNote);
+        return noteView.indexOf(lastNonNullSelectedNote.id);
     }
 
     /**
@@ -344,15 +382,13 @@ public class ApplicationState {
         Note savedNote = server.addNote(newNote);
 
         notes.add(savedNote);
-        refreshObservableNotes();
+        noteTitlesOf(savedNote.collection).add(savedNote.title);
+        noteView.noteChanged(savedNote);
 
         showServerAlertInformation("State.noteAdded");
 
-        if (stompSession != null) {
-            stompSession.send("/app/synchronize",
-                    new Synchronization(SynchronizationType.CREATE,
-                            savedNote.id, savedNote.title, savedNote.getContent()));
-        }
+        sendSynchronization(new Synchronization(SynchronizationType.CREATE,
+                savedNote.id, savedNote.title, savedNote.getContent()));
     }
 
     /**
@@ -365,46 +401,10 @@ public class ApplicationState {
         Collection noteCollection = selectedCollectionIndex < 0 ? defaultCollection
                 : collections.get(selectedCollectionIndex);
 
-        String newTitle = "New note";
-        int newTitleNumber = getNewTitleNumber(newTitle);
-
-        if (newTitleNumber != 0) {
-            newTitle = newTitle + " " + newTitleNumber;
-        }
-
+        String newTitle = noteTitlesOf(noteCollection).nextTitle("New note");
         return new Note(newTitle, "", noteCollection);
     }
 
-    /**
-     * Returns the next number so that collections are automatically numbered.
-     *
-     * @param newTitle the new title of the collection
-     * @return the number
-     */
-    private int getNewTitleNumber(String newTitle) {
-        boolean titleExists = false;
-        int newTitleNumber = 0;
-
-        for (Note note : notes) {
-            if (note.title.equals(newTitle)) {
-                titleExists = true;
-                break;
-            }
-        }
-
-        while (titleExists) {
-            titleExists = false;
-            newTitleNumber++;
-            for (Note note : notes) {
-                if (note.title.equals(newTitle + " " + newTitleNumber)) {
-                    titleExists = true;
-                    break;
-                }
-            }
-        }
-        return newTitleNumber;
-    }
-
     /**
      * Updates note title of selected note in state and updates observable list.
      *
@@ -420,14 +420,14 @@ public class ApplicationState {
         if (title == null || selectedNote.title.equals(title)) return;
 
         title = title.trim();
-        for (Note note : notes) {
-            if (note.title.equals(title) && !note.equals(selectedNote)
-                    && note.collection.equals(selectedNote.collection)) {
-                showServerAlertWarning("State.noteTitleExists");
-                return;
-            }
+        TitleIndex titles = noteTitlesOf(selectedNote.collection);
+        if (titles.count(title) > (title.equals(selectedNote.title) ? 1 : 0)) {
+            showServerAlertWarning("State.noteTitleExists");
+            return;
         }
 
+        titles.remove(selectedNote.title);
+        titles.add(title);
         selectedNote.title = title;
         Note updatedNote = server.updateNote(selectedNote.id, selectedNote);
         if (updatedNote == null) {
@@ -435,33 +435,146 @@ public class ApplicationState {
             return;
         }
 
-        refreshObservableNotes();
+        noteView.noteChanged(selectedNote);
 
-        if (stompSession != null) {
-            stompSession.send("/app/synchronize",
-                    new Synchronization(SynchronizationType.UPDATE,
-                            updatedNote.id, updatedNote.title, updatedNote.getContent()));
-        }
+        sendSynchronization(new Synchronization(SynchronizationType.UPDATE,
+                updatedNote.id, updatedNote.title, updatedNote.getContent()));
     }
 
     /**
-     * Updates note content of selected note in state.
+     * Updates note content of selected note in state. If the collaborative text of the note
+     * is loaded, the change is sent to the server at once as operations on the text, which are
+     * merged with the edits of other clients; otherwise the content is saved by the autosave.
      *
      * @param content The updated content of the note
      */
     public void updateSelectedNoteContent(String content) {
-        if (selectedNote == null) return;
-        if (content == null || selectedNote.getContent().equals(content)) return;
+        if (selectedNote == null || content == null) return;
+        CollaborativeText text = texts.get(selectedNote.id);
+        if (text != null) {
+            editText(selectedNote, text, content);
+            return;
+        }
+        if (selectedNote.getContent().equals(content)) return;
 
         selectedNote.setContent(content);
+        noteView.contentChanged(selectedNote);
+        queueContentUpdate(selectedNote);
+    }
+
+    /**
+     * Changes the content of a note by editing its collaborative text, and sends the
+     * operations to the server.
+     *
+     * @param note    the note
+     * @param text    the collaborative text of the note
+     * @param content the new content
+     */
+    private void editText(Note note, CollaborativeText text, String content) {
+        if (!note.getContent().equals(content)) {
+            note.setContent(content);
+            noteView.contentChanged(note);
+        }
+        List<TextOperation> operations = text.edit(content);
+        if (operations.isEmpty()) return;
+
+        Synchronization edit = new Synchronization(SynchronizationType.EDIT,
+                note.id, note.title, null);
+        edit.operations = operations;
+        if (!sendSynchronization(edit)) {
+            // the server forgot the text, or isn't available
+            texts.remove(note.id);
+            openText(note, true);
+        }
+    }
+
+    /**
+     * Loads the collaborative text of a note from the server in the background, which the
+     * content of the note is edited with once it arrived. Until then, changes of the content
+     * are saved by the autosave.
+     *
+     * @param note        the note
+     * @param keepContent whether the content of the note has changes the server doesn't have,
+     *                    which are sent as an edit of the loaded text, instead of replacing
+     *                    the content by the loaded text
+     */
+    private void openText(Note note, boolean keepContent) {
+        if (!loadingTexts.add(note.id)) return;
+        String requestedContent = note.getContent();
+        CompletableFuture.supplyAsync(() -> server.getNoteText(note.id))
+                .exceptionally(_ -> null)
+                .thenAccept(snapshot -> Platform.runLater(() -> {
+                    loadingTexts.remove(note.id);
+                    textLoaded(note.id, keepContent, requestedContent, snapshot);
+                }));
+    }
+
+    /**
+     * Starts editing a note with the collaborative text loaded from the server. If the content
+     * of the note was changed while the text was loaded, the changes of this client are sent
+     * as an edit of the text, and the text is loaded again after changes of other clients.
+     *
+     * @param noteId           the id of the note
+     * @param keepContent      whether the content had changes the server doesn't have when
+     *                         the text was requested
+     * @param requestedContent the content of the note when the text was requested
+     * @param snapshot         the operations of the text, or null if it couldn't be loaded
+     */
+    private void textLoaded(long noteId, boolean keepContent, String requestedContent,
+                            List<TextOperation> snapshot) {
+        // a refresh replaces the notes, or the note was deleted meanwhile
+        Note note = notes.stream().filter(n -> n.id == noteId).findFirst().orElse(null);
+        if (note == null || texts.containsKey(noteId)) return;
+        if (!note.getContent().equals(requestedContent)) {
+            if (autoSyncQueue.remove(noteId) == null) {
+                openText(note, keepContent);
+                return;
+            }
+            keepContent = true;
+        }
+
+        CollaborativeText text = new CollaborativeText(clientId);
+        if (snapshot == null || !text.applyAll(snapshot)) {
+            if (keepContent) {
+                queueContentUpdate(note);
+            }
+            return;
+        }
+        texts.put(note.id, text);
+        if (!keepContent) {
+            if (!note.getContent().equals(text.text())) {
+                note.setContent(text.text());
+                noteView.contentChanged(note);
+                // the editor shows the note already
+                if (note == selectedNote && remoteContentListener != null) {
+                    remoteContentListener.accept(note, positionsAfterEdit(null, null));
+                }
+            }
+            return;
+        }
 
+        Synchronization edit = new Synchronization(SynchronizationType.EDIT,
+                note.id, note.title, null);
+        edit.operations = text.edit(note.getContent());
+        if (!edit.operations.isEmpty() && !sendSynchronization(edit)) {
+            texts.remove(note.id);
+            queueContentUpdate(note);
+        }
+    }
+
+    /**
+     * Puts the update of the content of a note to the server in the autosave queue.
+     *
+     * @param note the note
+     */
+    private void queueContentUpdate(Note note) {
         // a copy needs to be made, otherwise the autosave will wait 2 seconds and then
         // use a more recent copy of this.selectedNote, which messes everything up
         Note copyNote = new Note();
-        copyNote.id = selectedNote.id;
-        copyNote.title = selectedNote.title;
-        copyNote.setContent(selectedNote.getContent());
-        copyNote.collection = selectedNote.collection;
+        copyNote.id = note.id;
+        copyNote.title = note.title;
+        copyNote.setContent(note.getContent());
+        copyNote.collection = note.collection;
 
         // put the update to the server in the queue
         autoSyncQueue.put(copyNote.id, () -> {
@@ -471,11 +584,8 @@ public class ApplicationState {
                 return;
             }
 
-            if (stompSession != null) {
-                stompSession.send("/app/synchronize",
-                        new Synchronization(SynchronizationType.UPDATE,
-                                copyNote.id, copyNote.title, copyNote.getContent()));
-            }
+            sendSynchronization(new Synchronization(SynchronizationType.UPDATE,
+                    copyNote.id, copyNote.title, copyNote.getContent()));
         });
     }
 
@@ -492,6 +602,7 @@ public class ApplicationState {
 
         // remove note from sync queue first
         autoSyncQueue.remove(selectedNote.id);
+        texts.remove(selectedNote.id);
 
         Note deletedNote = server.deleteNoteById(selectedNote.id);
         if (deletedNote == null) {
@@ -499,13 +610,11 @@ public class ApplicationState {
             return;
         }
         notes.remove(selectedNote);
-        refreshObservableNotes();
+        noteTitlesOf(selectedNote.collection).remove(selectedNote.title);
+        noteView.noteRemoved(selectedNote);
 
-        if (stompSession != null) {
-            stompSession.send("/app/synchronize",
-                    new Synchronization(SynchronizationType.DELETE,
-                            deletedNote.id, deletedNote.title, deletedNote.getContent()));
-        }
+        sendSynchronization(new Synchronization(SynchronizationType.DELETE,
+                deletedNote.id, deletedNote.title, deletedNote.getContent()));
     }
 
     /**
@@ -549,7 +658,7 @@ public class ApplicationState {
             selectedCollection = collections.get(selectedCollectionIndex);
         }
 
-        refreshObservableNotes();
+        noteView.setCollection(selectedCollection);
     }
 
     /**
@@ -562,6 +671,7 @@ public class ApplicationState {
         Collection savedCollection = server.addCollection(newCollection);
 
         collections.add(savedCollection);
+        collectionTitles.add(savedCollection.title);
         setDefaultCollectionFromIndex(collections.size() - 1);
         refreshObservableCollections();
         refreshObservableNotes();
@@ -582,7 +692,7 @@ public class ApplicationState {
 
         String newTitle = "New Collection";
         String newNameId = "new-collection";
-        int newTitleNumber = getTitleNumber(newTitle);
+        int newTitleNumber = collectionTitles.nextNumber(newTitle);
 
         if (newTitleNumber != 0) {
             newTitle = newTitle + " " + newTitleNumber;
@@ -598,42 +708,13 @@ public class ApplicationState {
         }
 
         collections.add(savedCollection);
+        collectionTitles.add(savedCollection.title);
         refreshObservableCollections();
         refreshObservableNotes();
 
         showServerAlertInformation("State.collectionAdded");
     }
 
-    /**
-     * Returns the next number so that notes can be automatically numbered.
-     *
-     * @param newTitle the new title of the note
-     * @return the number
-     */
-    private int getTitleNumber(String newTitle) {
-        boolean titleExists = false;
-        int newTitleNumber = 0;
-
-        for (Collection collection : collections) {
-            if (collection.title.equals(newTitle)) {
-                titleExists = true;
-                break;
-            }
-        }
-
-        while (titleExists) {
-            titleExists = false;
-            newTitleNumber++;
-            for (Collection collection : collections) {
-                if (collection.title.equals(newTitle + " " + newTitleNumber)) {
-                    titleExists = true;
-                    break;
-                }
-            }
-        }
-        return newTitleNumber;
-    }
-
     /**
      * Update collection data from index.
      *
@@ -655,13 +736,13 @@ public class ApplicationState {
             return;
 
         title = title.trim();
-        for (Collection collection : collections) {
-            if (collection.title.equals(title) && !collection.equals(c)) {
-                showServerAlertWarning("State.collectionTitleExists");
-                return;
-            }
+        if (collectionTitles.count(title) > (title.equals(c.title) ? 1 : 0)) {
+            showServerAlertWarning("State.collectionTitleExists");
+            return;
         }
 
+        collectionTitles.remove(c.title);
+        collectionTitles.add(title);
         c.title = title;
         c.serverUrl = server.getServer() + "collections/" +
                 title.trim().toLowerCase().replaceAll("\\s+", "-");
@@ -713,21 +794,20 @@ public class ApplicationState {
 
         if (selectedNote.collection == c) return;
 
-        for (Note note : notes) {
-            if (note.title.equals(selectedNote.title) && !note.equals(selectedNote)
-                    && note.collection.equals(c)) {
-                showServerAlertWarning("State.noteTitleExists");
-                return;
-            }
+        if (c != null && noteTitlesOf(c).contains(selectedNote.title)) {
+            showServerAlertWarning("State.noteTitleExists");
+            return;
         }
 
+        noteTitlesOf(selectedNote.collection).remove(selectedNote.title);
+        noteTitlesOf(c).add(selectedNote.title);
         selectedNote.collection = c;
         Note updatedNote = server.updateNote(selectedNote.id, selectedNote);
         if (updatedNote == null) {
             showServerAlertWarning("Alert.unableToUpdateNote");
             return;
         }
-        refreshObservableNotes();
+        noteView.noteChanged(selectedNote);
     }
 
     /**
@@ -753,6 +833,7 @@ public class ApplicationState {
         try {
             server.deleteCollectionById(c.id);
             collections.remove(index);
+            collectionTitles.remove(c.title);
 
             showServerAlertInformation("EditCollection.deleted");
 
@@ -768,7 +849,9 @@ public class ApplicationState {
                 }
             }
         } catch (Exception e) {
-            collections.remove(c);
+            if (collections.remove(c)) {
+                collectionTitles.remove(c.title);
+            }
             Collection deletedCollection = server.deleteCollectionById(c.id);
             if (deletedCollection == null) {
                 showServerAlertWarning("Alert.serverNotAvailable");
@@ -873,9 +956,7 @@ public class ApplicationState {
      * @param query The search query
      */
     public void updateSearchQuery(String query) {
-        searchQuery = query;
-
-        refreshObservableNotes();
+        noteView.setQuery(query);
     }
 
     /**
@@ -931,15 +1012,31 @@ public class ApplicationState {
         if (selectedTags.isEmpty()) {
             this.filteredTags = new HashSet<>(tags);
         } else {
-            Set<Long> filteredNoteIds = selectedTags.stream()
-                    .flatMap(tag -> tag.noteIDs.stream())
-                    .collect(Collectors.toSet());
+            NoteBitmap selectedNotes = new NoteBitmap();
+            for (Tag tag : selectedTags) {
+                selectedNotes = selectedNotes.or(noteBitmapOf(tag));
+            }
 
-            this.filteredTags = tags.stream()
-                    .filter(tag -> tag.noteIDs.stream().anyMatch(filteredNoteIds::contains))
-                    .collect(Collectors.toSet());
+            Set<Tag> available = new HashSet<>();
+            for (Tag tag : tags) {
+                if (noteBitmapOf(tag).intersects(selectedNotes)) {
+                    available.add(tag);
+                }
+            }
+            this.filteredTags = available;
         }
-        refreshObservableNotes();
+        noteView.setSelectedTags(selectedTags);
+    }
+
+    /**
+     * Returns the bitmap of the notes of a tag, creating it the first time it is needed
+     * after the tags were loaded.
+     *
+     * @param tag the tag
+     * @return the ids of the notes with the tag
+     */
+    private NoteBitmap noteBitmapOf(Tag tag) {
+        return tagNotes.computeIfAbsent(tag.title, _ -> tag.noteBitmap());
     }
 
     /**
@@ -959,6 +1056,119 @@ public class ApplicationState {
         Platform.runLater(this::refresh);
     }
 
+    /**
+     * Handles a synchronization received from the server. Edits are applied to the content
+     * of their note, everything else refreshes all notes.
+     *
+     * @param synchronization the synchronization
+     */
+    public void handleSynchronization(Synchronization synchronization) {
+        if (synchronization.type == SynchronizationType.EDIT) {
+            Platform.runLater(() -> applyRemoteEdit(synchronization));
+        } else {
+            handleSynchronization();
+        }
+    }
+
+    /**
+     * Sets the listener notified when the content of the selected note changes by an edit
+     * of another client. It receives the note, and a function mapping positions in the
+     * previous content to the same places in the new content, to keep the caret in place.
+     *
+     * @param listener the listener
+     */
+    public void setOnRemoteContentChange(BiConsumer<Note, IntUnaryOperator> listener) {
+        this.remoteContentListener = listener;
+    }
+
+    /**
+     * Applies an edit of another client to the collaborative text of its note, or takes the
+     * merged content of the edit if the text isn't loaded. An edit without operations is
+     * an edit of this client the server rejected.
+     *
+     * @param synchronization the edit
+     */
+    private void applyRemoteEdit(Synchronization synchronization) {
+        Note note = notes.stream().filter(n -> n.id == synchronization.noteId)
+                .findFirst().orElse(null);
+        if (note == null) return;
+        CollaborativeText text = texts.get(note.id);
+        if (synchronization.operations == null) {
+            if (text != null) {
+                texts.remove(note.id);
+                openText(note, true);
+            }
+            return;
+        }
+
+        String oldContent = note.getContent();
+        List<CharId> oldIds = text == null ? null : text.visibleIds();
+        if (text != null && !text.applyAll(synchronization.operations)) {
+            // edits were missed, so the text is loaded again
+            texts.remove(note.id);
+            text = null;
+            oldIds = null;
+            openText(note, false);
+        } else {
+            String content = text != null ? text.text() : synchronization.content;
+            if (content != null && !content.equals(oldContent)) {
+                note.setContent(content);
+                noteView.contentChanged(note);
+            }
+        }
+        if (note == selectedNote && remoteContentListener != null
+                && !note.getContent().equals(oldContent)) {
+            remoteContentListener.accept(note, positionsAfterEdit(text, oldIds));
+        }
+    }
+
+    /**
+     * Creates the function mapping positions in the content before an edit to the same
+     * places after the edit, by the characters before them.
+     *
+     * @param text   the text after the edit, or null if it isn't known
+     * @param oldIds the ids of the characters before the edit, or null if they aren't known
+     * @return the function, which keeps positions as they are if the characters aren't known
+     */
+    private static IntUnaryOperator positionsAfterEdit(CollaborativeText text,
+                                                       List<CharId> oldIds) {
+        if (text == null || oldIds == null) {
+            return IntUnaryOperator.identity();
+        }
+        return position -> position <= 0 ? 0
+                : text.indexAfter(oldIds.get(Math.min(position, oldIds.size()) - 1));
+    }
+
+    /**
+     * Sends a synchronization to the other clients, with the transport connected to.
+     *
+     * @param synchronization the synchronization
+     * @return false if the synchronization couldn't be published over HTTP, or was rejected
+     */
+    private boolean sendSynchronization(Synchronization synchronization) {
+        if (stompSession != null) {
+            stompSession.send("/app/synchronize", synchronization);
+        } else if (sseSyncClient != null) {
+            return server.publishSynchronization(synchronization, clientId);
+        }
+        return true;
+    }
+
+    /**
+     * Connects to the synchronizations of other clients.
+     *
+     * @param transport how to receive the synchronizations, STOMP if null
+     */
+    public void connectSync(SyncTransport transport) {
+        if (transport != SyncTransport.SSE) {
+            connectWebsocket();
+            return;
+        }
+        sseSyncClient = server.syncClient(clientId, this::handleSynchronization,
+                this::handleSynchronization);
+        sseSyncClient.connect();
+    }
+
     /**
      * Connects to the web socket.
      */
@@ -980,7 +1190,7 @@ public class ApplicationState {
 
                     @Override
                     public void handleFrame(StompHeaders headers, Object payload) {
-                        handleSynchronization();
+                        handleSynchronization((Synchronization) payload);
                     }
                 });
             }
@@ -1009,13 +1219,4 @@ public class ApplicationState {
 
         this.stompClient.connectAsync("ws://localhost:8080/websocket", this.headers, handler);
     }
-
-    /**
-     * Gets all the images from the server.
-     *
-     * @return a list of all the images
-     */
-    public List<Files> getAllImages() {
-        return server.getAllImages();
-    }
 }
@@ -5,37 +5,167 @@ import commons.Note;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+
+/**
+ * A snapshot of the notes and collections, used to undo and redo changes.
+ * <p>
+ * Notes are stored as immutable versions, so a note that didn't change between two
+ * snapshots is shared by them instead of being copied for every snapshot.
+ * </p>
+ *
+ * @param notes       the versions of all notes
+ * @param collections copies of all collections
+ */
+public record ApplicationStateMemento(List<NoteVersion> notes, List<Collection> collections) {
+    private static final long REFERENCE_BYTES = 8;
+    private static final long OBJECT_BYTES = 48;
+
+    /**
+     * An immutable copy of a note at some point in time.
+     *
+     * @param id         the id of the note
+     * @param title      the title of the note
+     * @param content    the content of the note
+     * @param collection the collection the note belonged to
+     */
+    public record NoteVersion(long id, String title, String content, Collection collection) {
+        /**
+         * Creates a version of the current state of a note.
+         *
+         * @param note the note
+         * @return the version of the note
+         */
+        public static NoteVersion of(Note note) {
+            return new NoteVersion(note.id, note.title, note.getContent(), note.collection);
+        }
+
+        /**
+         * Checks whether a note is still the same as this version. Strings that weren't
+         * edited are the same instance, so an unchanged note is usually checked without
+         * comparing its content.
+         *
+         * @param note the note
+         * @return true if the note is unchanged
+         */
+        public boolean matches(Note note) {
+            return id == note.id
+                    && Objects.equals(title, note.title)
+                    && Objects.equals(content, note.getContent())
+                    && Objects.equals(collection, note.collection);
+        }
+
+        /**
+         * Creates a new note with the state of this version.
+         *
+         * @return the note
+         */
+        public Note toNote() {
+            Note note = new Note();
+            note.id = id;
+            note.title = title;
+            note.setContent(content);
+            note.collection = collection;
+            return note;
+        }
+
+        /**
+         * Estimates the memory used by this version.
+         *
+         * @return the estimated number of bytes
+         */
+        public long size() {
+            return OBJECT_BYTES + sizeOf(title) + sizeOf(content);
+        }
+    }
 
-public record ApplicationStateMemento(List<Note> notes, List<Collection> collections) {
     /**
      * Constructs the ApplicationStateMemento class.
      *
-     * @param notes       the list of all notes
-     * @param collections the list of all collections
+     * @param notes       the versions of all notes
+     * @param collections copies of all collections
      */
-    public ApplicationStateMemento(List<Note> notes, List<Collection> collections) {
-        this.notes = new ArrayList<>(notes);
-        this.collections = new ArrayList<>(collections);
+    public ApplicationStateMemento(List<NoteVersion> notes, List<Collection> collections) {
+        this.notes = List.copyOf(notes);
+        this.collections = List.copyOf(collections);
     }
 
     /**
-     * Returns the list of notes.
+     * Creates new notes with the state of this snapshot.
      *
      * @return the list of notes
      */
-    @Override
-    public List<Note> notes() {
-        return new ArrayList<>(notes);
+    public List<Note> restoreNotes() {
+        List<Note> restored = new ArrayList<>(notes.size());
+        for (NoteVersion version : notes) {
+            restored.add(version.toNote());
+        }
+        return restored;
     }
 
     /**
-     * Returns the list of collections.
+     * Creates new collections with the state of this snapshot.
      *
      * @return the list of collections
      */
-    @Override
-    public List<Collection> collections() {
-        return new ArrayList<>(collections);
+    public List<Collection> restoreCollections() {
+        List<Collection> restored = new ArrayList<>(collections.size());
+        for (Collection collection : collections) {
+            restored.add(copyOf(collection));
+        }
+        return restored;
+    }
+
+    /**
+     * Checks whether the given notes and collections are the same as in this snapshot.
+     *
+     * @param currentNotes       the current notes
+     * @param currentCollections the current collections
+     * @return true if nothing changed since this snapshot
+     */
+    public boolean matches(List<Note> currentNotes, List<Collection> currentCollections) {
+        if (currentNotes.size() != notes.size() || !collections.equals(currentCollections)) {
+            return false;
+        }
+        for (int i = 0; i < notes.size(); i++) {
+            if (!notes.get(i).matches(currentNotes.get(i))) return false;
+        }
+        return true;
     }
 
+    /**
+     * Estimates the memory used by this snapshot itself, not counting the note versions,
+     * which may be shared with other snapshots.
+     *
+     * @return the estimated number of bytes
+     */
+    public long overhead() {
+        long size = 2 * OBJECT_BYTES + REFERENCE_BYTES * (notes.size() + collections.size());
+        for (Collection collection : collections) {
+            size += OBJECT_BYTES + sizeOf(collection.title) + sizeOf(collection.serverUrl);
+        }
+        return size;
+    }
+
+    /**
+     * Copies a collection.
+     *
+     * @param collection the collection
+     * @return a new collection with the same fields
+     */
+    public static Collection copyOf(Collection collection) {
+        Collection copy = new Collection(collection.title, collection.serverUrl);
+        copy.id = collection.id;
+        return copy;
+    }
+
+    /**
+     * Estimates the memory used by a string.
+     *
+     * @param string the string, may be null
+     * @return the estimated number of bytes
+     */
+    private static long sizeOf(String string) {
+        return string == null ? 0 : OBJECT_BYTES + 2L * string.length();
+    }
 }
@@ -3,6 +3,7 @@ package client.utils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import commons.AppConfig;
 import commons.Collection;
+import commons.SyncTransport;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,12 +44,15 @@ public class ConfigService {
      *
      * @param language   the current selected language from the user
      * @param collection the current selected collection from the user
+     * @param transport  how the client receives the changes of other clients
      * @throws IOException if writing to the json file failed
      */
-    public void saveConfig(Locale language, Collection collection) throws IOException {
+    public void saveConfig(Locale language, Collection collection, SyncTransport transport)
+            throws IOException {
         AppConfig config = new AppConfig();
         config.setSelectedCollection(collection);
         config.setSelectedLanguage(language);
+        config.setSyncTransport(transport);
         objectMapper.writeValue(configFile, config);
         System.out.println("Has saved the state of the application to the config file");
     }
@@ -0,0 +1,523 @@
+package client.utils;
+
+import commons.Collection;
+import commons.Note;
+import commons.NoteBitmap;
+import commons.Tag;
+import javafx.collections.ModifiableObservableListBase;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The notes that pass the collection, search and tag filters, together with an observable
+ * list of their titles.
+ * <p>
+ * The view is kept up to date incrementally: a change to one note only re-checks that note,
+ * which is found in or added to the visible notes by binary search on its place in the source
+ * list, and a longer search query only re-checks the visible notes and a shorter one only the
+ * hidden notes. The title list receives one change event per update, containing only the titles
+ * that were added, removed or changed, instead of being replaced as a whole. A note that
+ * was replaced by an instance with other content is reported as a replaced title.
+ * </p>
+ * <p>
+ * Search queries of three or more characters are answered by a {@link TrigramIndex},
+ * which is kept in sync with the source list, so a keystroke in the search box doesn't
+ * scan the content of every note: the visible notes are built from the notes the index
+ * found, without walking the notes it didn't.
+ * </p>
+ */
+public class FilteredNoteView {
+    // distance between the places of consecutive notes, leaving room for inserted notes
+    private static final long GAP = 1L << 16;
+
+    private List<Note> source = List.of();
+    // the place of every note in the source list by id, increasing along the source list
+    private final Map<Long, Long> places = new HashMap<>();
+    private final Map<Long, Note> notesById = new HashMap<>(); // the notes of the source list
+    private long nextPlace; // the place of a note added at the end of the source list
+    private final List<Note> filteredNotes = new ArrayList<>();
+    private final Set<Long> visibleIds = new HashSet<>();
+    private final TitleList titles = new TitleList();
+    private final TrigramIndex index = new TrigramIndex();
+    private final Function<Tag, NoteBitmap> tagNotes;
+
+    private Collection collection; // null means "All" is selected
+    private String query = "";
+    private Set<Tag> selectedTags = Set.of();
+    private NoteBitmap taggedNotes; // notes with all selected tags, null if none are selected
+    private Set<Long> searchResult; // null if the query is too short for the index
+
+    /**
+     * Observable list of titles that can apply several changes as a single change event.
+     */
+    private static final class TitleList extends ModifiableObservableListBase<String> {
+        private final List<String> values = new ArrayList<>();
+
+        /**
+         * Runs the given modifications, reporting them as one change event.
+         *
+         * @param modifications the modifications
+         */
+        void batch(Runnable modifications) {
+            beginChange();
+            try {
+                modifications.run();
+            } finally {
+                endChange();
+            }
+        }
+
+        @Override
+        public String get(int index) {
+            return values.get(index);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        protected void doAdd(int index, String element) {
+            values.add(index, element);
+        }
+
+        @Override
+        protected String doSet(int index, String element) {
+            return values.set(index, element);
+        }
+
+        @Override
+        protected String doRemove(int index) {
+            return values.remove(index);
+        }
+    }
+
+    /**
+     * Creates a view that computes the notes of a tag from the tag every time it is selected.
+     */
+    public FilteredNoteView() {
+        this(Tag::noteBitmap);
+    }
+
+    /**
+     * Creates a view that gets the notes of the selected tags from the given function, which
+     * can return bitmaps it keeps per tag.
+     *
+     * @param tagNotes the function returning the ids of the notes of a tag, whose bitmaps
+     *                 the view doesn't change
+     */
+    public FilteredNoteView(Function<Tag, NoteBitmap> tagNotes) {
+        this.tagNotes = tagNotes;
+    }
+
+    /**
+     * Returns the observable list of the titles of the visible notes.
+     *
+     * @return the titles
+     */
+    public ObservableList<String> getTitles() {
+        return titles;
+    }
+
+    /**
+     * Returns the visible notes, in the order of the source list.
+     *
+     * @return an unmodifiable view of the visible notes
+     */
+    public List<Note> getNotes() {
+        return Collections.unmodifiableList(filteredNotes);
+    }
+
+    /**
+     * Finds the position of a note in the view.
+     *
+     * @param id the id of the note
+     * @return the index of the note, or -1 if it isn't visible
+     */
+    public int indexOf(long id) {
+        if (!visibleIds.contains(id)) return -1;
+        int position = search(places.get(id));
+        return Math.max(position, -1);
+    }
+
+    /**
+     * Sets the list of all notes and re-checks every note.
+     *
+     * @param notes the list of all notes, which the view keeps a reference to
+     */
+    public void setSource(List<Note> notes) {
+        this.source = notes;
+        refresh();
+    }
+
+    /**
+     * Re-checks every note, for when the notes or collections changed in several places.
+     */
+    public void refresh() {
+        number();
+        index.sync(source);
+        searchResult = index.search(query);
+        update(_ -> true);
+    }
+
+    /**
+     * Sets the collection to show the notes of.
+     *
+     * @param newCollection the collection, or null to show all collections
+     */
+    public void setCollection(Collection newCollection) {
+        this.collection = newCollection;
+        update(_ -> true);
+    }
+
+    /**
+     * Sets the search query. A query the index answers only checks the notes it found, and
+     * otherwise a query extending the previous one only re-checks the visible notes and a
+     * query shortening it only the hidden notes.
+     *
+     * @param newQuery the search query, matched case-insensitively against title and content
+     */
+    public void setQuery(String newQuery) {
+        String previous = query;
+        query = newQuery == null ? "" : newQuery.toLowerCase();
+        searchResult = index.search(query);
+
+        if (searchResult != null) {
+            showSearchResult();
+        } else if (query.contains(previous)) {
+            update(note -> visibleIds.contains(note.id));
+        } else if (previous.contains(query)) {
+            update(note -> !visibleIds.contains(note.id));
+        } else {
+            update(_ -> true);
+        }
+    }
+
+    /**
+     * Sets the tags a note needs to have all of to be shown. Adding tags to the selection
+     * only intersects the notes of the added tags with the visible notes, and removing tags
+     * only re-checks the hidden notes.
+     *
+     * @param tags the selected tags
+     */
+    public void setSelectedTags(Set<Tag> tags) {
+        Set<Tag> previous = selectedTags;
+        selectedTags = tags == null ? Set.of() : new HashSet<>(tags);
+        boolean narrowed = selectedTags.containsAll(previous);
+        if (!narrowed) {
+            taggedNotes = null;
+        }
+        for (Tag tag : selectedTags) {
+            if (!narrowed || !previous.contains(tag)) {
+                NoteBitmap notes = tagNotes.apply(tag);
+                taggedNotes = taggedNotes == null ? notes : taggedNotes.and(notes);
+            }
+        }
+
+        if (narrowed) {
+            retainTagged();
+        } else if (previous.containsAll(selectedTags)) {
+            update(note -> !visibleIds.contains(note.id));
+        } else {
+            update(_ -> true);
+        }
+    }
+
+    /**
+     * Re-checks a note that was added to the source list, or whose title or collection changed.
+     *
+     * @param note the note
+     */
+    public void noteChanged(Note note) {
+        contentChanged(note);
+        notesById.put(note.id, note);
+        Long place = places.get(note.id);
+        int position = search(place == null ? place(note) : place);
+        boolean visible = matches(note);
+        if (position < 0) {
+            if (visible) {
+                filteredNotes.add(-position - 1, note);
+                visibleIds.add(note.id);
+                titles.add(-position - 1, note.title);
+            }
+        } else if (!visible) {
+            filteredNotes.remove(position);
+            visibleIds.remove(note.id);
+            titles.remove(position);
+        } else {
+            Note previous = filteredNotes.set(position, note);
+            if (!Objects.equals(titles.get(position), note.title)
+                    || !sameContent(previous, note)) {
+                titles.set(position, note.title);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes a note whose content was edited, without re-checking whether it is shown.
+     *
+     * @param note the note
+     */
+    public void contentChanged(Note note) {
+        index.update(note);
+        if (searchResult != null) {
+            if (matchesQuery(note.title) || matchesQuery(note.getContent())) {
+                searchResult.add(note.id);
+            } else {
+                searchResult.remove(note.id);
+            }
+        }
+    }
+
+    /**
+     * Removes a note that was removed from the source list.
+     *
+     * @param note the note
+     */
+    public void noteRemoved(Note note) {
+        index.remove(note);
+        if (searchResult != null) {
+            searchResult.remove(note.id);
+        }
+
+        int position = indexOf(note.id);
+        places.remove(note.id);
+        notesById.remove(note.id);
+        if (position < 0) return;
+
+        filteredNotes.remove(position);
+        visibleIds.remove(note.id);
+        titles.remove(position);
+    }
+
+    /**
+     * Numbers the notes of the source list in order, {@link #GAP} apart.
+     */
+    private void number() {
+        places.clear();
+        notesById.clear();
+        long place = 0;
+        for (Note note : source) {
+            if (places.putIfAbsent(note.id, place) == null) {
+                notesById.put(note.id, note);
+                place += GAP;
+            }
+        }
+        nextPlace = place;
+    }
+
+    /**
+     * Gives a place to a note that was added to the source list, between the places of the
+     * notes around it. Only a note added anywhere but at the end needs a walk over the source
+     * list to find its neighbours, and the notes are numbered again if there is no room left.
+     *
+     * @param note the note
+     * @return the place of the note
+     */
+    private long place(Note note) {
+        int i = source.size() - 1;
+        while (i >= 0 && source.get(i).id != note.id) {
+            i--;
+        }
+        if (i < 0 || i == source.size() - 1) {
+            places.put(note.id, nextPlace);
+            nextPlace += GAP;
+            return nextPlace - GAP;
+        }
+        Long before = i > 0 ? places.get(source.get(i - 1).id) : Long.valueOf(-GAP);
+        Long after = places.get(source.get(i + 1).id);
+        if (before == null || after == null || after - before < 2) {
+            // among other notes without a place, or without room between its neighbours
+            number();
+            return places.get(note.id);
+        }
+        long place = before + (after - before) / 2;
+        places.put(note.id, place);
+        return place;
+    }
+
+    /**
+     * Finds the position a place has in the visible notes, by binary search.
+     *
+     * @param place the place of a note in the source list, may be null
+     * @return the position of the note with the place, or (-(insertion point) - 1) if no
+     *         visible note has it, like {@link Collections#binarySearch(List, Object)}
+     */
+    private int search(Long place) {
+        if (place == null) return -1;
+        int low = 0;
+        int high = filteredNotes.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middlePlace = places.get(filteredNotes.get(middle).id);
+            if (middlePlace < place) {
+                low = middle + 1;
+            } else if (middlePlace > place) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Checks whether a note passes all filters.
+     *
+     * @param note the note
+     * @return true if the note should be shown
+     */
+    public boolean matches(Note note) {
+        if (collection != null && !Objects.equals(note.collection, collection)) return false;
+        if (taggedNotes != null && !taggedNotes.contains(note.id)) return false;
+        if (searchResult != null) return searchResult.contains(note.id);
+        return matchesQuery(note.title) || matchesQuery(note.getContent());
+    }
+
+    /**
+     * Checks whether a title or content matches the search query.
+     *
+     * @param text the text, may be null
+     * @return true if the query is empty or occurs in the text
+     */
+    private boolean matchesQuery(String text) {
+        return query.isEmpty() || TrigramIndex.containsIgnoreCase(text, query);
+    }
+
+    /**
+     * Brings the view up to date, checking only the notes that might have changed
+     * and keeping the previous outcome for the others.
+     *
+     * @param affected selects the notes to check against the filters
+     */
+    private void update(Predicate<Note> affected) {
+        List<Note> updated = new ArrayList<>(filteredNotes.size());
+        Set<Long> updatedIds = new HashSet<>();
+        boolean unnumbered = false;
+        for (Note note : source) {
+            boolean visible = affected.test(note) ? matches(note) : visibleIds.contains(note.id);
+            if (visible && updatedIds.add(note.id)) {
+                updated.add(note);
+                unnumbered |= !places.containsKey(note.id);
+            }
+        }
+        if (unnumbered) {
+            // notes were added to the source list without noteChanged
+            number();
+        }
+        titles.batch(() -> applyChanges(updated, updatedIds));
+    }
+
+    /**
+     * Hides the visible notes that don't have all selected tags, looking only at the visible
+     * notes.
+     */
+    private void retainTagged() {
+        if (taggedNotes == null) return;
+        List<Note> updated = new ArrayList<>();
+        Set<Long> updatedIds = new HashSet<>();
+        for (Note note : filteredNotes) {
+            if (taggedNotes.contains(note.id)) {
+                updated.add(note);
+                updatedIds.add(note.id);
+            }
+        }
+        titles.batch(() -> applyChanges(updated, updatedIds));
+    }
+
+    /**
+     * Shows the notes of the search result that pass the other filters, in the order of the
+     * source list, looking only at the notes in the result.
+     */
+    private void showSearchResult() {
+        List<Note> updated = new ArrayList<>(searchResult.size());
+        Set<Long> updatedIds = new HashSet<>();
+        for (long id : searchResult) {
+            Note note = notesById.get(id);
+            if (note != null && matches(note)) {
+                updated.add(note);
+                updatedIds.add(id);
+            }
+        }
+        updated.sort(Comparator.comparingLong(note -> places.get(note.id)));
+        titles.batch(() -> applyChanges(updated, updatedIds));
+    }
+
+    /**
+     * Changes the visible notes into the updated ones with as few changes as possible,
+     * assuming the notes that stay visible keep their relative order.
+     *
+     * @param updated    the notes that should be visible
+     * @param updatedIds the ids of those notes
+     */
+    private void applyChanges(List<Note> updated, Set<Long> updatedIds) {
+        // filteredNotes[0, index) is up to date, filteredNotes[index, ...) is still to be merged
+        int index = 0;
+        int next = 0;
+        while (index < filteredNotes.size() || next < updated.size()) {
+            Note current = index < filteredNotes.size() ? filteredNotes.get(index) : null;
+            Note wanted = next < updated.size() ? updated.get(next) : null;
+
+            if (current != null && isStale(current, wanted, updatedIds)) {
+                filteredNotes.remove(index);
+                visibleIds.remove(current.id);
+                titles.remove(index);
+            } else if (current == null || current.id != wanted.id) {
+                filteredNotes.add(index, wanted);
+                visibleIds.add(wanted.id);
+                titles.add(index, wanted.title);
+                index++;
+                next++;
+            } else {
+                Note previous = filteredNotes.set(index, wanted);
+                if (!Objects.equals(titles.get(index), wanted.title)
+                        || !sameContent(previous, wanted)) {
+                    // also reported when only the content changed, so the note can be reloaded
+                    titles.set(index, wanted.title);
+                }
+                index++;
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a visible note has to be removed while merging: because it is hidden now,
+     * or because it moved and will be added again at its new place.
+     *
+     * @param current    the visible note at the merge position
+     * @param wanted     the note that should be at the merge position, or null if there is none
+     * @param updatedIds the ids of the notes that should be visible
+     * @return true if the note has to be removed
+     */
+    private boolean isStale(Note current, Note wanted, Set<Long> updatedIds) {
+        return wanted == null || !updatedIds.contains(current.id)
+                || current.id != wanted.id && visibleIds.contains(wanted.id);
+    }
+
+    /**
+     * Checks whether a note that was replaced by a new instance, for example after
+     * synchronizing with the server, still has the same content and collection.
+     *
+     * @param previous the previous instance of the note
+     * @param current  the current instance of the note
+     * @return true if nothing but the instance changed
+     */
+    private static boolean sameContent(Note previous, Note current) {
+        return previous == current
+                || Objects.equals(previous.getContent(), current.getContent())
+                && Objects.equals(previous.collection, current.collection);
+    }
+}
@@ -0,0 +1,305 @@
+package client.utils;
+
+import com.google.inject.Inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the images embedded in Markdown, so each image is downloaded and
+ * base64-encoded once instead of on every render.
+ * <p>
+ * Encoded images are kept in a bounded in-memory LRU keyed by the hash of the image,
+ * and the downloaded bytes are kept on disk between sessions. The first time an
+ * image is used in a session it is revalidated with the server using its ETag
+ * (the hash), so an unchanged image is never downloaded again.
+ * </p>
+ */
+public class ImageCache {
+    private static final Pattern IMAGE_PATTERN = Pattern.compile("!\\[(.*?)]\\((.*?)\\)");
+    private static final long MAX_MEMORY_CHARS = 32_000_000;
+    private static final String INDEX_FILE = "index.properties";
+
+    private final ServerUtils server;
+    private final Path directory;
+
+    // image id -> "<eTag> <content type>" of the version stored on disk
+    private final Properties index = new Properties();
+    // eTag -> data URI, in access order
+    private final LinkedHashMap<String, String> dataUris = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryChars;
+    // ids of the images that were revalidated since the image catalog last changed
+    private final Set<Long> validated = new HashSet<>();
+    private Map<String, Long> catalog;
+
+    private record Entry(String eTag, String type) {
+    }
+
+    /**
+     * Constructs the image cache, stored in the user's home directory.
+     *
+     * @param server the server utils
+     */
+    @Inject
+    public ImageCache(ServerUtils server) {
+        this(server, Path.of(System.getProperty("user.home"), ".netnote", "image-cache"));
+    }
+
+    /**
+     * Constructs the image cache.
+     *
+     * @param server    the server utils
+     * @param directory the directory the downloaded images are stored in
+     */
+    public ImageCache(ServerUtils server, Path directory) {
+        this.server = server;
+        this.directory = directory;
+        loadIndex();
+    }
+
+    /**
+     * Replaces the Markdown images that refer to an image on the server
+     * by HTML images with the image embedded as a data URI.
+     * <p>
+     * An image is looked up by its URL first, and by its alt text otherwise.
+     * Images that aren't on the server are left as they are.
+     * </p>
+     *
+     * @param markdown the Markdown content
+     * @return the Markdown content with the images embedded
+     */
+    public String embedImages(String markdown) {
+        if (!markdown.contains("![")) return markdown;
+
+        Matcher matcher = IMAGE_PATTERN.matcher(markdown);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String alt = matcher.group(1);
+            String dataUri = getDataUri(matcher.group(2));
+            if (dataUri == null) {
+                dataUri = getDataUri(alt);
+            }
+
+            String replacement = dataUri == null ? matcher.group()
+                    : "<img alt='" + alt.replace("'", "&#x27;").replace("<", "&lt;")
+                    + "' src='" + dataUri + "' />";
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * Returns an image from the server as a data URI.
+     *
+     * @param name the name of the image
+     * @return the data URI, or null if there is no image with this name
+     */
+    public synchronized String getDataUri(String name) {
+        Long id = getCatalog().get(name);
+        if (id == null) return null;
+
+        Entry entry = validated.contains(id) ? getEntry(id) : revalidate(id);
+        if (entry == null) return null;
+
+        String dataUri = dataUris.get(entry.eTag());
+        if (dataUri == null) {
+            dataUri = encode(entry);
+        }
+        return dataUri;
+    }
+
+    /**
+     * Forgets which images are up-to-date, so they are revalidated the next time they are used.
+     * Should be called when images were uploaded or deleted.
+     */
+    public synchronized void invalidate() {
+        catalog = null;
+        validated.clear();
+    }
+
+    /**
+     * Returns the image names on the server, fetching them if they aren't known yet.
+     *
+     * @return a map from image name to image id
+     */
+    private Map<String, Long> getCatalog() {
+        if (catalog != null) return catalog;
+
+        String names = server.getAllImagesNames();
+        if (names == null) return Map.of();
+
+        Map<String, Long> newCatalog = new HashMap<>();
+        // every line looks like "<name>; id: <id>"
+        for (String line : names.split("\n")) {
+            int separator = line.lastIndexOf("; id: ");
+            if (separator >= 0) {
+                newCatalog.put(line.substring(0, separator),
+                        Long.parseLong(line.substring(separator + "; id: ".length()).trim()));
+            }
+        }
+        catalog = newCatalog;
+        return catalog;
+    }
+
+    /**
+     * Checks with the server whether the stored version of an image is still current,
+     * and downloads the image if it isn't.
+     *
+     * @param id the id of the image
+     * @return the current version of the image, or null if it isn't available
+     */
+    private Entry revalidate(long id) {
+        Entry stored = getEntry(id);
+        ImageData image = server.getImage(id, stored == null ? null : stored.eTag());
+        if (image == null) {
+            // the server can't be reached, so use the stored version if there is one
+            return stored;
+        }
+
+        validated.add(id);
+        if (image.bytes() == null) return stored;
+
+        String eTag = image.eTag() != null ? image.eTag() : hashOf(image.bytes());
+        Entry entry = new Entry(eTag, image.type());
+        index.setProperty(Long.toString(id), entry.eTag() + " " + entry.type());
+        try {
+            Files.createDirectories(directory);
+            Files.write(fileOf(entry), image.bytes());
+            saveIndex();
+        } catch (IOException e) {
+            System.out.println("Failed to store image in cache: " + e.getMessage());
+        }
+        putDataUri(entry, image.bytes());
+        return entry;
+    }
+
+    /**
+     * Returns the stored version of an image.
+     *
+     * @param id the id of the image
+     * @return the stored version, or null if the image isn't stored on disk
+     */
+    private Entry getEntry(long id) {
+        String value = index.getProperty(Long.toString(id));
+        if (value == null) return null;
+
+        String[] parts = value.split(" ", 2);
+        Entry entry = new Entry(parts[0], parts.length > 1 ? parts[1] : "image/png");
+        if (!dataUris.containsKey(entry.eTag())
+                && !Files.exists(fileOf(entry))) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Reads a stored image from disk and encodes it as a data URI.
+     *
+     * @param entry the stored version of the image
+     * @return the data URI, or null if the image couldn't be read
+     */
+    private String encode(Entry entry) {
+        try {
+            return putDataUri(entry, Files.readAllBytes(fileOf(entry)));
+        } catch (IOException e) {
+            System.out.println("Failed to read image from cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Encodes an image as a data URI and keeps it in memory,
+     * evicting the least recently used images if there are too many.
+     *
+     * @param entry the version of the image
+     * @param bytes the bytes of the image
+     * @return the data URI
+     */
+    private String putDataUri(Entry entry, byte[] bytes) {
+        String dataUri = "data:" + entry.type() + ";base64,"
+                + Base64.getEncoder().encodeToString(bytes);
+
+        String previous = dataUris.put(entry.eTag(), dataUri);
+        if (previous != null) {
+            memoryChars -= previous.length();
+        }
+        memoryChars += dataUri.length();
+
+        Iterator<String> eldest = dataUris.values().iterator();
+        while (memoryChars > MAX_MEMORY_CHARS && dataUris.size() > 1) {
+            memoryChars -= eldest.next().length();
+            eldest.remove();
+        }
+        return dataUri;
+    }
+
+    /**
+     * Computes the hash of an image, used when the server didn't send an ETag.
+     *
+     * @param bytes the bytes of the image
+     * @return the hash as a hexadecimal string
+     */
+    private static String hashOf(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns the file a version of an image is stored in, named after the hash of its ETag.
+     * The ETag comes from the server, so it isn't used as a file name itself, which could
+     * point outside the cache directory.
+     *
+     * @param entry the version of the image
+     * @return the path of the file
+     */
+    private Path fileOf(Entry entry) {
+        return directory.resolve(hashOf(entry.eTag().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Loads the index of the stored images from disk.
+     */
+    private void loadIndex() {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) return;
+
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            index.load(in);
+        } catch (IOException e) {
+            System.out.println("Failed to load image cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the index of the stored images to disk.
+     *
+     * @throws IOException if the index couldn't be written
+     */
+    private void saveIndex() throws IOException {
+        try (OutputStream out = Files.newOutputStream(
+                directory.resolve(INDEX_FILE))) {
+            index.store(out, "NetNote image cache");
+        }
+    }
+}
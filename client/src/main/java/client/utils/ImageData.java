@@ -0,0 +1,11 @@
+package client.utils;
+
+/**
+ * An image downloaded from the server.
+ *
+ * @param eTag  the ETag of the image, which is the hash of its bytes
+ * @param type  the content type of the image (e.g. image/png)
+ * @param bytes the bytes of the image, or null if the cached version is still current
+ */
+public record ImageData(String eTag, String type, byte[] bytes) {
+}
@@ -0,0 +1,193 @@
+package client.utils;
+
+import client.Markdown;
+import com.google.inject.Inject;
+import javafx.application.Platform;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Renders Markdown to HTML on a background thread, so typing in large notes
+ * doesn't block the JavaFX thread.
+ * <p>
+ * Only the most recent request is ever delivered: a newer request cancels the
+ * pending one, and a render that finishes after being superseded is dropped.
+ * Requests arriving within one frame of the previous render are coalesced.
+ * Recently rendered content is answered from a RenderCache without rendering it again,
+ * and images on the server are embedded through the ImageCache.
+ * </p>
+ */
+public class MarkdownRenderService {
+    private static final int DEFAULT_FRAME_RATE = 60;
+    private static final int CACHE_ENTRIES = 64;
+    private static final long CACHE_CHARS = 16_000_000;
+
+    private final Markdown markdown;
+    private final ImageCache imageCache;
+    private final Executor uiExecutor;
+    private final long frameNanos;
+    private final ScheduledExecutorService executor;
+    private final RenderCache renderCache = new RenderCache(CACHE_ENTRIES, CACHE_CHARS);
+    private final AtomicLong imageVersion = new AtomicLong();
+
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+    private volatile long lastRenderNanos;
+
+    /**
+     * Constructs the render service, delivering results on the JavaFX thread
+     * at most once per JavaFX pulse.
+     *
+     * @param markdown   the Markdown parser, renderer and validator
+     * @param imageCache the cache of images embedded in notes
+     */
+    @Inject
+    public MarkdownRenderService(Markdown markdown, ImageCache imageCache) {
+        this(markdown, imageCache, Platform::runLater,
+                Integer.getInteger("javafx.animation.pulse", DEFAULT_FRAME_RATE));
+    }
+
+    /**
+     * Constructs the render service.
+     *
+     * @param markdown   the Markdown parser, renderer and validator
+     * @param imageCache the cache of images embedded in notes
+     * @param uiExecutor the executor the rendered HTML is delivered on
+     * @param frameRate  the maximum number of renders per second
+     */
+    public MarkdownRenderService(Markdown markdown, ImageCache imageCache,
+                                 Executor uiExecutor, int frameRate) {
+        this.markdown = markdown;
+        this.imageCache = imageCache;
+        this.uiExecutor = uiExecutor;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, frameRate);
+        this.lastRenderNanos = System.nanoTime() - frameNanos;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "markdown-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Requests the given Markdown to be rendered, replacing any request that hasn't
+     * been delivered yet.
+     *
+     * @param text       the Markdown content to render
+     * @param onRendered receives the rendered HTML, unless a newer request came in first
+     */
+    public synchronized void render(String text, Consumer<String> onRendered) {
+        long ticket = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+
+        String cached = renderCache.get(text, imageVersion.get());
+        if (cached != null) {
+            uiExecutor.execute(() -> {
+                if (ticket == generation.get()) {
+                    onRendered.accept(cached);
+                }
+            });
+            return;
+        }
+
+        long delay = Math.max(0, lastRenderNanos + frameNanos - System.nanoTime());
+        pending = executor.schedule(() -> runRender(ticket, text, onRendered),
+                delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Cancels the pending request, if any, so its result is never delivered.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Invalidates all cached renders, since images embedded in them may have changed.
+     */
+    public void invalidateImages() {
+        imageCache.invalidate();
+        imageVersion.incrementAndGet();
+    }
+
+    /**
+     * Returns the cache of rendered notes.
+     *
+     * @return the render cache
+     */
+    public RenderCache getRenderCache() {
+        return renderCache;
+    }
+
+    /**
+     * Renders and validates a request on the background thread.
+     *
+     * @param ticket     the generation of the request
+     * @param text       the Markdown content to render
+     * @param onRendered receives the rendered HTML
+     */
+    private void runRender(long ticket, String text, Consumer<String> onRendered) {
+        if (ticket != generation.get()) return;
+        lastRenderNanos = System.nanoTime();
+
+        long version = imageVersion.get();
+        String html = toHtml(text);
+        renderCache.put(text, version, html);
+        if (ticket != generation.get()) return;
+
+        uiExecutor.execute(() -> {
+            if (ticket == generation.get()) {
+                onRendered.accept(html);
+            }
+        });
+
+        try {
+            markdown.validateMarkdownSyntax(text);
+        } catch (MarkdownSyntaxException e) {
+            System.err.println("Markdown syntax issues:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Renders Markdown to HTML with the images embedded,
+     * falling back to the escaped plain text if rendering fails.
+     *
+     * @param text the Markdown content to render
+     * @return the rendered HTML
+     */
+    private String toHtml(String text) {
+        try {
+            return markdown.renderHtml(imageCache.embedImages(text));
+        } catch (Exception e) {
+            System.err.println("Error rendering Markdown: " + e.getMessage());
+            return "<html><body><pre>" + escapeHtml(text) + "</pre></body></html>";
+        }
+    }
+
+    /**
+     * Escapes HTML characters in the text to prevent rendering issues.
+     *
+     * @param text the text the will be modified
+     * @return a string with replaced text
+     */
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&#x27;");
+    }
+}
@@ -0,0 +1,223 @@
+package client.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds common Markdown syntax problems in a single pass over the text.
+ * <p>
+ * Every character is looked at once and no intermediate strings are created,
+ * so validation takes linear time and allocates only for the problems it reports.
+ * The checks are:
+ * <ul>
+ *   <li>Unmatched asterisks (*), underscores (_) and backticks (`)</li>
+ *   <li>List items that don't start with '- ' followed by content</li>
+ *   <li>A '[' without any ']', or a '(' without any ')' in a text with links</li>
+ * </ul>
+ * </p>
+ */
+public final class MarkdownValidator {
+
+    /**
+     * A syntax problem found in the Markdown.
+     *
+     * @param key    the key of the problem description in the resource bundle
+     * @param line   the line of the offending character, starting at 1
+     * @param column the column of the offending character, starting at 1
+     */
+    public record Problem(String key, int line, int column) {
+    }
+
+    private enum ListState { NONE, DASH, SPACE }
+
+    private int line = 1;
+    private int column;
+    private boolean lineStart = true;
+
+    private final Marker asterisk = new Marker();
+    private final Marker underscore = new Marker();
+    private final Marker backtick = new Marker();
+
+    private ListState listState = ListState.NONE;
+    private int dashColumn;
+    private int listLine;
+    private int listColumn;
+    private boolean invalidList;
+
+    private final Marker openBracket = new Marker();
+    private final Marker openParen = new Marker();
+    private boolean closeBracket;
+    private boolean closeParen;
+
+    /**
+     * Remembers where a marker character was last left unmatched.
+     */
+    private static final class Marker {
+        private boolean odd;
+        private int count;
+        private int line;
+        private int column;
+
+        /**
+         * Counts an occurrence of the marker, remembering its position if it is unmatched.
+         *
+         * @param line   the line of the occurrence
+         * @param column the column of the occurrence
+         */
+        void toggle(int line, int column) {
+            odd = !odd;
+            if (odd) {
+                this.line = line;
+                this.column = column;
+            }
+        }
+
+        /**
+         * Counts an occurrence of the marker, remembering the position of the first one.
+         *
+         * @param line   the line of the occurrence
+         * @param column the column of the occurrence
+         */
+        void first(int line, int column) {
+            if (count == 0) {
+                this.line = line;
+                this.column = column;
+            }
+            count++;
+        }
+
+    }
+
+    /**
+     * Constructs a validator for a single text.
+     */
+    private MarkdownValidator() {
+    }
+
+    /**
+     * Validates the given Markdown.
+     *
+     * @param markdown the Markdown content to validate
+     * @return the problems found, in a fixed order of kind; empty if there are none
+     */
+    public static List<Problem> validate(CharSequence markdown) {
+        MarkdownValidator validator = new MarkdownValidator();
+        for (int i = 0, length = markdown.length(); i < length; i++) {
+            validator.accept(markdown.charAt(i));
+        }
+        validator.endLine();
+        return validator.problems();
+    }
+
+    /**
+     * Processes the next character of the text.
+     *
+     * @param c the character
+     */
+    private void accept(char c) {
+        if (c == '\n') {
+            endLine();
+            line++;
+            column = 0;
+            lineStart = true;
+            return;
+        }
+        column++;
+        acceptListItem(c);
+        switch (c) {
+            case '*' -> asterisk.toggle(line, column);
+            case '_' -> underscore.toggle(line, column);
+            case '`' -> backtick.toggle(line, column);
+            case '[' -> openBracket.first(line, column);
+            case ']' -> closeBracket = true;
+            case '(' -> openParen.first(line, column);
+            case ')' -> closeParen = true;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Checks whether a line starting with a dash continues as a list item: the dash has
+     * to be followed by whitespace and then content.
+     *
+     * @param c the next character of the line
+     */
+    private void acceptListItem(char c) {
+        boolean whitespace = c <= ' ';
+        if (lineStart && !whitespace) {
+            lineStart = false;
+            if (c == '-') {
+                listState = ListState.DASH;
+                dashColumn = column;
+            }
+            return;
+        }
+        if (listState == ListState.DASH) {
+            listState = whitespace ? ListState.SPACE : invalidListItem();
+        } else if (listState == ListState.SPACE && !whitespace) {
+            listState = ListState.NONE;
+        }
+    }
+
+    /**
+     * Ends the current line, which makes a list item without content invalid.
+     */
+    private void endLine() {
+        if (listState != ListState.NONE) {
+            listState = invalidListItem();
+        }
+    }
+
+    /**
+     * Records the current list item as invalid, keeping the position of the first one.
+     *
+     * @return the list state after an invalid item
+     */
+    private ListState invalidListItem() {
+        if (!invalidList) {
+            invalidList = true;
+            listLine = line;
+            listColumn = dashColumn;
+        }
+        return ListState.NONE;
+    }
+
+    /**
+     * Collects the problems found in the text.
+     *
+     * @return the problems
+     */
+    private List<Problem> problems() {
+        List<Problem> problems = new ArrayList<>(0);
+        addIfOdd(problems, "Markdown.asterisk", asterisk);
+        addIfOdd(problems, "Markdown.underscore", underscore);
+        if (invalidList) {
+            problems.add(new Problem("Markdown.list", listLine, listColumn));
+        }
+        addIfOdd(problems, "Markdown.backtick", backtick);
+        if (openBracket.count > 0) {
+            if (!closeBracket) {
+                problems.add(new Problem("Markdown.linkText",
+                        openBracket.line, openBracket.column));
+            }
+            if (openParen.count > 0 && !closeParen) {
+                problems.add(new Problem("Markdown.linkUrl", openParen.line, openParen.column));
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Adds a problem if a marker was left unmatched.
+     *
+     * @param problems the problems found so far
+     * @param key      the key of the problem description
+     * @param marker   the marker
+     */
+    private static void addIfOdd(List<Problem> problems, String key, Marker marker) {
+        if (marker.odd) {
+            problems.add(new Problem(key, marker.line, marker.column));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package client.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of rendered HTML, keyed by the hash of the Markdown content
+ * and the version of the image catalog it was rendered with.
+ * <p>
+ * Entries are evicted once either the number of entries or the total number of
+ * cached characters (Markdown plus HTML) exceeds its limit.
+ * </p>
+ */
+public class RenderCache {
+    private final int maxEntries;
+    private final long maxChars;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedChars;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private record Key(int contentHash, int length, long imageVersion) {
+    }
+
+    private record Entry(String markdown, String html) {
+        /**
+         * Returns the number of characters this entry keeps in memory.
+         *
+         * @return the size of the entry
+         */
+        long size() {
+            return (long) markdown.length() + html.length();
+        }
+    }
+
+    /**
+     * Constructs an empty render cache.
+     *
+     * @param maxEntries the maximum number of rendered notes to keep
+     * @param maxChars   the maximum number of characters to keep over all entries
+     */
+    public RenderCache(int maxEntries, long maxChars) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Looks up the rendered HTML of the given Markdown content.
+     *
+     * @param markdown     the Markdown content
+     * @param imageVersion the version of the image catalog
+     * @return the cached HTML, or null if it wasn't rendered recently
+     */
+    public synchronized String get(String markdown, long imageVersion) {
+        Entry entry = entries.get(keyOf(markdown, imageVersion));
+        // the hash only narrows the lookup down, the content has to be equal as well
+        if (entry == null || !Objects.equals(entry.markdown(), markdown)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.html();
+    }
+
+    /**
+     * Stores the rendered HTML of the given Markdown content,
+     * evicting the least recently used entries if the cache is full.
+     *
+     * @param markdown     the Markdown content
+     * @param imageVersion the version of the image catalog
+     * @param html         the rendered HTML
+     */
+    public synchronized void put(String markdown, long imageVersion, String html) {
+        Entry entry = new Entry(markdown, html);
+        if (entry.size() > maxChars) return;
+
+        Entry previous = entries.put(keyOf(markdown, imageVersion), entry);
+        if (previous != null) {
+            cachedChars -= previous.size();
+        }
+        cachedChars += entry.size();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || cachedChars > maxChars) {
+            cachedChars -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedChars = 0;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of cached renders
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that weren't in the cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Creates the lookup key of some Markdown content.
+     *
+     * @param markdown     the Markdown content
+     * @param imageVersion the version of the image catalog
+     * @return the key
+     */
+    private static Key keyOf(String markdown, long imageVersion) {
+        return new Key(markdown.hashCode(), markdown.length(), imageVersion);
+    }
+
+    /**
+     * Returns the cache statistics, used for logging.
+     *
+     * @return a string representation of this cache
+     */
+    @Override
+    public String toString() {
+        return "RenderCache " + size() + " entries, " + getHits() + " hits, "
+                + getMisses() + " misses";
+    }
+}
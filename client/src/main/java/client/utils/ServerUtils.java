@@ -15,16 +15,23 @@
  */
 package client.utils;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.inject.Inject;
 import commons.Collection;
-import commons.Files;
 import commons.Note;
+import commons.Synchronization;
 import commons.Tag;
+import commons.TextOperation;
 import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.Response;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
@@ -32,14 +39,21 @@ import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.ConnectException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
 import static jakarta.ws.rs.core.MediaType.MULTIPART_FORM_DATA_TYPE;
 
 public class ServerUtils {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final ObjectReader NOTE_READER = new ObjectMapper().readerFor(Note.class);
+
     private final String noteMap = "api/notes";
     private final String collectionMap = "api/collections";
     private final String server;
@@ -81,6 +95,51 @@ public class ServerUtils {
         }
     }
 
+    /**
+     * Reads all notes from the server one at a time, ordered by id, without holding all
+     * notes in memory at once.
+     *
+     * @param action the action to perform on every note as soon as it is read
+     * @return the number of notes read, or -1 if the notes couldn't be read completely
+     */
+    public long exportNotes(Consumer<Note> action) {
+        try {
+            Response response = ClientBuilder.newClient(new ClientConfig()) //
+                    .target(server).path(noteMap + "/export") //
+                    .request(NDJSON) //
+                    .get();
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                response.close();
+                return -1;
+            }
+            try (InputStream body = response.readEntity(InputStream.class)) {
+                return readNotes(body, action);
+            }
+        } catch (ProcessingException | IOException e) {
+            System.out.println("Failed to connect to server");
+            return -1;
+        }
+    }
+
+    /**
+     * Reads newline-delimited JSON notes from a stream, parsing one note at a time.
+     *
+     * @param input  the stream with one note per line
+     * @param action the action to perform on every note as soon as it is read
+     * @return the number of notes read
+     * @throws IOException if the stream can't be read or contains something else than notes
+     */
+    static long readNotes(InputStream input, Consumer<Note> action) throws IOException {
+        long count = 0;
+        try (MappingIterator<Note> notes = NOTE_READER.readValues(input)) {
+            while (notes.hasNextValue()) {
+                action.accept(notes.nextValue());
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Adds a note to the server.
      *
@@ -118,6 +177,26 @@ public class ServerUtils {
         }
     }
 
+    /**
+     * Gets the operations that build the collaborative text of a note, with the edits of all
+     * clients merged so far.
+     *
+     * @param id id of the Note
+     * @return the operations, or null if the note doesn't exist or the server isn't available
+     */
+    public List<TextOperation> getNoteText(long id) {
+        try {
+            return ClientBuilder.newClient(new ClientConfig()) //
+                    .target(server).path(noteMap + "/" + id + "/text") //
+                    .request(APPLICATION_JSON) //
+                    .get(new GenericType<>() {
+                    });
+        } catch (ProcessingException | WebApplicationException e) {
+            System.out.println("Failed to load the text of note " + id);
+            return null;
+        }
+    }
+
     /**
      * Deletes Note from Server by id.
      *
@@ -296,17 +375,28 @@ public class ServerUtils {
     }
 
     /**
-     * Get all images from the server.
+     * Downloads an image from the server, unless the cached version is still current.
      *
-     * @return a list of all the images from the server
+     * @param id   the id of the image
+     * @param eTag the ETag of the cached version of the image, or null if it isn't cached
+     * @return the downloaded image, the image without bytes if the cached version
+     *         is still current, or null if the image couldn't be downloaded
      */
-    public List<Files> getAllImages() {
-        try {
-            return ClientBuilder.newClient(new ClientConfig())
-                    .target(server).path(imageMap + "/get/allRawImages")
-                    .request(APPLICATION_JSON)
-                    .get(new GenericType<>() {
-                    });
+    public ImageData getImage(long id, String eTag) {
+        try (Response response = ClientBuilder.newClient(new ClientConfig())
+                .target(server).path(imageMap + "/get/" + id)
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .get()) {
+            String type = response.getHeaderString(HttpHeaders.CONTENT_TYPE);
+            String newETag = response.getHeaderString(HttpHeaders.ETAG);
+            if (response.getStatus() == 304) {
+                return new ImageData(eTag, type, null);
+            }
+            if (response.getStatus() != 200) {
+                return null;
+            }
+            return new ImageData(newETag, type, response.readEntity(byte[].class));
         } catch (ProcessingException e) {
             System.out.println("Failed to connect to server");
             return null;
@@ -331,4 +421,41 @@ public class ServerUtils {
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a client receiving the synchronizations of other clients as server-sent events.
+     * The stream is opened by {@link SseSyncClient#connect()}.
+     *
+     * @param clientId          the id this client publishes its synchronizations with, which
+     *                          it doesn't receive back
+     * @param onSynchronization called for every synchronization of another client
+     * @param onReset           called when synchronizations were missed
+     * @return the client of the synchronization stream
+     */
+    public SseSyncClient syncClient(String clientId, Consumer<Synchronization> onSynchronization,
+                                    Runnable onReset) {
+        URI uri = UriBuilder.fromUri(server).path(noteMap + "/sync")
+                .queryParam("client", clientId).build();
+        return new SseSyncClient(uri, onSynchronization, onReset);
+    }
+
+    /**
+     * Publishes a synchronization to the other clients over HTTP.
+     *
+     * @param synchronization the synchronization
+     * @param clientId        the id the client subscribed to the synchronizations with
+     * @return true if the synchronization was published
+     */
+    public boolean publishSynchronization(Synchronization synchronization, String clientId) {
+        try (Response response = ClientBuilder.newClient(new ClientConfig()) //
+                .target(server).path(noteMap + "/sync") //
+                .queryParam("client", clientId) //
+                .request(APPLICATION_JSON) //
+                .post(Entity.entity(synchronization, APPLICATION_JSON))) {
+            return response.getStatus() == Response.Status.OK.getStatusCode();
+        } catch (ProcessingException e) {
+            System.out.println("Failed to connect to server");
+            return false;
+        }
+    }
+}
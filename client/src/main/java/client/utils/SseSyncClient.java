@@ -0,0 +1,166 @@
+package client.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import commons.Synchronization;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Receives the synchronizations of other clients as server-sent events, without the STOMP
+ * stack. When the stream ends or can't be opened, the client reconnects after a delay,
+ * sending the id of the last event it received so the server resends what it missed.
+ */
+public class SseSyncClient {
+    private static final long RECONNECT_DELAY = 5000;
+    private static final ObjectReader SYNCHRONIZATION_READER =
+            new ObjectMapper().readerFor(Synchronization.class);
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ScheduledExecutorService reconnector =
+            Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("sse-reconnect").daemon().factory());
+    private final URI uri;
+    private final Consumer<Synchronization> onSynchronization;
+    private final Runnable onReset;
+    private volatile boolean closed;
+    private volatile String lastEventId;
+
+    // the fields of the event being read
+    private String eventName;
+    private String eventId;
+    private final StringBuilder data = new StringBuilder();
+
+    /**
+     * Creates a client for the synchronization stream of a server, which isn't opened yet.
+     *
+     * @param uri               the uri of the stream
+     * @param onSynchronization called for every synchronization of another client
+     * @param onReset           called when synchronizations were missed and all notes have
+     *                          to be reloaded
+     */
+    public SseSyncClient(URI uri, Consumer<Synchronization> onSynchronization,
+                         Runnable onReset) {
+        this.uri = uri;
+        this.onSynchronization = onSynchronization;
+        this.onReset = onReset;
+    }
+
+    /**
+     * Opens the stream in the background, resuming after the last event received.
+     */
+    public void connect() {
+        if (closed) {
+            return;
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+                .thenAccept(response -> {
+                    if (response.statusCode() == 200) {
+                        response.body().forEach(this::accept);
+                    }
+                })
+                .whenComplete((_, _) -> reconnectLater());
+    }
+
+    /**
+     * Stops receiving synchronizations.
+     */
+    public void close() {
+        closed = true;
+        reconnector.shutdownNow();
+        httpClient.shutdownNow();
+    }
+
+    /**
+     * Gets the id of the last event received, which is sent when reconnecting.
+     *
+     * @return the id of the last event, or null if none was received
+     */
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * Reads a line of the stream, dispatching the event when the line ends it.
+     *
+     * @param line the line, without its line terminator
+     */
+    void accept(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+            return;
+        }
+        if (line.startsWith(":")) {
+            return; // a comment
+        }
+        int colon = line.indexOf(':');
+        String field = colon < 0 ? line : line.substring(0, colon);
+        String value = colon < 0 ? "" : line.substring(colon + 1);
+        if (value.startsWith(" ")) {
+            value = value.substring(1);
+        }
+        switch (field) {
+            case "event" -> eventName = value;
+            case "id" -> eventId = value;
+            case "data" -> data.append(data.isEmpty() ? "" : "\n").append(value);
+            default -> {
+                // other fields, like retry, aren't used
+            }
+        }
+    }
+
+    /**
+     * Handles the event read so far and starts reading the next one.
+     */
+    private void dispatch() {
+        String name = eventName;
+        String payload = data.toString();
+        if (eventId != null) {
+            lastEventId = eventId;
+        }
+        eventName = null;
+        eventId = null;
+        data.setLength(0);
+
+        if ("reset".equals(name)) {
+            onReset.run();
+        } else if (!payload.isEmpty()) {
+            try {
+                onSynchronization.accept(SYNCHRONIZATION_READER.readValue(payload));
+            } catch (IOException e) {
+                System.out.println("Received an invalid synchronization");
+            }
+        }
+    }
+
+    /**
+     * Reconnects after a delay, unless the client was closed.
+     */
+    private void reconnectLater() {
+        if (closed) {
+            return;
+        }
+        try {
+            reconnector.schedule(() -> {
+                System.out.println("Synchronization stream ended, reconnecting now");
+                connect();
+            }, RECONNECT_DELAY, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed in the meantime
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package client.utils;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Multiset of titles that also tracks which numbered variants of a title are taken,
+ * so a free title like "New note 3" can be found without trying every number.
+ * <p>
+ * A title "base N", with N a positive number without leading zeros, marks bit N of
+ * "base", and the title "base" itself marks bit 0. The first free variant of a title
+ * is then the first clear bit. Numbers above {@value #MAX_TRACKED} are looked up instead.
+ * </p>
+ */
+public class TitleIndex {
+    // higher numbers aren't tracked, so a title like "Note 999999" can't make a huge bit set
+    private static final int MAX_TRACKED = 1 << 16;
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, BitSet> numbers = new HashMap<>();
+
+    /**
+     * Adds a title.
+     *
+     * @param title the title, ignored if null
+     */
+    public void add(String title) {
+        if (title == null) return;
+        if (counts.merge(title, 1, Integer::sum) == 1) {
+            setNumber(title, true);
+        }
+    }
+
+    /**
+     * Removes one occurrence of a title.
+     *
+     * @param title the title, ignored if null or not present
+     */
+    public void remove(String title) {
+        if (title == null || !counts.containsKey(title)) return;
+        if (counts.merge(title, -1, Integer::sum) == 0) {
+            counts.remove(title);
+            setNumber(title, false);
+        }
+    }
+
+    /**
+     * Removes all titles.
+     */
+    public void clear() {
+        counts.clear();
+        numbers.clear();
+    }
+
+    /**
+     * Returns how often a title occurs.
+     *
+     * @param title the title
+     * @return the number of occurrences
+     */
+    public int count(String title) {
+        return counts.getOrDefault(title, 0);
+    }
+
+    /**
+     * Checks whether a title occurs.
+     *
+     * @param title the title
+     * @return true if the title is taken
+     */
+    public boolean contains(String title) {
+        return counts.containsKey(title);
+    }
+
+    /**
+     * Returns the lowest number that makes a title free: 0 if the title itself is free,
+     * otherwise the lowest N for which "title N" is free.
+     *
+     * @param title the title
+     * @return the number
+     */
+    public int nextNumber(String title) {
+        BitSet taken = numbers.get(title);
+        int number = taken == null ? 0 : taken.nextClearBit(0);
+        while (number > MAX_TRACKED && contains(title + " " + number)) {
+            number++;
+        }
+        return number;
+    }
+
+    /**
+     * Returns the title itself if it is free, otherwise the first free numbered variant.
+     *
+     * @param title the title
+     * @return a free title
+     */
+    public String nextTitle(String title) {
+        int number = nextNumber(title);
+        return number == 0 ? title : title + " " + number;
+    }
+
+    /**
+     * Marks or clears the bit of a title in the numbers of its base title.
+     *
+     * @param title the title
+     * @param taken whether the title is taken now
+     */
+    private void setNumber(String title, boolean taken) {
+        String base = title;
+        int number = 0;
+        int space = title.lastIndexOf(' ');
+        int parsed = space < 0 ? -1 : parseNumber(title, space + 1);
+        if (parsed > MAX_TRACKED) return;
+        if (parsed > 0) {
+            base = title.substring(0, space);
+            number = parsed;
+        }
+
+        if (taken) {
+            numbers.computeIfAbsent(base, _ -> new BitSet()).set(number);
+        } else {
+            BitSet bits = numbers.get(base);
+            bits.clear(number);
+            if (bits.isEmpty()) {
+                numbers.remove(base);
+            }
+        }
+    }
+
+    /**
+     * Parses the number at the end of a title, as generated by {@link #nextTitle}.
+     *
+     * @param title the title
+     * @param start the start of the number
+     * @return the number, or -1 if the end of the title isn't such a number
+     */
+    private static int parseNumber(String title, int start) {
+        int length = title.length() - start;
+        // at most 9 digits, so the number fits in an int
+        if (length < 1 || length > 9 || title.charAt(start) == '0') return -1;
+
+        int number = 0;
+        for (int i = start; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
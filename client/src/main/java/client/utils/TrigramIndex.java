@@ -0,0 +1,518 @@
+package client.utils;
+
+import commons.Note;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * In-memory trigram index over the titles and contents of notes, for case-insensitive
+ * substring search.
+ * <p>
+ * Every run of three characters of a note is mapped to the notes containing it. A query
+ * of at least three characters only has to look at the notes that contain all of its
+ * trigrams, and only those candidates are checked against the actual text. Edits are
+ * indexed lazily: a changed note is re-indexed on the next search.
+ * </p>
+ */
+public class TrigramIndex {
+    private static final int TRIGRAM = 3;
+    // ASCII letters that non-ASCII characters fold to, like the Kelvin sign to k
+    private static final String FOLDED_FROM_NON_ASCII = "iks";
+
+    private final Map<Long, Doc> docsById = new HashMap<>();
+    private final List<Doc> docsByNumber = new ArrayList<>();
+    private final Deque<Integer> freeNumbers = new ArrayDeque<>();
+    private final Set<Doc> dirty = new HashSet<>();
+    private final TrigramMap postings = new TrigramMap();
+
+    // reused between searches, so a search only allocates its result
+    private Postings[] queryPostings = new Postings[16];
+    private int[] cursors = new int[16];
+
+    /**
+     * An indexed note.
+     */
+    private static final class Doc {
+        private final int number;
+        private Note note;
+        private String title;
+        private String content;
+        private long[] trigrams = new long[0];
+
+        /**
+         * Constructs a document for a note.
+         *
+         * @param number the document number used in the posting lists
+         * @param note   the note
+         */
+        Doc(int number, Note note) {
+            this.number = number;
+            this.note = note;
+        }
+    }
+
+    /**
+     * Sorted list of document numbers.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        /**
+         * Adds a document to the list, keeping it sorted.
+         *
+         * @param doc the document number
+         */
+        void add(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0) return;
+            index = -index - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, index, docs, index + 1, size - index);
+            docs[index] = doc;
+            size++;
+        }
+
+        /**
+         * Removes a document from the list.
+         *
+         * @param doc the document number
+         */
+        void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index < 0) return;
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Open-addressing hash map from trigram to posting list, so lookups don't box the key.
+     */
+    private static final class TrigramMap {
+        private long[] keys = new long[1024];
+        private Postings[] values = new Postings[1024];
+        private int size;
+
+        /**
+         * Looks up the posting list of a trigram.
+         *
+         * @param key the trigram, never 0
+         * @return the posting list, or null if no note contains the trigram
+         */
+        Postings get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return null;
+        }
+
+        /**
+         * Looks up the posting list of a trigram, creating it if it doesn't exist.
+         *
+         * @param key the trigram, never 0
+         * @return the posting list
+         */
+        Postings getOrCreate(long key) {
+            Postings existing = get(key);
+            if (existing != null) return existing;
+
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            Postings created = new Postings();
+            insert(key, created);
+            size++;
+            return created;
+        }
+
+        /**
+         * Inserts an entry that isn't in the map yet.
+         *
+         * @param key   the trigram
+         * @param value the posting list
+         */
+        private void insert(long key, Postings value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /**
+         * Doubles the capacity of the map.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Postings[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        /**
+         * Computes the first slot to probe for a trigram.
+         *
+         * @param key  the trigram
+         * @param mask the capacity minus one
+         * @return the slot
+         */
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 40) & mask;
+        }
+    }
+
+    /**
+     * Makes the index contain exactly the given notes, re-indexing only the notes whose
+     * title or content changed.
+     *
+     * @param notes all notes
+     */
+    public void sync(List<Note> notes) {
+        Set<Long> present = new HashSet<>();
+        for (Note note : notes) {
+            present.add(note.id);
+            update(note);
+        }
+        docsById.keySet().removeIf(id -> {
+            if (present.contains(id)) return false;
+            release(docsById.get(id));
+            return true;
+        });
+    }
+
+    /**
+     * Adds or re-indexes a note. Unchanged notes are skipped.
+     *
+     * @param note the note
+     */
+    public void update(Note note) {
+        Doc doc = docsById.get(note.id);
+        if (doc == null) {
+            doc = new Doc(freeNumbers.isEmpty() ? docsByNumber.size() : freeNumbers.pop(), note);
+            if (doc.number == docsByNumber.size()) {
+                docsByNumber.add(doc);
+            } else {
+                docsByNumber.set(doc.number, doc);
+            }
+            docsById.put(note.id, doc);
+        }
+        doc.note = note;
+        if (!Objects.equals(doc.title, note.title)
+                || !Objects.equals(doc.content, note.getContent())) {
+            dirty.add(doc);
+        }
+    }
+
+    /**
+     * Removes a note from the index.
+     *
+     * @param note the note
+     */
+    public void remove(Note note) {
+        Doc doc = docsById.remove(note.id);
+        if (doc != null) {
+            release(doc);
+        }
+    }
+
+    /**
+     * Returns the number of indexed notes.
+     *
+     * @return the number of notes
+     */
+    public int size() {
+        return docsById.size();
+    }
+
+    /**
+     * Finds the notes whose title or content contains the query, ignoring case.
+     *
+     * @param query the query
+     * @return the ids of the matching notes, or null if the query is too short to use the
+     *         index and the notes have to be scanned instead
+     */
+    public Set<Long> search(String query) {
+        if (query == null || query.length() < TRIGRAM) return null;
+        flush();
+
+        int count = query.length() - TRIGRAM + 1;
+        if (queryPostings.length < count) {
+            queryPostings = new Postings[Math.max(count, 2 * queryPostings.length)];
+            cursors = new int[queryPostings.length];
+        }
+        int smallest = 0;
+        for (int i = 0; i < count; i++) {
+            Postings list = postings.get(trigramAt(query, i));
+            if (list == null || list.size == 0) return new HashSet<>();
+            queryPostings[i] = list;
+            if (list.size < queryPostings[smallest].size) smallest = i;
+        }
+
+        Arrays.fill(cursors, 0, count, 0);
+        Set<Long> result = new HashSet<>();
+        Postings candidates = queryPostings[smallest];
+        for (int i = 0; i < candidates.size; i++) {
+            int doc = candidates.docs[i];
+            // a single trigram is matched exactly by its posting list
+            if (containsAll(doc, count)
+                    && (count == 1 || matches(docsByNumber.get(doc), query))) {
+                result.add(docsByNumber.get(doc).note.id);
+            }
+        }
+        Arrays.fill(queryPostings, 0, count, null);
+        return result;
+    }
+
+    /**
+     * Checks whether a document is in the posting lists of all query trigrams. The documents
+     * have to be checked in increasing order, since every list is walked with a cursor.
+     *
+     * @param doc   the document number
+     * @param count the number of query trigrams
+     * @return true if the document contains every trigram of the query
+     */
+    private boolean containsAll(int doc, int count) {
+        for (int i = 0; i < count; i++) {
+            Postings list = queryPostings[i];
+            int cursor = advance(list, cursors[i], doc);
+            cursors[i] = cursor;
+            if (cursor == list.size || list.docs[cursor] != doc) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first position in a posting list at or after a cursor holding a document
+     * number of at least the given one, galloping so that short lists are skipped quickly.
+     *
+     * @param list   the posting list
+     * @param cursor the position to start at
+     * @param doc    the document number
+     * @return the position, or the size of the list if all documents are smaller
+     */
+    private static int advance(Postings list, int cursor, int doc) {
+        int step = 1;
+        int low = cursor;
+        int high = cursor;
+        while (high < list.size && list.docs[high] < doc) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(list.docs, low, Math.min(high + 1, list.size), doc);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Checks a candidate against its text, since having all trigrams of the query doesn't
+     * mean they occur in the right order.
+     *
+     * @param doc   the candidate
+     * @param query the query
+     * @return true if the title or content contains the query
+     */
+    private static boolean matches(Doc doc, String query) {
+        return containsIgnoreCase(doc.title, query) || containsIgnoreCase(doc.content, query);
+    }
+
+    /**
+     * Re-indexes the notes that changed since the last search.
+     */
+    private void flush() {
+        for (Doc doc : dirty) {
+            if (docsByNumber.get(doc.number) == doc) {
+                reindex(doc);
+            }
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Replaces the trigrams of a document with those of its note's current title and content.
+     *
+     * @param doc the document
+     */
+    private void reindex(Doc doc) {
+        doc.title = doc.note.title;
+        doc.content = doc.note.getContent();
+        long[] trigrams = trigramsOf(doc.title, doc.content);
+
+        // both arrays are sorted, so walk them together and only touch the differences
+        long[] previous = doc.trigrams;
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < trigrams.length) {
+            if (j == trigrams.length || i < previous.length && previous[i] < trigrams[j]) {
+                postings.get(previous[i++]).remove(doc.number);
+            } else if (i == previous.length || trigrams[j] < previous[i]) {
+                postings.getOrCreate(trigrams[j++]).add(doc.number);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        doc.trigrams = trigrams;
+    }
+
+    /**
+     * Removes a document from all posting lists and frees its number.
+     *
+     * @param doc the document
+     */
+    private void release(Doc doc) {
+        for (long trigram : doc.trigrams) {
+            postings.get(trigram).remove(doc.number);
+        }
+        dirty.remove(doc);
+        docsByNumber.set(doc.number, null);
+        freeNumbers.push(doc.number);
+    }
+
+    /**
+     * Collects the distinct trigrams of a title and content, sorted.
+     *
+     * @param title   the title, may be null
+     * @param content the content, may be null
+     * @return the sorted trigrams
+     */
+    private static long[] trigramsOf(String title, String content) {
+        int titleCount = count(title);
+        long[] trigrams = new long[titleCount + count(content)];
+        for (int i = 0; i < titleCount; i++) {
+            trigrams[i] = trigramAt(title, i);
+        }
+        for (int i = titleCount; i < trigrams.length; i++) {
+            trigrams[i] = trigramAt(content, i - titleCount);
+        }
+        Arrays.sort(trigrams);
+
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * Returns the number of trigrams in a text.
+     *
+     * @param text the text, may be null
+     * @return the number of trigrams
+     */
+    private static int count(String text) {
+        return text == null ? 0 : Math.max(0, text.length() - TRIGRAM + 1);
+    }
+
+    /**
+     * Encodes the case-folded trigram starting at a position of a text.
+     *
+     * @param text  the text
+     * @param index the start of the trigram
+     * @return the trigram, never 0
+     */
+    private static long trigramAt(String text, int index) {
+        return Long.MIN_VALUE
+                | (long) fold(text.charAt(index)) << 32
+                | (long) fold(text.charAt(index + 1)) << 16
+                | fold(text.charAt(index + 2));
+    }
+
+    /**
+     * Folds the case of a character the same way {@link String#regionMatches} does
+     * when ignoring case.
+     *
+     * @param c the character
+     * @return the case-folded character
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Checks whether a text contains a query, ignoring case.
+     *
+     * @param text  the text, may be null
+     * @param query the query
+     * @return true if the query occurs in the text
+     */
+    static boolean containsIgnoreCase(String text, String query) {
+        if (text == null) return false;
+        if (query.isEmpty()) return true;
+
+        // only compare the whole query where the first character matches
+        char first = fold(query.charAt(0));
+        if (first < 128 && FOLDED_FROM_NON_ASCII.indexOf(first) < 0) {
+            return containsAscii(text, query, first);
+        }
+        int last = text.length() - query.length();
+        for (int i = 0; i <= last; i++) {
+            if (foldFast(text.charAt(i)) == first
+                    && text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a text contains a query starting with an ASCII character that only
+     * ASCII characters fold to, finding the candidate positions with {@link String#indexOf}.
+     *
+     * @param text  the text
+     * @param query the query
+     * @param first the case-folded first character of the query
+     * @return true if the query occurs in the text
+     */
+    private static boolean containsAscii(String text, String query, char first) {
+        char upper = Character.toUpperCase(first);
+        int last = text.length() - query.length();
+        int nextLower = text.indexOf(first);
+        int nextUpper = upper == first ? -1 : text.indexOf(upper);
+        while (nextLower >= 0 || nextUpper >= 0) {
+            boolean lowerFirst = nextUpper < 0 || nextLower >= 0 && nextLower < nextUpper;
+            int i = lowerFirst ? nextLower : nextUpper;
+            if (i > last) return false;
+            if (text.regionMatches(true, i, query, 0, query.length())) return true;
+            if (lowerFirst) {
+                nextLower = text.indexOf(first, i + 1);
+            } else {
+                nextUpper = text.indexOf(upper, i + 1);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Folds the case of a character like {@link #fold}, with a shortcut for ASCII.
+     *
+     * @param c the character
+     * @return the case-folded character
+     */
+    private static char foldFast(char c) {
+        if (c >= 128) return fold(c);
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
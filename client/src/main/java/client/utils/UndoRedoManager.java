@@ -1,26 +1,66 @@
 package client.utils;
 
+import client.utils.ApplicationStateMemento.NoteVersion;
 import commons.Collection;
 import commons.Note;
 import jakarta.inject.Inject;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
+/**
+ * Keeps the history of the notes and collections, so changes can be undone and redone.
+ * <p>
+ * Snapshots share the versions of notes that didn't change, so saving a state costs
+ * one reference per note plus a copy of the notes that were edited since. The history
+ * is bounded by a number of states and an estimate of the memory it retains; the oldest
+ * states are evicted first.
+ * </p>
+ */
 public class UndoRedoManager {
-    private final Stack<ApplicationStateMemento> undoStack = new Stack<>();
-    private final Stack<ApplicationStateMemento> redoStack = new Stack<>();
+    private static final int DEFAULT_MAX_STATES = 100;
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final Deque<ApplicationStateMemento> undoStack = new ArrayDeque<>();
+    private final Deque<ApplicationStateMemento> redoStack = new ArrayDeque<>();
     private final ApplicationState state;
+    private final int maxStates;
+    private final long maxBytes;
+
+    // the newest version of every note, so unchanged notes reuse it
+    private final Map<Long, NoteVersion> latestVersions = new HashMap<>();
+    // the number of snapshots referring to each version
+    private final Map<NoteVersion, Integer> references = new IdentityHashMap<>();
+    private long retainedBytes;
 
     /**
-     * Constructs the UndoRedoManager class.
+     * Constructs the UndoRedoManager class, with the limits of the history taken from the
+     * netnote.undo.maxStates and netnote.undo.maxBytes system properties.
      *
      * @param state the application state
      */
     @Inject
     public UndoRedoManager(ApplicationState state) {
+        this(state, Integer.getInteger("netnote.undo.maxStates", DEFAULT_MAX_STATES),
+                Long.getLong("netnote.undo.maxBytes", DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Constructs the UndoRedoManager class.
+     *
+     * @param state     the application state
+     * @param maxStates the maximum number of states to keep
+     * @param maxBytes  the maximum estimated memory the history may retain
+     */
+    public UndoRedoManager(ApplicationState state, int maxStates, long maxBytes) {
         this.state = state;
+        this.maxStates = maxStates;
+        this.maxBytes = maxBytes;
     }
 
     /**
@@ -29,31 +69,10 @@ public class UndoRedoManager {
      * @param state the application state
      */
     public void saveState(ApplicationState state) {
-        List<Note> notesCopy = new ArrayList<>();
-        if (state.getNotes() != null) {
-            for (Note note : state.getNotes()) {
-                Note copyNote = new Note();
-                copyNote.id = note.id;
-                copyNote.title = note.title;
-                copyNote.setContent(note.getContent());
-                copyNote.collection = note.collection;
-                notesCopy.add(copyNote);
-            }
-        }
-
-        List<Collection> collectionsCopy = new ArrayList<>();
-        if (state.getCollections() != null) {
-            for (Collection collection : state.getCollections()) {
-                Collection copyCollection = new Collection();
-                copyCollection.id = collection.id;
-                copyCollection.title = collection.title;
-                copyCollection.serverUrl = collection.serverUrl;
-                collectionsCopy.add(copyCollection);
-            }
+        while (!redoStack.isEmpty()) {
+            release(redoStack.pop());
         }
-
-        undoStack.push(new ApplicationStateMemento(notesCopy, collectionsCopy));
-        redoStack.clear();
+        push(undoStack, snapshotOf(state));
     }
 
     /**
@@ -62,8 +81,8 @@ public class UndoRedoManager {
      * @param state the application state
      */
     public void maybeSaveState(ApplicationState state) {
-        if (undoStack.isEmpty() || !undoStack.peek().equals(
-                new ApplicationStateMemento(state.getNotes(), state.getCollections()))) {
+        if (undoStack.isEmpty() || !undoStack.peek().matches(
+                nonNull(state.getNotes()), nonNull(state.getCollections()))) {
             saveState(state);
         }
     }
@@ -74,12 +93,12 @@ public class UndoRedoManager {
      * @return false if the undo stack is empty, otherwise true
      */
     public boolean undo() {
-        redoStack.push(new ApplicationStateMemento(state.getNotes(), state.getCollections()));
         if (undoStack.isEmpty()) {
             return false;
         }
-        state.restoreState(undoStack.peek().notes(), undoStack.peek().collections());
-        undoStack.pop();
+        ApplicationStateMemento memento = undoStack.pop();
+        push(redoStack, snapshotOf(state));
+        restore(memento);
         return true;
     }
 
@@ -89,12 +108,126 @@ public class UndoRedoManager {
      * @return false if the redo stack is empty, otherwise true
      */
     public boolean redo() {
-        undoStack.push(new ApplicationStateMemento(state.getNotes(), state.getCollections()));
         if (redoStack.isEmpty()) {
             return false;
         }
-        state.restoreState(redoStack.peek().notes(), redoStack.peek().collections());
-        redoStack.pop();
+        ApplicationStateMemento memento = redoStack.pop();
+        push(undoStack, snapshotOf(state));
+        restore(memento);
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the number of states that can be undone.
+     *
+     * @return the size of the undo history
+     */
+    public int getUndoSize() {
+        return undoStack.size();
+    }
+
+    /**
+     * Returns the number of states that can be redone.
+     *
+     * @return the size of the redo history
+     */
+    public int getRedoSize() {
+        return redoStack.size();
+    }
+
+    /**
+     * Returns the estimated memory retained by the history.
+     *
+     * @return the estimated number of bytes
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Takes a snapshot of the notes and collections, reusing the versions of unchanged notes.
+     *
+     * @param state the application state
+     * @return the snapshot
+     */
+    private ApplicationStateMemento snapshotOf(ApplicationState state) {
+        List<Note> notes = nonNull(state.getNotes());
+        List<NoteVersion> versions = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            NoteVersion version = latestVersions.get(note.id);
+            if (version == null || !version.matches(note)) {
+                version = NoteVersion.of(note);
+                latestVersions.put(note.id, version);
+            }
+            versions.add(version);
+        }
+
+        List<Collection> collections = nonNull(state.getCollections());
+        List<Collection> collectionsCopy = new ArrayList<>(collections.size());
+        for (Collection collection : collections) {
+            collectionsCopy.add(ApplicationStateMemento.copyOf(collection));
+        }
+        return new ApplicationStateMemento(versions, collectionsCopy);
+    }
+
+    /**
+     * Restores a snapshot and releases it from the history.
+     *
+     * @param memento the snapshot
+     */
+    private void restore(ApplicationStateMemento memento) {
+        state.restoreState(memento.restoreNotes(), memento.restoreCollections());
+        release(memento);
+    }
+
+    /**
+     * Pushes a snapshot on a stack and evicts the oldest states if the history is too large.
+     *
+     * @param stack   the undo or redo stack
+     * @param memento the snapshot
+     */
+    private void push(Deque<ApplicationStateMemento> stack, ApplicationStateMemento memento) {
+        retainedBytes += memento.overhead();
+        for (NoteVersion version : memento.notes()) {
+            if (references.merge(version, 1, Integer::sum) == 1) {
+                retainedBytes += version.size();
+            }
+        }
+        stack.push(memento);
+
+        // the newest state is always kept, even if it's larger than the limit on its own
+        Deque<ApplicationStateMemento> other = stack == undoStack ? redoStack : undoStack;
+        while (stack.size() + other.size() > Math.max(1, maxStates)
+                || retainedBytes > maxBytes && stack.size() + other.size() > 1) {
+            Deque<ApplicationStateMemento> larger = other.size() >= stack.size() ? other : stack;
+            release(larger.removeLast());
+        }
+    }
+
+    /**
+     * Drops a snapshot from the accounting, forgetting the versions no other snapshot uses.
+     *
+     * @param memento the snapshot
+     */
+    private void release(ApplicationStateMemento memento) {
+        retainedBytes -= memento.overhead();
+        for (NoteVersion version : memento.notes()) {
+            if (references.merge(version, -1, Integer::sum) == 0) {
+                references.remove(version);
+                latestVersions.remove(version.id(), version);
+                retainedBytes -= version.size();
+            }
+        }
+    }
+
+    /**
+     * Treats a missing list as an empty one.
+     *
+     * @param list the list, may be null
+     * @param <T>  the type of the elements
+     * @return the list, or an empty list
+     */
+    private static <T> List<T> nonNull(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+}
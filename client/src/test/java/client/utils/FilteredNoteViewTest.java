@@ -0,0 +1,313 @@
+package client.utils;
+
+import commons.Collection;
+import commons.Note;
+import commons.NoteBitmap;
+import commons.Tag;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilteredNoteViewTest {
+    private FilteredNoteView view;
+    private List<Note> notes;
+    private Collection work;
+    private Collection home;
+    private List<String> events;
+
+    @BeforeEach
+    void setUp() {
+        work = new Collection("work", "url");
+        work.id = 1;
+        home = new Collection("home", "url");
+        home.id = 2;
+
+        notes = new ArrayList<>();
+        notes.add(note(1, "Meeting", "agenda", work));
+        notes.add(note(2, "Groceries", "milk and eggs", home));
+        notes.add(note(3, "Report", "quarterly numbers", work));
+        notes.add(note(4, "Recipes", "eggs benedict", home));
+
+        view = new FilteredNoteView();
+        view.setSource(notes);
+
+        events = new ArrayList<>();
+        view.getTitles().addListener((ListChangeListener<String>) change -> {
+            StringBuilder event = new StringBuilder();
+            while (change.next()) {
+                if (change.wasReplaced()) {
+                    event.append("replaced ").append(change.getAddedSubList());
+                } else if (change.wasAdded()) {
+                    event.append("added ").append(change.getAddedSubList());
+                } else if (change.wasRemoved()) {
+                    event.append("removed ").append(change.getRemoved());
+                }
+                event.append(';');
+            }
+            events.add(event.toString());
+        });
+    }
+
+    private static Note note(long id, String title, String content, Collection collection) {
+        Note note = new Note(title, content, collection);
+        note.id = id;
+        return note;
+    }
+
+    @Test
+    void testAllNotesVisible() {
+        assertEquals(List.of("Meeting", "Groceries", "Report", "Recipes"), view.getTitles());
+        assertEquals(notes, view.getNotes());
+    }
+
+    @Test
+    void testSetCollection() {
+        view.setCollection(work);
+
+        assertEquals(List.of("Meeting", "Report"), view.getTitles());
+        assertEquals(List.of("removed [Groceries];removed [Recipes];"), events);
+    }
+
+    @Test
+    void testSetQueryIsCaseInsensitive() {
+        view.setQuery("EGGS");
+
+        assertEquals(List.of("Groceries", "Recipes"), view.getTitles());
+    }
+
+    @Test
+    void testNarrowingAndWideningQuery() {
+        view.setQuery("e");
+        assertEquals(List.of("Meeting", "Groceries", "Report", "Recipes"), view.getTitles());
+        assertTrue(events.isEmpty());
+
+        view.setQuery("eg");
+        assertEquals(List.of("Groceries", "Recipes"), view.getTitles());
+
+        view.setQuery("");
+        assertEquals(List.of("Meeting", "Groceries", "Report", "Recipes"), view.getTitles());
+        assertEquals("added [Meeting];added [Report];", events.getLast());
+    }
+
+    @Test
+    void testIndexedQueryFollowsEdits() {
+        view.setQuery("benedict");
+        assertEquals(List.of("Recipes"), view.getTitles());
+
+        Note groceries = notes.get(1);
+        groceries.setContent("eggs for eggs benedict");
+        view.contentChanged(groceries);
+        view.refresh();
+        assertEquals(List.of("Groceries", "Recipes"), view.getTitles());
+
+        view.noteRemoved(notes.remove(3));
+        view.setQuery("benedic");
+        assertEquals(List.of("Groceries"), view.getTitles());
+    }
+
+    @Test
+    void testIndexedQueryOnlyLooksAtResult() {
+        AtomicInteger reads = new AtomicInteger();
+        List<Note> source = new ArrayList<>(notes) {
+            @Override
+            public Iterator<Note> iterator() {
+                reads.incrementAndGet();
+                return super.iterator();
+            }
+
+            @Override
+            public Note get(int index) {
+                reads.incrementAndGet();
+                return super.get(index);
+            }
+        };
+        view.setSource(source);
+        view.setCollection(home);
+        reads.set(0);
+
+        view.setQuery("egg");
+        assertEquals(List.of("Groceries", "Recipes"), view.getTitles());
+        view.setQuery("eggs b");
+        assertEquals(List.of("Recipes"), view.getTitles());
+        view.setQuery("milk");
+        assertEquals(List.of("Groceries"), view.getTitles());
+
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    void testSelectedTags() {
+        Tag eggs = new Tag("eggs");
+        eggs.noteIDs.addAll(Set.of(2L, 4L));
+        Tag food = new Tag("food");
+        food.noteIDs.add(4L);
+
+        view.setSelectedTags(Set.of(eggs));
+        assertEquals(List.of("Groceries", "Recipes"), view.getTitles());
+
+        view.setSelectedTags(Set.of(eggs, food));
+        assertEquals(List.of("Recipes"), view.getTitles());
+
+        view.setSelectedTags(Set.of());
+        assertEquals(4, view.getTitles().size());
+    }
+
+    @Test
+    void testAddedTagsOnlyIntersectTheirNotes() {
+        Tag eggs = new Tag("eggs");
+        eggs.noteIDs.addAll(Set.of(2L, 4L));
+        Tag food = new Tag("food");
+        food.noteIDs.add(4L);
+        List<String> requested = new ArrayList<>();
+        view = new FilteredNoteView(tag -> {
+            requested.add(tag.title);
+            return NoteBitmap.of(tag.noteIDs);
+        });
+        view.setSource(notes);
+
+        view.setSelectedTags(Set.of(eggs));
+        view.setSelectedTags(Set.of(eggs, food));
+        assertEquals(List.of("Recipes"), view.getTitles());
+        assertEquals(List.of("eggs", "food"), requested);
+
+        view.setSelectedTags(Set.of(food));
+        assertEquals(List.of("Recipes"), view.getTitles());
+        view.setSelectedTags(Set.of());
+        assertEquals(List.of("Meeting", "Groceries", "Report", "Recipes"), view.getTitles());
+    }
+
+    @Test
+    void testNoteChangedRenames() {
+        notes.get(2).title = "Annual report";
+        view.noteChanged(notes.get(2));
+
+        assertEquals(List.of("Meeting", "Groceries", "Annual report", "Recipes"),
+                view.getTitles());
+        assertEquals(List.of("replaced [Annual report];"), events);
+    }
+
+    @Test
+    void testNoteAddedAtItsPosition() {
+        view.setCollection(work);
+        events.clear();
+
+        notes.add(2, note(5, "Planning", "", work));
+        view.noteChanged(notes.get(2));
+
+        assertEquals(List.of("Meeting", "Planning", "Report"), view.getTitles());
+        assertEquals(List.of("added [Planning];"), events);
+    }
+
+    @Test
+    void testNoteAddedAtFront() {
+        notes.addFirst(note(5, "Planning", "", work));
+        view.noteChanged(notes.getFirst());
+
+        assertEquals(List.of("Planning", "Meeting", "Groceries", "Report", "Recipes"),
+                view.getTitles());
+        assertEquals(0, view.indexOf(5));
+        assertEquals(4, view.indexOf(4));
+    }
+
+    @Test
+    void testManyNotesAddedAtOnePosition() {
+        // more than the room between two notes, so the notes are numbered again
+        for (int i = 0; i < 40; i++) {
+            notes.add(1, note(10 + i, "Note " + i, "", work));
+            view.noteChanged(notes.get(1));
+        }
+
+        assertEquals(notes, view.getNotes());
+        for (int i = 0; i < notes.size(); i++) {
+            assertEquals(i, view.indexOf(notes.get(i).id));
+        }
+    }
+
+    @Test
+    void testNoteChangedOnlyChecksThatNote() {
+        view.setCollection(work);
+        events.clear();
+
+        notes.getFirst().collection = home;
+        notes.get(2).title = "Annual report";
+        view.noteChanged(notes.get(2));
+
+        assertEquals(List.of("Meeting", "Annual report"), view.getTitles());
+        assertEquals(List.of("replaced [Annual report];"), events);
+    }
+
+    @Test
+    void testNoteAddedWithoutNoteChanged() {
+        view.setCollection(work);
+        notes.add(1, note(5, "Planning", "", work));
+
+        view.setCollection(null);
+
+        assertEquals(List.of("Meeting", "Planning", "Groceries", "Report", "Recipes"),
+                view.getTitles());
+        assertEquals(3, view.indexOf(3));
+    }
+
+    @Test
+    void testNoteMovedToOtherCollection() {
+        view.setCollection(work);
+        events.clear();
+
+        notes.getFirst().collection = home;
+        view.noteChanged(notes.getFirst());
+
+        assertEquals(List.of("Report"), view.getTitles());
+        assertEquals(List.of("removed [Meeting];"), events);
+    }
+
+    @Test
+    void testNoteRemoved() {
+        Note removed = notes.remove(1);
+        view.noteRemoved(removed);
+
+        assertEquals(List.of("Meeting", "Report", "Recipes"), view.getTitles());
+        assertEquals(-1, view.indexOf(2));
+        assertEquals(1, view.indexOf(3));
+    }
+
+    @Test
+    void testRefreshWithoutChangesEmitsNothing() {
+        view.refresh();
+        view.setCollection(null);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testNewInstancesOnlyReportChangedNotes() {
+        List<Note> fromServer = new ArrayList<>();
+        for (Note note : notes) {
+            fromServer.add(note(note.id, note.title, note.getContent(), note.collection));
+        }
+        fromServer.get(3).setContent("eggs florentine");
+
+        view.setSource(fromServer);
+
+        assertEquals(List.of("replaced [Recipes];"), events);
+        assertSame(fromServer.getFirst(), view.getNotes().getFirst());
+    }
+
+    @Test
+    void testReorderedSource() {
+        List<Note> reordered = new ArrayList<>(List.of(notes.get(3), notes.get(0),
+                notes.get(1), notes.get(2)));
+
+        view.setSource(reordered);
+
+        assertEquals(List.of("Recipes", "Meeting", "Groceries", "Report"), view.getTitles());
+        assertEquals(reordered, view.getNotes());
+    }
+}
@@ -0,0 +1,109 @@
+package client.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class ImageCacheTest {
+    private static final byte[] BYTES = {1, 2, 3};
+    private static final String DATA_URI =
+            "data:image/png;base64," + Base64.getEncoder().encodeToString(BYTES);
+
+    @TempDir
+    Path directory;
+
+    private ServerUtils server;
+    private ImageCache imageCache;
+
+    @BeforeEach
+    void setUp() {
+        server = mock(ServerUtils.class);
+        when(server.getAllImagesNames()).thenReturn("cat.png; id: 1\n");
+        when(server.getImage(eq(1L), isNull()))
+                .thenReturn(new ImageData("\"abc\"", "image/png", BYTES));
+        when(server.getImage(1L, "\"abc\""))
+                .thenReturn(new ImageData("\"abc\"", "image/png", null));
+        imageCache = new ImageCache(server, directory);
+    }
+
+    @Test
+    void testEmbedImages() {
+        String html = imageCache.embedImages("before ![cat](cat.png) after");
+
+        assertEquals("before <img alt='cat' src='" + DATA_URI + "' /> after", html);
+    }
+
+    @Test
+    void testEmbedImagesByAltText() {
+        String html = imageCache.embedImages("![cat.png](somewhere)");
+
+        assertEquals("<img alt='cat.png' src='" + DATA_URI + "' />", html);
+    }
+
+    @Test
+    void testUnknownImageIsLeftAlone() {
+        assertEquals("![dog](dog.png)", imageCache.embedImages("![dog](dog.png)"));
+        verify(server, never()).getImage(anyLong(), any());
+    }
+
+    @Test
+    void testETagIsNotUsedAsPath() throws IOException {
+        when(server.getImage(eq(1L), isNull()))
+                .thenReturn(new ImageData("\"../../escaped\"", "image/png", BYTES));
+
+        assertEquals(DATA_URI, imageCache.getDataUri("cat.png"));
+
+        assertFalse(Files.exists(directory.resolve("../../escaped")));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.allMatch(file -> file.getParent().equals(directory)));
+        }
+    }
+
+    @Test
+    void testImageIsDownloadedOncePerSession() {
+        imageCache.getDataUri("cat.png");
+        imageCache.getDataUri("cat.png");
+
+        verify(server, times(1)).getImage(anyLong(), any());
+    }
+
+    @Test
+    void testInvalidateRevalidatesWithETag() {
+        imageCache.getDataUri("cat.png");
+        imageCache.invalidate();
+
+        assertEquals(DATA_URI, imageCache.getDataUri("cat.png"));
+        verify(server).getImage(1L, "\"abc\"");
+    }
+
+    @Test
+    void testStoredImageSurvivesRestart() {
+        imageCache.getDataUri("cat.png");
+
+        ImageCache restarted = new ImageCache(server, directory);
+
+        assertEquals(DATA_URI, restarted.getDataUri("cat.png"));
+        verify(server).getImage(1L, "\"abc\"");
+    }
+
+    @Test
+    void testStoredImageIsUsedOffline() {
+        imageCache.getDataUri("cat.png");
+        when(server.getImage(1L, "\"abc\"")).thenReturn(null);
+
+        ImageCache restarted = new ImageCache(server, directory);
+
+        assertEquals(DATA_URI, restarted.getDataUri("cat.png"));
+    }
+}
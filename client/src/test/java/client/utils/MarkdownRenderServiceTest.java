@@ -0,0 +1,102 @@
+package client.utils;
+
+import client.Markdown;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MarkdownRenderServiceTest {
+    private MarkdownRenderService renderService;
+    private ImageCache imageCache;
+    private BlockingQueue<String> rendered;
+
+    @BeforeEach
+    void setUp() {
+        Markdown markdown = mock(Markdown.class);
+        when(markdown.renderHtml(anyString()))
+                .thenAnswer(invocation -> "<p>" + invocation.getArgument(0) + "</p>\n");
+
+        imageCache = mock(ImageCache.class);
+        when(imageCache.embedImages(anyString()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // two frames per second, so requests made right after a render are coalesced
+        renderService = new MarkdownRenderService(markdown, imageCache, Runnable::run, 2);
+        rendered = new LinkedBlockingQueue<>();
+    }
+
+    @Test
+    void testRender() throws InterruptedException {
+        renderService.render("title", rendered::add);
+
+        assertEquals("<p>title</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLatestRequestWins() throws InterruptedException {
+        renderService.render("first", rendered::add);
+        assertEquals("<p>first</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+
+        renderService.render("second", rendered::add);
+        renderService.render("third", rendered::add);
+
+        assertEquals("<p>third</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+        assertNull(rendered.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCancel() throws InterruptedException {
+        renderService.render("first", rendered::add);
+        assertEquals("<p>first</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+
+        renderService.render("second", rendered::add);
+        renderService.cancel();
+
+        assertNull(rendered.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRepeatedContentIsCached() throws InterruptedException {
+        renderService.render("first", rendered::add);
+        assertEquals("<p>first</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+
+        renderService.render("first", rendered::add);
+
+        assertEquals("<p>first</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, renderService.getRenderCache().getHits());
+    }
+
+    @Test
+    void testInvalidateImagesSkipsCache() throws InterruptedException {
+        renderService.render("first", rendered::add);
+        assertEquals("<p>first</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+
+        renderService.invalidateImages();
+        renderService.render("first", rendered::add);
+
+        assertEquals("<p>first</p>\n", rendered.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, renderService.getRenderCache().getHits());
+        verify(imageCache).invalidate();
+    }
+
+    @Test
+    void testRenderFailureFallsBackToText() throws InterruptedException {
+        Markdown failing = mock(Markdown.class);
+        when(failing.renderHtml(anyString())).thenThrow(new IllegalStateException("broken"));
+        renderService = new MarkdownRenderService(failing, imageCache, Runnable::run, 2);
+
+        renderService.render("<b>", rendered::add);
+
+        assertEquals("<html><body><pre>&lt;b&gt;</pre></body></html>",
+                rendered.poll(5, TimeUnit.SECONDS));
+    }
+}
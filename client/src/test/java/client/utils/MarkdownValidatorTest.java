@@ -0,0 +1,74 @@
+package client.utils;
+
+import client.utils.MarkdownValidator.Problem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MarkdownValidatorTest {
+
+    @Test
+    void testValidMarkdown() {
+        String markdown = "# Title\n\nSome *bold* and _italic_ text with `code`.\n"
+                + "- first item\n  - nested item\n\n[link](https://example.com)\n";
+
+        assertEquals(List.of(), MarkdownValidator.validate(markdown));
+    }
+
+    @Test
+    void testUnmatchedAsterisk() {
+        assertEquals(List.of(new Problem("Markdown.asterisk", 2, 9)),
+                MarkdownValidator.validate("*a* b\n*c* and *d"));
+    }
+
+    @Test
+    void testUnmatchedUnderscoreAndBacktick() {
+        assertEquals(List.of(new Problem("Markdown.underscore", 1, 1),
+                        new Problem("Markdown.backtick", 1, 3)),
+                MarkdownValidator.validate("_a`"));
+    }
+
+    @Test
+    void testInvalidListItem() {
+        assertEquals(List.of(new Problem("Markdown.list", 2, 3)),
+                MarkdownValidator.validate("- fine\n  -wrong\n-also wrong"));
+    }
+
+    @Test
+    void testListItemWithoutContent() {
+        assertEquals(List.of(new Problem("Markdown.list", 2, 1)),
+                MarkdownValidator.validate("text\n-  \nmore"));
+        assertEquals(List.of(new Problem("Markdown.list", 1, 1)),
+                MarkdownValidator.validate("-"));
+    }
+
+    @Test
+    void testDashInsideLineIsNoListItem() {
+        assertEquals(List.of(), MarkdownValidator.validate("well-known - fine"));
+    }
+
+    @Test
+    void testUnmatchedBracket() {
+        assertEquals(List.of(new Problem("Markdown.linkText", 1, 8)),
+                MarkdownValidator.validate("a link [here"));
+    }
+
+    @Test
+    void testUnmatchedParenthesis() {
+        assertEquals(List.of(new Problem("Markdown.linkUrl", 3, 7)),
+                MarkdownValidator.validate("[text]\n\n[text](url"));
+    }
+
+    @Test
+    void testParenthesisWithoutLinks() {
+        assertEquals(List.of(), MarkdownValidator.validate("an (unclosed remark"));
+    }
+
+    @Test
+    void testWindowsLineEndings() {
+        assertEquals(List.of(new Problem("Markdown.asterisk", 2, 1)),
+                MarkdownValidator.validate("- item\r\n*"));
+    }
+}
@@ -0,0 +1,77 @@
+package client.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderCacheTest {
+    private RenderCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RenderCache(2, 1000);
+    }
+
+    @Test
+    void testHitAndMiss() {
+        assertNull(cache.get("# a", 0));
+        cache.put("# a", 0, "<h1>a</h1>");
+
+        assertEquals("<h1>a</h1>", cache.get("# a", 0));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testImageVersionIsPartOfKey() {
+        cache.put("# a", 0, "<h1>a</h1>");
+
+        assertNull(cache.get("# a", 1));
+    }
+
+    @Test
+    void testHashCollisionIsMiss() {
+        // "Aa" and "BB" have the same hash code and length
+        cache.put("Aa", 0, "<p>Aa</p>");
+
+        assertNull(cache.get("BB", 0));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        cache.put("a", 0, "<p>a</p>");
+        cache.put("b", 0, "<p>b</p>");
+        cache.get("a", 0);
+        cache.put("c", 0, "<p>c</p>");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", 0));
+        assertNull(cache.get("b", 0));
+        assertNotNull(cache.get("c", 0));
+    }
+
+    @Test
+    void testEvictsOnSize() {
+        cache.put("a", 0, "x".repeat(600));
+        cache.put("b", 0, "y".repeat(600));
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get("a", 0));
+    }
+
+    @Test
+    void testTooLargeIsNotCached() {
+        cache.put("a", 0, "x".repeat(2000));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testClear() {
+        cache.put("a", 0, "<p>a</p>");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+    }
+}
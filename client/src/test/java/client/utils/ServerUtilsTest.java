@@ -0,0 +1,56 @@
+package client.utils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import commons.Note;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerUtilsTest {
+
+    @Test
+    void testReadNotesReadsEveryLine() throws IOException {
+        String ndjson = """
+                {"id":1,"title":"First","content":"One #tag","tags":["tag"],\
+                "collection":{"id":7,"title":"Work","serverUrl":"url"}}
+                {"id":2,"title":"Second","content":"Two","tags":[],"collection":null}
+                """;
+        List<Note> notes = new ArrayList<>();
+
+        long count = ServerUtils.readNotes(stream(ndjson), notes::add);
+
+        assertEquals(2, count);
+        assertEquals(1L, notes.get(0).id);
+        assertEquals("One #tag", notes.get(0).getContent());
+        assertEquals(Set.of("tag"), notes.get(0).getTags());
+        assertEquals("Work", notes.get(0).collection.title);
+        assertEquals("Second", notes.get(1).title);
+        assertNull(notes.get(1).collection);
+    }
+
+    @Test
+    void testReadNotesEmptyStream() throws IOException {
+        assertEquals(0, ServerUtils.readNotes(stream(""), _ -> fail()));
+    }
+
+    @Test
+    void testReadNotesPassesNotesBeforeAnError() {
+        List<Note> notes = new ArrayList<>();
+
+        assertThrows(JsonParseException.class, () -> ServerUtils.readNotes(
+                stream("{\"id\":1,\"title\":\"First\",\"content\":\"\"}\n{broken"), notes::add));
+        assertEquals(1, notes.size());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
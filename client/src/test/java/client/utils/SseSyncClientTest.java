@@ -0,0 +1,70 @@
+package client.utils;
+
+import commons.Synchronization;
+import commons.SynchronizationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SseSyncClientTest {
+    private List<Synchronization> received;
+    private int resets;
+    private SseSyncClient client;
+
+    @BeforeEach
+    void setUp() {
+        received = new ArrayList<>();
+        resets = 0;
+        client = new SseSyncClient(URI.create("http://localhost:8080/api/notes/sync"),
+                received::add, () -> resets++);
+    }
+
+    @Test
+    void testSynchronizationEvent() {
+        feed("id:run-1", "event:synchronization",
+                "data:{\"type\":\"UPDATE\",\"noteId\":4,\"title\":\"T\",\"content\":\"C\"}", "");
+
+        assertEquals(List.of(new Synchronization(SynchronizationType.UPDATE, 4, "T", "C")),
+                received);
+        assertEquals("run-1", client.getLastEventId());
+    }
+
+    @Test
+    void testEventIsOnlyDispatchedAtBlankLine() {
+        feed("event: synchronization", "data: {\"type\":\"DELETE\",", "data: \"noteId\":2}");
+        assertTrue(received.isEmpty());
+
+        feed("");
+        assertEquals(SynchronizationType.DELETE, received.getFirst().type);
+        assertEquals(2, received.getFirst().noteId);
+        assertNull(client.getLastEventId());
+    }
+
+    @Test
+    void testResetEvent() {
+        feed("event:reset", "id:run-7", "data:", "");
+
+        assertEquals(1, resets);
+        assertTrue(received.isEmpty());
+        assertEquals("run-7", client.getLastEventId());
+    }
+
+    @Test
+    void testCommentsAndInvalidDataAreIgnored() {
+        feed(": keep-alive", "", "retry:1000", "data:{broken", "");
+
+        assertTrue(received.isEmpty());
+        assertEquals(0, resets);
+    }
+
+    private void feed(String... lines) {
+        for (String line : lines) {
+            client.accept(line);
+        }
+    }
+}
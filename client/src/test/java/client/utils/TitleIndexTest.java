@@ -0,0 +1,98 @@
+package client.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TitleIndexTest {
+    private TitleIndex titles;
+
+    @BeforeEach
+    void setUp() {
+        titles = new TitleIndex();
+    }
+
+    @Test
+    void testFreeTitleIsKept() {
+        assertEquals("New note", titles.nextTitle("New note"));
+
+        titles.add("New note 1");
+        assertEquals("New note", titles.nextTitle("New note"));
+    }
+
+    @Test
+    void testFirstFreeNumberIsUsed() {
+        titles.add("New note");
+        assertEquals("New note 1", titles.nextTitle("New note"));
+
+        titles.add("New note 1");
+        titles.add("New note 3");
+        assertEquals("New note 2", titles.nextTitle("New note"));
+
+        titles.add("New note 2");
+        assertEquals(4, titles.nextNumber("New note"));
+    }
+
+    @Test
+    void testRemoveFreesTitle() {
+        titles.add("New note");
+        titles.add("New note 1");
+        titles.remove("New note 1");
+
+        assertEquals("New note 1", titles.nextTitle("New note"));
+        titles.remove("New note");
+        assertEquals("New note", titles.nextTitle("New note"));
+        assertFalse(titles.contains("New note"));
+    }
+
+    @Test
+    void testDuplicatesAreCounted() {
+        titles.add("Title");
+        titles.add("Title");
+        assertEquals(2, titles.count("Title"));
+
+        titles.remove("Title");
+        assertTrue(titles.contains("Title"));
+        assertEquals("Title 1", titles.nextTitle("Title"));
+
+        titles.remove("Title");
+        titles.remove("Title");
+        assertEquals(0, titles.count("Title"));
+    }
+
+    @Test
+    void testOnlyPlainNumbersAreSuffixes() {
+        titles.add("Note");
+        titles.add("Note 01");
+        titles.add("Note 1a");
+        titles.add("Note1");
+        assertEquals("Note 1", titles.nextTitle("Note"));
+
+        titles.add("Note 1");
+        assertTrue(titles.contains("Note 01"));
+        assertEquals("Note 2", titles.nextTitle("Note"));
+    }
+
+    @Test
+    void testLargeNumbersAreLookedUp() {
+        titles.add("Note 999999999");
+        assertEquals("Note", titles.nextTitle("Note"));
+        titles.remove("Note 999999999");
+
+        for (int i = 0; i <= 1 << 16; i++) {
+            titles.add(i == 0 ? "Note" : "Note " + i);
+        }
+        titles.add("Note " + ((1 << 16) + 1));
+        assertEquals((1 << 16) + 2, titles.nextNumber("Note"));
+    }
+
+    @Test
+    void testClear() {
+        titles.add("Title");
+        titles.clear();
+
+        assertFalse(titles.contains("Title"));
+        assertEquals("Title", titles.nextTitle("Title"));
+    }
+}
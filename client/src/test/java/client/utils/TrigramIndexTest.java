@@ -0,0 +1,160 @@
+package client.utils;
+
+import commons.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+    private TrigramIndex index;
+    private List<Note> notes;
+
+    @BeforeEach
+    void setUp() {
+        notes = new ArrayList<>();
+        notes.add(note(1, "Meeting", "agenda for Monday"));
+        notes.add(note(2, "Groceries", "milk and eggs"));
+        notes.add(note(3, "Recipes", "Eggs Benedict"));
+
+        index = new TrigramIndex();
+        index.sync(notes);
+    }
+
+    private static Note note(long id, String title, String content) {
+        Note note = new Note(title, content, null);
+        note.id = id;
+        return note;
+    }
+
+    @Test
+    void testSearchTitleAndContent() {
+        assertEquals(Set.of(1L), index.search("meet"));
+        assertEquals(Set.of(2L, 3L), index.search("eggs"));
+        assertEquals(Set.of(), index.search("bread"));
+    }
+
+    @Test
+    void testSearchIgnoresCase() {
+        assertEquals(Set.of(3L), index.search("BENEDICT"));
+        assertEquals(Set.of(1L), index.search("mOnDaY"));
+    }
+
+    @Test
+    void testContainsIgnoreCaseFoldsLikeRegionMatches() {
+        assertTrue(TrigramIndex.containsIgnoreCase("a Block", "bLOCK"));
+        assertTrue(TrigramIndex.containsIgnoreCase("500 \u212Aelvin", "kelvin"));
+        assertTrue(TrigramIndex.containsIgnoreCase("x", ""));
+        assertFalse(TrigramIndex.containsIgnoreCase("roadmap", "roadmaps"));
+        assertFalse(TrigramIndex.containsIgnoreCase(null, "road"));
+    }
+
+    @Test
+    void testShortQueryIsNotIndexed() {
+        assertNull(index.search("eg"));
+        assertNull(index.search(""));
+        assertNull(index.search(null));
+    }
+
+    @Test
+    void testCandidatesAreVerified() {
+        // contains the trigrams "abc" and "bcd", but not "abcd"
+        notes.add(note(4, "abcxbcd", null));
+        index.sync(notes);
+
+        assertEquals(Set.of(), index.search("abcd"));
+        assertEquals(Set.of(4L), index.search("xbcd"));
+    }
+
+    @Test
+    void testTrigramsDontSpanTitleAndContent() {
+        assertEquals(Set.of(), index.search("meetingagenda"));
+    }
+
+    @Test
+    void testContentEditIsIndexedOnNextSearch() {
+        Note note = notes.get(1);
+        note.setContent("bread and butter");
+        index.update(note);
+
+        assertEquals(Set.of(2L), index.search("bread"));
+        assertEquals(Set.of(3L), index.search("eggs"));
+    }
+
+    @Test
+    void testRemove() {
+        index.remove(notes.get(2));
+
+        assertEquals(2, index.size());
+        assertEquals(Set.of(2L), index.search("eggs"));
+    }
+
+    @Test
+    void testSyncReplacesInstancesAndDropsMissingNotes() {
+        List<Note> synced = List.of(note(1, "Meeting", "agenda for Tuesday"),
+                note(3, "Recipes", "Eggs Benedict"), note(5, "Trip", "pack the eggs"));
+        index.sync(synced);
+
+        assertEquals(3, index.size());
+        assertEquals(Set.of(3L, 5L), index.search("eggs"));
+        assertEquals(Set.of(1L), index.search("tuesday"));
+        assertEquals(Set.of(), index.search("monday"));
+    }
+
+    @Test
+    void testRemovedNumbersAreReused() {
+        index.remove(notes.get(0));
+        index.update(note(7, "Meetup", "drinks"));
+
+        assertEquals(Set.of(7L), index.search("meet"));
+        assertEquals(Set.of(), index.search("agenda"));
+    }
+
+    @Test
+    void testMatchesScanOnRandomEdits() {
+        Random random = new Random(42);
+        List<Note> randomNotes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            randomNotes.add(note(i, randomText(random, 8), randomText(random, 60)));
+        }
+        TrigramIndex randomIndex = new TrigramIndex();
+        randomIndex.sync(randomNotes);
+
+        for (int round = 0; round < 500; round++) {
+            Note edited = randomNotes.get(random.nextInt(randomNotes.size()));
+            edited.setContent(randomText(random, 60));
+            randomIndex.update(edited);
+
+            String query = randomText(random, 3 + random.nextInt(2));
+            Set<Long> expected = new HashSet<>();
+            for (Note note : randomNotes) {
+                if (regionMatches(note.title, query) || regionMatches(note.getContent(), query)) {
+                    expected.add(note.id);
+                }
+            }
+            assertEquals(expected, randomIndex.search(query), query);
+        }
+    }
+
+    private static boolean regionMatches(String text, String query) {
+        for (int i = 0; i + query.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) return true;
+        }
+        return false;
+    }
+
+    private static String randomText(Random random, int length) {
+        String alphabet = "abcABCkK\u212A ";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
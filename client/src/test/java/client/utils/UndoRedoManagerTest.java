@@ -0,0 +1,179 @@
+package client.utils;
+
+import commons.Collection;
+import commons.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class UndoRedoManagerTest {
+    private ApplicationState state;
+    private List<Note> notes;
+    private List<Collection> collections;
+    private Collection collection;
+
+    @BeforeEach
+    void setUp() {
+        collection = new Collection("collection", "http://localhost:8080/");
+        notes = new ArrayList<>();
+        collections = new ArrayList<>(List.of(collection));
+        for (int i = 0; i < 3; i++) {
+            Note note = new Note("note " + i, "content " + i, collection);
+            note.id = i;
+            notes.add(note);
+        }
+
+        state = mock(ApplicationState.class);
+        when(state.getNotes()).thenAnswer(_ -> notes);
+        when(state.getCollections()).thenAnswer(_ -> collections);
+        doAnswer(invocation -> {
+            notes = invocation.getArgument(0);
+            collections = invocation.getArgument(1);
+            return null;
+        }).when(state).restoreState(anyList(), anyList());
+    }
+
+    @Test
+    void testUndoRedo() {
+        UndoRedoManager manager = new UndoRedoManager(state);
+        manager.saveState(state);
+        notes.getFirst().setContent("edited #tag");
+
+        assertTrue(manager.undo());
+        assertEquals("content 0", notes.getFirst().getContent());
+        assertEquals(3, notes.size());
+
+        assertTrue(manager.redo());
+        assertEquals("edited #tag", notes.getFirst().getContent());
+        assertEquals(Set.of("tag"), notes.getFirst().getTags());
+    }
+
+    @Test
+    void testUndoWithoutHistory() {
+        UndoRedoManager manager = new UndoRedoManager(state);
+
+        assertFalse(manager.undo());
+        assertFalse(manager.redo());
+        verify(state, never()).restoreState(any(), any());
+    }
+
+    @Test
+    void testRestoredNotesAreCopies() {
+        UndoRedoManager manager = new UndoRedoManager(state);
+        manager.saveState(state);
+        manager.undo();
+        // editing a restored note must not change the history
+        notes.getFirst().setContent("edited");
+
+        manager.redo();
+
+        assertEquals("content 0", notes.getFirst().getContent());
+    }
+
+    @Test
+    void testMaybeSaveStateSkipsUnchangedState() {
+        UndoRedoManager manager = new UndoRedoManager(state);
+        manager.maybeSaveState(state);
+        manager.maybeSaveState(state);
+        assertEquals(1, manager.getUndoSize());
+
+        notes.get(1).title = "renamed";
+        manager.maybeSaveState(state);
+        assertEquals(2, manager.getUndoSize());
+
+        collections.getFirst().title = "renamed";
+        manager.maybeSaveState(state);
+        assertEquals(3, manager.getUndoSize());
+    }
+
+    @Test
+    void testSaveStateClearsRedo() {
+        UndoRedoManager manager = new UndoRedoManager(state);
+        manager.saveState(state);
+        manager.undo();
+        assertEquals(1, manager.getRedoSize());
+
+        manager.saveState(state);
+
+        assertEquals(0, manager.getRedoSize());
+    }
+
+    @Test
+    void testUnchangedNotesAreShared() {
+        notes.getFirst().setContent("x".repeat(100_000));
+        UndoRedoManager manager = new UndoRedoManager(state);
+        manager.saveState(state);
+        long first = manager.getRetainedBytes();
+
+        notes.get(1).setContent("small edit");
+        manager.saveState(state);
+
+        // the large note is stored once, so the second state costs far less than the first
+        assertTrue(manager.getRetainedBytes() - first < first / 10);
+    }
+
+    @Test
+    void testMaxStatesEvictsOldest() {
+        UndoRedoManager manager = new UndoRedoManager(state, 2, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            notes.getFirst().setContent("version " + i);
+            manager.saveState(state);
+        }
+        assertEquals(2, manager.getUndoSize());
+
+        notes.getFirst().setContent("current");
+        manager.undo();
+        assertEquals("version 4", notes.getFirst().getContent());
+        manager.undo();
+        assertEquals("version 3", notes.getFirst().getContent());
+        assertFalse(manager.undo());
+    }
+
+    @Test
+    void testMaxBytesEvictsOldest() {
+        UndoRedoManager manager = new UndoRedoManager(state, 100, 1_000_000);
+        for (int i = 0; i < 20; i++) {
+            notes.getFirst().setContent(Integer.toString(i).repeat(50_000));
+            manager.saveState(state);
+            assertTrue(manager.getRetainedBytes() <= 1_000_000);
+        }
+        assertTrue(manager.getUndoSize() < 20);
+        assertTrue(manager.getUndoSize() > 1);
+    }
+
+    @Test
+    void testEvictionReleasesMemory() {
+        UndoRedoManager manager = new UndoRedoManager(state, 1, Long.MAX_VALUE);
+        manager.saveState(state);
+        long retained = manager.getRetainedBytes();
+
+        for (int i = 0; i < 10; i++) {
+            notes.getFirst().setContent("content 0");
+            manager.saveState(state);
+        }
+
+        assertEquals(retained, manager.getRetainedBytes());
+    }
+
+    @Test
+    void testRestoredCollectionsAreCopies() {
+        UndoRedoManager manager = new UndoRedoManager(state);
+        manager.saveState(state);
+        manager.undo();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Collection>> captor = ArgumentCaptor.forClass(List.class);
+        verify(state).restoreState(anyList(), captor.capture());
+        assertEquals(List.of(collection), captor.getValue());
+        assertNotSame(collection, captor.getValue().getFirst());
+    }
+}
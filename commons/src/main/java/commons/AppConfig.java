@@ -5,6 +5,7 @@ import java.util.Locale;
 public class AppConfig {
     private Collection selectedCollection;
     private Locale selectedLanguage;
+    private SyncTransport syncTransport = SyncTransport.STOMP;
 
     /**
      * Standard constructor used when new AppConfig is needed.
@@ -58,4 +59,22 @@ public class AppConfig {
     public void setSelectedLanguage(Locale selectedLanguage) {
         this.selectedLanguage = selectedLanguage;
     }
+
+    /**
+     * Gets how the client receives the changes of other clients.
+     *
+     * @return the transport of synchronizations
+     */
+    public SyncTransport getSyncTransport() {
+        return syncTransport;
+    }
+
+    /**
+     * Sets how the client receives the changes of other clients.
+     *
+     * @param syncTransport the transport of synchronizations
+     */
+    public void setSyncTransport(SyncTransport syncTransport) {
+        this.syncTransport = syncTransport;
+    }
 }
@@ -0,0 +1,37 @@
+package commons;
+
+/**
+ * The identity of a character of a {@link CollaborativeText}, unique across all clients.
+ * <p>
+ * Ids are ordered by their clock first, which is a Lamport clock, so a character inserted
+ * after another character was seen has a greater id. Ids with the same clock, inserted
+ * concurrently, are ordered by the site that inserted them.
+ * </p>
+ *
+ * @param clock the value of the Lamport clock of the site when it inserted the character
+ * @param site  the id of the client or server that inserted the character
+ */
+public record CharId(long clock, String site) implements Comparable<CharId> {
+
+    /**
+     * Gets the id of the next character inserted by the same site in one go.
+     *
+     * @return the id with the next clock value
+     */
+    public CharId next() {
+        return new CharId(clock + 1, site);
+    }
+
+    /**
+     * Compares two ids by their clock, then by their site.
+     *
+     * @param other the id to compare to
+     * @return a negative number, zero or a positive number if this id is smaller than,
+     *         equal to or greater than the other
+     */
+    @Override
+    public int compareTo(CharId other) {
+        int byClock = Long.compare(clock, other.clock);
+        return byClock != 0 ? byClock : site.compareTo(other.site);
+    }
+}
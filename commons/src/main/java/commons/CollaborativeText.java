@@ -0,0 +1,364 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The content of a note as a sequence CRDT, a replicated growable array, so the concurrent
+ * edits of several clients merge into the same text whatever order they are applied in.
+ * <p>
+ * Every character has a unique {@link CharId} and stays in the sequence when it is deleted,
+ * as a tombstone, so operations made concurrently can still refer to it. Text inserted after
+ * a character goes right after it, except that it skips the characters inserted after the
+ * same character with a greater id, which weren't seen when the text was inserted; every site
+ * skips the same characters, so all agree on the order. An operation has to be applied after
+ * the operations it refers to, which the server ensures by passing operations on in the
+ * order it applied them.
+ * </p>
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public final class CollaborativeText {
+    private final String site;
+    private final List<Element> elements = new ArrayList<>();
+    private final Map<CharId, Element> byId = new HashMap<>();
+    private long clock;
+
+    /**
+     * A character of the text, which may be deleted.
+     */
+    private static final class Element {
+        private final CharId id;
+        private final char value;
+        private boolean deleted;
+
+        /**
+         * Constructs an element.
+         *
+         * @param id    the id of the character
+         * @param value the character
+         */
+        Element(CharId id, char value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Constructs an empty text.
+     *
+     * @param site the id of the client or server editing the text, unique among all of them
+     */
+    public CollaborativeText(String site) {
+        this.site = site;
+    }
+
+    /**
+     * Creates a text with some initial content, inserted by the given site.
+     *
+     * @param site the id of the site, unique among all sites, for every text created anew
+     * @param text the initial content
+     * @return the text
+     */
+    public static CollaborativeText of(String site, String text) {
+        CollaborativeText collaborativeText = new CollaborativeText(site);
+        collaborativeText.edit(text);
+        return collaborativeText;
+    }
+
+    /**
+     * Gets the id of the site editing this text.
+     *
+     * @return the site
+     */
+    public String getSite() {
+        return site;
+    }
+
+    /**
+     * Gets the current content, without the deleted characters.
+     *
+     * @return the content
+     */
+    public String text() {
+        StringBuilder text = new StringBuilder(elements.size());
+        for (Element element : elements) {
+            if (!element.deleted) {
+                text.append(element.value);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Changes the content to the given text, deleting and inserting the characters between
+     * the part both have in common at the start and the part both have in common at the end.
+     *
+     * @param newText the new content
+     * @return the operations making the change, already applied to this text, to be sent to
+     *         the other sites
+     */
+    public List<TextOperation> edit(String newText) {
+        List<Element> visible = visibleElements();
+        int oldLength = visible.size();
+        int newLength = newText.length();
+        int max = Math.min(oldLength, newLength);
+        int prefix = 0;
+        while (prefix < max && visible.get(prefix).value == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && visible.get(oldLength - 1 - suffix).value
+                == newText.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+
+        List<TextOperation> operations = new ArrayList<>(2);
+        if (oldLength - suffix > prefix) {
+            List<CharId> deleted = new ArrayList<>(oldLength - suffix - prefix);
+            for (Element element : visible.subList(prefix, oldLength - suffix)) {
+                deleted.add(element.id);
+            }
+            operations.add(TextOperation.delete(deleted));
+        }
+        if (newLength - suffix > prefix) {
+            CharId origin = prefix == 0 ? null : visible.get(prefix - 1).id;
+            operations.add(TextOperation.insert(new CharId(clock + 1, site), origin,
+                    newText.substring(prefix, newLength - suffix)));
+        }
+        applyAll(operations);
+        return operations;
+    }
+
+    /**
+     * Applies operations of this or another site, in order. Operations already applied are
+     * skipped. Nothing is applied if an operation is invalid or refers to a character this
+     * text doesn't have, which means it was made for another text.
+     *
+     * @param operations the operations
+     * @return true if the operations were applied
+     */
+    public boolean applyAll(List<TextOperation> operations) {
+        if (operations == null || !isValid(operations)) {
+            return false;
+        }
+        for (TextOperation operation : operations) {
+            if (operation.type() == TextOperation.Type.INSERT) {
+                integrate(operation);
+            } else {
+                for (CharId id : operation.deleted()) {
+                    byId.get(id).deleted = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the operations that build this text from an empty one, including the deleted
+     * characters, which operations of other sites may still refer to.
+     *
+     * @return the operations
+     */
+    public List<TextOperation> snapshot() {
+        List<TextOperation> operations = new ArrayList<>();
+        List<CharId> deleted = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        CharId start = null;
+        CharId origin = null;
+        CharId previous = null;
+        CharId next = null;
+        for (Element element : elements) {
+            // characters with consecutive ids form a single insertion
+            if (!element.id.equals(next)) {
+                if (!run.isEmpty()) {
+                    operations.add(TextOperation.insert(start, origin, run.toString()));
+                }
+                run.setLength(0);
+                start = element.id;
+                origin = previous;
+            }
+            run.append(element.value);
+            previous = element.id;
+            next = element.id.next();
+            if (element.deleted) {
+                deleted.add(element.id);
+            }
+        }
+        if (!run.isEmpty()) {
+            operations.add(TextOperation.insert(start, origin, run.toString()));
+        }
+        if (!deleted.isEmpty()) {
+            operations.add(TextOperation.delete(deleted));
+        }
+        return operations;
+    }
+
+    /**
+     * Gets the ids of the characters of the current content, in order.
+     *
+     * @return the ids, one for every character of {@link #text()}
+     */
+    public List<CharId> visibleIds() {
+        List<CharId> ids = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            if (!element.deleted) {
+                ids.add(element.id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the position in the current content right after a character, which follows the
+     * character as text is inserted and deleted before it. If the character was deleted, it
+     * is the position the character had.
+     *
+     * @param id the id of the character, or null for the start of the text
+     * @return the position, or -1 if this text has no such character
+     */
+    public int indexAfter(CharId id) {
+        if (id == null) {
+            return 0;
+        }
+        int index = 0;
+        for (Element element : elements) {
+            if (!element.deleted) {
+                index++;
+            }
+            if (element.id.equals(id)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the characters of the current content.
+     *
+     * @return the elements that aren't deleted, in order
+     */
+    private List<Element> visibleElements() {
+        List<Element> visible = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            if (!element.deleted) {
+                visible.add(element);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Checks that operations only refer to characters this text has or that earlier
+     * operations insert, and don't insert characters this text already has.
+     *
+     * @param operations the operations
+     * @return true if the operations can be applied
+     */
+    private boolean isValid(List<TextOperation> operations) {
+        Set<CharId> inserted = new HashSet<>();
+        for (TextOperation operation : operations) {
+            if (operation == null || operation.type() == null) {
+                return false;
+            }
+            boolean valid = operation.type() == TextOperation.Type.INSERT
+                    ? isValidInsert(operation, inserted)
+                    : isValidDelete(operation, inserted);
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks an insertion, adding the ids it inserts.
+     *
+     * @param operation the insertion
+     * @param inserted  the ids inserted by the earlier operations
+     * @return true if the insertion can be applied
+     */
+    private boolean isValidInsert(TextOperation operation, Set<CharId> inserted) {
+        CharId id = operation.id();
+        String text = operation.text();
+        if (id == null || id.site() == null || id.clock() < 1 || text == null
+                || text.isEmpty()) {
+            return false;
+        }
+        if (operation.origin() != null && !knows(operation.origin(), inserted)) {
+            return false;
+        }
+        if (knows(id, inserted)) {
+            return true; // applied before, which is skipped
+        }
+        for (int i = 0; i < text.length(); i++, id = id.next()) {
+            if (!inserted.add(id) || byId.containsKey(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a deletion.
+     *
+     * @param operation the deletion
+     * @param inserted  the ids inserted by the earlier operations
+     * @return true if the deletion can be applied
+     */
+    private boolean isValidDelete(TextOperation operation, Set<CharId> inserted) {
+        if (operation.deleted() == null) {
+            return false;
+        }
+        for (CharId id : operation.deleted()) {
+            if (id == null || !knows(id, inserted)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a character is in this text or inserted by an earlier operation.
+     *
+     * @param id       the id of the character
+     * @param inserted the ids inserted by the earlier operations
+     * @return true if the character is known
+     */
+    private boolean knows(CharId id, Set<CharId> inserted) {
+        return byId.containsKey(id) || inserted.contains(id);
+    }
+
+    /**
+     * Inserts the text of an insertion at its place among the characters.
+     *
+     * @param operation the valid insertion
+     */
+    private void integrate(TextOperation operation) {
+        CharId id = operation.id();
+        if (byId.containsKey(id)) {
+            return;
+        }
+        int index = operation.origin() == null
+                ? 0 : elements.indexOf(byId.get(operation.origin())) + 1;
+        // characters inserted concurrently after the same origin with a greater id come
+        // first, with everything inserted after them, which all have greater ids as well
+        while (index < elements.size() && elements.get(index).id.compareTo(id) > 0) {
+            index++;
+        }
+        // the rest of the text follows its first character, nothing can have been
+        // inserted in between
+        String text = operation.text();
+        for (int i = 0; i < text.length(); i++, id = id.next()) {
+            Element element = new Element(id, text.charAt(i));
+            elements.add(index + i, element);
+            byId.put(id, element);
+        }
+        clock = Math.max(clock, operation.id().clock() + text.length() - 1);
+    }
+}
@@ -19,10 +19,14 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.util.Objects;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_collection_title",
+        columnNames = "title"))
 public class Collection {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -74,7 +78,11 @@ public class Collection {
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) return true;
+        if (!(obj instanceof Collection other)) return false;
+        return id == other.id
+                && Objects.equals(title, other.title)
+                && Objects.equals(serverUrl, other.serverUrl);
     }
 
     /**
@@ -84,7 +92,7 @@ public class Collection {
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return Objects.hash(id, title, serverUrl);
     }
 
     /**
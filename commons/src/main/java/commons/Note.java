@@ -16,19 +16,21 @@
 package commons;
 
 import jakarta.persistence.*;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.StringReader;
 import java.util.*;
 
 import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
 
 @Entity
+// note titles are unique within a collection, which also indexes lookups by title
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_note_collection_title",
+        columnNames = {"collection_id", "title"}))
 public class Note {
+    // space, tab, line feed, vertical tab, form feed and carriage return
+    private static final long SEPARATORS = (1L << ' ') | (1L << '\t') | (1L << '\n')
+            | (1L << '\u000B') | (1L << '\f') | (1L << '\r');
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     public long id;
@@ -39,6 +41,12 @@ public class Note {
     @ManyToOne()
     public Collection collection;
 
+    // one row per note and tag; the primary key (note_id, tag) serves the tags of a note,
+    // the index (tag, note_id) the notes of a tag
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "note_tags", joinColumns = @JoinColumn(name = "note_id"),
+            indexes = @Index(name = "idx_note_tags_tag", columnList = "tag, note_id"))
+    @Column(name = "tag")
     private Set<String> tags;
 
     /**
@@ -126,26 +134,74 @@ public class Note {
 
     /**
      * Automatically parses and sets Tags from the content of a Note.
+     * <p>
+     * A tag is a whitespace-separated word starting with '#', with every character
+     * other than an ASCII letter or digit left out. The content is scanned once, and
+     * the only allocations are the tags themselves.
+     * </p>
      */
     public void parseTags() {
+        if (content == null) return;
+
+        int length = content.length();
+        int i = 0;
+        while (i < length) {
+            if (content.charAt(i) == '#' && (i == 0 || isSeparator(content.charAt(i - 1)))) {
+                i = scanTag(i + 1);
+            } else {
+                i++;
+            }
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] words = line.split("\\s+");
-                for (String word : words) {
-                    if (word.startsWith("#") && word.length() > 1) {
-                        String tag = word.substring(1)
-                                .replaceAll("[^a-zA-Z0-9]", "");
-                        if (!tag.isEmpty()) {
-                            tags.add(tag);
-                        }
-                    }
-                }
+    /**
+     * Reads the tag following a '#' and adds it to the tags, if it isn't empty.
+     *
+     * @param start the index right after the '#'
+     * @return the index of the end of the word
+     */
+    private int scanTag(int start) {
+        // only tags with characters to leave out need to be copied character by character
+        StringBuilder stripped = null;
+        int end = start;
+        for (; end < content.length(); end++) {
+            char c = content.charAt(end);
+            if (isSeparator(c)) break;
+
+            boolean tagChar = isTagChar(c);
+            if (stripped == null && !tagChar) {
+                stripped = new StringBuilder(end - start + 16).append(content, start, end);
+            } else if (stripped != null && tagChar) {
+                stripped.append(c);
             }
-        } catch (IOException e) {
-            System.out.println("Error reading text: " + e.getMessage());
         }
+
+        String tag = stripped == null ? content.substring(start, end) : stripped.toString();
+        if (!tag.isEmpty()) {
+            tags.add(tag);
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether a character separates words, which are the characters matched by
+     * the regular expression {@code \s}.
+     *
+     * @param c the character
+     * @return true if the character is whitespace
+     */
+    private static boolean isSeparator(char c) {
+        return c <= ' ' && (SEPARATORS & (1L << c)) != 0;
+    }
+
+    /**
+     * Checks whether a character is kept in a tag, which are the ASCII letters and digits.
+     *
+     * @param c the character
+     * @return true if the character is part of the tag
+     */
+    private static boolean isTagChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
     }
 
     /**
@@ -156,7 +212,14 @@ public class Note {
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) return true;
+        if (!(obj instanceof Note other)) return false;
+        // cheapest and most selective fields first
+        return id == other.id
+                && Objects.equals(title, other.title)
+                && Objects.equals(content, other.content)
+                && Objects.equals(collection, other.collection)
+                && Objects.equals(tags, other.tags);
     }
 
     /**
@@ -166,7 +229,8 @@ public class Note {
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
+        // the tags follow from the content, so they are left out
+        return Objects.hash(id, title, content, collection);
     }
 
     /**
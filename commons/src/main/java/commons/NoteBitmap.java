@@ -0,0 +1,558 @@
+package commons;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Compressed set of note ids, used for the notes of a tag.
+ * <p>
+ * Ids are split into their upper 48 bits, which select a container, and their lower
+ * 16 bits, which are stored in that container. A container holding few ids is a sorted
+ * array of them; one holding more than {@value #ARRAY_LIMIT} is a bitmap of all 65536
+ * values, so it never needs more than 8 KiB. Intersections and unions work a container
+ * at a time on words or sorted arrays, without boxing the ids.
+ * </p>
+ */
+public final class NoteBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+
+    private long[] keys = new long[0];
+    private Object[] containers = new Object[0];
+    private int size;
+
+    /**
+     * Sorted array of the lower 16 bits of the ids in a container.
+     */
+    private static final class ArrayContainer {
+        private char[] values;
+        private int cardinality;
+
+        /**
+         * Constructs an array container.
+         *
+         * @param values      the sorted values, of which only the first ones are used
+         * @param cardinality the number of values
+         */
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+    }
+
+    /**
+     * Bitmap of the lower 16 bits of the ids in a container.
+     */
+    private static final class BitmapContainer {
+        private final long[] words;
+        private int cardinality;
+
+        /**
+         * Constructs a bitmap container.
+         *
+         * @param words       the 1024 words of the bitmap
+         * @param cardinality the number of set bits
+         */
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+    }
+
+    /**
+     * Creates a bitmap of the given ids.
+     *
+     * @param ids the ids, may be null
+     * @return the bitmap
+     */
+    public static NoteBitmap of(Iterable<Long> ids) {
+        NoteBitmap bitmap = new NoteBitmap();
+        if (ids != null) {
+            for (Long id : ids) {
+                bitmap.add(id);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds an id.
+     *
+     * @param id the id
+     * @return true if the id wasn't in the bitmap yet
+     */
+    public boolean add(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, id >>> 16, new ArrayContainer(new char[4], 0));
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        if (container instanceof BitmapContainer bitmap) {
+            return addTo(bitmap, low);
+        }
+        ArrayContainer array = (ArrayContainer) container;
+        int position = Arrays.binarySearch(array.values, 0, array.cardinality, low);
+        if (position >= 0) return false;
+        if (array.cardinality == ARRAY_LIMIT) {
+            BitmapContainer bitmap = toBitmap(array);
+            containers[index] = bitmap;
+            return addTo(bitmap, low);
+        }
+        position = -position - 1;
+        if (array.cardinality == array.values.length) {
+            int capacity = Math.min(2 * array.cardinality, ARRAY_LIMIT);
+            array.values = Arrays.copyOf(array.values, capacity);
+        }
+        System.arraycopy(array.values, position, array.values, position + 1,
+                array.cardinality - position);
+        array.values[position] = low;
+        array.cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes an id.
+     *
+     * @param id the id
+     * @return true if the id was in the bitmap
+     */
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (index < 0) return false;
+        char low = (char) id;
+        Object container = containers[index];
+        boolean removed;
+        if (container instanceof BitmapContainer bitmap) {
+            removed = (bitmap.words[low >>> 6] & (1L << low)) != 0;
+            bitmap.words[low >>> 6] &= ~(1L << low);
+            if (removed && --bitmap.cardinality <= ARRAY_LIMIT) {
+                containers[index] = toArray(bitmap);
+            }
+        } else {
+            ArrayContainer array = (ArrayContainer) container;
+            int position = Arrays.binarySearch(array.values, 0, array.cardinality, low);
+            removed = position >= 0;
+            if (removed) {
+                System.arraycopy(array.values, position + 1, array.values, position,
+                        array.cardinality - position - 1);
+                array.cardinality--;
+            }
+        }
+        if (cardinalityOf(containers[index]) == 0) {
+            removeContainer(index);
+        }
+        return removed;
+    }
+
+    /**
+     * Checks whether the bitmap contains an id.
+     *
+     * @param id the id
+     * @return true if the id is in the bitmap
+     */
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return index >= 0 && contains(containers[index], (char) id);
+    }
+
+    /**
+     * Returns the number of ids in the bitmap.
+     *
+     * @return the number of ids
+     */
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += cardinalityOf(containers[i]);
+        }
+        return cardinality;
+    }
+
+    /**
+     * Checks whether the bitmap is empty.
+     *
+     * @return true if the bitmap contains no ids
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Computes the intersection with another bitmap.
+     *
+     * @param other the other bitmap
+     * @return a new bitmap with the ids that are in both bitmaps
+     */
+    public NoteBitmap and(NoteBitmap other) {
+        NoteBitmap result = new NoteBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object container = and(containers[i], other.containers[j]);
+                if (cardinalityOf(container) > 0) {
+                    result.insertContainer(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the union with another bitmap.
+     *
+     * @param other the other bitmap
+     * @return a new bitmap with the ids that are in either bitmap
+     */
+    public NoteBitmap or(NoteBitmap other) {
+        NoteBitmap result = new NoteBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                result.insertContainer(result.size, keys[i], copy(containers[i++]));
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.insertContainer(result.size, other.keys[j], copy(other.containers[j++]));
+            } else {
+                result.insertContainer(result.size, keys[i],
+                        or(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether this bitmap and another one have an id in common, without computing
+     * their intersection.
+     *
+     * @param other the other bitmap
+     * @return true if the intersection is not empty
+     */
+    public boolean intersects(NoteBitmap other) {
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else if (intersects(containers[i++], other.containers[j++])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calls an action for every id, in increasing order.
+     *
+     * @param action the action
+     */
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            long high = keys[i] << 16;
+            if (containers[i] instanceof BitmapContainer bitmap) {
+                for (int w = 0; w < WORDS; w++) {
+                    long word = bitmap.words[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) containers[i];
+                for (int v = 0; v < array.cardinality; v++) {
+                    action.accept(high | array.values[v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ids in increasing order.
+     *
+     * @return the ids
+     */
+    public long[] toArray() {
+        long[] ids = new long[(int) cardinality()];
+        int[] next = {0};
+        forEach(id -> ids[next[0]++] = id);
+        return ids;
+    }
+
+    /**
+     * Compares this bitmap to another object for equality.
+     *
+     * @param obj the object to compare to this bitmap
+     * @return true if the object is a bitmap with the same ids
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof NoteBitmap other)) return false;
+        return Arrays.equals(toArray(), other.toArray());
+    }
+
+    /**
+     * Computes the hash code of this bitmap.
+     *
+     * @return the hash code of the ids
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    /**
+     * Returns the ids of this bitmap.
+     *
+     * @return the ids as a string
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Inserts a container at a position of the key array.
+     *
+     * @param index     the position
+     * @param key       the upper 48 bits of the ids in the container
+     * @param container the container
+     */
+    private void insertContainer(int index, long key, Object container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(4, 2 * size));
+            containers = Arrays.copyOf(containers, keys.length);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Removes the container at a position of the key array.
+     *
+     * @param index the position
+     */
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Sets a bit in a bitmap container.
+     *
+     * @param bitmap the container
+     * @param low    the lower 16 bits of the id
+     * @return true if the bit wasn't set yet
+     */
+    private static boolean addTo(BitmapContainer bitmap, char low) {
+        long before = bitmap.words[low >>> 6];
+        bitmap.words[low >>> 6] = before | (1L << low);
+        if (before == bitmap.words[low >>> 6]) return false;
+        bitmap.cardinality++;
+        return true;
+    }
+
+    /**
+     * Returns the number of ids in a container.
+     *
+     * @param container the container
+     * @return the number of ids
+     */
+    private static int cardinalityOf(Object container) {
+        return container instanceof BitmapContainer bitmap
+                ? bitmap.cardinality : ((ArrayContainer) container).cardinality;
+    }
+
+    /**
+     * Converts an array container into a bitmap container.
+     *
+     * @param array the array container
+     * @return the bitmap container
+     */
+    private static BitmapContainer toBitmap(ArrayContainer array) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < array.cardinality; i++) {
+            words[array.values[i] >>> 6] |= 1L << array.values[i];
+        }
+        return new BitmapContainer(words, array.cardinality);
+    }
+
+    /**
+     * Converts a bitmap container into an array container.
+     *
+     * @param bitmap the bitmap container
+     * @return the array container
+     */
+    private static ArrayContainer toArray(BitmapContainer bitmap) {
+        char[] values = new char[bitmap.cardinality];
+        int count = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = bitmap.words[w];
+            while (word != 0) {
+                values[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new ArrayContainer(values, count);
+    }
+
+    /**
+     * Copies a container, so the result of an operation doesn't share it with an operand.
+     *
+     * @param container the container
+     * @return the copy
+     */
+    private static Object copy(Object container) {
+        if (container instanceof BitmapContainer bitmap) {
+            return new BitmapContainer(bitmap.words.clone(), bitmap.cardinality);
+        }
+        ArrayContainer array = (ArrayContainer) container;
+        return new ArrayContainer(Arrays.copyOf(array.values, array.cardinality),
+                array.cardinality);
+    }
+
+    /**
+     * Intersects two containers.
+     *
+     * @param a the first container
+     * @param b the second container
+     * @return a new container with the values in both
+     */
+    private static Object and(Object a, Object b) {
+        if (a instanceof BitmapContainer x && b instanceof BitmapContainer y) {
+            long[] words = new long[WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = x.words[w] & y.words[w];
+                cardinality += Long.bitCount(words[w]);
+            }
+            BitmapContainer result = new BitmapContainer(words, cardinality);
+            return cardinality > ARRAY_LIMIT ? result : toArray(result);
+        }
+        if (a instanceof BitmapContainer) {
+            return and(b, a);
+        }
+
+        ArrayContainer array = (ArrayContainer) a;
+        char[] values = new char[array.cardinality];
+        int count = 0;
+        if (b instanceof BitmapContainer bitmap) {
+            for (int i = 0; i < array.cardinality; i++) {
+                char v = array.values[i];
+                if ((bitmap.words[v >>> 6] & (1L << v)) != 0) values[count++] = v;
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        ArrayContainer other = (ArrayContainer) b;
+        int j = 0;
+        for (int i = 0; i < array.cardinality && j < other.cardinality; i++) {
+            char v = array.values[i];
+            while (j < other.cardinality && other.values[j] < v) j++;
+            if (j < other.cardinality && other.values[j] == v) values[count++] = v;
+        }
+        return new ArrayContainer(values, count);
+    }
+
+    /**
+     * Unites two containers.
+     *
+     * @param a the first container
+     * @param b the second container
+     * @return a new container with the values in either
+     */
+    private static Object or(Object a, Object b) {
+        if (a instanceof ArrayContainer x && b instanceof ArrayContainer y
+                && x.cardinality + y.cardinality <= ARRAY_LIMIT) {
+            char[] values = new char[x.cardinality + y.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < x.cardinality || j < y.cardinality) {
+                char v = j == y.cardinality || i < x.cardinality && x.values[i] < y.values[j]
+                        ? x.values[i++] : y.values[j++];
+                if (count == 0 || values[count - 1] != v) values[count++] = v;
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        BitmapContainer result = a instanceof BitmapContainer
+                ? (BitmapContainer) copy(a) : toBitmap((ArrayContainer) a);
+        orInto(result, b);
+        return result.cardinality > ARRAY_LIMIT ? result : toArray(result);
+    }
+
+    /**
+     * Adds the values of a container to a bitmap container.
+     *
+     * @param result    the bitmap container to add to
+     * @param container the container to add
+     */
+    private static void orInto(BitmapContainer result, Object container) {
+        if (container instanceof BitmapContainer bitmap) {
+            result.cardinality = 0;
+            for (int w = 0; w < WORDS; w++) {
+                result.words[w] |= bitmap.words[w];
+                result.cardinality += Long.bitCount(result.words[w]);
+            }
+        } else {
+            ArrayContainer array = (ArrayContainer) container;
+            for (int i = 0; i < array.cardinality; i++) {
+                addTo(result, array.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Checks whether two containers have a value in common.
+     *
+     * @param a the first container
+     * @param b the second container
+     * @return true if the intersection is not empty
+     */
+    private static boolean intersects(Object a, Object b) {
+        if (a instanceof BitmapContainer x && b instanceof BitmapContainer y) {
+            for (int w = 0; w < WORDS; w++) {
+                if ((x.words[w] & y.words[w]) != 0) return true;
+            }
+            return false;
+        }
+        if (a instanceof BitmapContainer) {
+            return intersects(b, a);
+        }
+        ArrayContainer array = (ArrayContainer) a;
+        for (int i = 0; i < array.cardinality; i++) {
+            if (contains(b, array.values[i])) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a container contains a value.
+     *
+     * @param container the container
+     * @param low       the value
+     * @return true if the value is in the container
+     */
+    private static boolean contains(Object container, char low) {
+        if (container instanceof BitmapContainer bitmap) {
+            return (bitmap.words[low >>> 6] & (1L << low)) != 0;
+        }
+        ArrayContainer array = (ArrayContainer) container;
+        return Arrays.binarySearch(array.values, 0, array.cardinality, low) >= 0;
+    }
+}
@@ -0,0 +1,11 @@
+package commons;
+
+/**
+ * The fields of a note needed to list it, without its content.
+ *
+ * @param id           the id of the note
+ * @param title        the title of the note
+ * @param collectionId the id of the collection of the note, or null if it has none
+ */
+public record NoteSummary(long id, String title, Long collectionId) {
+}
@@ -0,0 +1,14 @@
+package commons;
+
+import java.util.List;
+
+/**
+ * One page of the summaries of the notes matching a query.
+ *
+ * @param notes      the summaries on this page
+ * @param page       the number of this page, starting at 0
+ * @param size       the maximum number of summaries per page
+ * @param totalNotes the number of matching notes on all pages
+ */
+public record NoteSummaryPage(List<NoteSummary> notes, int page, int size, long totalNotes) {
+}
@@ -0,0 +1,11 @@
+package commons;
+
+/**
+ * How the client receives the changes other clients make to notes.
+ */
+public enum SyncTransport {
+    /** STOMP over a websocket, sending and receiving changes on one connection. */
+    STOMP,
+    /** Server-sent events, receiving changes on a stream and sending them over HTTP. */
+    SSE
+}
@@ -1,9 +1,10 @@
 package commons;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import java.util.List;
+import java.util.Objects;
+
 import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
 
 public class Synchronization {
@@ -11,6 +12,8 @@ public class Synchronization {
     public long noteId;
     public String title;
     public String content;
+    // the operations of an EDIT, after which content is the merged text on the server
+    public List<TextOperation> operations;
 
     /**
      * Default no-arg constructor.
@@ -40,7 +43,13 @@ public class Synchronization {
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) return true;
+        if (!(obj instanceof Synchronization other)) return false;
+        return noteId == other.noteId
+                && type == other.type
+                && Objects.equals(title, other.title)
+                && Objects.equals(content, other.content)
+                && Objects.equals(operations, other.operations);
     }
 
     /**
@@ -50,7 +59,7 @@ public class Synchronization {
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return Objects.hash(type, noteId, title, content, operations);
     }
 
     /**
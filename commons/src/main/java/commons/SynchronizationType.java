@@ -3,5 +3,7 @@ package commons;
 public enum SynchronizationType {
     CREATE,
     UPDATE,
-    DELETE
+    DELETE,
+    // operations on the content, merged by the server
+    EDIT
 }
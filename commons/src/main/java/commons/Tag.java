@@ -1,10 +1,9 @@
 package commons;
 
 import jakarta.persistence.*;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
 @Entity
@@ -12,6 +11,9 @@ public class Tag {
     @Id
     public String title;
 
+    // not stored: the tags of the notes are, in the note_tags table of Note, and the tag
+    // service fills this in from them
+    @Transient
     public Set<Long> noteIDs;
 
     /**
@@ -40,6 +42,16 @@ public class Tag {
         return title;
     }
 
+    /**
+     * Creates a bitmap of the ids of the notes with this Tag, for fast intersections
+     * and unions with other tags.
+     *
+     * @return a new bitmap of the note ids
+     */
+    public NoteBitmap noteBitmap() {
+        return NoteBitmap.of(noteIDs);
+    }
+
     /**
      * Compares this Tag to another object for equality.
      *
@@ -48,7 +60,10 @@ public class Tag {
      */
     @Override
     public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) return true;
+        if (!(obj instanceof Tag other)) return false;
+        return Objects.equals(title, other.title)
+                && Objects.equals(noteIDs, other.noteIDs);
     }
 
     /**
@@ -58,7 +73,8 @@ public class Tag {
      */
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
+        // the title is the id, hashing the note ids would cost a pass over the set
+        return Objects.hashCode(title);
     }
 
     /**
@@ -0,0 +1,52 @@
+package commons;
+
+import java.util.List;
+
+/**
+ * A change to a {@link CollaborativeText}: either text inserted after a character, or
+ * characters deleted.
+ * <p>
+ * Inserted text gets consecutive ids starting at {@code id}, each character placed after the
+ * previous one, so typing or pasting a run of text is a single operation.
+ * </p>
+ *
+ * @param type    whether text is inserted or deleted
+ * @param id      the id of the first inserted character, null for a deletion
+ * @param origin  the id of the character the text is inserted after, null for the start of
+ *                the text or a deletion
+ * @param text    the inserted text, null for a deletion
+ * @param deleted the ids of the deleted characters, null for an insertion
+ */
+public record TextOperation(Type type, CharId id, CharId origin, String text,
+                            List<CharId> deleted) {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        INSERT,
+        DELETE
+    }
+
+    /**
+     * Creates the insertion of text.
+     *
+     * @param id     the id of the first inserted character
+     * @param origin the id of the character the text is inserted after, null for the start
+     * @param text   the inserted text
+     * @return the operation
+     */
+    public static TextOperation insert(CharId id, CharId origin, String text) {
+        return new TextOperation(Type.INSERT, id, origin, text, null);
+    }
+
+    /**
+     * Creates the deletion of characters.
+     *
+     * @param deleted the ids of the deleted characters
+     * @return the operation
+     */
+    public static TextOperation delete(List<CharId> deleted) {
+        return new TextOperation(Type.DELETE, null, null, null, List.copyOf(deleted));
+    }
+}
@@ -0,0 +1,184 @@
+package commons;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CollaborativeTextTest {
+
+    private static CollaborativeText copy(CollaborativeText text, String site) {
+        CollaborativeText copy = new CollaborativeText(site);
+        assertTrue(copy.applyAll(text.snapshot()));
+        return copy;
+    }
+
+    @Test
+    void of_HasContent() {
+        assertEquals("hello", CollaborativeText.of("server", "hello").text());
+        assertEquals("", CollaborativeText.of("server", "").text());
+    }
+
+    @Test
+    void edit_OperationsReproduceTheEdit() {
+        CollaborativeText a = CollaborativeText.of("server", "hello world");
+        CollaborativeText b = copy(a, "b");
+
+        List<TextOperation> operations = a.edit("hello brave new world!");
+        assertEquals("hello brave new world!", a.text());
+        assertTrue(b.applyAll(operations));
+        assertEquals(a.text(), b.text());
+
+        assertTrue(b.applyAll(a.edit("world")));
+        assertEquals("world", b.text());
+    }
+
+    @Test
+    void concurrentInsertsAtTheSamePosition_Converge() {
+        CollaborativeText server = CollaborativeText.of("server", "ac");
+        CollaborativeText a = copy(server, "a");
+        CollaborativeText b = copy(server, "b");
+
+        List<TextOperation> fromA = a.edit("aXc");
+        List<TextOperation> fromB = b.edit("aYc");
+        assertTrue(a.applyAll(fromB));
+        assertTrue(b.applyAll(fromA));
+        assertTrue(server.applyAll(fromB));
+        assertTrue(server.applyAll(fromA));
+
+        assertEquals(a.text(), b.text());
+        assertEquals(a.text(), server.text());
+        assertEquals("aYXc", a.text());
+    }
+
+    @Test
+    void concurrentDeleteAndInsert_KeepTheInsertedText() {
+        CollaborativeText server = CollaborativeText.of("server", "hello world");
+        CollaborativeText a = copy(server, "a");
+        CollaborativeText b = copy(server, "b");
+
+        List<TextOperation> fromA = a.edit("hello ");
+        List<TextOperation> fromB = b.edit("hello wonderful world");
+        assertTrue(a.applyAll(fromB));
+        assertTrue(b.applyAll(fromA));
+
+        assertEquals("hello nderful wo", a.text());
+        assertEquals(a.text(), b.text());
+    }
+
+    @Test
+    void applyAll_Twice_AppliesOnce() {
+        CollaborativeText a = CollaborativeText.of("server", "abc");
+        CollaborativeText b = copy(a, "b");
+        List<TextOperation> operations = a.edit("abXYc");
+
+        assertTrue(b.applyAll(operations));
+        assertTrue(b.applyAll(operations));
+        assertEquals("abXYc", b.text());
+    }
+
+    @Test
+    void applyAll_UnknownCharacter_AppliesNothing() {
+        CollaborativeText other = CollaborativeText.of("other", "abc");
+        CollaborativeText text = CollaborativeText.of("server", "xyz");
+
+        List<TextOperation> operations = new ArrayList<>(copy(text, "a").edit("xyz!"));
+        operations.addAll(other.edit("ab"));
+        assertFalse(text.applyAll(operations));
+        assertEquals("xyz", text.text());
+        assertFalse(text.applyAll(List.of(TextOperation.insert(null, null, "a"))));
+        assertFalse(text.applyAll(null));
+    }
+
+    @Test
+    void snapshot_KeepsDeletedCharacters() {
+        CollaborativeText server = CollaborativeText.of("server", "abc");
+        CollaborativeText a = copy(server, "a");
+        List<TextOperation> fromA = a.edit("abXc"); // after b, which is deleted meanwhile
+        assertTrue(server.applyAll(copy(server, "b").edit("ac")));
+
+        CollaborativeText late = copy(server, "late");
+        assertEquals("ac", late.text());
+        assertTrue(late.applyAll(fromA));
+        assertTrue(server.applyAll(fromA));
+        assertEquals("aXc", late.text());
+        assertEquals(server.text(), late.text());
+    }
+
+    @Test
+    void indexAfter_FollowsTheCharacter() {
+        CollaborativeText a = CollaborativeText.of("server", "hello world");
+        CollaborativeText b = copy(a, "b");
+        List<CharId> ids = b.visibleIds();
+        CharId w = ids.get(6);
+
+        assertTrue(b.applyAll(a.edit("oh, hello world")));
+        assertEquals(11, b.indexAfter(w));
+        assertTrue(b.applyAll(a.edit("oh, hello orld")));
+        assertEquals(10, b.indexAfter(w));
+        assertEquals(0, b.indexAfter(null));
+        assertEquals(-1, b.indexAfter(new CharId(99, "nobody")));
+    }
+
+    @Test
+    void randomEditsPassedOnByTheServer_Converge() {
+        Random random = new Random(42);
+        CollaborativeText server = CollaborativeText.of("server", "The quick brown fox");
+        int clients = 3;
+        List<CollaborativeText> texts = new ArrayList<>();
+        List<Deque<List<TextOperation>>> unsent = new ArrayList<>();
+        int[] received = new int[clients];
+        for (int i = 0; i < clients; i++) {
+            texts.add(copy(server, "client" + i));
+            unsent.add(new ArrayDeque<>());
+        }
+        List<List<TextOperation>> log = new ArrayList<>();
+
+        for (int step = 0; step < 3000; step++) {
+            int client = random.nextInt(clients);
+            switch (random.nextInt(3)) {
+                case 0 -> unsent.get(client).add(
+                        texts.get(client).edit(randomEdit(texts.get(client).text(), random)));
+                case 1 -> {
+                    if (!unsent.get(client).isEmpty()) {
+                        List<TextOperation> operations = unsent.get(client).poll();
+                        assertTrue(server.applyAll(operations));
+                        log.add(operations);
+                    }
+                }
+                default -> {
+                    if (received[client] < log.size()) {
+                        assertTrue(texts.get(client).applyAll(log.get(received[client]++)));
+                    }
+                }
+            }
+        }
+        for (int client = 0; client < clients; client++) {
+            while (!unsent.get(client).isEmpty()) {
+                List<TextOperation> operations = unsent.get(client).poll();
+                assertTrue(server.applyAll(operations));
+                log.add(operations);
+            }
+        }
+        for (int client = 0; client < clients; client++) {
+            while (received[client] < log.size()) {
+                assertTrue(texts.get(client).applyAll(log.get(received[client]++)));
+            }
+            assertEquals(server.text(), texts.get(client).text());
+        }
+    }
+
+    private static String randomEdit(String text, Random random) {
+        int start = random.nextInt(text.length() + 1);
+        int end = Math.min(text.length(), start + random.nextInt(4));
+        String inserted = random.nextInt(3) == 0 ? "" : "xyz".substring(random.nextInt(3));
+        return text.substring(0, start) + inserted + text.substring(end);
+    }
+}
@@ -50,4 +50,10 @@ class CollectionTest {
         assertEquals(expectedString, c1.toString());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testNotEqualsOtherId() {
+        Collection c2 = new Collection("CollectionTitleTest", "https://urlTest");
+        c2.id = 1;
+        assertNotEquals(c1, c2);
+    }
+}
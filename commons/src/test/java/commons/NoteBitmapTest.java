@@ -0,0 +1,145 @@
+package commons;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteBitmapTest {
+
+    @Test
+    void testAddRemoveContains() {
+        NoteBitmap bitmap = new NoteBitmap();
+        assertTrue(bitmap.isEmpty());
+
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(1L << 40));
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(1L << 40));
+        assertFalse(bitmap.contains(6));
+        assertEquals(2, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertFalse(bitmap.contains(5));
+        assertArrayEquals(new long[] {1L << 40}, bitmap.toArray());
+
+        bitmap.remove(1L << 40);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void testOf() {
+        NoteBitmap bitmap = NoteBitmap.of(List.of(3L, 1L, 70000L, 2L));
+
+        assertArrayEquals(new long[] {1, 2, 3, 70000}, bitmap.toArray());
+        assertTrue(NoteBitmap.of(null).isEmpty());
+    }
+
+    @Test
+    void testDenseContainerConvertsBack() {
+        NoteBitmap bitmap = new NoteBitmap();
+        for (long id = 0; id < 10000; id++) {
+            bitmap.add(id);
+        }
+        assertEquals(10000, bitmap.cardinality());
+        assertTrue(bitmap.contains(9999));
+
+        for (long id = 0; id < 9990; id++) {
+            bitmap.remove(id);
+        }
+        assertArrayEquals(new long[] {9990, 9991, 9992, 9993, 9994, 9995, 9996, 9997, 9998, 9999},
+                bitmap.toArray());
+    }
+
+    @Test
+    void testAndOrIntersects() {
+        NoteBitmap a = NoteBitmap.of(List.of(1L, 2L, 3L, 100000L));
+        NoteBitmap b = NoteBitmap.of(List.of(3L, 4L, 100000L, 200000L));
+        NoteBitmap c = NoteBitmap.of(List.of(5L));
+
+        assertArrayEquals(new long[] {3, 100000}, a.and(b).toArray());
+        assertArrayEquals(new long[] {1, 2, 3, 4, 100000, 200000}, a.or(b).toArray());
+        assertTrue(a.intersects(b));
+        assertFalse(a.intersects(c));
+        assertTrue(a.and(c).isEmpty());
+    }
+
+    @Test
+    void testOperandsAreNotModified() {
+        NoteBitmap a = NoteBitmap.of(List.of(1L, 2L));
+        NoteBitmap b = NoteBitmap.of(List.of(3L));
+
+        NoteBitmap union = a.or(b);
+        union.add(4);
+        union.remove(1);
+
+        assertArrayEquals(new long[] {1, 2}, a.toArray());
+        assertArrayEquals(new long[] {3}, b.toArray());
+    }
+
+    @Test
+    void testEquals() {
+        NoteBitmap a = NoteBitmap.of(List.of(1L, 2L));
+        NoteBitmap b = NoteBitmap.of(List.of(2L, 1L));
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, NoteBitmap.of(List.of(1L)));
+        assertEquals("[1, 2]", a.toString());
+    }
+
+    @Test
+    void testTagNoteBitmap() {
+        Tag tag = new Tag("work");
+        tag.noteIDs.addAll(Set.of(4L, 2L));
+
+        assertArrayEquals(new long[] {2, 4}, tag.noteBitmap().toArray());
+    }
+
+    @Test
+    void testMatchesTreeSetOnRandomSets() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            // mix sparse and dense containers in the first few chunks of ids
+            int bound = 1 << (10 + random.nextInt(9));
+            TreeSet<Long> expectedA = randomSet(random, bound);
+            TreeSet<Long> expectedB = randomSet(random, bound);
+            NoteBitmap a = NoteBitmap.of(expectedA);
+            NoteBitmap b = NoteBitmap.of(expectedB);
+
+            TreeSet<Long> and = new TreeSet<>(expectedA);
+            and.retainAll(expectedB);
+            TreeSet<Long> or = new TreeSet<>(expectedA);
+            or.addAll(expectedB);
+
+            assertArrayEquals(toArray(expectedA), a.toArray());
+            assertArrayEquals(toArray(and), a.and(b).toArray());
+            assertArrayEquals(toArray(or), a.or(b).toArray());
+            assertEquals(!and.isEmpty(), a.intersects(b));
+
+            for (Long id : expectedB) {
+                assertEquals(expectedA.remove(id), a.remove(id));
+            }
+            assertArrayEquals(toArray(expectedA), a.toArray());
+        }
+    }
+
+    private static TreeSet<Long> randomSet(Random random, int bound) {
+        TreeSet<Long> set = new TreeSet<>();
+        int count = random.nextInt(bound / 2 + 1);
+        for (int i = 0; i < count; i++) {
+            set.add((long) random.nextInt(bound));
+        }
+        return set;
+    }
+
+    private static long[] toArray(Set<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+}
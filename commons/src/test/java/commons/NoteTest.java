@@ -19,6 +19,10 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class NoteTest {
@@ -94,4 +98,67 @@ public class NoteTest {
         String expected = note1.toString();
         assertEquals(expected, note1.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseTags() {
+        Note note = new Note("title", "#work and #home\nnot#tag, #to-do #c++ # ##x #é", collection);
+
+        assertEquals(Set.of("work", "home", "todo", "c", "x"), note.getTags());
+    }
+
+    @Test
+    void testSetContentReplacesTags() {
+        note1.setContent("#first");
+        note1.setContent("#second\r\n#third");
+
+        assertEquals(Set.of("second", "third"), note1.getTags());
+    }
+
+    @Test
+    void testParseTagsMatchesRegexImplementation() {
+        // the characters that matter to tag parsing, and some that don't
+        String alphabet = "#####aZ09_-.,!é\u00A0 \t\n\r\f\u000B";
+        Random random = new Random(30);
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder content = new StringBuilder();
+            int length = random.nextInt(64);
+            for (int j = 0; j < length; j++) {
+                content.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            Note note = new Note("title", content.toString(), collection);
+            assertEquals(parseTagsWithRegex(content.toString()), note.getTags(),
+                    () -> "content: " + content);
+        }
+    }
+
+    @Test
+    void testNotEqualOtherId() {
+        note2.id = 1;
+        assertNotEquals(note1, note2);
+    }
+
+    @Test
+    void testNotEqualOtherCollection() {
+        note2.collection = new Collection("other", "server URL");
+        assertNotEquals(note1, note2);
+    }
+
+    /**
+     * The line- and regex-based tag parser that the scanner in Note replaced.
+     */
+    private static Set<String> parseTagsWithRegex(String content) {
+        Set<String> tags = new HashSet<>();
+        for (String line : content.split("\r\n|\r|\n")) {
+            for (String word : line.split("\\s+")) {
+                if (word.startsWith("#") && word.length() > 1) {
+                    String tag = word.substring(1).replaceAll("[^a-zA-Z0-9]", "");
+                    if (!tag.isEmpty()) {
+                        tags.add(tag);
+                    }
+                }
+            }
+        }
+        return tags;
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -58,6 +60,14 @@ public class SynchronizationTest {
         assertFalse(test);
     }
 
+    @Test
+    void testNotEqual_operations() {
+        synchronization2.operations = List.of(TextOperation.insert(new CharId(1, "a"), null, "x"));
+        assertNotEquals(synchronization1, synchronization2);
+        synchronization1.operations = List.of(TextOperation.insert(new CharId(1, "a"), null, "x"));
+        assertEquals(synchronization1, synchronization2);
+    }
+
     @Test
     void testHashCodeEquals() {
         assertNotNull(synchronization1);
@@ -49,4 +49,11 @@ public class TagTest {
         assertNotEquals(tag1, tag3);
         assertNotEquals(hashCode1, hashCode2);
     }
+
+    @Test
+    void testNotEqualOtherNotes() {
+        tag2.noteIDs.add(1L);
+        assertNotEquals(tag1, tag2);
+        assertEquals(tag1.hashCode(), tag2.hashCode());
+    }
 }
@@ -0,0 +1,110 @@
+package loadtest;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The settings of a load test, read from the command line as {@code --name=value} arguments.
+ *
+ * @param clients  the number of simulated clients editing at the same time
+ * @param interval the milliseconds between two autosaves of a client
+ * @param warmup   the seconds the clients run before measuring starts
+ * @param duration the seconds measured
+ * @param noteSize the number of characters in a note
+ * @param server   the server to test, or null to start one in this process
+ */
+public record LoadSettings(int clients, long interval, long warmup, long duration,
+                           int noteSize, URI server) {
+    public static final String USAGE = """
+            Usage: java -jar loadtest.jar [options]
+              --clients=50      simulated clients editing at the same time
+              --interval=1000   milliseconds between two autosaves of a client
+              --warmup=10       seconds the clients run before measuring starts
+              --duration=60     seconds measured
+              --note-size=200   characters in a note, the server keeps at most 255
+              --server=URL      server to test, e.g. http://localhost:8080/, instead of
+                                starting one in this process with an in-memory database
+            """;
+    private static final Set<String> OPTIONS =
+            Set.of("clients", "interval", "warmup", "duration", "note-size", "server");
+
+    /**
+     * Checks the settings.
+     *
+     * @param clients  the number of simulated clients editing at the same time
+     * @param interval the milliseconds between two autosaves of a client
+     * @param warmup   the seconds the clients run before measuring starts
+     * @param duration the seconds measured
+     * @param noteSize the number of characters in a note
+     * @param server   the server to test, or null to start one in this process
+     */
+    public LoadSettings {
+        if (clients < 1 || interval < 1 || warmup < 0 || duration < 1 || noteSize < 0) {
+            throw new IllegalArgumentException("The numbers of clients, milliseconds and "
+                    + "seconds measured must be positive, the others not negative");
+        }
+    }
+
+    /**
+     * Reads the settings from command line arguments, using the defaults for those missing.
+     *
+     * @param args the arguments, each of the form {@code --name=value}
+     * @return the settings
+     * @throws IllegalArgumentException if an argument is unknown or its value is invalid
+     */
+    public static LoadSettings parse(String... args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!OPTIONS.contains(name)) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+            options.put(name, arg.substring(equals + 1));
+        }
+        String server = options.get("server");
+        return new LoadSettings(
+                (int) number(options, "clients", 50),
+                number(options, "interval", 1000),
+                number(options, "warmup", 10),
+                number(options, "duration", 60),
+                (int) number(options, "note-size", 200),
+                server == null ? null : URI.create(server.endsWith("/") ? server : server + "/"));
+    }
+
+    /**
+     * Reads a numeric option.
+     *
+     * @param options      the options given, by name
+     * @param name         the name of the option
+     * @param defaultValue the value if the option isn't given
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value isn't a number
+     */
+    private static long number(Map<String, String> options, String name, long defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number in --" + name + "=" + value, e);
+        }
+    }
+
+    /**
+     * Creates the same settings for another server.
+     *
+     * @param server the server to test
+     * @return the settings
+     */
+    public LoadSettings withServer(URI server) {
+        return new LoadSettings(clients, interval, warmup, duration, noteSize, server);
+    }
+}
@@ -0,0 +1,125 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Collection;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs simulated clients against a server: after connecting all of them, they edit notes for
+ * the warmup, after which their latencies are measured for the duration of the settings.
+ */
+public final class LoadTest {
+    private final LoadSettings settings;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Constructs a new LoadTest.
+     *
+     * @param settings the settings of the load test, with the server to test
+     */
+    public LoadTest(LoadSettings settings) {
+        if (settings.server() == null) {
+            throw new IllegalArgumentException("No server to test");
+        }
+        this.settings = settings;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @return the report of the measured part
+     * @throws IOException          if the collection for the notes can't be created or a
+     *                              client can't connect
+     * @throws InterruptedException if interrupted while running
+     */
+    public Report run() throws IOException, InterruptedException {
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .build()) {
+            Collection collection = createCollection(http);
+            Measurements measurements = new Measurements(settings.clients());
+            List<SimulatedClient> clients = new ArrayList<>();
+            try {
+                for (int i = 0; i < settings.clients(); i++) {
+                    SimulatedClient client = new SimulatedClient(i, settings, http, mapper,
+                            collection, measurements);
+                    clients.add(client);
+                    client.connect(stompClient);
+                }
+                return measure(clients, measurements);
+            } finally {
+                clients.forEach(SimulatedClient::disconnect);
+                stompClient.stop();
+            }
+        }
+    }
+
+    /**
+     * Lets the clients edit for the warmup and the duration, measuring only the latter.
+     *
+     * @param clients      the connected clients
+     * @param measurements the measurements the clients record their latencies in
+     * @return the report of the measured part
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private Report measure(List<SimulatedClient> clients, Measurements measurements)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (SimulatedClient client : clients) {
+            // the clients block on their requests, which virtual threads are cheap for
+            threads.add(Thread.ofVirtual().name("client-" + threads.size()).start(client));
+        }
+        try {
+            TimeUnit.SECONDS.sleep(settings.warmup());
+            measurements.reset();
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(settings.duration());
+            return measurements.report(settings, System.nanoTime() - start);
+        } finally {
+            clients.forEach(SimulatedClient::stop);
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+
+    /**
+     * Creates the collection the clients create their notes in.
+     *
+     * @param http the HTTP client to send the request with
+     * @return the collection created
+     * @throws IOException          if the collection can't be created
+     * @throws InterruptedException if interrupted while waiting for the answer
+     */
+    private Collection createCollection(HttpClient http)
+            throws IOException, InterruptedException {
+        Collection collection = new Collection("Load test " + System.currentTimeMillis(),
+                settings.server().toString());
+        HttpResponse<byte[]> response = http.send(
+                HttpRequest.newBuilder(settings.server().resolve("api/collections"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(
+                                mapper.writeValueAsBytes(collection)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Creating the collection failed with "
+                    + response.statusCode());
+        }
+        return mapper.readValue(response.body(), Collection.class);
+    }
+}
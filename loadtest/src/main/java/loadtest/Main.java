@@ -0,0 +1,68 @@
+package loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Runs a load test from the command line, printing its report. Without a {@code --server},
+ * a server with an in-memory database is started in this process.
+ */
+public final class Main {
+
+    /**
+     * Prevents instantiation of this class.
+     */
+    private Main() {
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the settings, see {@link LoadSettings#USAGE}
+     * @throws IOException          if the clients can't connect to the server
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadSettings settings;
+        try {
+            settings = LoadSettings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadSettings.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ConfigurableApplicationContext server = null;
+        if (settings.server() == null) {
+            server = startServer();
+            settings = settings.withServer(URI.create("http://localhost:"
+                    + server.getEnvironment().getProperty("local.server.port") + "/"));
+        }
+        try {
+            new LoadTest(settings).run().print(System.out);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        // the websocket client keeps threads that don't stop by themselves
+        System.exit(0);
+    }
+
+    /**
+     * Starts a server on a free port with an in-memory database.
+     *
+     * @return the server
+     */
+    private static ConfigurableApplicationContext startServer() {
+        // as arguments, since those take precedence over application.properties
+        return new SpringApplicationBuilder(server.Main.class).run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn");
+    }
+}
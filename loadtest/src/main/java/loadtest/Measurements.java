@@ -0,0 +1,121 @@
+package loadtest;
+
+import commons.Synchronization;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latencies of all simulated clients, which record them concurrently.
+ * <p>
+ * The latency of a synchronization is measured from when its sender published it until a
+ * client receives it, once for every client receiving it. The sent synchronizations are kept
+ * until every other client received them.
+ * </p>
+ */
+final class Measurements {
+    private final Recorder creates = new Recorder(3);
+    private final Recorder writes = new Recorder(3);
+    private final Recorder deliveries = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+    private final Map<Synchronization, Pending> pending = new ConcurrentHashMap<>();
+    private final int recipients;
+
+    /**
+     * A synchronization not yet received by all other clients.
+     *
+     * @param sent      the time it was published, in nanoseconds
+     * @param remaining the number of clients that have yet to receive it
+     */
+    private record Pending(long sent, AtomicInteger remaining) {
+    }
+
+    /**
+     * Constructs new Measurements.
+     *
+     * @param clients the number of simulated clients, all but the sender of a synchronization
+     *                receive it
+     */
+    Measurements(int clients) {
+        this.recipients = clients - 1;
+    }
+
+    /**
+     * Records the creation of a note.
+     *
+     * @param nanos the nanoseconds from when it was due until the server answered
+     */
+    void recordCreate(long nanos) {
+        creates.recordValue(nanos);
+    }
+
+    /**
+     * Records the autosave of a note.
+     *
+     * @param nanos the nanoseconds from when it was due until the server answered
+     */
+    void recordWrite(long nanos) {
+        writes.recordValue(nanos);
+    }
+
+    /**
+     * Records a failed request.
+     */
+    void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Remembers a synchronization that is about to be published.
+     *
+     * @param synchronization the synchronization
+     * @param now             the current time, in nanoseconds
+     */
+    void published(Synchronization synchronization, long now) {
+        if (recipients > 0) {
+            pending.put(synchronization, new Pending(now, new AtomicInteger(recipients)));
+        }
+    }
+
+    /**
+     * Records a synchronization that a client received.
+     *
+     * @param synchronization the synchronization
+     * @param now             the current time, in nanoseconds
+     */
+    void received(Synchronization synchronization, long now) {
+        Pending sent = pending.get(synchronization);
+        if (sent == null) {
+            return; // not published by this load test
+        }
+        deliveries.recordValue(now - sent.sent());
+        if (sent.remaining().decrementAndGet() == 0) {
+            pending.remove(synchronization);
+        }
+    }
+
+    /**
+     * Discards everything recorded so far, at the end of the warmup.
+     */
+    void reset() {
+        creates.reset();
+        writes.reset();
+        deliveries.reset();
+        errors.reset();
+    }
+
+    /**
+     * Creates the report of everything recorded since the last reset.
+     *
+     * @param settings the settings of the load test
+     * @param nanos    the nanoseconds measured
+     * @return the report
+     */
+    Report report(LoadSettings settings, long nanos) {
+        return new Report(settings, nanos, creates.getIntervalHistogram(),
+                writes.getIntervalHistogram(), deliveries.getIntervalHistogram(), errors.sum());
+    }
+}
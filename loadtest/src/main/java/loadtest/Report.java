@@ -0,0 +1,57 @@
+package loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * The results of a load test: for each kind of operation how many completed per second and
+ * the percentiles of their latencies.
+ *
+ * @param settings   the settings of the load test
+ * @param nanos      the nanoseconds measured
+ * @param creates    the latencies of creating notes, in nanoseconds
+ * @param writes     the latencies of autosaving notes, in nanoseconds
+ * @param deliveries the latencies of delivering synchronizations, in nanoseconds
+ * @param errors     the number of failed requests
+ */
+public record Report(LoadSettings settings, long nanos, Histogram creates, Histogram writes,
+                     Histogram deliveries, long errors) {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Prints the report as a table.
+     *
+     * @param out the stream to print to
+     */
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%d clients, autosaving every %d ms, measured for %.1f s%n%n",
+                settings.clients(), settings.interval(), nanos / NANOS_PER_SECOND);
+        out.printf(Locale.ROOT, "%-14s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "count",
+                "per s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        printRow(out, "create", creates);
+        printRow(out, "autosave", writes);
+        printRow(out, "sync delivery", deliveries);
+        out.printf(Locale.ROOT, "%nFailed requests: %d%n", errors);
+    }
+
+    /**
+     * Prints the row of an operation.
+     *
+     * @param out       the stream to print to
+     * @param operation the name of the operation
+     * @param latencies the latencies of the operation, in nanoseconds
+     */
+    private void printRow(PrintStream out, String operation, Histogram latencies) {
+        out.printf(Locale.ROOT, "%-14s %9d %9.1f", operation, latencies.getTotalCount(),
+                latencies.getTotalCount() * NANOS_PER_SECOND / nanos);
+        for (double percentile : PERCENTILES) {
+            out.printf(Locale.ROOT, " %9.2f",
+                    latencies.getValueAtPercentile(percentile) / NANOS_PER_MILLI);
+        }
+        out.printf(Locale.ROOT, " %9.2f%n", latencies.getMaxValue() / NANOS_PER_MILLI);
+    }
+}
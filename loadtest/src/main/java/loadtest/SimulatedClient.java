@@ -0,0 +1,215 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Collection;
+import commons.Note;
+import commons.Synchronization;
+import commons.SynchronizationType;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A client editing notes the way the application does: it autosaves its note with a PUT
+ * request at a fixed interval and publishes every change to the other clients over STOMP,
+ * while receiving the changes of the others. Every {@value #CREATE_EVERY}th time it creates
+ * a new note instead, which it edits from then on.
+ * <p>
+ * Latencies are measured from when an operation was due rather than when it was sent, so a
+ * slow server that delays the following operations of a client is not measured too kindly.
+ * </p>
+ */
+final class SimulatedClient implements Runnable {
+    static final int CREATE_EVERY = 20;
+    private static final long CONNECT_TIMEOUT = 30;
+
+    private final int index;
+    private final LoadSettings settings;
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final Collection collection;
+    private final Measurements measurements;
+    private final String text;
+    private StompSession session;
+    private Note note;
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new SimulatedClient, which isn't connected yet.
+     *
+     * @param index        the number of the client
+     * @param settings     the settings of the load test
+     * @param http         the HTTP client sending the requests
+     * @param mapper       the object mapper writing and reading the request bodies
+     * @param collection   the collection the notes are created in
+     * @param measurements the measurements the latencies are recorded in
+     */
+    SimulatedClient(int index, LoadSettings settings, HttpClient http, ObjectMapper mapper,
+                    Collection collection, Measurements measurements) {
+        this.index = index;
+        this.settings = settings;
+        this.http = http;
+        this.mapper = mapper;
+        this.collection = collection;
+        this.measurements = measurements;
+        this.text = "Note text. ".repeat(settings.noteSize() / 11 + 1)
+                .substring(0, settings.noteSize());
+    }
+
+    /**
+     * Connects to the websocket of the server and subscribes to the synchronizations.
+     *
+     * @param stompClient the STOMP client to connect with
+     * @throws IOException          if the connection fails or takes too long
+     * @throws InterruptedException if interrupted while connecting
+     */
+    void connect(WebSocketStompClient stompClient) throws IOException, InterruptedException {
+        String uri = settings.server().resolve("websocket").toString().replaceFirst("^http", "ws");
+        try {
+            session = stompClient.connectAsync(uri, new StompSessionHandlerAdapter() {
+            }).get(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Client " + index + " couldn't connect to " + uri, e);
+        }
+        session.subscribe("/user/synchronization", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Synchronization.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                measurements.received((Synchronization) payload, System.nanoTime());
+            }
+        });
+    }
+
+    /**
+     * Disconnects from the websocket.
+     */
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    /**
+     * Makes the client stop editing. Interrupt its thread as well to stop waiting for the
+     * server.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Edits notes at the interval of the settings until stopped. The first edit is delayed
+     * by a share of the interval, so the clients don't all save at once.
+     */
+    @Override
+    public void run() {
+        long interval = TimeUnit.MILLISECONDS.toNanos(settings.interval());
+        long due = System.nanoTime() + interval * index / settings.clients();
+        // the HTTP client may turn an interrupt into an IOException, clearing it
+        for (long edit = 0; !stopped; edit++) {
+            try {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                if (edit % CREATE_EVERY == 0) {
+                    create(due, edit);
+                } else {
+                    autosave(due, edit);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                measurements.recordError();
+            }
+            due += interval;
+        }
+    }
+
+    /**
+     * Creates a new note and publishes it.
+     *
+     * @param due  the time the note was due to be created, in nanoseconds
+     * @param edit the number of the edit
+     * @throws IOException          if the request fails
+     * @throws InterruptedException if interrupted while waiting for the answer
+     */
+    private void create(long due, long edit) throws IOException, InterruptedException {
+        Note created = new Note("Load test note " + index + "-" + edit, content(edit), collection);
+        note = send(HttpRequest.newBuilder(settings.server().resolve("api/notes"))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(created))));
+        measurements.recordCreate(System.nanoTime() - due);
+        publish(SynchronizationType.CREATE);
+    }
+
+    /**
+     * Changes the content of the note, saves it and publishes the change.
+     *
+     * @param due  the time the note was due to be saved, in nanoseconds
+     * @param edit the number of the edit
+     * @throws IOException          if the request fails
+     * @throws InterruptedException if interrupted while waiting for the answer
+     */
+    private void autosave(long due, long edit) throws IOException, InterruptedException {
+        note.setContent(content(edit));
+        note = send(HttpRequest.newBuilder(settings.server().resolve("api/notes/" + note.id))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(note))));
+        measurements.recordWrite(System.nanoTime() - due);
+        publish(SynchronizationType.UPDATE);
+    }
+
+    /**
+     * Sends a request with a note as JSON and reads the note answered.
+     *
+     * @param request the request, with its method and body set
+     * @return the note answered
+     * @throws IOException          if the request fails or isn't answered with a note
+     * @throws InterruptedException if interrupted while waiting for the answer
+     */
+    private Note send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(
+                request.header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Request failed with " + response.statusCode());
+        }
+        return mapper.readValue(response.body(), Note.class);
+    }
+
+    /**
+     * Publishes the current state of the note to the other clients.
+     *
+     * @param type the kind of change
+     */
+    private void publish(SynchronizationType type) {
+        Synchronization synchronization =
+                new Synchronization(type, note.id, note.title, note.getContent());
+        measurements.published(synchronization, System.nanoTime());
+        session.send("/app/synchronize", synchronization);
+    }
+
+    /**
+     * Creates the content of an edit, which differs from that of every other edit.
+     *
+     * @param edit the number of the edit
+     * @return the content
+     */
+    private String content(long edit) {
+        return text + "\n\nEdit " + edit + " by client " + index;
+    }
+}
@@ -0,0 +1,49 @@
+package loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoadSettingsTest {
+
+    @Test
+    void parse_NoArguments_UsesDefaults() {
+        LoadSettings settings = LoadSettings.parse();
+        assertEquals(new LoadSettings(50, 1000, 10, 60, 200, null), settings);
+        assertNull(settings.server());
+    }
+
+    @Test
+    void parse_Options_OverrideDefaults() {
+        LoadSettings settings = LoadSettings.parse("--clients=200", "--interval=250",
+                "--warmup=0", "--duration=30", "--note-size=100",
+                "--server=http://localhost:8080");
+        assertEquals(new LoadSettings(200, 250, 0, 30, 100,
+                URI.create("http://localhost:8080/")), settings);
+    }
+
+    @Test
+    void parse_UnknownOption_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("--users=5"));
+    }
+
+    @Test
+    void parse_NotANumber_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("--clients=x"));
+    }
+
+    @Test
+    void parse_InvalidNumber_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("--clients=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("--duration=0"));
+    }
+
+    @Test
+    void parse_NoValue_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("--clients"));
+    }
+}
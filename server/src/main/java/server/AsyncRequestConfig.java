@@ -0,0 +1,50 @@
+package server;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Lets a handler give its asynchronous response a timeout of its own, instead of the
+ * {@code spring.mvc.async.request-timeout} of all asynchronous responses. A handler returning
+ * a {@code StreamingResponseBody} can't pass a timeout along with it, so it sets one on the
+ * request with {@link #setTimeout(HttpServletRequest, long)}, which is applied when the
+ * response starts.
+ */
+@Configuration
+public class AsyncRequestConfig implements WebMvcConfigurer {
+    private static final String TIMEOUT_ATTRIBUTE = AsyncRequestConfig.class.getName()
+            + ".timeout";
+
+    /**
+     * Sets the timeout of the asynchronous response to a request.
+     *
+     * @param request the request, before its handler returns
+     * @param timeout the milliseconds after which the response times out, or -1 for never
+     */
+    public static void setTimeout(HttpServletRequest request, long timeout) {
+        request.setAttribute(TIMEOUT_ATTRIBUTE, timeout);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // replaces the timeout of all asynchronous responses, set for every dispatch
+                Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST);
+                if (request instanceof AsyncWebRequest asyncRequest && timeout != null) {
+                    asyncRequest.setTimeout((Long) timeout);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package server;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the caches the services read notes, collections and image ETags through. Every
+ * cache keeps at most {@code cache.maximum-size} entries, evicting by frequency and recency
+ * (W-TinyLFU), and records its hit rate.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String NOTES = "notes";
+    public static final String COLLECTIONS = "collections";
+    public static final String ALL_COLLECTIONS = "allCollections";
+    public static final String IMAGE_ETAGS = "imageETags";
+
+    /**
+     * Creates the cache manager holding the caches of the services.
+     *
+     * @param maximumSize the maximum number of entries per cache
+     * @return the cache manager
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${cache.maximum-size:10000}") long maximumSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(NOTES, COLLECTIONS,
+                ALL_COLLECTIONS, IMAGE_ETAGS);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(maximumSize).recordStats());
+        // the services don't cache missing notes and collections
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,60 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Configures how this server relays synchronizations to the other nodes of a cluster, selected
+ * by {@code cluster.relay}:
+ * <ul>
+ *     <li>{@code none}, the default, for a single server;</li>
+ *     <li>{@code loopback} for nodes in the same process, on {@code cluster.channel};</li>
+ *     <li>{@code http} for nodes in separate processes, posting to {@code cluster.peers}.</li>
+ * </ul>
+ * The nodes have to share the database, and keep notes in it ({@code notes.storage=jpa}).
+ */
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * Creates the relay of synchronizations.
+     *
+     * @param relay        the kind of relay
+     * @param channel      the channel of a loopback relay
+     * @param peers        the comma-separated base URLs of the other nodes, for an http relay
+     * @param objectMapper the object mapper synchronizations are posted with
+     * @return the relay
+     */
+    @Bean
+    public SyncRelay syncRelay(@Value("${cluster.relay:none}") String relay,
+                               @Value("${cluster.channel:netnote}") String channel,
+                               @Value("${cluster.peers:}") String peers,
+                               ObjectMapper objectMapper) {
+        return switch (relay) {
+            case "none" -> SyncRelay.NONE;
+            case "loopback" -> LoopbackSyncRelay.join(channel);
+            case "http" -> new HttpSyncRelay(parsePeers(peers), objectMapper);
+            default -> throw new IllegalArgumentException("Unknown cluster.relay: " + relay);
+        };
+    }
+
+    /**
+     * Parses the base URLs of the other nodes.
+     *
+     * @param peers the comma-separated URLs
+     * @return the URLs
+     */
+    private static List<URI> parsePeers(String peers) {
+        return Arrays.stream(peers.split(","))
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .map(URI::create)
+                .toList();
+    }
+}
@@ -0,0 +1,159 @@
+package server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Synchronization;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Relays synchronizations between nodes running in separate processes, by posting them to
+ * {@value #PATH} of every peer in {@code cluster.peers}.
+ * <p>
+ * The synchronizations to a peer are posted one at a time, each after the previous one was
+ * received, so the peer receives them in order. Connecting to a peer and posting to it give up
+ * after {@link #TIMEOUT}, and at most {@value #QUEUE_SIZE} synchronizations wait to be posted
+ * to a peer, so a peer that is down or slow holds up neither this node nor the other peers.
+ * Synchronizations that can't be posted, or don't fit in the queue, are dropped with a
+ * message, and the clients of that peer only see the changes once they reload the notes.
+ * </p>
+ */
+public class HttpSyncRelay implements SyncRelay, AutoCloseable {
+    public static final String PATH = "api/cluster/synchronizations";
+    public static final Duration TIMEOUT = Duration.ofSeconds(5);
+    public static final int QUEUE_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final HttpClient http;
+    private final List<Peer> peers;
+    private volatile Consumer<Synchronization> listener = _ -> { };
+
+    /**
+     * Another node, with the thread posting to it.
+     *
+     * @param uri    the endpoint of the node receiving synchronizations
+     * @param sender the executor posting the synchronizations in order
+     */
+    private record Peer(URI uri, ExecutorService sender) {
+    }
+
+    /**
+     * Constructs a new HttpSyncRelay.
+     *
+     * @param peers        the base URLs of the other nodes, such as
+     *                     {@code http://localhost:8081/}
+     * @param objectMapper the object mapper synchronizations are posted with
+     */
+    public HttpSyncRelay(List<URI> peers, ObjectMapper objectMapper) {
+        this(peers, objectMapper, TIMEOUT, QUEUE_SIZE);
+    }
+
+    /**
+     * Constructs a new HttpSyncRelay with the given limits.
+     *
+     * @param peers        the base URLs of the other nodes
+     * @param objectMapper the object mapper synchronizations are posted with
+     * @param timeout      the time after which connecting to a peer or posting to it fails
+     * @param queueSize    the number of synchronizations waiting for a peer at most
+     */
+    HttpSyncRelay(List<URI> peers, ObjectMapper objectMapper, Duration timeout, int queueSize) {
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.peers = peers.stream()
+                .map(peer -> peer.resolve("/").resolve(PATH))
+                .map(uri -> new Peer(uri, sender(uri, queueSize)))
+                .toList();
+    }
+
+    /**
+     * Creates the thread posting to a peer, which drops the synchronizations that don't fit
+     * in its queue.
+     *
+     * @param uri       the endpoint of the peer
+     * @param queueSize the number of synchronizations waiting at most
+     * @return the executor
+     */
+    private static ExecutorService sender(URI uri, int queueSize) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().name("http-relay").daemon().factory(),
+                (_, executor) -> {
+                    if (!executor.isShutdown()) {
+                        System.out.println("Dropped a synchronization for " + uri
+                                + ", which is too far behind");
+                    }
+                });
+    }
+
+    @Override
+    public void publish(Synchronization synchronization) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(synchronization);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+        for (Peer peer : peers) {
+            peer.sender().execute(() -> post(peer.uri(), body));
+        }
+    }
+
+    @Override
+    public void setListener(Consumer<Synchronization> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Passes on a synchronization another node posted.
+     *
+     * @param synchronization the synchronization
+     */
+    public void receive(Synchronization synchronization) {
+        listener.accept(synchronization);
+    }
+
+    /**
+     * Stops posting to the other nodes.
+     */
+    @Override
+    public void close() {
+        peers.forEach(peer -> peer.sender().shutdownNow());
+    }
+
+    /**
+     * Posts a synchronization to another node.
+     *
+     * @param uri  the endpoint of the node
+     * @param body the synchronization as JSON
+     */
+    private void post(URI uri, byte[] body) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 200) {
+                System.out.println("Failed to relay a synchronization to " + uri + ": " + status);
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to relay a synchronization to " + uri);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package server;
+
+import commons.Synchronization;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Relays synchronizations between the nodes started in the same process, for instance by a
+ * test or a load test running two servers side by side on one database.
+ * <p>
+ * Every node receives synchronizations on a thread of its own, so a node publishing while it
+ * holds a lock never waits for another node.
+ * </p>
+ */
+public class LoopbackSyncRelay implements SyncRelay, AutoCloseable {
+    private static final Map<String, List<LoopbackSyncRelay>> CHANNELS =
+            new ConcurrentHashMap<>();
+
+    private final String channel;
+    private final ExecutorService receiver = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("loopback-relay").daemon().factory());
+    private volatile Consumer<Synchronization> listener = _ -> { };
+
+    /**
+     * Constructs a new LoopbackSyncRelay.
+     *
+     * @param channel the name shared by the nodes of the cluster
+     */
+    private LoopbackSyncRelay(String channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a relay and joins the nodes of a channel with it, once it is constructed.
+     *
+     * @param channel the name shared by the nodes of the cluster
+     * @return the relay of the new node
+     */
+    public static LoopbackSyncRelay join(String channel) {
+        LoopbackSyncRelay relay = new LoopbackSyncRelay(channel);
+        CHANNELS.computeIfAbsent(channel, _ -> new CopyOnWriteArrayList<>()).add(relay);
+        return relay;
+    }
+
+    @Override
+    public void publish(Synchronization synchronization) {
+        for (LoopbackSyncRelay node : CHANNELS.getOrDefault(channel, List.of())) {
+            if (node != this) {
+                // a copy, as it would be after a trip over the network
+                Synchronization copy = new Synchronization(synchronization.type,
+                        synchronization.noteId, synchronization.title, synchronization.content);
+                copy.operations = synchronization.operations;
+                node.receiver.execute(() -> node.listener.accept(copy));
+            }
+        }
+    }
+
+    @Override
+    public void setListener(Consumer<Synchronization> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Leaves the channel, after the node shut down.
+     */
+    @Override
+    public void close() {
+        CHANNELS.getOrDefault(channel, List.of()).remove(this);
+        receiver.shutdown();
+    }
+}
@@ -0,0 +1,30 @@
+package server;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the metrics of the server, served on {@code /actuator/metrics}. Spring Boot
+ * already times every request as {@code http.server.requests} and every repository call as
+ * {@code spring.data.repository.invocations}, and measures the caches and the connection pool.
+ * The services are timed as {@value #SERVICE_TIMER}, tagged with their class and method, and
+ * the synchronizations are measured by {@link SyncMetrics}.
+ */
+@Configuration
+public class MetricsConfig {
+    public static final String SERVICE_TIMER = "netnote.service";
+
+    /**
+     * Creates the aspect that times the methods of classes annotated with
+     * {@link io.micrometer.core.annotation.Timed}.
+     *
+     * @param registry the registry the timers are kept in
+     * @return the aspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,313 @@
+package server;
+
+import commons.Synchronization;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Streams synchronizations to clients subscribed with server-sent events, a lighter
+ * alternative to the STOMP subscription for clients that mostly read.
+ * <p>
+ * Every synchronization gets an id of the form {@code <epoch>-<sequence>}, where the epoch
+ * identifies this run of the server. The last {@code sync.sse.history} synchronizations are
+ * kept, so a client reconnecting with a {@code Last-Event-ID} receives the ones it missed.
+ * A client that missed more, or was connected to an earlier run of the server, receives a
+ * {@value #RESET_EVENT} event instead and has to reload its notes.
+ * </p>
+ * <p>
+ * Publishing only queues a synchronization for every client, which a virtual thread of the
+ * client sends, so a client that reads slowly holds up neither the publisher nor the other
+ * clients. A client with more than {@code sync.sse.backlog} synchronizations queued is
+ * disconnected, and reconnects to receive them or a reset.
+ * </p>
+ */
+@Component
+public class SseSyncBroadcaster {
+    public static final String SYNCHRONIZATION_EVENT = "synchronization";
+    public static final String RESET_EVENT = "reset";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int historySize;
+    private final long timeout;
+    private final int backlog;
+    private final ExecutorService sender;
+
+    // the subscribers are removed by the callbacks of their emitters, without the lock
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Deque<Event> history = new ArrayDeque<>();
+    private long lastSequence;
+
+    /**
+     * A client subscribed to the synchronizations, with the synchronizations queued for it.
+     * At most one thread sends to a client at a time, so it receives them in order.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String clientId;
+        // guarded by the subscriber
+        private final Deque<Event> pending = new ArrayDeque<>();
+        private boolean sending;
+
+        /**
+         * Constructs a new Subscriber.
+         *
+         * @param emitter  the emitter streaming to the client
+         * @param clientId the id the client publishes its own synchronizations with, or null
+         */
+        private Subscriber(SseEmitter emitter, String clientId) {
+            this.emitter = emitter;
+            this.clientId = clientId;
+        }
+
+        /**
+         * Queues a synchronization for the client, or disconnects the client if it has too
+         * many queued already.
+         *
+         * @param event the synchronization
+         * @return true if it was queued, false if the client is disconnected
+         */
+        private synchronized boolean offer(Event event) {
+            if (pending.size() >= backlog) {
+                pending.clear();
+                // completing waits for a send that is stuck, so leave it to a sender
+                sender.execute(emitter::complete);
+                return false;
+            }
+            pending.addLast(event);
+            if (!sending) {
+                sending = true;
+                sender.execute(this::sendPending);
+            }
+            return true;
+        }
+
+        /**
+         * Sends the queued synchronizations until none are left.
+         */
+        private void sendPending() {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = pending.pollFirst();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    send(emitter, event);
+                } catch (IOException | IllegalStateException e) {
+                    // the client is gone, which the container doesn't always notice by itself
+                    emitter.completeWithError(e);
+                    unsubscribe(emitter);
+                    synchronized (this) {
+                        pending.clear();
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A published synchronization.
+     *
+     * @param sequence        the number of the synchronization since the server started
+     * @param synchronization the synchronization
+     * @param origin          the id of the client that published it, or null
+     */
+    private record Event(long sequence, Synchronization synchronization, String origin) {
+    }
+
+    /**
+     * Constructs a new SseSyncBroadcaster.
+     *
+     * @param historySize the number of synchronizations kept for reconnecting clients
+     * @param timeout     the milliseconds after which a subscription is closed, after which
+     *                    clients reconnect, so connections of vanished clients don't pile up
+     * @param backlog     the number of synchronizations queued for a client at most, before
+     *                    it is disconnected for reading too slowly
+     */
+    @Autowired
+    public SseSyncBroadcaster(@Value("${sync.sse.history:1000}") int historySize,
+                              @Value("${sync.sse.timeout:1800000}") long timeout,
+                              @Value("${sync.sse.backlog:1000}") int backlog) {
+        this(historySize, timeout, backlog, Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("sse-sender-", 0).factory()));
+    }
+
+    /**
+     * Constructs a new SseSyncBroadcaster sending with the given executor.
+     *
+     * @param historySize the number of synchronizations kept for reconnecting clients
+     * @param timeout     the milliseconds after which a subscription is closed
+     * @param backlog     the number of synchronizations queued for a client at most
+     * @param sender      the executor sending the synchronizations to the clients
+     */
+    SseSyncBroadcaster(int historySize, long timeout, int backlog, ExecutorService sender) {
+        this.historySize = historySize;
+        this.timeout = timeout;
+        this.backlog = backlog;
+        this.sender = sender;
+    }
+
+    /**
+     * Stops sending to the clients, when the server shuts down.
+     */
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * Subscribes a client to all synchronizations published from now on, except its own.
+     *
+     * @param clientId    the id the client publishes its own synchronizations with, or null
+     * @param lastEventId the id of the last synchronization the client received before
+     *                    reconnecting, or null if it connects for the first time
+     * @return the emitter streaming the synchronizations to the client
+     */
+    public synchronized SseEmitter subscribe(String clientId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        emitter.onCompletion(() -> unsubscribe(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(_ -> unsubscribe(emitter));
+        // the emitter only buffers what is sent before the response starts, so the replay
+        // doesn't wait for the client
+        try {
+            if (lastEventId != null) {
+                replay(emitter, clientId, sequenceOf(lastEventId));
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscribers.add(new Subscriber(emitter, clientId));
+        return emitter;
+    }
+
+    /**
+     * Publishes a synchronization to all subscribed clients except the one it came from.
+     *
+     * @param synchronization the synchronization
+     * @param origin          the id of the client that published it, or null if it came
+     *                        from somewhere else, in which case all clients receive it
+     * @return the number of clients the synchronization was queued for
+     */
+    public synchronized int publish(Synchronization synchronization, String origin) {
+        Event event = new Event(++lastSequence, synchronization, origin);
+        history.addLast(event);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+        // only queued under the lock, so every client gets the synchronizations in order
+        int recipients = 0;
+        for (Subscriber subscriber : subscribers) {
+            if (origin != null && origin.equals(subscriber.clientId)) {
+                continue;
+            }
+            if (subscriber.offer(event)) {
+                recipients++;
+            } else {
+                subscribers.remove(subscriber);
+            }
+        }
+        return recipients;
+    }
+
+    /**
+     * Gets the number of subscribed clients.
+     *
+     * @return the number of subscribers
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sends a reconnecting client the synchronizations after the last one it received,
+     * or a reset if those are no longer all kept.
+     *
+     * @param emitter  the emitter of the client
+     * @param clientId the id of the client, whose own synchronizations are skipped
+     * @param sequence the sequence of the last synchronization the client received,
+     *                 or -1 if it is unknown
+     * @throws IOException if the client can't be written to
+     */
+    private void replay(SseEmitter emitter, String clientId, long sequence) throws IOException {
+        long oldest = history.isEmpty() ? lastSequence + 1 : history.getFirst().sequence();
+        if (sequence < oldest - 1 || sequence > lastSequence) {
+            emitter.send(SseEmitter.event().name(RESET_EVENT).id(idOf(lastSequence)).data(""));
+            return;
+        }
+        for (Event event : history) {
+            if (event.sequence() > sequence
+                    && (clientId == null || !clientId.equals(event.origin()))) {
+                send(emitter, event);
+            }
+        }
+    }
+
+    /**
+     * Sends a synchronization to a client.
+     *
+     * @param emitter the emitter of the client
+     * @param event   the synchronization
+     * @throws IOException if the client can't be written to
+     */
+    private void send(SseEmitter emitter, Event event) throws IOException {
+        emitter.send(SseEmitter.event()
+                .name(SYNCHRONIZATION_EVENT)
+                .id(idOf(event.sequence()))
+                .data(event.synchronization()));
+    }
+
+    /**
+     * Removes a client whose subscription ended.
+     *
+     * @param emitter the emitter of the client
+     */
+    private void unsubscribe(SseEmitter emitter) {
+        subscribers.removeIf(subscriber -> subscriber.emitter == emitter);
+    }
+
+    /**
+     * Creates the event id of a synchronization.
+     *
+     * @param sequence the sequence of the synchronization
+     * @return the event id
+     */
+    private String idOf(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Reads the sequence from an event id sent by a client.
+     *
+     * @param eventId the event id
+     * @return the sequence, or -1 if the id is malformed or from an earlier run of the server
+     */
+    private long sequenceOf(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package server;
+
+import commons.Synchronization;
+import commons.SynchronizationType;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.stereotype.Component;
+import server.services.CollaborationService;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Passes synchronizations on to the clients connected to this server with either transport,
+ * and through the {@link SyncRelay} to the other nodes of the cluster, which pass them on to
+ * their own clients.
+ */
+@Component
+public class SyncDispatcher {
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final WebSocketEventListener websocketUsers;
+    private final SseSyncBroadcaster sseBroadcaster;
+    private final SyncMetrics syncMetrics;
+    private final SyncRelay relay;
+    private final CollaborationService collaborationService;
+    private final CacheManager cacheManager;
+
+    /**
+     * Constructs a new SyncDispatcher.
+     *
+     * @param messagingTemplate    the messaging template of the websocket clients
+     * @param websocketUsers       the listener keeping the websocket sessions
+     * @param sseBroadcaster       the broadcaster of the server-sent event clients
+     * @param syncMetrics          the metrics of passing synchronizations on
+     * @param relay                the relay to the other nodes
+     * @param collaborationService the service the edits of the other nodes are applied with
+     * @param cacheManager         the caches invalidated by changes on other nodes, if any
+     */
+    public SyncDispatcher(SimpMessageSendingOperations messagingTemplate,
+                          WebSocketEventListener websocketUsers,
+                          SseSyncBroadcaster sseBroadcaster, SyncMetrics syncMetrics,
+                          SyncRelay relay, CollaborationService collaborationService,
+                          ObjectProvider<CacheManager> cacheManager) {
+        this.messagingTemplate = messagingTemplate;
+        this.websocketUsers = websocketUsers;
+        this.sseBroadcaster = sseBroadcaster;
+        this.syncMetrics = syncMetrics;
+        this.relay = relay;
+        this.collaborationService = collaborationService;
+        this.cacheManager = cacheManager.getIfAvailable();
+    }
+
+    /**
+     * Starts receiving the synchronizations of the other nodes, once this dispatcher is
+     * constructed, so the relay never calls a dispatcher still being constructed.
+     */
+    @PostConstruct
+    public void listen() {
+        relay.setListener(this::receive);
+    }
+
+    /**
+     * Passes a synchronization on to all clients of the cluster, except the one it came from.
+     *
+     * @param synchronization the synchronization
+     * @param sessionId       the websocket session id of the client it came from, or null
+     * @param client          the server-sent event client id of the client it came from,
+     *                        or null
+     */
+    public void publish(Synchronization synchronization, String sessionId, String client) {
+        deliver(synchronization, sessionId, client);
+        relay.publish(synchronization);
+    }
+
+    /**
+     * Sends a synchronization to one websocket client only.
+     *
+     * @param sessionId       the session id of the client
+     * @param synchronization the synchronization
+     */
+    public void sendTo(String sessionId, Synchronization synchronization) {
+        messagingTemplate.convertAndSendToUser(sessionId, "/synchronization", synchronization,
+                createHeaders(sessionId));
+    }
+
+    /**
+     * Passes a synchronization published on another node on to the clients of this one.
+     *
+     * @param synchronization the synchronization
+     */
+    private void receive(Synchronization synchronization) {
+        if (synchronization.type == SynchronizationType.EDIT) {
+            collaborationService.applyRelayedEdit(synchronization.noteId,
+                    synchronization.operations, () -> deliver(synchronization, null, null));
+            return;
+        }
+        // the other node changed the note in the database, so the note this node read before
+        // may be outdated, and so may the collections listed with their notes
+        if (cacheManager != null) {
+            evict(CacheConfig.NOTES, synchronization.noteId);
+            Cache allCollections = cacheManager.getCache(CacheConfig.ALL_COLLECTIONS);
+            if (allCollections != null) {
+                allCollections.clear();
+            }
+        }
+        deliver(synchronization, null, null);
+    }
+
+    /**
+     * Evicts an entry from a cache, if the cache exists.
+     *
+     * @param cacheName the name of the cache
+     * @param key       the key of the entry
+     */
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    /**
+     * Passes a synchronization on to the clients connected to this node with either
+     * transport, except the one it came from, and records the metrics of doing so.
+     *
+     * @param synchronization the synchronization
+     * @param sessionId       the websocket session id of the client it came from, or null
+     * @param client          the server-sent event client id of the client it came from,
+     *                        or null
+     */
+    private void deliver(Synchronization synchronization, String sessionId, String client) {
+        long start = System.nanoTime();
+        int websocketRecipients = sendToWebsockets(synchronization, sessionId);
+        int sseRecipients = sseBroadcaster.publish(synchronization, client);
+        syncMetrics.recordFanOut(synchronization, websocketRecipients, sseRecipients,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Sends a synchronization to the clients connected with websockets.
+     *
+     * @param synchronization the synchronization
+     * @param origin          the session id of the client it came from, which is skipped,
+     *                        or null
+     * @return the number of clients the synchronization was sent to
+     */
+    private int sendToWebsockets(Synchronization synchronization, String origin) {
+        Set<String> ids = new HashSet<>(websocketUsers.sessionIds);
+        ids.remove(origin);
+
+        for (String id : ids) {
+            sendTo(id, synchronization);
+        }
+        return ids.size();
+    }
+
+    // https://stackoverflow.com/q/34929578
+
+    /**
+     * Generates headers from sessionId.
+     *
+     * @param sessionId The session id
+     * @return The created headers
+     */
+    private MessageHeaders createHeaders(String sessionId) {
+        SimpMessageHeaderAccessor headerAccessor =
+                SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setLeaveMutable(true);
+        return headerAccessor.getMessageHeaders();
+    }
+}
@@ -0,0 +1,95 @@
+package server;
+
+import commons.Synchronization;
+import commons.SynchronizationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how synchronizations are passed on to the other clients: how many there are of
+ * every type, how long passing one on takes and how many clients receive it. Gauges show the
+ * number of clients connected with each transport. All meters are registered up front, so
+ * recording a synchronization only updates them.
+ */
+@Component
+public class SyncMetrics {
+    public static final String PREFIX = "netnote.sync";
+
+    private final MeterRegistry registry;
+    private final Map<SynchronizationType, Counter> messages =
+            new EnumMap<>(SynchronizationType.class);
+    private final Timer fanOutTime;
+    private final DistributionSummary websocketFanOut;
+    private final DistributionSummary sseFanOut;
+
+    /**
+     * Constructs a new SyncMetrics, registering its meters.
+     *
+     * @param registry       the registry the meters are kept in
+     * @param websocketUsers the listener keeping the websocket sessions
+     * @param sseBroadcaster the broadcaster keeping the server-sent event subscribers
+     */
+    public SyncMetrics(MeterRegistry registry, WebSocketEventListener websocketUsers,
+                       SseSyncBroadcaster sseBroadcaster) {
+        this.registry = registry;
+        for (SynchronizationType type : SynchronizationType.values()) {
+            messages.put(type, Counter.builder(PREFIX + ".messages")
+                    .description("Synchronizations passed on to the other clients")
+                    .tag("type", type.name())
+                    .register(registry));
+        }
+        fanOutTime = Timer.builder(PREFIX + ".fanout")
+                .description("Time to pass a synchronization on to all other clients")
+                .register(registry);
+        websocketFanOut = fanOutSize("websocket");
+        sseFanOut = fanOutSize("sse");
+        Gauge.builder(PREFIX + ".sessions", websocketUsers, users -> users.sessionIds.size())
+                .description("Clients connected for synchronizations")
+                .tag("transport", "websocket")
+                .register(registry);
+        Gauge.builder(PREFIX + ".sessions", sseBroadcaster, SseSyncBroadcaster::subscriberCount)
+                .description("Clients connected for synchronizations")
+                .tag("transport", "sse")
+                .register(registry);
+    }
+
+    /**
+     * Records a synchronization that was passed on to the other clients.
+     *
+     * @param synchronization     the synchronization
+     * @param websocketRecipients the number of websocket clients that received it
+     * @param sseRecipients       the number of server-sent event clients that received it
+     * @param nanos               the nanoseconds passing it on took
+     */
+    public void recordFanOut(Synchronization synchronization, int websocketRecipients,
+                             int sseRecipients, long nanos) {
+        if (synchronization.type != null) {
+            messages.get(synchronization.type).increment();
+        }
+        fanOutTime.record(nanos, TimeUnit.NANOSECONDS);
+        websocketFanOut.record(websocketRecipients);
+        sseFanOut.record(sseRecipients);
+    }
+
+    /**
+     * Creates the summary of the number of clients of a transport receiving a synchronization.
+     *
+     * @param transport the transport
+     * @return the summary
+     */
+    private DistributionSummary fanOutSize(String transport) {
+        return DistributionSummary.builder(PREFIX + ".fanout.size")
+                .description("Clients a synchronization is passed on to")
+                .baseUnit("clients")
+                .tag("transport", transport)
+                .register(registry);
+    }
+}
@@ -0,0 +1,41 @@
+package server;
+
+import commons.Synchronization;
+
+import java.util.function.Consumer;
+
+/**
+ * Passes synchronizations between the nodes of a cluster of servers that share the database,
+ * so the clients connected to one node receive the synchronizations published on the others.
+ * {@code cluster.relay} selects the implementation, see {@link ClusterConfig}.
+ */
+public interface SyncRelay {
+    /**
+     * The relay of a server that isn't part of a cluster, which passes nothing on.
+     */
+    SyncRelay NONE = new SyncRelay() {
+        @Override
+        public void publish(Synchronization synchronization) {
+        }
+
+        @Override
+        public void setListener(Consumer<Synchronization> listener) {
+        }
+    };
+
+    /**
+     * Passes a synchronization published on this node on to the other nodes, which receive
+     * the synchronizations of a node in the order it published them.
+     *
+     * @param synchronization the synchronization, which isn't changed afterwards
+     */
+    void publish(Synchronization synchronization);
+
+    /**
+     * Sets the listener receiving the synchronizations published on the other nodes, one at a
+     * time.
+     *
+     * @param listener the listener
+     */
+    void setListener(Consumer<Synchronization> listener);
+}
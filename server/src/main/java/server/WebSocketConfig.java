@@ -1,7 +1,14 @@
 package server;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -10,15 +17,46 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/synchronization");
         config.setApplicationDestinationPrefixes("/app");
+        // the messages of a client would otherwise be reordered by the threads handling them,
+        // and edits have to be applied in order
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/websocket");
+        registry.setPreserveReceiveOrder(true);
     }
 
-}
\ No newline at end of file
+    /**
+     * Creates the executor of asynchronous tasks, which Spring Boot also uses for
+     * asynchronous request handling and the STOMP channels. With
+     * {@code spring.threads.virtual.enabled} every task gets a virtual thread, otherwise the
+     * tasks share a pool of platform threads.
+     * <p>
+     * Spring Boot only creates this executor if there is no other one, but the message broker
+     * brings executors of its own.
+     * </p>
+     *
+     * @param virtualBuilder    the builder of the executor with virtual threads
+     * @param threadPoolBuilder the builder of the executor with a thread pool
+     * @return the executor
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+        AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(
+            SimpleAsyncTaskExecutorBuilder virtualBuilder,
+            ThreadPoolTaskExecutorBuilder threadPoolBuilder) {
+        if (virtualThreads) {
+            return virtualBuilder.virtualThreads(true).build();
+        }
+        return threadPoolBuilder.build();
+    }
+}
@@ -0,0 +1,59 @@
+package server.api;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/caches")
+public class CacheController {
+    private final CacheManager cacheManager;
+
+    /**
+     * The statistics of a cache since the server started.
+     *
+     * @param name      the name of the cache
+     * @param size      the approximate number of entries in the cache
+     * @param hits      the number of lookups answered from the cache
+     * @param misses    the number of lookups that had to be loaded
+     * @param hitRate   the fraction of lookups answered from the cache, 1 if there were none
+     * @param evictions the number of entries evicted because the cache was full
+     */
+    public record CacheStatistics(String name, long size, long hits, long misses,
+                                  double hitRate, long evictions) {
+    }
+
+    /**
+     * Constructs a new CacheController with the specified cache manager.
+     *
+     * @param cacheManager the cache manager holding the caches of the services
+     */
+    public CacheController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Retrieves the statistics of all caches, to see how often the database is spared.
+     *
+     * @return the statistics of every cache
+     */
+    @GetMapping(path = {"", "/"})
+    public List<CacheStatistics> getAll() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                CacheStats stats = cache.getNativeCache().stats();
+                statistics.add(new CacheStatistics(name, cache.getNativeCache().estimatedSize(),
+                        stats.hitCount(), stats.missCount(), stats.hitRate(),
+                        stats.evictionCount()));
+            }
+        }
+        return statistics;
+    }
+}
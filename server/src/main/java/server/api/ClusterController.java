@@ -0,0 +1,41 @@
+package server.api;
+
+import commons.Synchronization;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import server.HttpSyncRelay;
+import server.SyncRelay;
+
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+    private final SyncRelay relay;
+
+    /**
+     * Constructs a new ClusterController with the specified relay.
+     *
+     * @param relay the relay of synchronizations between the nodes of the cluster
+     */
+    public ClusterController(SyncRelay relay) {
+        this.relay = relay;
+    }
+
+    /**
+     * Receives a synchronization another node of the cluster published, which is passed on to
+     * the clients of this node.
+     *
+     * @param synchronization the synchronization
+     * @return an empty response entity, with status 404 if this server doesn't relay over HTTP
+     */
+    @PostMapping("/synchronizations")
+    public ResponseEntity<Void> receive(@RequestBody Synchronization synchronization) {
+        if (!(relay instanceof HttpSyncRelay httpRelay)) {
+            return ResponseEntity.notFound().build();
+        }
+        httpRelay.receive(synchronization);
+        return ResponseEntity.ok().build();
+    }
+}
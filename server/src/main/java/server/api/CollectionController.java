@@ -1,24 +1,38 @@
 package server.api;
 
 import commons.Collection;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server.services.ArchiveService;
 import server.services.CollectionService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/collections")
 public class CollectionController {
+    private static final MediaType ZIP = MediaType.valueOf("application/zip");
+
     private final CollectionService service;
+    private final ArchiveService archiveService;
 
     /**
-     * Constructs a new CollectionController with the specified service.
+     * Constructs a new CollectionController with the specified services.
      *
-     * @param service the service used for managing collections
+     * @param service        the service used for managing collections
+     * @param archiveService the service exporting and importing collections as archives
      */
-    public CollectionController(CollectionService service) {
+    public CollectionController(CollectionService service, ArchiveService archiveService) {
         this.service = service;
+        this.archiveService = archiveService;
     }
 
     /**
@@ -46,6 +60,55 @@ public class CollectionController {
         return ResponseEntity.ok(collection);
     }
 
+    /**
+     * Exports a collection as a ZIP archive with a Markdown file per note and the images the
+     * notes refer to. The archive is written while the notes are read, so neither the server
+     * nor the client has to hold the collection in memory.
+     *
+     * @param id the ID of the collection to export
+     * @return a response entity streaming the archive, or with status 404 if the collection
+     *         doesn't exist
+     */
+    @GetMapping(path = "/{id}/export", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable("id") long id) {
+        var collection = service.findCollection(id);
+        if (collection == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = output -> archiveService.exportCollection(collection, output);
+        return ResponseEntity.ok()
+                .contentType(ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(collection.title + ".zip", StandardCharsets.UTF_8)
+                        .build().toString())
+                .body(body);
+    }
+
+    /**
+     * Imports a collection from a ZIP archive made by {@link #export(long)}, sent as the
+     * body of the request, which is read while the notes are saved.
+     *
+     * @param archive the body of the request
+     * @param title   the title of the new collection, or null for the title in the archive
+     * @return a response entity containing the new collection, with status 400 if the body
+     *         isn't such an archive or 409 if another collection has the title
+     */
+    @PostMapping(path = "/import", consumes = "application/zip")
+    public ResponseEntity<Collection> importCollection(
+            InputStream archive,
+            @RequestParam(name = "title", required = false) String title) {
+        Collection collection;
+        try {
+            collection = archiveService.importCollection(archive, title);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (collection == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(collection);
+    }
+
     /**
      * Saves a new collection.
      *
@@ -80,7 +143,11 @@ public class CollectionController {
 
         updatedCollection.title = collection.title;
         updatedCollection.serverUrl = collection.serverUrl;
-        return ResponseEntity.ok(service.saveCollection(updatedCollection));
+        var savedCollection = service.saveCollection(updatedCollection);
+        if (savedCollection == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(savedCollection);
     }
 
     /**
@@ -1,6 +1,8 @@
 package server.api;
 
 import commons.Files;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -43,18 +45,33 @@ public class ImageController {
 
     /**
      * Returns the image with the specified id.
+     * <p>
+     * The response carries the hash of the image as its ETag, so clients that cached
+     * the image can revalidate it with If-None-Match and get a 304 without the bytes. The
+     * hash is kept by the service, so a 304 doesn't read the image from the database.
+     * </p>
      *
-     * @param id the id that is being searched for
+     * @param id          the id that is being searched for
+     * @param ifNoneMatch the ETag of the version the client has cached, if any
      * @return the image with request status
      */
     @GetMapping(path = "/get/{id}")
-    public ResponseEntity<byte[]> getImage(@PathVariable("id") Long id) {
+    public ResponseEntity<byte[]> getImage(@PathVariable("id") Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                   required = false) String ifNoneMatch) {
+        String eTag = imageService.getImageETag(id);
+        if (eTag == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (eTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         Files files = imageService.getImage(id);
         if (files == null) {
             return ResponseEntity.notFound().build();
         }
         MediaType mediaType = MediaType.valueOf(files.getType());
-        return ResponseEntity.ok().contentType(mediaType).body(files.getImageByte());
+        return ResponseEntity.ok().contentType(mediaType).eTag(eTag).body(files.getImageByte());
     }
 
     /**
@@ -15,24 +15,37 @@
  */
 package server.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import commons.Collection;
 import commons.Note;
+import commons.NoteSummaryPage;
 import commons.Synchronization;
+import commons.SynchronizationType;
 import commons.Tag;
+import commons.TextOperation;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
-import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.web.bind.annotation.*;
-import server.WebSocketEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server.AsyncRequestConfig;
+import server.SseSyncBroadcaster;
+import server.SyncDispatcher;
+import server.services.CollaborationService;
 import server.services.NoteService;
 import server.services.TagService;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Set;
 
@@ -42,23 +55,32 @@ public class NoteController {
     private final NoteService service;
     private final TagService tagService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
+    private final SyncDispatcher syncDispatcher;
 
     @Autowired
-    private WebSocketEventListener connectionsEventListener;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SseSyncBroadcaster sseBroadcaster;
+
+    @Autowired
+    private CollaborationService collaborationService;
+
+    @Value("${notes.export.timeout:3600000}")
+    private long exportTimeout;
 
     /**
      * Constructs a new NoteController with the specified service.
      *
-     * @param service           the service used for managing notes
-     * @param tagService        the service used for managing tags
-     * @param messagingTemplate the messaging template
+     * @param service        the service used for managing notes
+     * @param tagService     the service used for managing tags
+     * @param syncDispatcher the dispatcher passing synchronizations on to the clients
      */
     public NoteController(NoteService service, TagService tagService,
-                          SimpMessageSendingOperations messagingTemplate) {
+                          SyncDispatcher syncDispatcher) {
         this.service = service;
         this.tagService = tagService;
-        this.messagingTemplate = messagingTemplate;
+        this.syncDispatcher = syncDispatcher;
     }
 
     /**
@@ -66,11 +88,69 @@ public class NoteController {
      *
      * @return a list of all notes, or null if no notes exist
      */
-    @GetMapping(path = {"", "/"})
+    @GetMapping(path = {"", "/"}, params = {"!collection", "!tag", "!q", "!page", "!size"})
     public List<Note> getAll() {
         return service.findAllNotes();
     }
 
+    /**
+     * Exports all notes as newline-delimited JSON, ordered by id. The notes are written one
+     * at a time while they are read from the storage, so neither the server nor the client
+     * has to hold all notes in memory. The export times out after {@code notes.export.timeout}
+     * milliseconds, rather than after the timeout of other asynchronous responses.
+     *
+     * @param request the request for the export
+     * @return a response entity streaming one note per line
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(HttpServletRequest request) {
+        AsyncRequestConfig.setTimeout(request, exportTimeout);
+        // the output stays open after every note, and is flushed by the response buffer
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = output -> {
+            try {
+                service.forEachNote(note -> {
+                    try {
+                        writer.writeValue(output, note);
+                        output.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Retrieves one page of the summaries of the notes matching the filters, ordered by title,
+     * so a client only transfers the notes it shows.
+     *
+     * @param collection the id of the collection, or null for all collections
+     * @param tags       the tags a note needs to have all of, may be null
+     * @param query      text the title or content has to contain, ignoring case, may be null
+     * @param page       the number of the page, starting at 0
+     * @param size       the maximum number of summaries per page
+     * @return a response entity containing the page of summaries
+     */
+    @GetMapping(path = {"", "/"})
+    public ResponseEntity<NoteSummaryPage> search(
+            @RequestParam(name = "collection", required = false) Long collection,
+            @RequestParam(name = "tag", required = false) Set<String> tags,
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "50") int size) {
+        var summaries = service.findNoteSummaries(collection, tags, query, page, size);
+        if (summaries == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(summaries);
+    }
+
     /**
      * Retrieves the collection associated with a specific note by its ID.
      *
@@ -101,6 +181,22 @@ public class NoteController {
         return ResponseEntity.ok(note);
     }
 
+    /**
+     * Retrieves the operations that build the collaborative text of a note, which a client
+     * edits the content of the note with, merged with the edits of other clients.
+     *
+     * @param id the ID of the note, provided in the path
+     * @return a response entity containing the operations if the note is found
+     */
+    @GetMapping("/{id}/text")
+    public ResponseEntity<List<TextOperation>> getText(@PathVariable("id") long id) {
+        var snapshot = collaborationService.getSnapshot(id);
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(snapshot);
+    }
+
     /**
      * Saves a new note.
      *
@@ -118,7 +214,8 @@ public class NoteController {
     }
 
     /**
-     * Updates an existing note by its ID.
+     * Updates an existing note by its ID. The content of a note that clients edit
+     * collaboratively is the merged content instead, which the edits change.
      *
      * @param id   the ID of the note to update, provided in the path
      * @param note the updated note data, provided in the request body
@@ -132,11 +229,16 @@ public class NoteController {
             return ResponseEntity.badRequest().build();
         }
 
+        String mergedContent = collaborationService.getText(id);
         updatedNote.title = note.title;
-        updatedNote.setContent(note.getContent());
+        updatedNote.setContent(mergedContent != null ? mergedContent : note.getContent());
         updatedNote.collection = note.collection;
 
-        return ResponseEntity.ok(service.saveNote(updatedNote));
+        var savedNote = service.saveNote(updatedNote);
+        if (savedNote == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(savedNote);
     }
 
     /**
@@ -151,6 +253,7 @@ public class NoteController {
         if (deletedNote == null) {
             return ResponseEntity.notFound().build();
         }
+        collaborationService.closeDocument(deletedNote.id);
 
         return ResponseEntity.ok(deletedNote);
     }
@@ -168,7 +271,9 @@ public class NoteController {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(service.deleteNote(note));
+        var deletedNote = service.deleteNote(note);
+        collaborationService.closeDocument(id);
+        return ResponseEntity.ok(deletedNote);
     }
 
     /**
@@ -209,7 +314,9 @@ public class NoteController {
     }
 
     /**
-     * Publish synchronizations to all other websocket subscribers.
+     * Publish synchronizations to all other websocket subscribers. The operations of an edit
+     * are merged first; if they can't be, the sender receives the edit back without
+     * operations, and has to load the text again.
      *
      * @param synchronization Synchronization object
      * @param headers         The websocket headers
@@ -217,28 +324,72 @@ public class NoteController {
     @MessageMapping("/synchronize")
     public void publishChangesToWebsocket(Synchronization synchronization,
                                           StompHeaderAccessor headers) {
-        Set<String> ids = new HashSet<>(connectionsEventListener.sessionIds);
-        ids.remove(headers.getSessionId());
-
-        for (String id : ids) {
-            messagingTemplate.convertAndSendToUser(id,
-                    "/synchronization", synchronization, createHeaders(id));
+        String sessionId = headers.getSessionId();
+        if (synchronization.type != SynchronizationType.EDIT) {
+            syncDispatcher.publish(synchronization, sessionId, null);
+        } else if (!mergeEdit(synchronization, sessionId, null)) {
+            syncDispatcher.sendTo(sessionId, new Synchronization(SynchronizationType.EDIT,
+                    synchronization.noteId, synchronization.title, null));
         }
     }
 
-    // https://stackoverflow.com/q/34929578
+    /**
+     * Subscribes to the synchronizations of all other clients with server-sent events,
+     * without the STOMP stack. A client that lost the connection reconnects with the id of
+     * the last event it received and gets the synchronizations it missed, or a reset event
+     * if it has to reload all notes.
+     *
+     * @param client      the id the client publishes its own synchronizations with, which
+     *                    it doesn't receive back, may be null
+     * @param lastEventId the id of the last event received before reconnecting, may be null
+     * @return the emitter streaming the synchronizations
+     */
+    @GetMapping(path = "/sync", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToSynchronizations(
+            @RequestParam(name = "client", required = false) String client,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return sseBroadcaster.subscribe(client, lastEventId);
+    }
+
+    /**
+     * Publishes a synchronization over HTTP, for clients subscribed with server-sent events,
+     * to the clients subscribed with either transport. The operations of an edit are merged
+     * first.
+     *
+     * @param synchronization the synchronization
+     * @param client          the id the client subscribed with, may be null
+     * @return an empty response entity, with status 409 if the operations of an edit can't
+     *         be merged, after which the client has to load the text again
+     */
+    @PostMapping("/sync")
+    public ResponseEntity<Void> publishSynchronization(
+            @RequestBody Synchronization synchronization,
+            @RequestParam(name = "client", required = false) String client) {
+        if (synchronization.type != SynchronizationType.EDIT) {
+            syncDispatcher.publish(synchronization, null, client);
+        } else if (!mergeEdit(synchronization, null, client)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok().build();
+    }
 
     /**
-     * Generates headers from sessionId.
+     * Merges the operations of an edit into the collaborative text of its note, and passes
+     * the edit on with the merged content. Edits are passed on in the order they are merged
+     * in, which clients have to apply them in.
      *
-     * @param sessionId The session id
-     * @return The created headers
+     * @param synchronization the edit
+     * @param sessionId       the websocket session id of the client it came from, or null
+     * @param client          the server-sent event client id of the client it came from,
+     *                        or null
+     * @return true if the edit was merged
      */
-    private MessageHeaders createHeaders(String sessionId) {
-        SimpMessageHeaderAccessor headerAccessor =
-                SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
-        headerAccessor.setSessionId(sessionId);
-        headerAccessor.setLeaveMutable(true);
-        return headerAccessor.getMessageHeaders();
+    private boolean mergeEdit(Synchronization synchronization, String sessionId, String client) {
+        String merged = collaborationService.applyEdit(synchronization.noteId,
+                synchronization.operations, content -> {
+                    synchronization.content = content;
+                    syncDispatcher.publish(synchronization, sessionId, client);
+                });
+        return merged != null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package server.api;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import server.database.NoteShards;
+import server.services.NoteService;
+import server.services.ShardedNoteServiceImpl;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/shards")
+public class ShardController {
+    private final NoteService noteService;
+
+    /**
+     * Constructs a new ShardController with the specified note service.
+     *
+     * @param noteService the note service, which shards the notes if the note storage is
+     *                    {@code sharded}
+     */
+    public ShardController(NoteService noteService) {
+        this.noteService = noteService;
+    }
+
+    /**
+     * Retrieves the number of collections and notes of every shard.
+     *
+     * @return the sizes of the shards, with status 404 if the notes aren't sharded
+     */
+    @GetMapping(path = {"", "/"})
+    public ResponseEntity<List<NoteShards.Stats>> getAll() {
+        if (!(noteService instanceof ShardedNoteServiceImpl sharded)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(sharded.findShardStats());
+    }
+
+    /**
+     * Compacts the database file of a shard, while the other shards stay available.
+     *
+     * @param shard the number of the shard
+     * @return an empty response entity, with status 404 if the notes aren't sharded or there
+     *         is no such shard
+     */
+    @PostMapping("/{shard}/compact")
+    public ResponseEntity<Void> compact(@PathVariable("shard") int shard) {
+        if (!(noteService instanceof ShardedNoteServiceImpl sharded)
+                || !sharded.compactShard(shard)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -4,4 +4,12 @@ import commons.Collection;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface CollectionRepository extends JpaRepository<Collection, Long> {
+    /**
+     * Checks whether another collection has a title, using the unique index on title.
+     *
+     * @param title the title
+     * @param id    the id of the collection itself, which is not counted
+     * @return true if another collection has the title
+     */
+    boolean existsByTitleAndIdNot(String title, long id);
 }
\ No newline at end of file
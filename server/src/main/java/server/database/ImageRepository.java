@@ -4,5 +4,50 @@ import commons.Files;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface ImageRepository extends JpaRepository<Files, Long> {}
+public interface ImageRepository extends JpaRepository<Files, Long> {
+    /**
+     * The id, name and type of an image, which are read without the bytes of the image.
+     */
+    interface ImageInfo {
+        /**
+         * Gets the id of the image.
+         *
+         * @return the id
+         */
+        Long getId();
+
+        /**
+         * Gets the name of the image.
+         *
+         * @return the name
+         */
+        String getName();
+
+        /**
+         * Gets the content type of the image.
+         *
+         * @return the content type
+         */
+        String getType();
+    }
+
+    /**
+     * Finds the images with one of the given names, without reading their bytes.
+     *
+     * @param names the names
+     * @return the id, name and type of every image with one of the names
+     */
+    List<ImageInfo> findByNameIn(Collection<String> names);
+
+    /**
+     * Checks whether an image has a name.
+     *
+     * @param name the name
+     * @return true if an image has the name
+     */
+    boolean existsByName(String name);
+}
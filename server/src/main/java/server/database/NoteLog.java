@@ -0,0 +1,650 @@
+package server.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only store of notes, kept as a sequence of segment files in one directory.
+ * <p>
+ * Every save appends the whole note as a record to the active segment and every delete
+ * appends a tombstone, so a write never rewrites earlier data. An in-memory index maps the
+ * id of each note to the position of its latest record, which makes a lookup a single
+ * positioned read. Once the active segment grows past the segment size it is sealed and a
+ * new one is started, and when more than half of the sealed bytes belong to overwritten or
+ * deleted notes, the sealed segments are compacted into one.
+ * </p>
+ * <p>
+ * Opening a store replays its segments in order to rebuild the index. A record that was
+ * only partly written when the process stopped fails its checksum and is cut off, and a
+ * compaction that was interrupted is either finished or discarded.
+ * </p>
+ */
+public class NoteLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTED_SUFFIX = ".compacted";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    // every record starts with the length of its body and the checksum of its body
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean fsync;
+
+    private final TreeMap<Long, FileChannel> segments = new TreeMap<>();
+    // bytes of each segment that belong to the latest record of a note
+    private final Map<Long, Long> liveBytes = new HashMap<>();
+    private final Map<Long, Location> index = new HashMap<>();
+    private long activeSegment;
+    private long activeSize;
+
+    /**
+     * A note as it is stored in the log.
+     *
+     * @param id           the id of the note
+     * @param title        the title of the note
+     * @param content      the content of the note
+     * @param collectionId the id of the collection of the note, or null if it has none
+     * @param tags         the tags of the note
+     */
+    public record Entry(long id, String title, String content, Long collectionId,
+                        Set<String> tags) {
+    }
+
+    /**
+     * The position of a record in the log.
+     *
+     * @param segment the number of the segment holding the record
+     * @param offset  the offset of the record in the segment
+     * @param length  the length of the record, including its header
+     */
+    private record Location(long segment, long offset, int length) {
+    }
+
+    /**
+     * Opens the log in a directory, creating the directory if it doesn't exist yet and
+     * recovering the state left by a previous process.
+     *
+     * @param directory   the directory holding the segments
+     * @param segmentSize the number of bytes after which a segment is sealed
+     * @param fsync       whether every write is forced to the disk before returning
+     * @throws IOException if the segments can't be read or created
+     */
+    public NoteLog(Path directory, long segmentSize, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        recoverCompaction();
+        for (long segment : listSegments()) {
+            segments.put(segment, open(segmentPath(segment)));
+            replay(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(1L, open(segmentPath(1)));
+        }
+        activeSegment = segments.lastKey();
+        activeSize = segments.lastEntry().getValue().size();
+    }
+
+    /**
+     * Stores a note, replacing the earlier version with the same id.
+     *
+     * @param entry the note to store
+     * @throws IOException if the record can't be written
+     */
+    public synchronized void put(Entry entry) throws IOException {
+        Location location = append(encode(entry));
+        release(index.put(entry.id(), location));
+        liveBytes.merge(location.segment(), (long) location.length(), Long::sum);
+        rollIfFull();
+    }
+
+    /**
+     * Removes the note with an id.
+     *
+     * @param id the id of the note
+     * @return true if the note was stored
+     * @throws IOException if the tombstone can't be written
+     */
+    public synchronized boolean delete(long id) throws IOException {
+        if (!index.containsKey(id)) {
+            return false;
+        }
+        append(encodeDelete(id));
+        release(index.remove(id));
+        rollIfFull();
+        return true;
+    }
+
+    /**
+     * Reads the latest version of a note.
+     *
+     * @param id the id of the note
+     * @return the note, or null if no note with this id is stored
+     * @throws IOException if the record can't be read
+     */
+    public synchronized Entry get(long id) throws IOException {
+        Location location = index.get(id);
+        return location == null ? null : decode(read(location));
+    }
+
+    /**
+     * Checks whether a note is stored.
+     *
+     * @param id the id of the note
+     * @return true if a note with this id is stored
+     */
+    public synchronized boolean contains(long id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Returns the number of stored notes.
+     *
+     * @return the number of notes
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Reads all stored notes, in the order they are laid out on disk.
+     *
+     * @param action the action to perform on every note
+     * @throws IOException if a record can't be read
+     */
+    public synchronized void forEach(Consumer<Entry> action) throws IOException {
+        for (Location location : sortedLocations(index.keySet())) {
+            action.accept(decode(read(location)));
+        }
+    }
+
+    /**
+     * Returns the number of segment files, including the active one.
+     *
+     * @return the number of segments
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the total size of all segment files.
+     *
+     * @return the size in bytes
+     * @throws IOException if the size of a segment can't be read
+     */
+    public synchronized long diskSize() throws IOException {
+        long size = 0;
+        for (FileChannel channel : segments.values()) {
+            size += channel.size();
+        }
+        return size;
+    }
+
+    /**
+     * Rewrites the live records of all sealed segments into a single segment and removes
+     * the sealed segments. The active segment is left as it is.
+     *
+     * @throws IOException if the compacted segment can't be written
+     */
+    public synchronized void compact() throws IOException {
+        Set<Long> sealed = new HashSet<>(segments.headMap(activeSegment).keySet());
+        if (sealed.isEmpty()) {
+            return;
+        }
+        // the compacted segment takes the place of the newest sealed one, so replaying still
+        // sees its records before the newer records of the active segment
+        long target = segments.lowerKey(activeSegment);
+        Path temporary = compactedPath(target).resolveSibling(
+                compactedPath(target).getFileName() + TEMPORARY_SUFFIX);
+        Map<Long, Location> moved = new HashMap<>();
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            for (Location location : sortedLocations(idsIn(sealed))) {
+                ByteBuffer record = read(location);
+                moved.put(decodeId(record), new Location(target, output.position(),
+                        location.length()));
+                record.rewind();
+                writeFully(output, record);
+            }
+            output.force(true);
+        }
+        Files.move(temporary, compactedPath(target), StandardCopyOption.ATOMIC_MOVE);
+
+        for (long segment : sealed) {
+            segments.remove(segment).close();
+            liveBytes.remove(segment);
+        }
+        finishCompaction(target);
+        segments.put(target, open(segmentPath(target)));
+        index.putAll(moved);
+        moved.values().forEach(location ->
+                liveBytes.merge(target, (long) location.length(), Long::sum));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : segments.values()) {
+            channel.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * Seals the active segment once it is full, and compacts the sealed segments when most
+     * of their bytes are garbage.
+     *
+     * @throws IOException if the new segment can't be created
+     */
+    private void rollIfFull() throws IOException {
+        if (activeSize < segmentSize) {
+            return;
+        }
+        activeSegment++;
+        activeSize = 0;
+        segments.put(activeSegment, open(segmentPath(activeSegment)));
+
+        long sealedSize = 0;
+        long sealedLive = 0;
+        for (var segment : segments.headMap(activeSegment).entrySet()) {
+            sealedSize += segment.getValue().size();
+            sealedLive += liveBytes.getOrDefault(segment.getKey(), 0L);
+        }
+        if (sealedSize - sealedLive > sealedSize / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Appends a record to the active segment.
+     *
+     * @param record the encoded record
+     * @return the location of the record
+     * @throws IOException if the record can't be written
+     */
+    private Location append(ByteBuffer record) throws IOException {
+        FileChannel channel = segments.get(activeSegment);
+        Location location = new Location(activeSegment, activeSize, record.remaining());
+        channel.position(activeSize);
+        writeFully(channel, record);
+        if (fsync) {
+            channel.force(false);
+        }
+        activeSize += location.length();
+        return location;
+    }
+
+    /**
+     * Stops counting a record that has been replaced or deleted as live.
+     *
+     * @param location the location of the record, may be null
+     */
+    private void release(Location location) {
+        if (location != null) {
+            liveBytes.merge(location.segment(), (long) -location.length(), Long::sum);
+        }
+    }
+
+    /**
+     * Reads a whole record, including its header.
+     *
+     * @param location the location of the record
+     * @return the record, positioned at its start
+     * @throws IOException if the record can't be read
+     */
+    private ByteBuffer read(Location location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length());
+        FileChannel channel = segments.get(location.segment());
+        while (record.hasRemaining()) {
+            if (channel.read(record, location.offset() + record.position()) < 0) {
+                throw new IOException("Record ends beyond segment " + location.segment());
+            }
+        }
+        return record.flip();
+    }
+
+    /**
+     * Rebuilds the index from the records of a segment, cutting the segment off at the
+     * first record that is incomplete or fails its checksum.
+     *
+     * @param segment the number of the segment
+     * @throws IOException if the segment can't be read
+     */
+    private void replay(long segment) throws IOException {
+        FileChannel channel = segments.get(segment);
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, offset);
+            int length = header.getInt(0);
+            if (length <= 0 || offset + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer record = read(new Location(segment, offset, HEADER_BYTES + length));
+            if (!checksumMatches(record)) {
+                break;
+            }
+            apply(record, new Location(segment, offset, HEADER_BYTES + length));
+            offset += HEADER_BYTES + length;
+        }
+        if (offset < size) {
+            channel.truncate(offset);
+        }
+    }
+
+    /**
+     * Applies a record read while replaying to the index.
+     *
+     * @param record   the record, positioned at its start
+     * @param location the location of the record
+     */
+    private void apply(ByteBuffer record, Location location) {
+        long id = decodeId(record);
+        if (record.get(HEADER_BYTES) == PUT) {
+            release(index.put(id, location));
+            liveBytes.merge(location.segment(), (long) location.length(), Long::sum);
+        } else {
+            release(index.remove(id));
+        }
+    }
+
+    /**
+     * Finishes a compaction that was interrupted after its output was complete, and
+     * removes the output of one that was interrupted before.
+     *
+     * @throws IOException if the segment files can't be changed
+     */
+    private void recoverCompaction() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.endsWith(COMPACTED_SUFFIX)) {
+                    finishCompaction(segmentNumber(
+                            name.substring(0, name.length() - COMPACTED_SUFFIX.length())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the segments up to and including the target by the compacted segment.
+     *
+     * @param target the number of the compacted segment
+     * @throws IOException if the segment files can't be changed
+     */
+    private void finishCompaction(long target) throws IOException {
+        for (long segment : listSegments()) {
+            if (segment < target) {
+                Files.delete(segmentPath(segment));
+            }
+        }
+        Files.move(compactedPath(target), segmentPath(target),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lists the numbers of the segment files in the directory, in ascending order.
+     *
+     * @return the segment numbers
+     * @throws IOException if the directory can't be listed
+     */
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX)
+                            && name.endsWith(SEGMENT_SUFFIX))
+                    .map(NoteLog::segmentNumber)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Returns the ids of the notes whose latest record is in one of the segments.
+     *
+     * @param segmentNumbers the numbers of the segments
+     * @return the ids of the notes
+     */
+    private List<Long> idsIn(Set<Long> segmentNumbers) {
+        List<Long> ids = new ArrayList<>();
+        index.forEach((id, location) -> {
+            if (segmentNumbers.contains(location.segment())) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Returns the locations of the latest records of notes, ordered by their position on
+     * disk, so reading them is mostly sequential.
+     *
+     * @param ids the ids of the notes
+     * @return the locations
+     */
+    private List<Location> sortedLocations(Collection<Long> ids) {
+        List<Location> locations = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            locations.add(index.get(id));
+        }
+        locations.sort(Comparator.comparingLong(Location::segment)
+                .thenComparingLong(Location::offset));
+        return locations;
+    }
+
+    /**
+     * Opens a segment file for reading and writing, creating it if it doesn't exist.
+     *
+     * @param path the path of the segment
+     * @return the channel of the segment
+     * @throws IOException if the segment can't be opened
+     */
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer at the position of a channel.
+     *
+     * @param channel the channel to write to
+     * @param buffer  the bytes to write
+     * @throws IOException if the bytes can't be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the path of a segment file.
+     *
+     * @param segment the number of the segment
+     * @return the path of the segment
+     */
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segment,
+                SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Returns the path a compacted segment is written to before it replaces the segments.
+     *
+     * @param segment the number the compacted segment will get
+     * @return the path of the compacted segment
+     */
+    private Path compactedPath(long segment) {
+        return segmentPath(segment).resolveSibling(
+                segmentPath(segment).getFileName() + COMPACTED_SUFFIX);
+    }
+
+    /**
+     * Parses the number of a segment from its file name.
+     *
+     * @param name the file name of the segment
+     * @return the number of the segment
+     */
+    private static long segmentNumber(String name) {
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Encodes a note as a record.
+     *
+     * @param entry the note
+     * @return the record, ready to be written
+     * @throws IOException if the note can't be encoded
+     */
+    private static ByteBuffer encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(PUT);
+        body.writeLong(entry.id());
+        writeString(body, entry.title());
+        writeString(body, entry.content());
+        body.writeBoolean(entry.collectionId() != null);
+        body.writeLong(entry.collectionId() == null ? 0 : entry.collectionId());
+        body.writeInt(entry.tags().size());
+        for (String tag : entry.tags()) {
+            writeString(body, tag);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    /**
+     * Encodes the tombstone of a note as a record.
+     *
+     * @param id the id of the deleted note
+     * @return the record, ready to be written
+     */
+    private static ByteBuffer encodeDelete(long id) {
+        return frame(ByteBuffer.allocate(Byte.BYTES + Long.BYTES).put(DELETE).putLong(id)
+                .array());
+    }
+
+    /**
+     * Prefixes the body of a record with its length and checksum.
+     *
+     * @param body the body of the record
+     * @return the record
+     */
+    private static ByteBuffer frame(byte[] body) {
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+        return ByteBuffer.allocate(HEADER_BYTES + body.length)
+                .putInt(body.length)
+                .putInt((int) checksum.getValue())
+                .put(body)
+                .flip();
+    }
+
+    /**
+     * Checks whether the body of a record matches the checksum in its header.
+     *
+     * @param record the record, positioned at its start
+     * @return true if the record is intact
+     */
+    private static boolean checksumMatches(ByteBuffer record) {
+        CRC32 checksum = new CRC32();
+        checksum.update(record.slice(HEADER_BYTES, record.limit() - HEADER_BYTES));
+        return (int) checksum.getValue() == record.getInt(Integer.BYTES);
+    }
+
+    /**
+     * Reads the id of the note a record belongs to.
+     *
+     * @param record the record, positioned at its start
+     * @return the id of the note
+     */
+    private static long decodeId(ByteBuffer record) {
+        return record.getLong(HEADER_BYTES + Byte.BYTES);
+    }
+
+    /**
+     * Decodes a note from a record.
+     *
+     * @param record the record, positioned at its start
+     * @return the note
+     */
+    private static Entry decode(ByteBuffer record) {
+        record.position(HEADER_BYTES + Byte.BYTES);
+        long id = record.getLong();
+        String title = readString(record);
+        String content = readString(record);
+        boolean hasCollection = record.get() != 0;
+        long collectionId = record.getLong();
+        int tagCount = record.getInt();
+        Set<String> tags = new HashSet<>(tagCount * 2);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readString(record));
+        }
+        return new Entry(id, title, content, hasCollection ? collectionId : null, tags);
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes, with a length of -1
+     * for null.
+     *
+     * @param output the output to write to
+     * @param string the string, may be null
+     * @throws IOException if the string can't be written
+     */
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the string, or null
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String string = new String(buffer.array(), buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
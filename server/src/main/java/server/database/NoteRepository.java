@@ -15,8 +15,138 @@
  */
 package server.database;
 
+import commons.Collection;
 import commons.Note;
+import commons.NoteSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface NoteRepository extends JpaRepository<Note, Long> {
-}
\ No newline at end of file
+    // the number of rows the JDBC driver fetches at a time while streaming notes
+    String STREAM_FETCH_SIZE = "256";
+
+    // the filters of findSummaries, shared by its query and count query
+    String SUMMARY_FILTER = " where (:collectionId is null or c.id = :collectionId)"
+            + " and (:tagCount = 0 or n.id in (select m.id from Note m join m.tags t"
+            + " where t in :tags group by m.id having count(t) = :tagCount))"
+            + " and (:pattern is null or lower(n.title) like :pattern escape '\\'"
+            + " or lower(n.content) like :pattern escape '\\')";
+
+    /**
+     * Checks whether another note in a collection has a title, using the unique index
+     * on collection and title.
+     *
+     * @param collection the collection
+     * @param title      the title
+     * @param id         the id of the note itself, which is not counted
+     * @return true if another note in the collection has the title
+     */
+    boolean existsByCollectionAndTitleAndIdNot(Collection collection, String title, long id);
+
+    /**
+     * Finds the notes that have a tag, using the index on the tag column of the note_tags
+     * table.
+     *
+     * @param tag the tag
+     * @return the notes with the tag
+     */
+    @Query("select n from Note n join n.tags t where t = :tag")
+    List<Note> findByTag(@Param("tag") String tag);
+
+    /**
+     * Finds the notes that have all of the given tags. The matching is done by the database,
+     * by counting the matching rows of the note_tags table per note.
+     *
+     * @param tags  the tags
+     * @param count the number of tags
+     * @return the notes with all tags
+     */
+    @Query("select n from Note n where n.id in (select m.id from Note m join m.tags t"
+            + " where t in :tags group by m.id having count(t) = :count)")
+    List<Note> findByAllTags(@Param("tags") Set<String> tags, @Param("count") long count);
+
+    /**
+     * Finds the notes that have all of the given tags.
+     *
+     * @param tags the tags, which should not be empty
+     * @return the notes with all tags
+     */
+    default List<Note> findByAllTags(Set<String> tags) {
+        return findByAllTags(tags, tags.size());
+    }
+
+    /**
+     * Finds the summaries of the notes matching all given filters, ordered by title. The
+     * collection filter uses the index on (collection_id, title), and the tag filter the
+     * index on the tags of the note_tags table.
+     *
+     * @param collectionId the id of the collection, or null for all collections
+     * @param tags         the tags a note needs to have all of, never empty
+     * @param tagCount     the number of tags, or 0 to ignore the tags
+     * @param pattern      a lower case LIKE pattern for the title or content,
+     *                     or null to match all notes
+     * @param pageable     the page to return
+     * @return the page of summaries
+     */
+    @Query(value = "select new commons.NoteSummary(n.id, n.title, c.id)"
+            + " from Note n left join n.collection c" + SUMMARY_FILTER,
+            countQuery = "select count(n) from Note n left join n.collection c" + SUMMARY_FILTER)
+    Page<NoteSummary> findSummaries(@Param("collectionId") Long collectionId,
+                                    @Param("tags") Set<String> tags,
+                                    @Param("tagCount") long tagCount,
+                                    @Param("pattern") String pattern,
+                                    Pageable pageable);
+
+    /**
+     * Streams all notes ordered by id, fetching {@link #STREAM_FETCH_SIZE} rows at a time
+     * instead of loading the whole result. The stream has to be read within a transaction
+     * and closed afterwards.
+     *
+     * @return the stream of all notes
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select n from Note n order by n.id")
+    Stream<Note> streamAll();
+
+    /**
+     * Streams the notes of a collection ordered by id, like {@link #streamAll()}, using the
+     * index on (collection_id, title).
+     *
+     * @param collectionId the id of the collection
+     * @return the stream of the notes of the collection
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select n from Note n where n.collection.id = :collectionId order by n.id")
+    Stream<Note> streamByCollection(@Param("collectionId") long collectionId);
+
+    /**
+     * Streams the notes without tags whose content contains a '#', so might have tags, like
+     * {@link #streamAll()}. These are the notes whose tags haven't been parsed into the
+     * note_tags table, among notes that have no tags indeed.
+     *
+     * @return the stream of the notes
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select n from Note n where n.tags is empty and n.content like '%#%' order by n.id")
+    Stream<Note> streamUntagged();
+
+    /**
+     * Finds the tags of a note without loading the note, using the primary key of the
+     * note_tags table.
+     *
+     * @param id the id of the note
+     * @return the tags of the note, empty if it doesn't exist
+     */
+    @Query("select t from Note n join n.tags t where n.id = :id")
+    Set<String> findTags(@Param("id") long id);
+}
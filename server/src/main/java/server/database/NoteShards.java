@@ -0,0 +1,977 @@
+package server.database;
+
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Notes kept in several H2 databases, the shards, each holding the notes of some of the
+ * collections.
+ * <p>
+ * A shard map in the first shard records the shard of every collection. A collection gets
+ * shard {@code id mod count} when its first note is stored and keeps it, so more shards can
+ * be added later without moving any notes; notes without a collection are kept in the first
+ * shard. Note ids come from a sequence in the first shard, so they are unique across all
+ * shards. The shard of every note is kept in memory, read from the shards when they are
+ * opened, so a note is looked up by id in its shard alone.
+ * </p>
+ * <p>
+ * A note moving to a collection of another shard is written to the new shard before it is
+ * deleted from the old one, with the move recorded in the first shard until it is done. A
+ * move that was interrupted is finished when the shards are opened again, so every note is
+ * in one shard. The writes of a note take turns, so concurrent writes can't leave it in two
+ * shards either.
+ * </p>
+ * <p>
+ * The notes of one collection are listed from their shard alone. Listing the notes of all
+ * collections, or streaming all notes, reads every shard in parallel and merges the results.
+ * Every shard is a database file of its own, so a large collection only slows down its own
+ * shard, and one shard can be compacted while the others keep serving requests.
+ * </p>
+ */
+public class NoteShards implements Closeable {
+    private static final String SHARD_PREFIX = "shard-";
+    private static final String USER = "sa";
+    // the number of rows read at a time while streaming notes
+    private static final int FETCH_SIZE = 256;
+    // the number of locks the writes of notes are spread over, a power of two
+    private static final int LOCK_STRIPES = 64;
+
+    private static final String[] SCHEMA = {
+        "create table if not exists note (id bigint primary key, collection_id bigint,"
+            + " title varchar not null, content varchar not null)",
+        "create unique index if not exists uk_note_collection_title"
+            + " on note (collection_id, title)",
+        "create table if not exists note_tags (note_id bigint not null"
+            + " references note (id) on delete cascade, tag varchar not null,"
+            + " primary key (note_id, tag))",
+        "create index if not exists idx_note_tags_tag on note_tags (tag, note_id)"
+    };
+    private static final String[] MAP_SCHEMA = {
+        "create table if not exists shard_map (collection_id bigint primary key,"
+            + " shard int not null)",
+        "create sequence if not exists note_ids",
+        "create table if not exists note_moves (note_id bigint primary key,"
+            + " from_shard int not null, to_shard int not null)"
+    };
+    private static final String SELECT_ENTRY = "select n.id, n.title, n.content,"
+            + " n.collection_id, (select array_agg(t.tag) from note_tags t"
+            + " where t.note_id = n.id) from note n";
+
+    private static final Comparator<NoteSummary> BY_TITLE = Comparator
+            .comparing(NoteSummary::title).thenComparingLong(NoteSummary::id);
+
+    private final Shard[] shards;
+    private final Map<Long, Integer> shardMap = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> noteIndex = new ConcurrentHashMap<>();
+    // a note is written and deleted holding the lock of its id, so two writes of a note can't
+    // both find it in its old shard and leave it in two shards
+    private final Lock[] noteLocks = new Lock[LOCK_STRIPES];
+    private final ExecutorService executor;
+
+    /**
+     * A database holding some of the notes.
+     */
+    private static final class Shard {
+        private final String url;
+        // held to read or write, and exclusively to compact
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private JdbcConnectionPool pool;
+
+        /**
+         * Constructs a shard, opening a pool of connections to its database.
+         *
+         * @param url the JDBC URL of the database
+         */
+        Shard(String url) {
+            this.url = url;
+            this.pool = JdbcConnectionPool.create(url, USER, "");
+        }
+    }
+
+    /**
+     * The size of a shard.
+     *
+     * @param shard       the number of the shard
+     * @param collections the number of collections assigned to the shard
+     * @param notes       the number of notes in the shard
+     */
+    public record Stats(int shard, int collections, long notes) {
+    }
+
+    /**
+     * Code using a connection to a shard.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface ShardAction<T> {
+        /**
+         * Runs the code.
+         *
+         * @param connection the connection to the shard
+         * @return the result
+         * @throws SQLException if the database can't be accessed
+         */
+        T apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * The filters of a listing of note summaries, in the order their parameters are bound.
+     *
+     * @param collectionId the id of the collection, or null for all collections
+     * @param tags         the tags a note needs to have all of, may be empty
+     * @param pattern      a lower case LIKE pattern for the title or content, or null to
+     *                     match all notes
+     */
+    private record Filter(Long collectionId, Set<String> tags, String pattern) {
+        /**
+         * Creates the where clause of the filters.
+         *
+         * @return the where clause, with a parameter for every value of a filter
+         */
+        String where() {
+            StringBuilder where = new StringBuilder(" where true");
+            if (collectionId != null) {
+                where.append(" and collection_id = ?");
+            }
+            if (!tags.isEmpty()) {
+                where.append(" and id in (select note_id from note_tags where tag = any(?)"
+                        + " group by note_id having count(*) = ?)");
+            }
+            if (pattern != null) {
+                where.append(" and (lower(title) like ? escape '\\'"
+                        + " or lower(content) like ? escape '\\')");
+            }
+            return where.toString();
+        }
+
+        /**
+         * Binds the values of the filters to the parameters of the where clause.
+         *
+         * @param statement the statement starting with the where clause
+         * @return the index of the next parameter
+         * @throws SQLException if a value can't be bound
+         */
+        int bind(PreparedStatement statement) throws SQLException {
+            int index = 1;
+            if (collectionId != null) {
+                statement.setLong(index++, collectionId);
+            }
+            if (!tags.isEmpty()) {
+                statement.setArray(index++, statement.getConnection()
+                        .createArrayOf("VARCHAR", tags.toArray()));
+                statement.setInt(index++, tags.size());
+            }
+            if (pattern != null) {
+                statement.setString(index++, pattern);
+                statement.setString(index++, pattern);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A row of the note_tags table.
+     *
+     * @param tag    the tag
+     * @param noteId the id of a note with the tag
+     */
+    private record TaggedNote(String tag, long noteId) {
+    }
+
+    /**
+     * The notes of a shard read in id order, one at a time.
+     */
+    private static final class Cursor {
+        private final ResultSet results;
+        private NoteLog.Entry entry;
+
+        /**
+         * Constructs a cursor over the results of a query selecting notes.
+         *
+         * @param results the results
+         */
+        Cursor(ResultSet results) {
+            this.results = results;
+        }
+
+        /**
+         * Reads the next note.
+         *
+         * @return true if there was a next note, false if all notes were read
+         * @throws SQLException if the note can't be read
+         */
+        boolean advance() throws SQLException {
+            entry = results.next() ? readEntry(results) : null;
+            return entry != null;
+        }
+    }
+
+    /**
+     * Opens the shards in a directory, creating the databases that don't exist yet.
+     *
+     * @param directory the directory holding the database files of the shards
+     * @param count     the number of shards, at least 1
+     * @throws SQLException if a database can't be opened
+     */
+    public NoteShards(Path directory, int count) throws SQLException {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            noteLocks[stripe] = new ReentrantLock();
+        }
+        shards = new Shard[count];
+        for (int shard = 0; shard < count; shard++) {
+            shards[shard] = new Shard("jdbc:h2:file:"
+                    + directory.resolve(SHARD_PREFIX + shard).toAbsolutePath());
+            inShard(shard, connection -> execute(connection, SCHEMA));
+        }
+        inShard(0, connection -> {
+            execute(connection, MAP_SCHEMA);
+            try (Statement statement = connection.createStatement();
+                 ResultSet results = statement.executeQuery("select * from shard_map")) {
+                while (results.next()) {
+                    shardMap.put(results.getLong(1), results.getInt(2));
+                }
+            }
+            return null;
+        });
+        int highest = shardMap.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        if (highest >= count) {
+            close();
+            throw new IllegalStateException("The shard map needs " + (highest + 1) + " shards");
+        }
+        indexNotes();
+        executor = Executors.newFixedThreadPool(count,
+                Thread.ofPlatform().name("note-shard-", 0).daemon().factory());
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int count() {
+        return shards.length;
+    }
+
+    /**
+     * Creates a new note id, unique across all shards.
+     *
+     * @return the id
+     * @throws SQLException if the sequence can't be read
+     */
+    public long nextId() throws SQLException {
+        return inShard(0, connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet results = statement.executeQuery(
+                         "select next value for note_ids")) {
+                results.next();
+                return results.getLong(1);
+            }
+        });
+    }
+
+    /**
+     * Gets a note.
+     *
+     * @param id the id of the note
+     * @return the note, or null if no shard has it
+     * @throws SQLException if a shard can't be read
+     */
+    public NoteLog.Entry get(long id) throws SQLException {
+        Integer shard = noteIndex.get(id);
+        while (shard != null) {
+            NoteLog.Entry entry = inShard(shard, connection -> {
+                try (PreparedStatement statement =
+                             connection.prepareStatement(SELECT_ENTRY + " where n.id = ?")) {
+                    statement.setLong(1, id);
+                    try (ResultSet results = statement.executeQuery()) {
+                        return results.next() ? readEntry(results) : null;
+                    }
+                }
+            });
+            Integer current = noteIndex.get(id);
+            if (entry != null || Objects.equals(shard, current)) {
+                return entry;
+            }
+            // the note moved to another shard meanwhile
+            shard = current;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a note exists.
+     *
+     * @param id the id of the note
+     * @return true if a shard has the note
+     */
+    public boolean contains(long id) {
+        return noteIndex.containsKey(id);
+    }
+
+    /**
+     * Stores a note in the shard of its collection, replacing the earlier version with the
+     * same id, which is removed from its shard if the note moved to a collection of another
+     * shard.
+     *
+     * @param entry the note to store
+     * @return true if the note was stored, false if its collection has another note with
+     *         the same title
+     * @throws SQLException if the note can't be written
+     */
+    public boolean put(NoteLog.Entry entry) throws SQLException {
+        Lock lock = lockOf(entry.id());
+        lock.lock();
+        try {
+            Integer previous = noteIndex.get(entry.id());
+            int shard = assignShard(entry.collectionId());
+            if (previous != null && previous != shard) {
+                return move(entry, previous, shard);
+            }
+            if (!inShard(shard, connection -> write(connection, entry))) {
+                return false;
+            }
+            noteIndex.put(entry.id(), shard);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes a note.
+     *
+     * @param id the id of the note
+     * @return true if a shard had the note
+     * @throws SQLException if the note can't be deleted
+     */
+    public boolean delete(long id) throws SQLException {
+        Lock lock = lockOf(id);
+        lock.lock();
+        try {
+            Integer shard = noteIndex.remove(id);
+            return shard != null && inShard(shard, connection -> deleteNote(connection, id));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the lock the writes of a note hold, shared with the notes of the same stripe.
+     *
+     * @param id the id of the note
+     * @return the lock
+     */
+    private Lock lockOf(long id) {
+        return noteLocks[Long.hashCode(id) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Finds the summaries of the notes matching all given filters, ordered by title. The notes
+     * of a collection are read from its shard. The notes of all collections are read from all
+     * shards in parallel, each returning its notes up to the end of the page, which are merged.
+     *
+     * @param collectionId the id of the collection, or null for all collections
+     * @param tags         the tags a note needs to have all of, may be empty
+     * @param pattern      a lower case LIKE pattern for the title or content,
+     *                     or null to match all notes
+     * @param page         the number of the page, starting at 0
+     * @param size         the maximum number of summaries per page
+     * @return the page of summaries
+     * @throws SQLException if a shard can't be read
+     */
+    public NoteSummaryPage findSummaries(Long collectionId, Set<String> tags, String pattern,
+                                         int page, int size) throws SQLException {
+        Filter filter = new Filter(collectionId, tags, pattern);
+        long offset = (long) page * size;
+        if (collectionId != null) {
+            Integer shard = shardMap.get(collectionId);
+            if (shard == null) {
+                return new NoteSummaryPage(List.of(), page, size, 0);
+            }
+            List<NoteSummary> summaries = inShard(shard,
+                    connection -> findSummaries(connection, filter, offset, size));
+            return new NoteSummaryPage(summaries, page, size,
+                    inShard(shard, connection -> countNotes(connection, filter)));
+        }
+        List<List<NoteSummary>> perShard = inAllShards(
+                connection -> findSummaries(connection, filter, 0, offset + size));
+        long total = inAllShards(connection -> countNotes(connection, filter)).stream()
+                .mapToLong(Long::longValue).sum();
+        List<NoteSummary> merged = perShard.stream()
+                .flatMap(List::stream)
+                .sorted(BY_TITLE)
+                .skip(offset)
+                .limit(size)
+                .toList();
+        return new NoteSummaryPage(merged, page, size, total);
+    }
+
+    /**
+     * Finds the notes that have one of the given tags, using the index on (tag, note_id) of
+     * the note_tags table of every shard, read in parallel.
+     *
+     * @param tags the tags
+     * @return the ids of the notes with each tag, without the tags no note has
+     * @throws SQLException if a shard can't be read
+     */
+    public Map<String, Set<Long>> findNoteIDsByTag(Set<String> tags) throws SQLException {
+        Map<String, Set<Long>> noteIDs = new HashMap<>();
+        if (tags.isEmpty()) {
+            return noteIDs;
+        }
+        List<List<TaggedNote>> perShard = inAllShards(connection -> {
+            List<TaggedNote> tagged = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "select tag, note_id from note_tags where tag = any(?)")) {
+                statement.setArray(1, connection.createArrayOf("VARCHAR", tags.toArray()));
+                try (ResultSet results = statement.executeQuery()) {
+                    while (results.next()) {
+                        tagged.add(new TaggedNote(results.getString(1), results.getLong(2)));
+                    }
+                }
+            }
+            return tagged;
+        });
+        // a note being moved is in two shards for a moment, which the sets leave out
+        for (List<TaggedNote> tagged : perShard) {
+            for (TaggedNote note : tagged) {
+                noteIDs.computeIfAbsent(note.tag(), _ -> new HashSet<>()).add(note.noteId());
+            }
+        }
+        return noteIDs;
+    }
+
+    /**
+     * Passes all notes to an action one at a time, ordered by id. Every shard is read
+     * {@link #FETCH_SIZE} notes at a time, and the notes read are merged by id, so only a
+     * few notes of every shard are held in memory. No shard is compacted meanwhile.
+     *
+     * @param action the action to perform on every note
+     * @throws SQLException if a shard can't be read
+     */
+    public void forEach(Consumer<NoteLog.Entry> action) throws SQLException {
+        List<AutoCloseable> resources = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+        }
+        try {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+                    Comparator.comparingLong(cursor -> cursor.entry.id()));
+            for (Shard shard : shards) {
+                Connection connection = shard.pool.getConnection();
+                resources.add(connection);
+                Statement statement = connection.createStatement();
+                resources.add(statement);
+                statement.setFetchSize(FETCH_SIZE);
+                Cursor cursor = new Cursor(statement.executeQuery(SELECT_ENTRY + " order by n.id"));
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                action.accept(cursor.entry);
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        } finally {
+            closeAll(resources);
+            for (Shard shard : shards) {
+                shard.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Passes the notes of a collection to an action one at a time, ordered by id. Only the
+     * shard of the collection is read, {@link #FETCH_SIZE} notes at a time.
+     *
+     * @param collectionId the id of the collection
+     * @param action       the action to perform on every note of the collection
+     * @throws SQLException if the shard can't be read
+     */
+    public void forEachInCollection(long collectionId, Consumer<NoteLog.Entry> action)
+            throws SQLException {
+        Integer shard = shardMap.get(collectionId);
+        if (shard == null) {
+            return;
+        }
+        inShard(shard, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    SELECT_ENTRY + " where n.collection_id = ? order by n.id")) {
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setLong(1, collectionId);
+                try (ResultSet results = statement.executeQuery()) {
+                    while (results.next()) {
+                        action.accept(readEntry(results));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Gets the number of collections and notes of every shard, counted in parallel.
+     *
+     * @return the sizes, ordered by shard
+     * @throws SQLException if a shard can't be read
+     */
+    public List<Stats> stats() throws SQLException {
+        Filter all = new Filter(null, Set.of(), null);
+        List<Long> notes = inAllShards(connection -> countNotes(connection, all));
+        List<Stats> stats = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            int number = shard;
+            int collections = (int) shardMap.values().stream()
+                    .filter(assigned -> assigned == number)
+                    .count();
+            stats.add(new Stats(shard, collections, notes.get(shard)));
+        }
+        return stats;
+    }
+
+    /**
+     * Compacts the database file of a shard, which is closed and reopened for that. Requests
+     * for the notes of the shard wait until it is done, the other shards stay available.
+     *
+     * @param shard the number of the shard
+     * @throws SQLException if the shard can't be compacted or reopened
+     */
+    public void compact(int shard) throws SQLException {
+        Shard compacted = shards[shard];
+        compacted.lock.writeLock().lock();
+        try {
+            try (Connection connection = compacted.pool.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("shutdown compact");
+            }
+            compacted.pool.dispose();
+            compacted.pool = JdbcConnectionPool.create(compacted.url, USER, "");
+        } finally {
+            compacted.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the connections to all shards.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            if (shard != null) {
+                shard.pool.dispose();
+            }
+        }
+    }
+
+    /**
+     * Moves a note to another shard: records the move, writes the note to the new shard,
+     * deletes it from the old one and forgets the move. If this is interrupted, the recorded
+     * move is finished when the shards are opened again.
+     *
+     * @param entry the note
+     * @param from  the shard the note is in
+     * @param to    the shard of its new collection
+     * @return true if the note was moved, false if its new collection has another note with
+     *         the same title
+     * @throws SQLException if the note can't be moved
+     */
+    private boolean move(NoteLog.Entry entry, int from, int to) throws SQLException {
+        inShard(0, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "merge into note_moves key (note_id) values (?, ?, ?)")) {
+                statement.setLong(1, entry.id());
+                statement.setInt(2, from);
+                statement.setInt(3, to);
+                return statement.executeUpdate();
+            }
+        });
+        boolean written = inShard(to, connection -> write(connection, entry));
+        if (written) {
+            noteIndex.put(entry.id(), to);
+            inShard(from, connection -> deleteNote(connection, entry.id()));
+        }
+        inShard(0, connection -> {
+            try (PreparedStatement statement =
+                         connection.prepareStatement("delete from note_moves where note_id = ?")) {
+                statement.setLong(1, entry.id());
+                return statement.executeUpdate();
+            }
+        });
+        return written;
+    }
+
+    /**
+     * Reads the shard of every note into the note index. A note found in more than one
+     * shard, after an interrupted move, is kept in the shard it was moving to if the move
+     * is recorded, and in the first of its shards otherwise, and deleted from the others.
+     *
+     * @throws SQLException if a shard can't be read or written
+     */
+    private void indexNotes() throws SQLException {
+        Map<Long, List<Integer>> duplicates = new HashMap<>();
+        for (int shard = 0; shard < shards.length; shard++) {
+            int number = shard;
+            inShard(shard, connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.setFetchSize(FETCH_SIZE);
+                    try (ResultSet results = statement.executeQuery("select id from note")) {
+                        while (results.next()) {
+                            index(results.getLong(1), number, duplicates);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        Map<Long, Integer> moves = inShard(0, connection -> {
+            Map<Long, Integer> targets = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet results = statement.executeQuery(
+                         "select note_id, to_shard from note_moves")) {
+                while (results.next()) {
+                    targets.put(results.getLong(1), results.getInt(2));
+                }
+            }
+            return targets;
+        });
+        for (Map.Entry<Long, List<Integer>> duplicate : duplicates.entrySet()) {
+            long id = duplicate.getKey();
+            List<Integer> found = duplicate.getValue();
+            Integer target = moves.get(id);
+            int kept = target != null && found.contains(target) ? target : found.getFirst();
+            for (int shard : found) {
+                if (shard != kept) {
+                    inShard(shard, connection -> deleteNote(connection, id));
+                }
+            }
+            noteIndex.put(id, kept);
+        }
+        inShard(0, connection -> execute(connection, "delete from note_moves"));
+    }
+
+    /**
+     * Records the shard of a note while the shards are read, collecting the shards of the
+     * notes found more than once.
+     *
+     * @param id         the id of the note
+     * @param shard      the shard the note was found in
+     * @param duplicates the shards of every note found more than once, ordered by shard
+     */
+    private void index(long id, int shard, Map<Long, List<Integer>> duplicates) {
+        Integer other = noteIndex.putIfAbsent(id, shard);
+        if (other != null) {
+            duplicates.computeIfAbsent(id, _ -> new ArrayList<>(List.of(other))).add(shard);
+        }
+    }
+
+    /**
+     * Gets the shard of a collection, assigning one and recording it in the shard map if the
+     * collection doesn't have one yet.
+     *
+     * @param collectionId the id of the collection, or null for notes without a collection
+     * @return the number of the shard
+     * @throws SQLException if the shard map can't be written
+     */
+    private int assignShard(Long collectionId) throws SQLException {
+        if (collectionId == null) {
+            return 0;
+        }
+        Integer shard = shardMap.get(collectionId);
+        if (shard != null) {
+            return shard;
+        }
+        synchronized (shardMap) {
+            shard = shardMap.get(collectionId);
+            if (shard == null) {
+                shard = (int) Math.floorMod(collectionId, (long) shards.length);
+                int assigned = shard;
+                inShard(0, connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "merge into shard_map key (collection_id) values (?, ?)")) {
+                        statement.setLong(1, collectionId);
+                        statement.setInt(2, assigned);
+                        return statement.executeUpdate();
+                    }
+                });
+                shardMap.put(collectionId, shard);
+            }
+            return shard;
+        }
+    }
+
+    /**
+     * Runs code with a connection to a shard, which isn't compacted meanwhile.
+     *
+     * @param shard  the number of the shard
+     * @param action the code
+     * @param <T>    the type of the result
+     * @return the result of the code
+     * @throws SQLException if the database can't be accessed
+     */
+    private <T> T inShard(int shard, ShardAction<T> action) throws SQLException {
+        Shard target = shards[shard];
+        target.lock.readLock().lock();
+        try (Connection connection = target.pool.getConnection()) {
+            return action.apply(connection);
+        } finally {
+            target.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs code with a connection to every shard, for all shards in parallel.
+     *
+     * @param action the code
+     * @param <T>    the type of the result
+     * @return the results of the code, ordered by shard
+     * @throws SQLException if a database can't be accessed
+     */
+    private <T> List<T> inAllShards(ShardAction<T> action) throws SQLException {
+        if (shards.length == 1) {
+            List<T> results = new ArrayList<>(1);
+            results.add(inShard(0, action));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            int number = shard;
+            futures.add(executor.submit(() -> inShard(number, action)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the result of code run for a shard.
+     *
+     * @param future the running code
+     * @param <T>    the type of the result
+     * @return the result
+     * @throws SQLException if the code failed to access the database or was interrupted
+     */
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while accessing a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Executes statements without parameters.
+     *
+     * @param connection the connection to the database
+     * @param statements the SQL of the statements
+     * @return null
+     * @throws SQLException if a statement fails
+     */
+    private static Void execute(Connection connection, String... statements)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a note and its tags to a shard in one transaction.
+     *
+     * @param connection the connection to the shard
+     * @param entry      the note
+     * @return true if the note was written, false if its collection has another note with
+     *         the same title
+     * @throws SQLException if the note can't be written
+     */
+    private static boolean write(Connection connection, NoteLog.Entry entry)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement note = connection.prepareStatement(
+                     "merge into note key (id) values (?, ?, ?, ?)");
+             PreparedStatement oldTags = connection.prepareStatement(
+                     "delete from note_tags where note_id = ?");
+             PreparedStatement newTag = connection.prepareStatement(
+                     "insert into note_tags values (?, ?)")) {
+            note.setLong(1, entry.id());
+            note.setObject(2, entry.collectionId());
+            note.setString(3, entry.title());
+            note.setString(4, entry.content());
+            note.executeUpdate();
+            oldTags.setLong(1, entry.id());
+            oldTags.executeUpdate();
+            for (String tag : entry.tags()) {
+                newTag.setLong(1, entry.id());
+                newTag.setString(2, tag);
+                newTag.addBatch();
+            }
+            newTag.executeBatch();
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            connection.rollback();
+            if (e instanceof SQLIntegrityConstraintViolationException) {
+                return false;
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Deletes a note from a shard, with its tags.
+     *
+     * @param connection the connection to the shard
+     * @param id         the id of the note
+     * @return true if the shard had the note
+     * @throws SQLException if the note can't be deleted
+     */
+    private static boolean deleteNote(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement =
+                     connection.prepareStatement("delete from note where id = ?")) {
+            statement.setLong(1, id);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Finds a range of the summaries of the notes of a shard matching filters, ordered by
+     * title.
+     *
+     * @param connection the connection to the shard
+     * @param filter     the filters
+     * @param offset     the number of summaries to skip
+     * @param limit      the maximum number of summaries
+     * @return the summaries
+     * @throws SQLException if the shard can't be read
+     */
+    private static List<NoteSummary> findSummaries(Connection connection, Filter filter,
+                                                   long offset, long limit)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select id, title, collection_id from note" + filter.where()
+                        + " order by title, id limit ? offset ?")) {
+            int index = filter.bind(statement);
+            statement.setLong(index++, limit);
+            statement.setLong(index, offset);
+            List<NoteSummary> summaries = new ArrayList<>();
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    summaries.add(new NoteSummary(results.getLong(1), results.getString(2),
+                            results.getObject(3, Long.class)));
+                }
+            }
+            return summaries;
+        }
+    }
+
+    /**
+     * Counts the notes of a shard matching filters.
+     *
+     * @param connection the connection to the shard
+     * @param filter     the filters
+     * @return the number of notes
+     * @throws SQLException if the shard can't be read
+     */
+    private static long countNotes(Connection connection, Filter filter) throws SQLException {
+        try (PreparedStatement statement =
+                     connection.prepareStatement("select count(*) from note" + filter.where())) {
+            filter.bind(statement);
+            try (ResultSet results = statement.executeQuery()) {
+                results.next();
+                return results.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Reads a note from the current row of a query selecting {@link #SELECT_ENTRY}.
+     *
+     * @param results the results of the query
+     * @return the note
+     * @throws SQLException if the row can't be read
+     */
+    private static NoteLog.Entry readEntry(ResultSet results) throws SQLException {
+        Set<String> tags = new HashSet<>();
+        Array tagArray = results.getArray(5);
+        if (tagArray != null) {
+            for (Object tag : (Object[]) tagArray.getArray()) {
+                tags.add((String) tag);
+            }
+        }
+        return new NoteLog.Entry(results.getLong(1), results.getString(2),
+                results.getString(3), results.getObject(4, Long.class), tags);
+    }
+
+    /**
+     * Closes resources in the reverse order they were opened, even if closing one fails.
+     *
+     * @param resources the resources
+     * @throws SQLException if a resource can't be closed
+     */
+    private static void closeAll(List<AutoCloseable> resources) throws SQLException {
+        SQLException failure = null;
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            try {
+                resources.get(i).close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new SQLException("A shard can't be closed", e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -2,6 +2,29 @@ package server.database;
 
 import commons.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Set;
 
 public interface TagRepository extends JpaRepository<Tag, String> {
-}
\ No newline at end of file
+    /**
+     * Finds which of the given titles are titles of tags.
+     *
+     * @param titles the titles
+     * @return the titles that belong to a tag
+     */
+    @Query("select t.title from Tag t where t.title in :titles")
+    List<String> findTitles(@Param("titles") Set<String> titles);
+
+    /**
+     * Finds the notes that have one of the given tags, from the tags of the notes in the
+     * note_tags table, using its index on (tag, note_id).
+     *
+     * @param titles the titles of the tags, which should not be empty
+     * @return a pair of the title of a tag and the id of a note with the tag, per tag of a note
+     */
+    @Query("select t, n.id from Note n join n.tags t where t in :titles")
+    List<Object[]> findNoteIDs(@Param("titles") Set<String> titles);
+}
@@ -0,0 +1,35 @@
+package server.services;
+
+import commons.Collection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface ArchiveService {
+    /**
+     * Writes a collection to a ZIP archive: a manifest describing the collection, the images
+     * its notes refer to, and a Markdown file per note, named after the title of the note.
+     * The notes are read and written one at a time, so the memory used doesn't grow with the
+     * number of notes.
+     *
+     * @param collection the collection
+     * @param output     the stream to write the archive to, which is finished but not closed
+     * @throws IOException if the archive can't be written
+     */
+    void exportCollection(Collection collection, OutputStream output) throws IOException;
+
+    /**
+     * Creates a collection from a ZIP archive written by
+     * {@link #exportCollection(Collection, OutputStream)}. The archive is read one entry at a
+     * time and the notes are saved in batches, so the memory used doesn't grow with the
+     * number of notes. Images are only added if no image has their name yet. If the import
+     * fails, the collection, its notes and the images added are removed again.
+     *
+     * @param input the stream to read the archive from
+     * @param title the title of the new collection, or null for the title in the archive
+     * @return the new collection, or null if another collection has its title
+     * @throws IOException if the archive can't be read or isn't a collection archive
+     */
+    Collection importCollection(InputStream input, String title) throws IOException;
+}
@@ -0,0 +1,374 @@
+package server.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.Collection;
+import commons.Files;
+import commons.Note;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import server.MetricsConfig;
+import server.database.ImageRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports collections to ZIP archives and imports them again.
+ * <p>
+ * An archive starts with {@value #MANIFEST}, holding the title and server URL of the
+ * collection and the name and type of every image, followed by the images in
+ * {@value #IMAGES} and a Markdown file per note in {@value #NOTES}. The file names are the
+ * names of the images and the titles of the notes, with the characters that aren't allowed
+ * in file names on some systems escaped as {@code %} and two hexadecimal digits.
+ * </p>
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ArchiveServiceImpl implements ArchiveService {
+    static final String MANIFEST = "manifest.json";
+    static final String IMAGES = "images/";
+    static final String NOTES = "notes/";
+    static final String MARKDOWN = ".md";
+
+    private static final int FORMAT = 1;
+    private static final int BATCH_SIZE = 500;
+    // the largest image the database holds, which bounds every entry read from an archive
+    private static final int MAX_ENTRY_BYTES = 50_000_000;
+    // a Markdown image, which the client looks up by its URL or else by its alt text
+    private static final Pattern IMAGE_PATTERN = Pattern.compile("!\\[(.*?)]\\((.*?)\\)");
+    // not allowed in file names on some systems, and the escape character itself
+    private static final String RESERVED = "%/\\:*?\"<>|";
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+
+    private final NoteService noteService;
+    private final CollectionService collectionService;
+    private final ImageRepository imageRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The first entry of an archive.
+     *
+     * @param format    the version of the archive format
+     * @param title     the title of the collection
+     * @param serverUrl the server URL of the collection
+     * @param notes     the number of notes in the archive
+     * @param images    the images in the archive
+     */
+    record Manifest(int format, String title, String serverUrl, long notes,
+                    List<ImageEntry> images) {
+    }
+
+    /**
+     * An image in an archive.
+     *
+     * @param file the name of its entry in the archive
+     * @param name the name of the image
+     * @param type the content type of the image
+     */
+    record ImageEntry(String file, String name, String type) {
+    }
+
+    /**
+     * Constructs a new ArchiveServiceImpl.
+     *
+     * @param noteService       the service the notes are read from and saved with
+     * @param collectionService the service new collections are saved with
+     * @param imageRepository   the repository the images are read from and saved to
+     * @param objectMapper      the object mapper writing and reading the manifest
+     */
+    @Autowired
+    public ArchiveServiceImpl(NoteService noteService, CollectionService collectionService,
+                              ImageRepository imageRepository, ObjectMapper objectMapper) {
+        this.noteService = noteService;
+        this.collectionService = collectionService;
+        this.imageRepository = imageRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void exportCollection(Collection collection, OutputStream output) throws IOException {
+        // a first pass over the notes finds the images for the manifest, which comes first
+        // so an import knows the collection and the images before it reads any note
+        long[] notes = {0};
+        Set<String> references = new HashSet<>();
+        noteService.forEachNoteInCollection(collection.id, note -> {
+            notes[0]++;
+            addImageReferences(note.getContent(), references);
+        });
+        List<ImageRepository.ImageInfo> images = findImages(references);
+        List<ImageEntry> imageEntries = new ArrayList<>(images.size());
+        for (ImageRepository.ImageInfo image : images) {
+            imageEntries.add(new ImageEntry(IMAGES + encodeName(image.getName()),
+                    image.getName(), image.getType()));
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(output, StandardCharsets.UTF_8);
+        writeEntry(zip, MANIFEST, objectMapper.writeValueAsBytes(new Manifest(FORMAT,
+                collection.title, collection.serverUrl, notes[0], imageEntries)));
+        for (int i = 0; i < images.size(); i++) {
+            Files image = imageRepository.findById(images.get(i).getId()).orElse(null);
+            if (image != null) {
+                writeEntry(zip, imageEntries.get(i).file(), image.getImageByte());
+            }
+        }
+        try {
+            noteService.forEachNoteInCollection(collection.id, note -> {
+                try {
+                    writeEntry(zip, NOTES + encodeName(note.title) + MARKDOWN,
+                            Objects.requireNonNullElse(note.getContent(), "")
+                                    .getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        zip.finish();
+    }
+
+    @Override
+    public Collection importCollection(InputStream input, String title) throws IOException {
+        ZipInputStream zip = new ZipInputStream(input, StandardCharsets.UTF_8);
+        Manifest manifest = readManifest(zip);
+        Collection collection = collectionService.saveCollection(new Collection(
+                title == null || title.isBlank() ? manifest.title() : title,
+                manifest.serverUrl()));
+        if (collection == null) {
+            return null;
+        }
+        List<Files> newImages = new ArrayList<>();
+        try {
+            importEntries(zip, manifest, collection, newImages);
+        } catch (IOException | RuntimeException e) {
+            removeImport(collection, newImages);
+            throw e;
+        }
+        return collection;
+    }
+
+    /**
+     * Saves the notes and images of an archive after its manifest, the notes a batch at
+     * a time.
+     *
+     * @param zip        the archive, after its manifest
+     * @param manifest   the manifest
+     * @param collection the new collection the notes are saved in
+     * @param newImages  the images saved so far, which the saved images are added to
+     * @throws IOException if the archive can't be read
+     */
+    private void importEntries(ZipInputStream zip, Manifest manifest, Collection collection,
+                               List<Files> newImages) throws IOException {
+        Map<String, ImageEntry> images = new HashMap<>();
+        for (ImageEntry image : manifest.images()) {
+            images.put(image.file(), image);
+        }
+
+        List<Note> batch = new ArrayList<>(BATCH_SIZE);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            String name = entry.getName();
+            if (name.startsWith(NOTES) && name.endsWith(MARKDOWN)) {
+                String noteTitle = decodeName(
+                        name.substring(NOTES.length(), name.length() - MARKDOWN.length()));
+                batch.add(new Note(noteTitle, new String(readEntry(zip), StandardCharsets.UTF_8),
+                        collection));
+                if (batch.size() == BATCH_SIZE) {
+                    noteService.saveNotes(batch);
+                    batch.clear();
+                }
+            } else if (images.containsKey(name)) {
+                Files image = importImage(images.get(name), readEntry(zip));
+                if (image != null) {
+                    newImages.add(image);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            noteService.saveNotes(batch);
+        }
+    }
+
+    /**
+     * Removes what an import that failed saved already: the notes of the new collection,
+     * the collection itself and the images that didn't exist before.
+     *
+     * @param collection the new collection
+     * @param newImages  the images the import saved
+     */
+    private void removeImport(Collection collection, List<Files> newImages) {
+        List<Note> notes = new ArrayList<>();
+        noteService.forEachNoteInCollection(collection.id, notes::add);
+        notes.forEach(noteService::deleteNote);
+        collectionService.deleteCollection(collection);
+        imageRepository.deleteAll(newImages);
+    }
+
+    /**
+     * Reads the manifest, which has to be the first entry of an archive.
+     *
+     * @param zip the archive
+     * @return the manifest
+     * @throws IOException if the archive doesn't start with a valid manifest
+     */
+    private Manifest readManifest(ZipInputStream zip) throws IOException {
+        ZipEntry entry = zip.getNextEntry();
+        if (entry == null || !MANIFEST.equals(entry.getName())) {
+            throw new ZipException("The archive doesn't start with " + MANIFEST);
+        }
+        Manifest manifest = objectMapper.readValue(readEntry(zip), Manifest.class);
+        if (manifest.format() != FORMAT || manifest.title() == null
+                || manifest.serverUrl() == null || manifest.images() == null) {
+            throw new ZipException("The manifest isn't a manifest of format " + FORMAT);
+        }
+        return manifest;
+    }
+
+    /**
+     * Saves an image from an archive, unless an image with the same name exists, which the
+     * notes will show instead.
+     *
+     * @param image the image
+     * @param bytes the bytes of the image
+     * @return the saved image, or null if it wasn't saved
+     */
+    private Files importImage(ImageEntry image, byte[] bytes) {
+        if (image.name() != null && image.type() != null
+                && !imageRepository.existsByName(image.name())) {
+            return imageRepository.save(new Files(image.name(), image.type(), bytes));
+        }
+        return null;
+    }
+
+    /**
+     * Finds the images with the given names, only one for every name.
+     *
+     * @param names the names
+     * @return the images, ordered by name
+     */
+    private List<ImageRepository.ImageInfo> findImages(Set<String> names) {
+        if (names.isEmpty()) {
+            return List.of();
+        }
+        Map<String, ImageRepository.ImageInfo> byName = new LinkedHashMap<>();
+        imageRepository.findByNameIn(names).stream()
+                .sorted(Comparator.comparing(ImageRepository.ImageInfo::getName)
+                        .thenComparing(ImageRepository.ImageInfo::getId))
+                .forEach(image -> byName.putIfAbsent(image.getName(), image));
+        return new ArrayList<>(byName.values());
+    }
+
+    /**
+     * Adds the names a note may refer to an image by: the URLs and alt texts of its
+     * Markdown images.
+     *
+     * @param content    the content of the note
+     * @param references the names found so far
+     */
+    private static void addImageReferences(String content, Set<String> references) {
+        if (content == null || !content.contains("![")) {
+            return;
+        }
+        Matcher matcher = IMAGE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            references.add(matcher.group(1));
+            references.add(matcher.group(2));
+        }
+    }
+
+    /**
+     * Writes an entry to an archive.
+     *
+     * @param zip   the archive
+     * @param name  the name of the entry
+     * @param bytes the content of the entry
+     * @throws IOException if the entry can't be written
+     */
+    private static void writeEntry(ZipOutputStream zip, String name, byte[] bytes)
+            throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(bytes);
+        zip.closeEntry();
+    }
+
+    /**
+     * Reads the current entry of an archive.
+     *
+     * @param zip the archive
+     * @return the content of the entry
+     * @throws IOException if the entry can't be read or is larger than any image can be
+     */
+    private static byte[] readEntry(ZipInputStream zip) throws IOException {
+        byte[] bytes = zip.readNBytes(MAX_ENTRY_BYTES + 1);
+        if (bytes.length > MAX_ENTRY_BYTES) {
+            throw new ZipException("An entry is larger than " + MAX_ENTRY_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * Turns a title or name into a file name, escaping the reserved and control characters.
+     *
+     * @param name the title or name
+     * @return the file name
+     */
+    static String encodeName(String name) {
+        StringBuilder encoded = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < ' ' || RESERVED.indexOf(c) >= 0) {
+                encoded.append('%').append(HEX.toHexDigits((byte) c));
+            } else {
+                encoded.append(c);
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Turns a file name made by {@link #encodeName(String)} back into the title or name.
+     *
+     * @param fileName the file name
+     * @return the title or name
+     * @throws ZipException if an escape sequence isn't valid
+     */
+    static String decodeName(String fileName) throws ZipException {
+        StringBuilder decoded = new StringBuilder(fileName.length());
+        int i = 0;
+        while (i < fileName.length()) {
+            char c = fileName.charAt(i);
+            if (c != '%') {
+                decoded.append(c);
+                i++;
+                continue;
+            }
+            if (i + 3 > fileName.length()
+                    || !HexFormat.isHexDigit(fileName.charAt(i + 1))
+                    || !HexFormat.isHexDigit(fileName.charAt(i + 2))) {
+                throw new ZipException("Invalid escape sequence in " + fileName);
+            }
+            decoded.append((char) HexFormat.fromHexDigits(fileName, i + 1, i + 3));
+            i += 3;
+        }
+        return decoded.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package server.services;
+
+import commons.TextOperation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Merges the concurrent edits of the content of notes, which clients send as operations on
+ * a {@link commons.CollaborativeText}, and saves the merged content.
+ */
+public interface CollaborationService {
+    /**
+     * Gets the operations that build the collaborative text of a note, which a client applies
+     * to an empty text before it makes edits of its own. The text is created from the saved
+     * content of the note if no client edits the note yet.
+     *
+     * @param noteId the ID of the note
+     * @return the operations, or null if the note does not exist
+     */
+    List<TextOperation> getSnapshot(long noteId);
+
+    /**
+     * Applies the operations of a client to the collaborative text of a note.
+     *
+     * @param noteId     the ID of the note
+     * @param operations the operations
+     * @param onMerged   receives the merged content, before the operations of other clients
+     *                   are applied, so edits passed on from it keep the order they were
+     *                   applied in
+     * @return the merged content, or null if the note does not exist or the operations
+     *         refer to characters the text doesn't have, so they were made for an older text
+     */
+    String applyEdit(long noteId, List<TextOperation> operations, Consumer<String> onMerged);
+
+    /**
+     * Applies the operations of an edit merged by another node of the cluster to the
+     * collaborative text of a note, if this node has it. A text the operations can't be
+     * applied to, because it was created from other content, is forgotten, so the clients of
+     * this node load it again.
+     *
+     * @param noteId     the ID of the note
+     * @param operations the operations
+     * @param onApplied  run after the operations are applied, before the operations of other
+     *                   clients are, so edits passed on from it keep the order they were
+     *                   applied in
+     */
+    void applyRelayedEdit(long noteId, List<TextOperation> operations, Runnable onApplied);
+
+    /**
+     * Gets the merged content of a note that clients edit, which may not be saved yet.
+     *
+     * @param noteId the ID of the note
+     * @return the content, or null if no client edits the note
+     */
+    String getText(long noteId);
+
+    /**
+     * Forgets the collaborative text of a note without saving it, after the note is deleted.
+     *
+     * @param noteId the ID of the note
+     */
+    void closeDocument(long noteId);
+
+    /**
+     * Saves the merged content of the notes edited since they were last saved, and forgets
+     * the texts of notes that weren't edited for a while.
+     */
+    void saveDocuments();
+}
@@ -0,0 +1,213 @@
+package server.services;
+
+import commons.CollaborativeText;
+import commons.Note;
+import commons.TextOperation;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import server.MetricsConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the collaborative texts of the notes clients edit in memory, and saves their content
+ * every {@code collaboration.save-interval} milliseconds rather than after every operation.
+ * <p>
+ * A text that wasn't edited for {@code collaboration.idle-timeout} milliseconds is forgotten
+ * and created anew from the saved content the next time. The ids of its characters are
+ * derived from that content, so the nodes of a cluster that create the text from the same
+ * content agree on them, and operations of clients that still hold a text created from other
+ * content are rejected, after which they load the new one.
+ * </p>
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class CollaborationServiceImpl implements CollaborationService {
+    private final NoteService noteService;
+    private final long idleTimeout;
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    /**
+     * The collaborative text of a note, guarded by its own lock.
+     */
+    private static final class Document {
+        private final CollaborativeText text;
+        private boolean dirty;
+        private boolean closed;
+        private long lastEdit = System.currentTimeMillis();
+
+        /**
+         * Constructs a document.
+         *
+         * @param text the text
+         */
+        Document(CollaborativeText text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * Constructs a new CollaborationServiceImpl.
+     *
+     * @param noteService the service the content of the notes is loaded from and saved with
+     * @param idleTimeout the milliseconds after the last edit after which a saved text is
+     *                    forgotten
+     */
+    public CollaborationServiceImpl(NoteService noteService,
+                                    @Value("${collaboration.idle-timeout:600000}")
+                                    long idleTimeout) {
+        this.noteService = noteService;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public List<TextOperation> getSnapshot(long noteId) {
+        Document document = open(noteId);
+        if (document == null) {
+            return null;
+        }
+        synchronized (document) {
+            return document.text.snapshot();
+        }
+    }
+
+    @Override
+    public String applyEdit(long noteId, List<TextOperation> operations,
+                            Consumer<String> onMerged) {
+        while (true) {
+            Document document = open(noteId);
+            if (document == null) {
+                return null;
+            }
+            synchronized (document) {
+                // forgotten since it was looked up, so look up its successor
+                if (document.closed) {
+                    continue;
+                }
+                if (!document.text.applyAll(operations)) {
+                    return null;
+                }
+                document.dirty = true;
+                document.lastEdit = System.currentTimeMillis();
+                String text = document.text.text();
+                onMerged.accept(text);
+                return text;
+            }
+        }
+    }
+
+    @Override
+    public void applyRelayedEdit(long noteId, List<TextOperation> operations,
+                                 Runnable onApplied) {
+        Document document = documents.get(noteId);
+        if (document == null) {
+            onApplied.run();
+            return;
+        }
+        synchronized (document) {
+            // the node that merged the edit saves it, but what this node merged itself and
+            // didn't save yet would be lost with the text
+            if (!document.closed && !document.text.applyAll(operations)) {
+                if (document.dirty) {
+                    save(noteId, document.text.text());
+                }
+                closeDocument(noteId);
+            }
+            document.lastEdit = System.currentTimeMillis();
+            onApplied.run();
+        }
+    }
+
+    @Override
+    public String getText(long noteId) {
+        Document document = documents.get(noteId);
+        if (document == null) {
+            return null;
+        }
+        synchronized (document) {
+            return document.closed ? null : document.text.text();
+        }
+    }
+
+    @Override
+    public void closeDocument(long noteId) {
+        Document document = documents.remove(noteId);
+        if (document != null) {
+            synchronized (document) {
+                document.closed = true;
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${collaboration.save-interval:2000}")
+    public void saveDocuments() {
+        long idleSince = System.currentTimeMillis() - idleTimeout;
+        documents.forEach((noteId, document) -> {
+            String text;
+            synchronized (document) {
+                if (!document.dirty) {
+                    if (document.lastEdit < idleSince) {
+                        document.closed = true;
+                        documents.remove(noteId, document);
+                    }
+                    return;
+                }
+                text = document.text.text();
+                document.dirty = false;
+            }
+            save(noteId, text);
+        });
+    }
+
+    /**
+     * Gets the collaborative text of a note, creating it from the saved content if no client
+     * edits the note yet.
+     *
+     * @param noteId the ID of the note
+     * @return the document, or null if the note does not exist
+     */
+    private Document open(long noteId) {
+        return documents.computeIfAbsent(noteId, _ -> {
+            Note note = noteService.findNote(noteId);
+            if (note == null || note.getContent() == null) {
+                return null;
+            }
+            String site = "saved-" + UUID.nameUUIDFromBytes(
+                    note.getContent().getBytes(StandardCharsets.UTF_8));
+            return new Document(CollaborativeText.of(site, note.getContent()));
+        });
+    }
+
+    /**
+     * Saves the merged content of a note.
+     *
+     * @param noteId the ID of the note
+     * @param text   the merged content
+     */
+    private void save(long noteId, String text) {
+        Note note = noteService.findNote(noteId);
+        if (note == null) {
+            closeDocument(noteId);
+            return;
+        }
+        note.setContent(text);
+        try {
+            if (noteService.saveNote(note) == null) {
+                System.out.println("Failed to save the merged content of note " + noteId);
+            }
+        } catch (RuntimeException e) {
+            // the other notes are still saved, this one again after its next edit
+            System.out.println("Failed to save the merged content of note " + noteId
+                    + ": " + e.getMessage());
+        }
+    }
+}
@@ -19,7 +19,8 @@ public interface CollectionService {
      * Saves a collection to the repository.
      *
      * @param collection the collection to save
-     * @return the saved collection, or null if validation fails
+     * @return the saved collection, or null if validation fails or another collection
+     *         has the same title
      */
     Collection saveCollection(Collection collection);
 
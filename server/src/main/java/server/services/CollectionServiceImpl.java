@@ -1,44 +1,109 @@
 package server.services;
 
 import commons.Collection;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import server.CacheConfig;
+import server.MetricsConfig;
 import server.database.CollectionRepository;
 
 import java.util.List;
 
+/**
+ * The collection service, which reads collections through the collection caches of
+ * {@link CacheConfig}. Like the note cache of {@link NoteServiceImpl}, the caches hold copies
+ * of the collections no caller sees, and every caller gets copies of its own, so a caller
+ * changing a collection it got doesn't change the cached one.
+ */
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class CollectionServiceImpl implements CollectionService {
+    private static final String ALL = "all";
+
     private final CollectionRepository repo;
+    private final Cache collections;
+    private final Cache allCollections;
 
     /**
      * Constructs a new CollectionServiceImpl with the specified repository.
      *
      * @param collectionRepository the repository used for managing collections
+     * @param cacheManager         the cache manager holding the collection caches
      */
     @Autowired
-    public CollectionServiceImpl(CollectionRepository collectionRepository) {
+    public CollectionServiceImpl(CollectionRepository collectionRepository,
+                                 CacheManager cacheManager) {
         this.repo = collectionRepository;
+        this.collections = cacheManager.getCache(CacheConfig.COLLECTIONS);
+        this.allCollections = cacheManager.getCache(CacheConfig.ALL_COLLECTIONS);
     }
 
     @Override
     public Collection findCollection(long id) {
-        if (id < 0 || !repo.existsById(id)) {
+        if (id < 0) {
             return null;
         }
-        return repo.findById(id).orElse(null);
+        Collection cached = collections.get(id, Collection.class);
+        if (cached == null) {
+            Collection collection = repo.findById(id).orElse(null);
+            if (collection == null) {
+                return null;
+            }
+            cached = copyOf(collection);
+            collections.put(id, cached);
+        }
+        return copyOf(cached);
+    }
+
+    /**
+     * Copies a collection, so that changing the copy leaves the collection as it is.
+     *
+     * @param collection the collection to copy
+     * @return the copy
+     */
+    static Collection copyOf(Collection collection) {
+        Collection copy = new Collection(collection.title, collection.serverUrl);
+        copy.id = collection.id;
+        return copy;
     }
 
+    // notes contain their collection, so the cached notes are evicted as well
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.COLLECTIONS, key = "#collection.id",
+                condition = "#collection != null", beforeInvocation = true),
+        @CacheEvict(cacheNames = CacheConfig.COLLECTIONS, key = "#collection.id",
+                condition = "#collection != null"),
+        @CacheEvict(cacheNames = {CacheConfig.ALL_COLLECTIONS, CacheConfig.NOTES},
+            allEntries = true)
+    })
     public Collection saveCollection(Collection collection) {
         if (collection == null || collection.title == null
-                || collection.serverUrl == null) {
+                || collection.serverUrl == null
+                || repo.existsByTitleAndIdNot(collection.title, collection.id)) {
+            return null;
+        }
+        try {
+            return repo.save(collection);
+        } catch (DataIntegrityViolationException e) {
+            // another collection got the title between the check and the save
             return null;
         }
-        return repo.save(collection);
     }
 
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.COLLECTIONS, key = "#collection.id",
+                condition = "#collection != null"),
+        @CacheEvict(cacheNames = {CacheConfig.ALL_COLLECTIONS, CacheConfig.NOTES},
+            allEntries = true)
+    })
     public Collection deleteCollection(Collection collection) {
         if (collection == null || !repo.existsById(collection.id)) {
             return null;
@@ -48,7 +113,13 @@ public class CollectionServiceImpl implements CollectionService {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public List<Collection> findAllCollections() {
-        return repo.findAll();
+        List<Collection> cached = allCollections.get(ALL, List.class);
+        if (cached == null) {
+            cached = repo.findAll().stream().map(CollectionServiceImpl::copyOf).toList();
+            allCollections.put(ALL, cached);
+        }
+        return cached.stream().map(CollectionServiceImpl::copyOf).toList();
     }
 }
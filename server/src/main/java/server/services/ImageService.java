@@ -23,6 +23,16 @@ public interface ImageService {
      */
     public Files getImage(Long id);
 
+    /**
+     * Returns the ETag of the image with the given id: the quoted SHA-256 hash of its bytes.
+     * The hash is computed once per image and kept, so revalidating an image doesn't read
+     * its bytes again.
+     *
+     * @param id the id of the image
+     * @return the ETag, or null if there is no image with the id
+     */
+    String getImageETag(Long id);
+
     /**
      * Returns all the images.
      *
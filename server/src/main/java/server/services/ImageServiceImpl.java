@@ -1,16 +1,25 @@
 package server.services;
 
 import commons.Files;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.multipart.MultipartFile;
+import server.CacheConfig;
+import server.MetricsConfig;
 import server.database.ImageRepository;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class ImageServiceImpl implements ImageService {
     private final ImageRepository imageRepository;
 
@@ -43,12 +52,37 @@ public class ImageServiceImpl implements ImageService {
         return imageRepository.findById(id).orElse(null);
     }
 
+    // the bytes of an image never change, only its name, so the ETag stays valid until the
+    // image is deleted
+    @Override
+    @Cacheable(cacheNames = CacheConfig.IMAGE_ETAGS, key = "#id", unless = "#result == null")
+    public String getImageETag(Long id) {
+        Files files = getImage(id);
+        return files == null ? null : eTagOf(files.getImageByte());
+    }
+
+    /**
+     * Computes the ETag of an image, which is the SHA-256 hash of its bytes.
+     *
+     * @param bytes the bytes of the image
+     * @return the quoted ETag
+     */
+    static String eTagOf(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     @Override
     public List<Files> getAllImages() {
         return imageRepository.findAll();
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.IMAGE_ETAGS, key = "#id")
     public String deleteImage(Long id) {
         if (id < 0 || !imageRepository.existsById(id)) {
             return null;
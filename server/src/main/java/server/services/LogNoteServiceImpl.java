@@ -0,0 +1,400 @@
+package server.services;
+
+import commons.Collection;
+import commons.Note;
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import server.MetricsConfig;
+import server.database.CollectionRepository;
+import server.database.NoteLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * A note service that keeps the notes in a {@link NoteLog} instead of the database, used
+ * when the property {@code notes.storage} is set to {@code log}. Collections and tags are
+ * still kept in the database, but which notes have a tag is known from the notes in the log.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+@ConditionalOnProperty(name = "notes.storage", havingValue = "log")
+public class LogNoteServiceImpl implements NoteService {
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Comparator<NoteSummary> BY_TITLE = Comparator
+            .comparing(NoteSummary::title).thenComparingLong(NoteSummary::id);
+
+    private final NoteLog log;
+    private final CollectionRepository collectionRepository;
+    private final TagService tagService;
+
+    // the titles, collections and tags of all notes, to check and filter them without reading
+    // the log
+    private final Map<Long, NoteSummary> summaries = new HashMap<>();
+    private final Map<Long, Map<String, Long>> titlesByCollection = new HashMap<>();
+    private final Map<Long, Set<String>> tagsByNote = new HashMap<>();
+    private final Map<String, Set<Long>> notesByTag = new HashMap<>();
+    private long lastId;
+
+    /**
+     * Constructs a new LogNoteServiceImpl, opening the log configured by the properties.
+     *
+     * @param directory            the directory of the log
+     * @param segmentSize          the number of bytes after which a segment of the log is sealed
+     * @param fsync                whether every write is forced to the disk
+     * @param collectionRepository the repository the collections of notes are read from
+     * @param tagService           the tag service used to save the tags of a note
+     * @throws IOException if the log can't be opened
+     */
+    @Autowired
+    public LogNoteServiceImpl(@Value("${notes.log.directory:./note-log}") Path directory,
+                              @Value("${notes.log.segment-size:8388608}") long segmentSize,
+                              @Value("${notes.log.fsync:false}") boolean fsync,
+                              CollectionRepository collectionRepository,
+                              TagService tagService) throws IOException {
+        this(new NoteLog(directory, segmentSize, fsync), collectionRepository, tagService);
+    }
+
+    /**
+     * Constructs a new LogNoteServiceImpl on an opened log.
+     *
+     * @param log                  the log the notes are kept in
+     * @param collectionRepository the repository the collections of notes are read from
+     * @param tagService           the tag service used to save the tags of a note
+     * @throws IOException if the log can't be read
+     */
+    public LogNoteServiceImpl(NoteLog log, CollectionRepository collectionRepository,
+                              TagService tagService) throws IOException {
+        this.log = log;
+        this.collectionRepository = collectionRepository;
+        this.tagService = tagService;
+        log.forEach(entry -> {
+            index(new NoteSummary(entry.id(), entry.title(), entry.collectionId()),
+                    entry.tags());
+            lastId = Math.max(lastId, entry.id());
+        });
+    }
+
+    /**
+     * Closes the log when the application stops.
+     *
+     * @throws IOException if the log can't be closed
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        log.close();
+    }
+
+    @Override
+    public synchronized Note findNote(long id) {
+        if (id < 0) {
+            return null;
+        }
+        NoteLog.Entry entry = read(id);
+        return entry == null ? null : toNote(entry, this::findCollection);
+    }
+
+    @Override
+    public synchronized Note saveNote(Note note) {
+        if (note.title == null || note.getContent() == null) {
+            return null;
+        }
+        Long collectionId = note.collection == null ? null : note.collection.id;
+        Long sameTitle = titlesByCollection.getOrDefault(collectionId, Map.of()).get(note.title);
+        if (collectionId != null && sameTitle != null && sameTitle != note.id) {
+            return null;
+        }
+        if (!summaries.containsKey(note.id)) {
+            // like a generated id in the database, unknown ids are replaced by a new one
+            note.id = ++lastId;
+        }
+        Set<String> previous = tagsByNote.getOrDefault(note.id, Set.of());
+        write(note);
+        tagService.updateTags(previous, note.getTags());
+        return note;
+    }
+
+    @Override
+    public synchronized Note deleteNote(Note note) {
+        if (note == null || !summaries.containsKey(note.id)) {
+            return null;
+        }
+        Set<String> previous = tagsByNote.get(note.id);
+        try {
+            log.delete(note.id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        unindex(note.id);
+        tagService.updateTags(previous, Set.of());
+        return note;
+    }
+
+    @Override
+    public synchronized List<Note> findAllNotes() {
+        Map<Long, Collection> collections = collectionsById();
+        List<Note> notes = new ArrayList<>(summaries.size());
+        try {
+            log.forEach(entry -> notes.add(toNote(entry, collections::get)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        notes.sort(Comparator.comparingLong(Note::getId));
+        return notes;
+    }
+
+    @Override
+    public void forEachNote(Consumer<Note> action) {
+        forEachNote(_ -> true, action);
+    }
+
+    @Override
+    public void forEachNoteInCollection(long collectionId, Consumer<Note> action) {
+        forEachNote(summary -> summary.collectionId() != null
+                && summary.collectionId() == collectionId, action);
+    }
+
+    /**
+     * Passes the notes matching a filter to an action one at a time, ordered by id.
+     *
+     * @param filter the filter on the summaries of the notes
+     * @param action the action to perform on every matching note
+     */
+    private void forEachNote(Predicate<NoteSummary> filter, Consumer<Note> action) {
+        Map<Long, Collection> collections = collectionsById();
+        long[] ids;
+        synchronized (this) {
+            ids = summaries.values().stream()
+                    .filter(filter)
+                    .mapToLong(NoteSummary::id)
+                    .sorted()
+                    .toArray();
+        }
+        // the lock is only held while reading a note, so a slow action doesn't block saves
+        for (long id : ids) {
+            NoteLog.Entry entry;
+            synchronized (this) {
+                entry = read(id);
+            }
+            if (entry != null) {
+                action.accept(toNote(entry, collections::get));
+            }
+        }
+    }
+
+    @Override
+    public synchronized NoteSummaryPage findNoteSummaries(Long collectionId, Set<String> tags,
+                                                          String query, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return null;
+        }
+        Predicate<NoteSummary> filter = collectionId == null ? _ -> true
+                : summary -> collectionId.equals(summary.collectionId());
+        if (tags != null) {
+            for (String tagName : tags) {
+                Set<Long> tagged = notesByTag.getOrDefault(tagName, Set.of());
+                filter = filter.and(summary -> tagged.contains(summary.id()));
+            }
+        }
+        if (query != null && !query.isEmpty()) {
+            // checked last, since it is the only filter that reads the log
+            filter = filter.and(containing(query.toLowerCase()));
+        }
+
+        List<NoteSummary> matching = summaries.values().stream()
+                .filter(filter)
+                .sorted(BY_TITLE)
+                .toList();
+        int from = (int) Math.min((long) page * size, matching.size());
+        int to = Math.min(from + size, matching.size());
+        return new NoteSummaryPage(List.copyOf(matching.subList(from, to)), page, size,
+                matching.size());
+    }
+
+    @Override
+    public synchronized Map<String, Set<Long>> findNoteIDsByTag(Set<String> tags) {
+        Map<String, Set<Long>> noteIDs = new HashMap<>();
+        for (String tag : tags) {
+            Set<Long> tagged = notesByTag.get(tag);
+            if (tagged != null) {
+                noteIDs.put(tag, new HashSet<>(tagged));
+            }
+        }
+        return noteIDs;
+    }
+
+    @Override
+    public Collection findNotesCollection(long id) {
+        var note = findNote(id);
+        if (note == null) {
+            return null;
+        }
+        return note.collection;
+    }
+
+    @Override
+    public synchronized Note removeTagFromNote(Long noteId, String tagName) {
+        Note note = findNote(noteId);
+        if (note == null) {
+            return null;
+        }
+        Set<String> previous = tagsByNote.get(noteId);
+        note.getTags().remove(tagName);
+        write(note);
+        tagService.updateTags(previous, note.getTags());
+        return note;
+    }
+
+    @Override
+    public Set<String> getTagsForNote(Long noteId) {
+        Note note = findNote(noteId);
+        return note == null ? null : note.getTags();
+    }
+
+    /**
+     * Reads all collections from the database, so notes can be linked to them without
+     * a query per note.
+     *
+     * @return the collections by id
+     */
+    private Map<Long, Collection> collectionsById() {
+        Map<Long, Collection> collections = new HashMap<>();
+        for (Collection collection : collectionRepository.findAll()) {
+            collections.put(collection.id, collection);
+        }
+        return collections;
+    }
+
+    /**
+     * Creates a filter on the notes whose title or content contains a query.
+     *
+     * @param lowerCaseQuery the query, in lower case
+     * @return the filter
+     */
+    private Predicate<NoteSummary> containing(String lowerCaseQuery) {
+        return summary -> {
+            NoteLog.Entry entry = read(summary.id());
+            return entry.title().toLowerCase().contains(lowerCaseQuery)
+                    || entry.content().toLowerCase().contains(lowerCaseQuery);
+        };
+    }
+
+    /**
+     * Appends a note to the log and updates the summaries.
+     *
+     * @param note the note to write
+     */
+    private void write(Note note) {
+        Long collectionId = note.collection == null ? null : note.collection.id;
+        try {
+            log.put(new NoteLog.Entry(note.id, note.title, note.getContent(), collectionId,
+                    note.getTags()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        unindex(note.id);
+        index(new NoteSummary(note.id, note.title, collectionId), Set.copyOf(note.getTags()));
+    }
+
+    /**
+     * Reads a note from the log.
+     *
+     * @param id the id of the note
+     * @return the note as it is stored, or null if it doesn't exist
+     */
+    private NoteLog.Entry read(long id) {
+        try {
+            return log.get(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds the summary of a note to the summaries and the titles of its collection, and the
+     * note to the notes of its tags.
+     *
+     * @param summary the summary of the note
+     * @param tags    the tags of the note, which aren't changed afterwards
+     */
+    private void index(NoteSummary summary, Set<String> tags) {
+        summaries.put(summary.id(), summary);
+        titlesByCollection.computeIfAbsent(summary.collectionId(), _ -> new HashMap<>())
+                .put(summary.title(), summary.id());
+        tagsByNote.put(summary.id(), tags);
+        for (String tag : tags) {
+            notesByTag.computeIfAbsent(tag, _ -> new HashSet<>()).add(summary.id());
+        }
+    }
+
+    /**
+     * Removes the summary of a note from the summaries and the titles of its collection, and
+     * the note from the notes of its tags.
+     *
+     * @param id the id of the note
+     */
+    private void unindex(long id) {
+        NoteSummary summary = summaries.remove(id);
+        if (summary == null) {
+            return;
+        }
+        Map<String, Long> titles = titlesByCollection.get(summary.collectionId());
+        titles.remove(summary.title(), id);
+        if (titles.isEmpty()) {
+            titlesByCollection.remove(summary.collectionId());
+        }
+        for (String tag : tagsByNote.remove(id)) {
+            Set<Long> tagged = notesByTag.get(tag);
+            tagged.remove(id);
+            if (tagged.isEmpty()) {
+                notesByTag.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * Finds a collection in the repository.
+     *
+     * @param id the id of the collection
+     * @return the collection, or null if it doesn't exist
+     */
+    private Collection findCollection(long id) {
+        return collectionRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * Creates a note from the way it is stored in the log.
+     *
+     * @param entry       the stored note
+     * @param collections looks up a collection by its id
+     * @return the note
+     */
+    private static Note toNote(NoteLog.Entry entry,
+                               LongFunction<Collection> collections) {
+        Note note = new Note();
+        note.id = entry.id();
+        note.title = entry.title();
+        note.setContent(entry.content());
+        note.setTags(entry.tags());
+        note.collection = entry.collectionId() == null ? null
+                : collections.apply(entry.collectionId());
+        return note;
+    }
+}
@@ -2,9 +2,15 @@ package server.services;
 
 import commons.Collection;
 import commons.Note;
+import commons.NoteSummaryPage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface NoteService {
     /**
@@ -19,7 +25,8 @@ public interface NoteService {
      * Saves a note to the repository.
      *
      * @param note the note to save
-     * @return the saved note, or null if validation fails
+     * @return the saved note, or null if validation fails or another note in the same
+     *         collection has the same title
      */
     Note saveNote(Note note);
 
@@ -38,6 +45,79 @@ public interface NoteService {
      */
     List<Note> findAllNotes();
 
+    /**
+     * Passes all notes to an action one at a time, ordered by id, without holding all notes
+     * in memory at once.
+     *
+     * @param action the action to perform on every note
+     */
+    void forEachNote(Consumer<Note> action);
+
+    /**
+     * Passes the notes of a collection to an action one at a time, ordered by id, without
+     * holding all of them in memory at once.
+     *
+     * @param collectionId the id of the collection
+     * @param action       the action to perform on every note of the collection
+     */
+    void forEachNoteInCollection(long collectionId, Consumer<Note> action);
+
+    /**
+     * Saves several new notes at once, for instance while importing a collection. Notes that
+     * {@link #saveNote(Note)} wouldn't save, such as notes with the title of another note of
+     * their collection, are skipped.
+     *
+     * @param notes the new notes
+     * @return the notes that were saved
+     */
+    default List<Note> saveNotes(List<Note> notes) {
+        List<Note> saved = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            Note savedNote = saveNote(note);
+            if (savedNote != null) {
+                saved.add(savedNote);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Finds the notes that have each of the given tags, from the tags the stored notes have,
+     * which are the only record of which notes a tag has. This reads every note, so storages
+     * that can look up the notes of a tag should do so instead.
+     *
+     * @param tags the titles of the tags
+     * @return the ids of the notes with each tag, without the tags no note has
+     */
+    default Map<String, Set<Long>> findNoteIDsByTag(Set<String> tags) {
+        Map<String, Set<Long>> noteIDs = new HashMap<>();
+        if (tags.isEmpty()) {
+            return noteIDs;
+        }
+        forEachNote(note -> {
+            for (String tag : note.getTags()) {
+                if (tags.contains(tag)) {
+                    noteIDs.computeIfAbsent(tag, _ -> new HashSet<>()).add(note.id);
+                }
+            }
+        });
+        return noteIDs;
+    }
+
+    /**
+     * Finds the summaries of the notes matching all given filters, ordered by title.
+     *
+     * @param collectionId the id of the collection, or null for all collections
+     * @param tags         the tags a note needs to have all of, may be null or empty
+     * @param query        text the title or content has to contain, ignoring case,
+     *                     may be null or empty
+     * @param page         the number of the page, starting at 0
+     * @param size         the maximum number of summaries per page
+     * @return the page of summaries, or null if the page or size is invalid
+     */
+    NoteSummaryPage findNoteSummaries(Long collectionId, Set<String> tags, String query,
+                                      int page, int size);
+
     /**
      * Retrieves the collection associated with a specific note by the note's ID.
      *
@@ -2,72 +2,300 @@ package server.services;
 
 import commons.Collection;
 import commons.Note;
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
 import commons.Tag;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import server.CacheConfig;
+import server.MetricsConfig;
 import server.database.NoteRepository;
 import server.database.TagRepository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-
+/**
+ * The note service that keeps the notes in the database, used unless the property
+ * {@code notes.storage} selects another storage. Notes are read through the note cache of
+ * {@link CacheConfig}, which every change of a note invalidates. The cache holds copies of
+ * the notes no caller sees, and every caller gets a copy of its own, so callers can change
+ * the note they got before saving it without other callers seeing the change.
+ */
 @Service
-public class NoteServiceImpl implements NoteService {
+@Timed(MetricsConfig.SERVICE_TIMER)
+@ConditionalOnProperty(name = "notes.storage", havingValue = "jpa", matchIfMissing = true)
+public class NoteServiceImpl implements NoteService, ApplicationListener<ApplicationReadyEvent> {
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final NoteRepository repo;
     private final TagService tagService;
+    private final Cache notes;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Constructs a new NoteServiceImpl with the specified repository.
      *
      * @param noteRepository the repository used for managing notes
      * @param tagService     the tag service used to parse and save tags of a note
+     * @param cacheManager   the cache manager holding the note cache
      */
     @Autowired
-    public NoteServiceImpl(NoteRepository noteRepository, TagService tagService) {
+    public NoteServiceImpl(NoteRepository noteRepository, TagService tagService,
+                           CacheManager cacheManager) {
         this.repo = noteRepository;
         this.tagService = tagService;
+        this.notes = cacheManager.getCache(CacheConfig.NOTES);
     }
 
     @Override
     public Note findNote(long id) {
-        if (id < 0 || !repo.existsById(id)) {
+        if (id < 0) {
             return null;
         }
-        return repo.findById(id).orElse(null);
+        Note cached = notes.get(id, Note.class);
+        if (cached == null) {
+            Note note = repo.findById(id).orElse(null);
+            if (note == null) {
+                return null;
+            }
+            cached = copyOf(note);
+            notes.put(id, cached);
+        }
+        return copyOf(cached);
+    }
+
+    /**
+     * Copies a note together with its collection and tags, so that changing the copy leaves
+     * the note as it is.
+     *
+     * @param note the note to copy
+     * @return the copy
+     */
+    static Note copyOf(Note note) {
+        Collection collection = null;
+        if (note.collection != null) {
+            collection = new Collection(note.collection.title, note.collection.serverUrl);
+            collection.id = note.collection.id;
+        }
+        Note copy = new Note(note.title, note.getContent(), collection);
+        copy.id = note.id;
+        copy.setTags(new HashSet<>(note.getTags()));
+        return copy;
     }
 
+    // evicted before the save too, so a failed save doesn't leave the old note cached if the
+    // note was changed in the database some other way, and afterwards in case a read cached
+    // the old note in between
     @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.NOTES, key = "#note.id", beforeInvocation = true),
+        @CacheEvict(cacheNames = CacheConfig.NOTES, key = "#note.id")
+    })
     public Note saveNote(Note note) {
         if (note.title == null || note.getContent() == null) {
             return null;
         }
-        // refreshes tag list by removing previous tags from this note
-        // then adding the new tags
-        tagService.removeNoteIDFromTags(note.id);
-        for (String tagName : note.getTags()) {
-            Tag tag = tagService.findOrCreateTag(tagName);
-            if (tag != null)
-                tag.noteIDs.add(note.id);
+        if (note.collection != null
+                && repo.existsByCollectionAndTitleAndIdNot(note.collection, note.title, note.id)) {
+            return null;
         }
-        return repo.save(note);
+        Set<String> previous = repo.findTags(note.id);
+        Note saved;
+        try {
+            saved = repo.save(note);
+        } catch (DataIntegrityViolationException e) {
+            // another note got the title between the check and the save
+            return null;
+        }
+        tagService.updateTags(previous, saved.getTags());
+        return saved;
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.NOTES, key = "#note.id", condition = "#note != null")
     public Note deleteNote(Note note) {
         if (note == null || !repo.existsById(note.id)) {
             return null;
         }
-        tagService.removeNoteIDFromTags(note.id);
+        Set<String> previous = repo.findTags(note.id);
         repo.delete(note);
+        tagService.updateTags(previous, Set.of());
         return note;
     }
 
+    // not cached: a single entry holding every note wouldn't count towards the size limit of
+    // the caches, and the notes in it would be shared by all callers
     @Override
     public List<Note> findAllNotes() {
         return repo.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachNote(Consumer<Note> action) {
+        try (Stream<Note> notes = repo.streamAll()) {
+            notes.forEach(note -> {
+                action.accept(note);
+                // otherwise the persistence context would keep every note read so far
+                entityManager.detach(note);
+            });
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachNoteInCollection(long collectionId, Consumer<Note> action) {
+        try (Stream<Note> notes = repo.streamByCollection(collectionId)) {
+            notes.forEach(note -> {
+                action.accept(note);
+                entityManager.detach(note);
+            });
+        }
+    }
+
+    // the inserts of the notes are sent to the database in JDBC batches, which only works
+    // if no query flushes them one at a time in between, and the tags are looked up in one
+    // query instead of one per tag
+    @Override
+    @Transactional
+    public List<Note> saveNotes(List<Note> notes) {
+        List<Note> valid = withUniqueTitles(notes);
+        repo.saveAll(valid);
+        entityManager.flush();
+        Set<String> tagNames = new HashSet<>();
+        for (Note note : valid) {
+            tagNames.addAll(note.getTags());
+        }
+        List<Tag> newTags = new ArrayList<>();
+        if (!tagNames.isEmpty()) {
+            tagNames.removeAll(tagRepository.findTitles(tagNames));
+            for (String tagName : tagNames) {
+                newTags.add(tagRepository.save(new Tag(tagName)));
+            }
+        }
+        entityManager.flush();
+        // otherwise the persistence context of the request would keep every note imported
+        valid.forEach(entityManager::detach);
+        newTags.forEach(entityManager::detach);
+        return valid;
+    }
+
+    /**
+     * Selects the notes that can be saved as new notes: those with a title and content, and
+     * a title no other note of their collection has. Every title is looked up on its own in
+     * the unique index on collection and title, which unlike a query for many titles at once
+     * doesn't depend on the plan the database chooses.
+     *
+     * @param notes the new notes
+     * @return the notes that can be saved, in the same order
+     */
+    private List<Note> withUniqueTitles(List<Note> notes) {
+        Map<Long, Set<String>> titles = new HashMap<>();
+        List<Note> valid = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            if (note.title == null || note.getContent() == null) {
+                continue;
+            }
+            // adding the title fails if an earlier new note has it
+            if (note.collection == null || titles
+                    .computeIfAbsent(note.collection.id, _ -> new HashSet<>()).add(note.title)
+                    && !repo.existsByCollectionAndTitleAndIdNot(note.collection, note.title,
+                            note.id)) {
+                valid.add(note);
+            }
+        }
+        return valid;
+    }
+
+    @Override
+    public Map<String, Set<Long>> findNoteIDsByTag(Set<String> tags) {
+        Map<String, Set<Long>> noteIDs = new HashMap<>();
+        if (!tags.isEmpty()) {
+            for (Object[] row : tagRepository.findNoteIDs(tags)) {
+                noteIDs.computeIfAbsent((String) row[0], _ -> new HashSet<>())
+                        .add((Long) row[1]);
+            }
+        }
+        return noteIDs;
+    }
+
+    /**
+     * Parses the tags of the notes saved before their tags were kept in the note_tags table,
+     * once the application has started, so that upgrading doesn't lose them. Afterwards this
+     * only reads the notes with a '#' but no tags, such as notes with a Markdown heading.
+     *
+     * @param event the event of the started application
+     */
+    @Override
+    @Transactional
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Set<String> tagNames = new HashSet<>();
+        try (Stream<Note> untagged = repo.streamUntagged()) {
+            untagged.forEach(note -> {
+                note.setContent(note.getContent());
+                if (!note.getTags().isEmpty()) {
+                    tagNames.addAll(note.getTags());
+                    entityManager.flush();
+                }
+                entityManager.detach(note);
+            });
+        }
+        tagService.updateTags(Set.of(), tagNames);
+    }
+
+    @Override
+    public NoteSummaryPage findNoteSummaries(Long collectionId, Set<String> tags, String query,
+                                             int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return null;
+        }
+        boolean anyTags = tags != null && !tags.isEmpty();
+        // an empty IN list isn't valid SQL, so pass a placeholder that the tag count disables
+        Set<String> tagFilter = anyTags ? tags : Set.of("");
+        String pattern = query == null || query.isEmpty() ? null
+                : "%" + escapeLike(query.toLowerCase()) + "%";
+
+        Page<NoteSummary> summaries = repo.findSummaries(collectionId, tagFilter,
+                anyTags ? tags.size() : 0, pattern,
+                PageRequest.of(page, size, Sort.by("title").and(Sort.by("id"))));
+        return new NoteSummaryPage(summaries.getContent(), page, size,
+                summaries.getTotalElements());
+    }
+
+    /**
+     * Escapes the wildcards of a LIKE pattern, with a backslash as escape character.
+     *
+     * @param text the text to match literally
+     * @return the escaped text
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     @Override
     public Collection findNotesCollection(long id) {
         var note = findNote(id);
@@ -84,6 +312,7 @@ public class NoteServiceImpl implements NoteService {
     public TagRepository tagRepository;
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.NOTES, key = "#noteId")
     public Note removeTagFromNote(Long noteId, String tagName) {
         Note note = noteRepository.findById(noteId)
                 .orElse(null);
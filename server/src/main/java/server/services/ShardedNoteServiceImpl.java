@@ -0,0 +1,334 @@
+package server.services;
+
+import commons.Collection;
+import commons.Note;
+import commons.NoteSummaryPage;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Service;
+import server.MetricsConfig;
+import server.database.CollectionRepository;
+import server.database.NoteLog;
+import server.database.NoteShards;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A note service that keeps the notes in {@link NoteShards}, a database per group of
+ * collections, used when the property {@code notes.storage} is set to {@code sharded}.
+ * Collections and tags are still kept in the main database, but which notes have a tag is
+ * found in the shards.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+@ConditionalOnProperty(name = "notes.storage", havingValue = "sharded")
+public class ShardedNoteServiceImpl implements NoteService {
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final NoteShards shards;
+    private final CollectionRepository collectionRepository;
+    private final TagService tagService;
+
+    /**
+     * Constructs a new ShardedNoteServiceImpl, opening the shards configured by the
+     * properties.
+     *
+     * @param directory            the directory of the database files of the shards
+     * @param count                the number of shards
+     * @param collectionRepository the repository the collections of notes are read from
+     * @param tagService           the tag service used to save the tags of a note
+     * @throws SQLException if a shard can't be opened
+     */
+    @Autowired
+    public ShardedNoteServiceImpl(
+            @Value("${notes.shards.directory:./note-shards}") Path directory,
+            @Value("${notes.shards.count:4}") int count,
+            CollectionRepository collectionRepository,
+            TagService tagService) throws SQLException {
+        this(new NoteShards(directory, count), collectionRepository, tagService);
+    }
+
+    /**
+     * Constructs a new ShardedNoteServiceImpl on opened shards.
+     *
+     * @param shards               the shards the notes are kept in
+     * @param collectionRepository the repository the collections of notes are read from
+     * @param tagService           the tag service used to save the tags of a note
+     */
+    public ShardedNoteServiceImpl(NoteShards shards, CollectionRepository collectionRepository,
+                                  TagService tagService) {
+        this.shards = shards;
+        this.collectionRepository = collectionRepository;
+        this.tagService = tagService;
+    }
+
+    /**
+     * Closes the shards when the application stops.
+     */
+    @PreDestroy
+    public void close() {
+        shards.close();
+    }
+
+    @Override
+    public Note findNote(long id) {
+        if (id < 0) {
+            return null;
+        }
+        NoteLog.Entry entry = read(id);
+        return entry == null ? null : toNote(entry, this::findCollection);
+    }
+
+    @Override
+    public Note saveNote(Note note) {
+        if (note.title == null || note.getContent() == null) {
+            return null;
+        }
+        long id = note.id;
+        Long collectionId = note.collection == null ? null : note.collection.id;
+        Set<String> previous = Set.of();
+        try {
+            NoteLog.Entry stored = shards.get(id);
+            if (stored != null) {
+                previous = stored.tags();
+            } else {
+                // like a generated id in the database, unknown ids are replaced by a new one
+                note.id = shards.nextId();
+            }
+            if (!shards.put(new NoteLog.Entry(note.id, note.title, note.getContent(),
+                    collectionId, note.getTags()))) {
+                note.id = id;
+                return null;
+            }
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+        tagService.updateTags(previous, note.getTags());
+        return note;
+    }
+
+    @Override
+    public Note deleteNote(Note note) {
+        if (note == null) {
+            return null;
+        }
+        Set<String> previous;
+        try {
+            NoteLog.Entry stored = shards.get(note.id);
+            if (stored == null || !shards.delete(note.id)) {
+                return null;
+            }
+            previous = stored.tags();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+        tagService.updateTags(previous, Set.of());
+        return note;
+    }
+
+    @Override
+    public List<Note> findAllNotes() {
+        List<Note> notes = new ArrayList<>();
+        forEachNote(notes::add);
+        return notes;
+    }
+
+    @Override
+    public void forEachNote(Consumer<Note> action) {
+        Map<Long, Collection> collections = collectionsById();
+        try {
+            shards.forEach(entry -> action.accept(toNote(entry, collections::get)));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void forEachNoteInCollection(long collectionId, Consumer<Note> action) {
+        Collection collection = findCollection(collectionId);
+        try {
+            shards.forEachInCollection(collectionId,
+                    entry -> action.accept(toNote(entry, _ -> collection)));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public NoteSummaryPage findNoteSummaries(Long collectionId, Set<String> tags, String query,
+                                             int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return null;
+        }
+        String pattern = query == null || query.isEmpty() ? null
+                : "%" + escapeLike(query.toLowerCase()) + "%";
+        try {
+            return shards.findSummaries(collectionId, tags == null ? Set.of() : tags, pattern,
+                    page, size);
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public Map<String, Set<Long>> findNoteIDsByTag(Set<String> tags) {
+        try {
+            return shards.findNoteIDsByTag(tags);
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public Collection findNotesCollection(long id) {
+        var note = findNote(id);
+        if (note == null) {
+            return null;
+        }
+        return note.collection;
+    }
+
+    @Override
+    public Note removeTagFromNote(Long noteId, String tagName) {
+        Note note = findNote(noteId);
+        if (note == null) {
+            return null;
+        }
+        Set<String> previous = Set.copyOf(note.getTags());
+        note.getTags().remove(tagName);
+        try {
+            shards.put(new NoteLog.Entry(note.id, note.title, note.getContent(),
+                    note.collection == null ? null : note.collection.id, note.getTags()));
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+        tagService.updateTags(previous, note.getTags());
+        return note;
+    }
+
+    @Override
+    public Set<String> getTagsForNote(Long noteId) {
+        Note note = findNote(noteId);
+        return note == null ? null : note.getTags();
+    }
+
+    /**
+     * Gets the number of collections and notes of every shard.
+     *
+     * @return the sizes, ordered by shard
+     */
+    public List<NoteShards.Stats> findShardStats() {
+        try {
+            return shards.stats();
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Compacts the database file of a shard, while the other shards stay available.
+     *
+     * @param shard the number of the shard
+     * @return true if the shard was compacted, false if there is no such shard
+     */
+    public boolean compactShard(int shard) {
+        if (shard < 0 || shard >= shards.count()) {
+            return false;
+        }
+        try {
+            shards.compact(shard);
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+        return true;
+    }
+
+    /**
+     * Reads a note from the shards.
+     *
+     * @param id the id of the note
+     * @return the note as it is stored, or null if it doesn't exist
+     */
+    private NoteLog.Entry read(long id) {
+        try {
+            return shards.get(id);
+        } catch (SQLException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Reads all collections from the database, so notes can be linked to them without
+     * a query per note.
+     *
+     * @return the collections by id
+     */
+    private Map<Long, Collection> collectionsById() {
+        Map<Long, Collection> collections = new HashMap<>();
+        for (Collection collection : collectionRepository.findAll()) {
+            collections.put(collection.id, collection);
+        }
+        return collections;
+    }
+
+    /**
+     * Finds a collection in the repository.
+     *
+     * @param id the id of the collection
+     * @return the collection, or null if it doesn't exist
+     */
+    private Collection findCollection(long id) {
+        return collectionRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * Escapes the wildcards of a LIKE pattern, with a backslash as escape character.
+     *
+     * @param text the text to match literally
+     * @return the escaped text
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Wraps a failure to access a shard in the exception the repositories of the main
+     * database throw.
+     *
+     * @param e the failure
+     * @return the exception to throw
+     */
+    private static DataAccessResourceFailureException failure(SQLException e) {
+        return new DataAccessResourceFailureException("Can't access the note shards", e);
+    }
+
+    /**
+     * Creates a note from the way it is stored in a shard.
+     *
+     * @param entry       the stored note
+     * @param collections looks up a collection by its id
+     * @return the note
+     */
+    private static Note toNote(NoteLog.Entry entry, LongFunction<Collection> collections) {
+        Note note = new Note();
+        note.id = entry.id();
+        note.title = entry.title();
+        note.setContent(entry.content());
+        note.setTags(entry.tags());
+        note.collection = entry.collectionId() == null ? null
+                : collections.apply(entry.collectionId());
+        return note;
+    }
+}
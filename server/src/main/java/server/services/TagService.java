@@ -3,10 +3,11 @@ package server.services;
 import commons.Tag;
 
 import java.util.List;
+import java.util.Set;
 
 public interface TagService {
     /**
-     * Retrieves all tags from the database.
+     * Retrieves all tags from the database, with the notes that have them.
      *
      * @return a list of all tags
      */
@@ -29,7 +30,7 @@ public interface TagService {
     Tag saveTag(Tag tag);
 
     /**
-     * Finds a Tag by its ID.
+     * Finds a Tag by its ID, with the notes that have it.
      *
      * @param id the ID to search
      * @return the found tag, or null if not existent
@@ -45,9 +46,12 @@ public interface TagService {
     boolean deleteTagById(String id);
 
     /**
-     * Removes a NoteID from a Tag (if the Note gets deleted or updated).
+     * Updates the tags after a note is saved or deleted: creates the tags the note has that
+     * don't exist yet, and deletes the tags it lost if no other note has them. Called after
+     * the note is stored, since the notes of a tag are found from the tags of stored notes.
      *
-     * @param noteID the ID of the deleted note
+     * @param previous the tags the note had, empty for a new note
+     * @param current  the tags the note has now, empty for a deleted note
      */
-    void removeNoteIDFromTags(Long noteID);
+    void updateTags(Set<String> previous, Set<String> current);
 }
@@ -1,29 +1,59 @@
 package server.services;
 
 import commons.Tag;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import server.MetricsConfig;
 import server.database.TagRepository;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class TagServiceImpl implements TagService {
     private final TagRepository tagRepository;
+    private final ObjectProvider<NoteService> noteService;
 
     /**
      * Constructs a new TagServiceImpl with the specified repository.
      *
-     * @param repo the repository used for managing tags
+     * @param repo        the repository used for managing tags
+     * @param noteService the note service the notes of the tags are found with, looked up
+     *                    when first needed since the note services use this service too
      */
     @Autowired
-    public TagServiceImpl(TagRepository repo) {
+    public TagServiceImpl(TagRepository repo, ObjectProvider<NoteService> noteService) {
         this.tagRepository = repo;
+        this.noteService = noteService;
     }
 
     @Override
     public List<Tag> findAllTags() {
-        return tagRepository.findAll();
+        List<Tag> tags = tagRepository.findAll();
+        fillNoteIDs(tags);
+        return tags;
+    }
+
+    /**
+     * Sets the ids of the notes that have each tag, found by the note service in one go.
+     *
+     * @param tags the tags
+     */
+    private void fillNoteIDs(List<Tag> tags) {
+        Set<String> titles = new HashSet<>();
+        for (Tag tag : tags) {
+            titles.add(tag.title);
+        }
+        Map<String, Set<Long>> noteIDs = titles.isEmpty() ? Map.of()
+                : noteService.getObject().findNoteIDsByTag(titles);
+        for (Tag tag : tags) {
+            tag.noteIDs = new HashSet<>(noteIDs.getOrDefault(tag.title, Set.of()));
+        }
     }
 
     @Override
@@ -32,12 +62,9 @@ public class TagServiceImpl implements TagService {
             throw new IllegalArgumentException("Tag name cannot be null or empty.");
         }
 
-        List<Tag> allTags = tagRepository.findAll();
-
-        for (Tag tag : allTags) {
-            if (tag.getTitle().equals(tagName)) {
-                return tag;
-            }
+        Tag existing = tagRepository.findById(tagName).orElse(null);
+        if (existing != null) {
+            return existing;
         }
 
         Tag newTag = new Tag(tagName);
@@ -54,7 +81,11 @@ public class TagServiceImpl implements TagService {
 
     @Override
     public Tag findTagById(String id) {
-        return tagRepository.findById(id).orElse(null);
+        Tag tag = tagRepository.findById(id).orElse(null);
+        if (tag != null) {
+            fillNoteIDs(List.of(tag));
+        }
+        return tag;
     }
 
     @Override
@@ -67,11 +98,20 @@ public class TagServiceImpl implements TagService {
     }
 
     @Override
-    public void removeNoteIDFromTags(Long noteID) {
-        for (Tag tag : findAllTags()) {
-            tag.noteIDs.remove(noteID);
-            if (tag.noteIDs.isEmpty())
-                tagRepository.delete(tag);
+    public void updateTags(Set<String> previous, Set<String> current) {
+        for (String tagName : current) {
+            findOrCreateTag(tagName);
+        }
+        Set<String> removed = new HashSet<>(previous);
+        removed.removeAll(current);
+        if (removed.isEmpty()) {
+            return;
+        }
+        Set<String> used = noteService.getObject().findNoteIDsByTag(removed).keySet();
+        for (String tagName : removed) {
+            if (!used.contains(tagName)) {
+                tagRepository.deleteById(tagName);
+            }
         }
     }
 }
@@ -0,0 +1,186 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.CollaborativeText;
+import commons.Synchronization;
+import commons.SynchronizationType;
+import commons.TextOperation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts two nodes in this process, relaying synchronizations over a loopback relay and
+ * sharing an in-memory database.
+ */
+class ClusterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(Main.class).run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:cluster;DB_CLOSE_DELAY=-1",
+                "--cluster.relay=loopback", "--cluster.channel=cluster-test",
+                "--spring.main.banner-mode=off");
+    }
+
+    private static URI uri(ConfigurableApplicationContext node, String path) {
+        return URI.create("http://localhost:"
+                + node.getEnvironment().getProperty("local.server.port") + path);
+    }
+
+    private static HttpResponse<String> get(ConfigurableApplicationContext node, String path)
+            throws Exception {
+        return HTTP.send(HttpRequest.newBuilder(uri(node, path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(ConfigurableApplicationContext node, String path,
+                                             Object body) throws Exception {
+        return HTTP.send(HttpRequest.newBuilder(uri(node, path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> put(ConfigurableApplicationContext node, String path,
+                                            Object body) throws Exception {
+        return HTTP.send(HttpRequest.newBuilder(uri(node, path))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Subscribes to the synchronizations of a node with server-sent events.
+     *
+     * @return the data lines of the events
+     */
+    private static BlockingQueue<String> subscribe(ConfigurableApplicationContext node)
+            throws Exception {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        SseSyncBroadcaster broadcaster = node.getBean(SseSyncBroadcaster.class);
+        int subscribers = broadcaster.subscriberCount();
+        // the response starts with the first event, so don't wait for it
+        HTTP.sendAsync(HttpRequest.newBuilder(uri(node, "/api/notes/sync?client=test")).build(),
+                        HttpResponse.BodyHandlers.ofLines())
+                .thenAccept(response -> response.body()
+                        .filter(line -> line.startsWith("data:"))
+                        .forEach(line -> events.add(line.substring("data:".length()))));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (broadcaster.subscriberCount() == subscribers
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        return events;
+    }
+
+    private static Synchronization next(BlockingQueue<String> events) throws Exception {
+        String event = events.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event, "no synchronization received");
+        return MAPPER.readValue(event, Synchronization.class);
+    }
+
+    @Test
+    void synchronizationsReachTheClientsOfTheOtherNode() throws Exception {
+        BlockingQueue<String> clientOfB = subscribe(nodeB);
+        // read, so the notes are cached on node B
+        assertEquals(200, get(nodeB, "/api/notes").statusCode());
+
+        String note = post(nodeA, "/api/notes",
+                new commons.Note("Clustered", "hello", null)).body();
+        long id = MAPPER.readTree(note).get("id").asLong();
+        post(nodeA, "/api/notes/sync",
+                new Synchronization(SynchronizationType.CREATE, id, "Clustered", "hello"));
+
+        Synchronization received = next(clientOfB);
+        assertEquals(SynchronizationType.CREATE, received.type);
+        assertEquals(id, received.noteId);
+        // the database is shared, and the cache of node B was invalidated
+        assertTrue(get(nodeB, "/api/notes").body().contains("Clustered"));
+    }
+
+    @Test
+    void updatesEvictTheNoteCachedOnTheOtherNode() throws Exception {
+        String note = post(nodeA, "/api/notes", new commons.Note("Cached", "before", null))
+                .body();
+        long id = MAPPER.readTree(note).get("id").asLong();
+        BlockingQueue<String> clientOfB = subscribe(nodeB);
+        // read, so the note is cached on node B
+        assertTrue(get(nodeB, "/api/notes/" + id).body().contains("before"));
+
+        assertEquals(200, put(nodeA, "/api/notes/" + id,
+                new commons.Note("Cached", "after", null)).statusCode());
+        post(nodeA, "/api/notes/sync",
+                new Synchronization(SynchronizationType.UPDATE, id, "Cached", "after"));
+
+        assertEquals(id, next(clientOfB).noteId);
+        assertTrue(get(nodeB, "/api/notes/" + id).body().contains("after"));
+    }
+
+    @Test
+    void editsAreMergedOnBothNodes() throws Exception {
+        String note = post(nodeA, "/api/notes", new commons.Note("Edited", "hello", null))
+                .body();
+        long id = MAPPER.readTree(note).get("id").asLong();
+        CollaborativeText onA = load(nodeA, id, "a");
+        CollaborativeText onB = load(nodeB, id, "b");
+        BlockingQueue<String> clientOfB = subscribe(nodeB);
+
+        Synchronization edit = new Synchronization(SynchronizationType.EDIT, id, "Edited", null);
+        edit.operations = onA.edit("hello world");
+        assertEquals(200, post(nodeA, "/api/notes/sync", edit).statusCode());
+        Synchronization received = next(clientOfB);
+        assertEquals("hello world", received.content);
+        assertTrue(onB.applyAll(received.operations));
+
+        // an edit made on node B's text merges on node A's as well
+        edit.operations = onB.edit("hello, world");
+        assertEquals(200, post(nodeB, "/api/notes/sync", edit).statusCode());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!load(nodeA, id, "c").text().equals("hello, world")
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("hello, world", load(nodeA, id, "c").text());
+    }
+
+    private static CollaborativeText load(ConfigurableApplicationContext node, long id,
+                                          String site) throws Exception {
+        TextOperation[] snapshot = MAPPER.readValue(
+                get(node, "/api/notes/" + id + "/text").body(), TextOperation[].class);
+        CollaborativeText text = new CollaborativeText(site);
+        assertTrue(text.applyAll(Arrays.asList(snapshot)));
+        return text;
+    }
+}
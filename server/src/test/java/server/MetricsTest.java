@@ -0,0 +1,44 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:metrics"})
+class MetricsTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void servicesAndRequestsAreTimed() {
+        assertEquals(HttpStatus.OK, rest.getForEntity("/api/notes", String.class)
+                .getStatusCode());
+
+        ResponseEntity<String> service = rest.getForEntity(
+                "/actuator/metrics/netnote.service?tag=method:findAllNotes", String.class);
+        assertEquals(HttpStatus.OK, service.getStatusCode());
+        assertTrue(service.getBody().contains("NoteServiceImpl"));
+
+        ResponseEntity<String> requests = rest.getForEntity(
+                "/actuator/metrics/http.server.requests.percentile?tag=uri:/api/notes",
+                String.class);
+        assertEquals(HttpStatus.OK, requests.getStatusCode());
+        assertTrue(requests.getBody().contains("0.99"));
+    }
+
+    @Test
+    void synchronizationGaugesAreExposed() {
+        ResponseEntity<String> sessions = rest.getForEntity(
+                "/actuator/metrics/netnote.sync.sessions", String.class);
+
+        assertEquals(HttpStatus.OK, sessions.getStatusCode());
+        assertTrue(sessions.getBody().contains("websocket"));
+    }
+}
@@ -0,0 +1,41 @@
+package server;
+
+import commons.Synchronization;
+import commons.SynchronizationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseSyncBroadcasterTest {
+
+    @Test
+    void publish_DisconnectsClientFallingBehind() {
+        // the sender is stuck, as it would be writing to a client that doesn't read
+        CountDownLatch stuck = new CountDownLatch(1);
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        sender.execute(() -> {
+            try {
+                stuck.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        SseSyncBroadcaster broadcaster = new SseSyncBroadcaster(10, 1000, 2, sender);
+        broadcaster.subscribe("slow", null);
+        Synchronization synchronization =
+                new Synchronization(SynchronizationType.UPDATE, 1L, "Title", "Content");
+
+        assertEquals(1, broadcaster.publish(synchronization, null));
+        assertEquals(0, broadcaster.publish(synchronization, "slow"));
+        assertEquals(1, broadcaster.publish(synchronization, null));
+        assertEquals(0, broadcaster.publish(synchronization, null));
+        assertEquals(0, broadcaster.subscriberCount());
+
+        stuck.countDown();
+        broadcaster.close();
+    }
+}
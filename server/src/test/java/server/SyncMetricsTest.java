@@ -0,0 +1,55 @@
+package server;
+
+import commons.Synchronization;
+import commons.SynchronizationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncMetricsTest {
+    private SimpleMeterRegistry registry;
+    private WebSocketEventListener websocketUsers;
+    private SyncMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        websocketUsers = new WebSocketEventListener();
+        metrics = new SyncMetrics(registry, websocketUsers, new SseSyncBroadcaster(10, 1000, 10));
+    }
+
+    @Test
+    void recordFanOut_RecordsCountTimeAndSize() {
+        Synchronization synchronization =
+                new Synchronization(SynchronizationType.UPDATE, 1L, "Title", "Content");
+
+        metrics.recordFanOut(synchronization, 3, 1, 2_000_000);
+        metrics.recordFanOut(synchronization, 5, 0, 4_000_000);
+
+        assertEquals(2, registry.get("netnote.sync.messages").tag("type", "UPDATE")
+                .counter().count());
+        assertEquals(6, registry.get("netnote.sync.fanout").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(8, registry.get("netnote.sync.fanout.size").tag("transport", "websocket")
+                .summary().totalAmount());
+        assertEquals(1, registry.get("netnote.sync.fanout.size").tag("transport", "sse")
+                .summary().totalAmount());
+        assertEquals(0, registry.get("netnote.sync.messages").tag("type", "DELETE")
+                .counter().count());
+    }
+
+    @Test
+    void sessionGauges_FollowConnections() {
+        websocketUsers.sessionIds.add("a");
+        websocketUsers.sessionIds.add("b");
+
+        assertEquals(2, registry.get("netnote.sync.sessions").tag("transport", "websocket")
+                .gauge().value());
+        assertEquals(0, registry.get("netnote.sync.sessions").tag("transport", "sse")
+                .gauge().value());
+    }
+}
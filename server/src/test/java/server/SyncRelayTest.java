@@ -0,0 +1,144 @@
+package server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import commons.CharId;
+import commons.Synchronization;
+import commons.SynchronizationType;
+import commons.TextOperation;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncRelayTest {
+
+    @Test
+    void loopback_PassesOnToTheOtherNodesOfTheChannel() throws Exception {
+        BlockingQueue<Synchronization> a = new LinkedBlockingQueue<>();
+        BlockingQueue<Synchronization> b = new LinkedBlockingQueue<>();
+        BlockingQueue<Synchronization> other = new LinkedBlockingQueue<>();
+        try (LoopbackSyncRelay nodeA = LoopbackSyncRelay.join("relay-test");
+             LoopbackSyncRelay nodeB = LoopbackSyncRelay.join("relay-test");
+             LoopbackSyncRelay otherChannel = LoopbackSyncRelay.join("relay-test-other")) {
+            nodeA.setListener(a::add);
+            nodeB.setListener(b::add);
+            otherChannel.setListener(other::add);
+
+            Synchronization synchronization =
+                    new Synchronization(SynchronizationType.UPDATE, 1L, "Title", "Content");
+            nodeA.publish(synchronization);
+            nodeA.publish(new Synchronization(SynchronizationType.DELETE, 2L, "Title", null));
+
+            Synchronization received = b.poll(5, TimeUnit.SECONDS);
+            assertEquals(synchronization, received);
+            assertNotSame(synchronization, received);
+            assertEquals(2L, b.poll(5, TimeUnit.SECONDS).noteId);
+            assertTrue(a.isEmpty());
+            assertTrue(other.isEmpty());
+
+            nodeB.close();
+            nodeA.publish(synchronization);
+            assertNull(b.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    void http_PostsToThePeers() throws Exception {
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        HttpServer peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        peer.createContext("/" + HttpSyncRelay.PATH, exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes()));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        peer.start();
+        URI uri = URI.create("http://localhost:" + peer.getAddress().getPort());
+        try (HttpSyncRelay relay = new HttpSyncRelay(List.of(uri), new ObjectMapper())) {
+            Synchronization edit = new Synchronization(SynchronizationType.EDIT, 3L, "T", "ab");
+            edit.operations = List.of(TextOperation.insert(new CharId(2, "a"), null, "b"));
+
+            relay.publish(edit);
+
+            assertEquals(edit, new ObjectMapper().readValue(bodies.poll(5, TimeUnit.SECONDS),
+                    Synchronization.class));
+        } finally {
+            peer.stop(0);
+        }
+    }
+
+    @Test
+    void http_DropsWhatASlowPeerCantTake() throws Exception {
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        peer.setExecutor(Executors.newCachedThreadPool());
+        peer.createContext("/" + HttpSyncRelay.PATH, exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes());
+            if (body.contains("\"noteId\":1")) {
+                // the first post never gets an answer in time
+                stalled.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            bodies.add(body);
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        peer.start();
+        URI uri = URI.create("http://localhost:" + peer.getAddress().getPort());
+        try (HttpSyncRelay relay = new HttpSyncRelay(List.of(uri), new ObjectMapper(),
+                Duration.ofMillis(300), 1)) {
+            relay.publish(new Synchronization(SynchronizationType.UPDATE, 1L, "T", "C"));
+            assertTrue(stalled.await(5, TimeUnit.SECONDS));
+            relay.publish(new Synchronization(SynchronizationType.UPDATE, 2L, "T", "C"));
+            relay.publish(new Synchronization(SynchronizationType.UPDATE, 3L, "T", "C"));
+
+            // posted once the first one timed out, while the third didn't fit in the queue
+            assertTrue(bodies.poll(5, TimeUnit.SECONDS).contains("\"noteId\":2"));
+            assertNull(bodies.poll(500, TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+            peer.stop(0);
+        }
+    }
+
+    @Test
+    void http_PassesOnWhatItReceives() {
+        try (HttpSyncRelay relay = new HttpSyncRelay(List.of(), new ObjectMapper())) {
+            BlockingQueue<Synchronization> received = new LinkedBlockingQueue<>();
+            relay.setListener(received::add);
+            Synchronization synchronization =
+                    new Synchronization(SynchronizationType.CREATE, 1L, "Title", "");
+
+            relay.receive(synchronization);
+
+            assertEquals(List.of(synchronization), List.copyOf(received));
+        }
+    }
+
+    @Test
+    void config_SelectsTheRelay() {
+        ClusterConfig config = new ClusterConfig();
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertSame(SyncRelay.NONE, config.syncRelay("none", "c", "", objectMapper));
+        assertInstanceOf(HttpSyncRelay.class,
+                config.syncRelay("http", "c", "http://a:8081, http://b:8082", objectMapper));
+        assertThrows(IllegalArgumentException.class,
+                () -> config.syncRelay("multicast", "c", "", objectMapper));
+    }
+}
@@ -0,0 +1,60 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.threads.virtual.enabled=true", "spring.datasource.url=jdbc:h2:mem:virtual"})
+class VirtualThreadsTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    @Qualifier("clientInboundChannel")
+    private ExecutorSubscribableChannel inbound;
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private ExecutorSubscribableChannel outbound;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor asyncTasks;
+
+    @Test
+    void requestsRunOnVirtualThreads() throws Exception {
+        Executor requests = ((TomcatWebServer) context.getWebServer()).getTomcat()
+                .getConnector().getProtocolHandler().getExecutor();
+
+        assertTrue(runsOnVirtualThread(requests));
+    }
+
+    @Test
+    void stompChannelsRunOnVirtualThreads() throws Exception {
+        assertTrue(runsOnVirtualThread(inbound.getExecutor()));
+        assertTrue(runsOnVirtualThread(outbound.getExecutor()));
+    }
+
+    @Test
+    void asyncTasksRunOnVirtualThreads() throws Exception {
+        assertTrue(runsOnVirtualThread(asyncTasks));
+    }
+
+    private static boolean runsOnVirtualThread(Executor executor) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get();
+    }
+}
@@ -22,17 +22,27 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import server.services.ArchiveService;
 import server.services.CollectionService;
 import server.services.TagService;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.zip.ZipException;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CollectionController.class)
@@ -47,6 +57,9 @@ public class CollectionControllerTest {
     @MockBean
     private TagService tagService;
 
+    @MockBean
+    private ArchiveService archiveService;
+
     private Collection collection1;
     private Collection collection2;
 
@@ -153,5 +166,63 @@ public class CollectionControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testExportCollection() throws Exception {
+        when(collectionService.findCollection(collection1.id)).thenReturn(collection1);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("archive".getBytes());
+            return null;
+        }).when(archiveService).exportCollection(eq(collection1), any());
+
+        MvcResult result = mockMvc.perform(get("/api/collections/{id}/export", collection1.id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"=?UTF-8?Q?Collection_1.zip?=\"; "
+                                + "filename*=UTF-8''Collection%201.zip"))
+                .andExpect(content().bytes("archive".getBytes()));
+    }
+
+    @Test
+    void testExportCollection_notFound() throws Exception {
+        mockMvc.perform(get("/api/collections/{id}/export", 42))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testImportCollection() throws Exception {
+        when(archiveService.importCollection(any(), eq("Copy"))).thenReturn(collection1);
+
+        mockMvc.perform(post("/api/collections/import").param("title", "Copy")
+                        .contentType("application/zip")
+                        .content("archive".getBytes()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Collection 1"));
+    }
+
+    @Test
+    void testImportCollection_titleTaken() throws Exception {
+        when(archiveService.importCollection(any(), any())).thenReturn(null);
+
+        mockMvc.perform(post("/api/collections/import")
+                        .contentType("application/zip")
+                        .content("archive".getBytes()))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testImportCollection_notAnArchive() throws Exception {
+        when(archiveService.importCollection(any(), any())).thenThrow(new ZipException("no"));
+
+        mockMvc.perform(post("/api/collections/import")
+                        .contentType("application/zip")
+                        .content("archive".getBytes()))
+                .andExpect(status().isBadRequest());
+    }
+
 
 }
\ No newline at end of file
@@ -105,13 +105,13 @@ public class CollectionRepositoryTest {
     @Test
     public void testSaveAndFlush() {
         Collection newCollection = new Collection();
-        newCollection.title = "testTitle";
+        newCollection.title = "testTitle3";
         newCollection.serverUrl = "testUrl";
         Collection savedCollection = collectionRepository.saveAndFlush(newCollection);
         Collection retrievedCollection = collectionRepository.findById(savedCollection.id)
                 .orElseThrow(() -> new RuntimeException("Note not found"));
         assertNotNull(retrievedCollection);
-        assertEquals("testTitle", retrievedCollection.title);
+        assertEquals("testTitle3", retrievedCollection.title);
         assertEquals("testUrl", retrievedCollection.serverUrl);
     }
 
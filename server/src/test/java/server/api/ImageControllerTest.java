@@ -0,0 +1,62 @@
+package server.api;
+
+import commons.Files;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import server.services.ImageService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ImageControllerTest {
+    private ImageService imageService;
+    private ImageController imageController;
+    private Files image;
+    private String eTag;
+
+    @BeforeEach
+    void setUp() {
+        imageService = mock(ImageService.class);
+        imageController = new ImageController(imageService);
+        image = new Files("cat.png", "image/png", new byte[]{1, 2, 3});
+        eTag = "\"039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81\"";
+        when(imageService.getImage(1L)).thenReturn(image);
+        when(imageService.getImageETag(1L)).thenReturn(eTag);
+    }
+
+    @Test
+    void testGetImageSendsETag() {
+        ResponseEntity<byte[]> response = imageController.getImage(1L, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(eTag, response.getHeaders().getFirst(HttpHeaders.ETAG));
+        assertArrayEquals(image.getImageByte(), response.getBody());
+    }
+
+    @Test
+    void testGetImageNotModified() {
+        ResponseEntity<byte[]> response = imageController.getImage(1L, eTag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(imageService, never()).getImage(1L);
+    }
+
+    @Test
+    void testGetImageChanged() {
+        ResponseEntity<byte[]> response = imageController.getImage(1L, "\"outdated\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void testGetImageNotFound() {
+        assertEquals(HttpStatus.NOT_FOUND, imageController.getImage(2L, null).getStatusCode());
+    }
+}
@@ -15,8 +15,15 @@
  */
 package server.api;
 
+import commons.CharId;
 import commons.Collection;
 import commons.Note;
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
+import commons.Synchronization;
+import commons.SynchronizationType;
+import commons.TextOperation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,22 +33,38 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import server.ClusterConfig;
+import server.SseSyncBroadcaster;
+import server.SyncDispatcher;
+import server.SyncMetrics;
 import server.WebSocketConfig;
 import server.WebSocketEventListener;
+import server.services.CollaborationService;
 import server.services.NoteService;
 import server.services.TagService;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(NoteController.class)
-@Import({WebSocketConfig.class, WebSocketEventListener.class})
+@Import({WebSocketConfig.class, WebSocketEventListener.class, SseSyncBroadcaster.class,
+    SyncMetrics.class, SimpleMeterRegistry.class, SyncDispatcher.class, ClusterConfig.class})
 public class NoteControllerTest {
 
     @Autowired
@@ -53,6 +76,12 @@ public class NoteControllerTest {
     @MockBean
     private TagService tagService;
 
+    @MockBean
+    private CollaborationService collaborationService;
+
+    @Autowired
+    private SseSyncBroadcaster sseBroadcaster;
+
     private Note note1;
     private Collection defaultCollection;
 
@@ -86,6 +115,194 @@ public class NoteControllerTest {
                 .andExpect(jsonPath("$[0].collection.id").value(defaultCollection.getId()));
     }
 
+    @Test
+    void testExportNotes() throws Exception {
+        Note note2 = new Note("Note 2", "second", null);
+        note2.id = 2L;
+        doAnswer(invocation -> {
+            Consumer<Note> action = invocation.getArgument(0);
+            action.accept(note1);
+            action.accept(note2);
+            return null;
+        }).when(noteService).forEachNote(any());
+
+        MvcResult result = mockMvc.perform(get("/api/notes/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the export has a timeout of its own
+        assertEquals(3600000L, result.getRequest().getAsyncContext().getTimeout());
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"title\":\"Note 1\""));
+        assertTrue(lines[1].contains("\"content\":\"second\""));
+    }
+
+    @Test
+    void testSubscribeToSynchronizations() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/notes/sync").param("client", "a"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        sseBroadcaster.publish(new Synchronization(SynchronizationType.DELETE, 2L, "T", "C"),
+                "a");
+        sseBroadcaster.publish(new Synchronization(SynchronizationType.UPDATE, 1L, "T", "C"),
+                null);
+
+        String events = awaitEvents(result, "\"noteId\":1");
+        assertTrue(events.contains("event:synchronization"));
+        assertTrue(events.contains("\"noteId\":1"));
+        assertFalse(events.contains("\"noteId\":2"));
+    }
+
+    @Test
+    void testSubscribeToSynchronizations_resumesAfterLastEventId() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/notes/sync"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        sseBroadcaster.publish(new Synchronization(SynchronizationType.CREATE, 1L, "T", "C"),
+                null);
+        String lastEventId = lastEventId(awaitEvents(first, "\"noteId\":1"));
+        sseBroadcaster.publish(new Synchronization(SynchronizationType.CREATE, 2L, "T", "C"),
+                null);
+
+        MvcResult resumed = mockMvc.perform(get("/api/notes/sync")
+                        .header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String events = awaitEvents(resumed, "\"noteId\":2");
+        assertFalse(events.contains("\"noteId\":1"));
+        assertTrue(events.contains("\"noteId\":2"));
+    }
+
+    @Test
+    void testSubscribeToSynchronizations_unknownLastEventIdResets() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/notes/sync")
+                        .header("Last-Event-ID", "earlier-run-5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertTrue(result.getResponse().getContentAsString().contains("event:reset"));
+    }
+
+    @Test
+    void testPublishSynchronization() throws Exception {
+        MvcResult other = mockMvc.perform(get("/api/notes/sync").param("client", "b"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult own = mockMvc.perform(get("/api/notes/sync").param("client", "a"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/api/notes/sync").param("client", "a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"UPDATE\",\"noteId\":3,\"title\":\"T\"}"))
+                .andExpect(status().isOk());
+
+        assertTrue(awaitEvents(other, "\"noteId\":3").contains("\"noteId\":3"));
+        assertFalse(own.getResponse().getContentAsString().contains("\"noteId\":3"));
+    }
+
+    @Test
+    void testPublishSynchronization_edit() throws Exception {
+        MvcResult other = mockMvc.perform(get("/api/notes/sync").param("client", "b"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        when(collaborationService.applyEdit(any(Long.class), any(), any())).thenAnswer(i -> {
+            i.<Consumer<String>>getArgument(2).accept("merged");
+            return "merged";
+        });
+
+        mockMvc.perform(post("/api/notes/sync").param("client", "a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"EDIT\",\"noteId\":3,\"title\":\"T\","
+                                + "\"operations\":[{\"type\":\"INSERT\",\"id\":"
+                                + "{\"clock\":4,\"site\":\"a\"},\"text\":\"x\"}]}"))
+                .andExpect(status().isOk());
+
+        String events = awaitEvents(other, "\"site\":\"a\"");
+        assertTrue(events.contains("\"content\":\"merged\""));
+        assertTrue(events.contains("\"site\":\"a\""));
+    }
+
+    @Test
+    void testPublishSynchronization_rejectedEdit() throws Exception {
+        when(collaborationService.applyEdit(any(Long.class), any(), any())).thenReturn(null);
+
+        mockMvc.perform(post("/api/notes/sync").param("client", "a")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"EDIT\",\"noteId\":3,\"operations\":[]}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testGetText() throws Exception {
+        when(collaborationService.getSnapshot(3L)).thenReturn(
+                List.of(TextOperation.insert(new CharId(1, "server"), null, "abc")));
+
+        mockMvc.perform(get("/api/notes/{id}/text", 3L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("INSERT"))
+                .andExpect(jsonPath("$[0].id.site").value("server"))
+                .andExpect(jsonPath("$[0].text").value("abc"));
+    }
+
+    @Test
+    void testGetText_notFound() throws Exception {
+        when(collaborationService.getSnapshot(3L)).thenReturn(null);
+
+        mockMvc.perform(get("/api/notes/{id}/text", 3L))
+                .andExpect(status().isNotFound());
+    }
+
+    // the synchronizations are sent to the clients asynchronously
+    private static String awaitEvents(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String events = result.getResponse().getContentAsString();
+        while (!events.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            events = result.getResponse().getContentAsString();
+        }
+        return events;
+    }
+
+    private static String lastEventId(String events) {
+        String id = null;
+        for (String line : events.split("\n")) {
+            if (line.startsWith("id:")) {
+                id = line.substring("id:".length());
+            }
+        }
+        return id;
+    }
+
+    @Test
+    void testSearchNotes() throws Exception {
+        when(noteService.findNoteSummaries(1L, Set.of("a", "b"), null, 0, 50)).thenReturn(
+                new NoteSummaryPage(List.of(new NoteSummary(3L, "Note 1", 1L)), 0, 50, 1));
+
+        mockMvc.perform(get("/api/notes").param("collection", "1").param("tag", "a", "b"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes[0].id").value(3))
+                .andExpect(jsonPath("$.notes[0].title").value("Note 1"))
+                .andExpect(jsonPath("$.notes[0].collectionId").value(1))
+                .andExpect(jsonPath("$.totalNotes").value(1));
+    }
+
+    @Test
+    void testSearchNotes_badRequest() throws Exception {
+        when(noteService.findNoteSummaries(isNull(), isNull(), any(), any(Integer.class),
+                any(Integer.class))).thenReturn(null);
+
+        mockMvc.perform(get("/api/notes").param("q", "x").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetNoteById_success() throws Exception {
         when(noteService.findNote(note1.getId())).thenReturn(note1);
@@ -131,6 +348,20 @@ public class NoteControllerTest {
                 .andExpect(jsonPath("$.content").value("Updated Content"));
     }
 
+    @Test
+    void testUpdateNote_keepsMergedContent() throws Exception {
+        when(noteService.findNote(note1.getId())).thenReturn(note1);
+        when(noteService.saveNote(any(Note.class))).thenReturn(note1);
+        when(collaborationService.getText(note1.getId())).thenReturn("Merged Content");
+
+        mockMvc.perform(put("/api/notes/{id}", note1.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Updated Title\", \"content\": \"Stale\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Updated Title"))
+                .andExpect(jsonPath("$.content").value("Merged Content"));
+    }
+
     @Test
     void testUpdateNote_badRequest() throws Exception {
         when(noteService.findNote(note1.getId())).thenReturn(null);
@@ -0,0 +1,176 @@
+package server.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.database.NoteLog;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testPutGetDelete() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            NoteLog.Entry note = entry(1, "content #a", 3L);
+            log.put(note);
+            log.put(entry(2, null, null));
+
+            assertEquals(note, log.get(1));
+            assertEquals(entry(2, null, null), log.get(2));
+            assertNull(log.get(3));
+            assertEquals(2, log.size());
+
+            assertTrue(log.delete(1));
+            assertFalse(log.delete(1));
+            assertNull(log.get(1));
+            assertFalse(log.contains(1));
+            assertTrue(log.contains(2));
+        }
+    }
+
+    @Test
+    public void testReopenReplaysLog() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 1 << 20, true)) {
+            log.put(entry(1, "first", null));
+            log.put(entry(2, "second", 5L));
+            log.put(entry(1, "first, edited", null));
+            log.delete(2);
+        }
+
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            assertEquals(1, log.size());
+            assertEquals(entry(1, "first, edited", null), log.get(1));
+        }
+    }
+
+    @Test
+    public void testTornRecordIsCutOff() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            log.put(entry(1, "kept", null));
+            log.put(entry(2, "torn", null));
+        }
+        Path segment = segments().getFirst();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        long intactSize;
+
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            assertEquals(entry(1, "kept", null), log.get(1));
+            assertNull(log.get(2));
+            intactSize = Files.size(segment);
+
+            log.put(entry(3, "after recovery", null));
+        }
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            assertEquals(entry(3, "after recovery", null), log.get(3));
+            assertTrue(Files.size(segment) > intactSize);
+        }
+    }
+
+    @Test
+    public void testCorruptRecordIsCutOff() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            log.put(entry(1, "kept", null));
+            log.put(entry(2, "corrupt", null));
+        }
+        Path segment = segments().getFirst();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        try (NoteLog log = new NoteLog(directory, 1 << 20, false)) {
+            assertEquals(1, log.size());
+            assertNull(log.get(2));
+        }
+    }
+
+    @Test
+    public void testOverwritesAreCompacted() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 512, false)) {
+            for (int version = 0; version < 200; version++) {
+                log.put(entry(version % 4, "version " + version, null));
+            }
+            log.delete(3);
+
+            // all but the last versions of the notes are garbage, so old segments are merged
+            assertTrue(log.segmentCount() < 5, "segments: " + log.segmentCount());
+            assertTrue(log.diskSize() < 4 * 512, "bytes: " + log.diskSize());
+            assertEquals(entry(0, "version 196", null), log.get(0));
+            assertEquals(entry(2, "version 198", null), log.get(2));
+            assertNull(log.get(3));
+        }
+
+        try (NoteLog log = new NoteLog(directory, 512, false)) {
+            assertEquals(3, log.size());
+            assertEquals(entry(1, "version 197", null), log.get(1));
+        }
+    }
+
+    @Test
+    public void testCompactKeepsLatestVersions() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 100, false)) {
+            for (int id = 0; id < 20; id++) {
+                log.put(entry(id, "note " + id, null));
+            }
+            log.compact();
+
+            assertEquals(2, log.segmentCount());
+            List<NoteLog.Entry> entries = new ArrayList<>();
+            log.forEach(entries::add);
+            assertEquals(20, entries.size());
+            assertEquals(entry(0, "note 0", null), entries.getFirst());
+        }
+        try (NoteLog log = new NoteLog(directory, 100, false)) {
+            assertEquals(20, log.size());
+            assertEquals(entry(19, "note 19", null), log.get(19));
+        }
+    }
+
+    @Test
+    public void testInterruptedCompactionIsFinished() throws IOException {
+        try (NoteLog log = new NoteLog(directory, 100, false)) {
+            log.put(entry(1, "old", null));
+            log.put(entry(1, "new", null));
+            log.put(entry(2, "active", null));
+        }
+        // a complete compacted segment next to the segments it replaces
+        List<Path> segments = segments();
+        Path newest = segments.get(segments.size() - 2);
+        Files.copy(newest, newest.resolveSibling(newest.getFileName() + ".compacted"));
+        Files.writeString(directory.resolve("segment-0000000009.log.compacted.tmp"), "partial");
+
+        try (NoteLog log = new NoteLog(directory, 100, false)) {
+            assertEquals(entry(1, "new", null), log.get(1));
+            assertEquals(entry(2, "active", null), log.get(2));
+        }
+        assertEquals(2, segments().size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static NoteLog.Entry entry(long id, String content, Long collectionId) {
+        return new NoteLog.Entry(id, "Title " + id, content, collectionId,
+                content == null ? Set.of() : Set.of("a"));
+    }
+}
@@ -1,6 +1,8 @@
 package server.api;
 
+import commons.Collection;
 import commons.Note;
+import commons.NoteSummary;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.AfterEach;
@@ -8,6 +10,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +19,8 @@ import server.database.NoteRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,6 +121,99 @@ public class NoteRepositoryTest {
         assertEquals("testContent", retrievedNote.getContent());
     }
 
+    @Test
+    public void testTitleIsUniqueWithinCollection() {
+        Collection collection = new Collection("collection", "url");
+        entityManager.persist(collection);
+        Collection other = new Collection("other", "url");
+        entityManager.persist(other);
+        Note note = noteRepository.saveAndFlush(new Note("title", "", collection));
+
+        assertTrue(noteRepository.existsByCollectionAndTitleAndIdNot(collection, "title", -1));
+        assertFalse(noteRepository.existsByCollectionAndTitleAndIdNot(collection, "title", note.id));
+        assertFalse(noteRepository.existsByCollectionAndTitleAndIdNot(other, "title", -1));
+
+        noteRepository.saveAndFlush(new Note("title", "", other));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> noteRepository.saveAndFlush(new Note("title", "", collection)));
+        entityManager.clear();
+    }
+
+    @Test
+    public void testFindByTags() {
+        Note both = noteRepository.save(new Note("both", "#work #urgent", null));
+        Note work = noteRepository.save(new Note("work", "#work", null));
+        noteRepository.flush();
+        entityManager.clear();
+
+        assertEquals(Set.of(both.id, work.id), idsOf(noteRepository.findByTag("work")));
+        assertEquals(Set.of(both.id),
+                idsOf(noteRepository.findByAllTags(Set.of("work", "urgent"))));
+        assertEquals(Set.of(), idsOf(noteRepository.findByAllTags(Set.of("work", "later"))));
+        assertEquals(Set.of("work", "urgent"),
+                noteRepository.findById(both.id).orElseThrow().getTags());
+    }
+
+    @Test
+    public void testFindSummaries() {
+        Collection work = new Collection("work", "url");
+        entityManager.persist(work);
+        Note report = noteRepository.save(new Note("Report", "numbers #q1 #draft", work));
+        Note plan = noteRepository.save(new Note("Plan", "100% done #q1", work));
+        noteRepository.save(new Note("Other", "#q1 #draft", null));
+        noteRepository.flush();
+        Pageable firstPage = PageRequest.of(0, 10, Sort.by("title"));
+
+        Page<NoteSummary> inWork = noteRepository.findSummaries(work.id, Set.of(""), 0, null,
+                firstPage);
+        assertEquals(List.of(new NoteSummary(plan.id, "Plan", work.id),
+                new NoteSummary(report.id, "Report", work.id)), inWork.getContent());
+
+        Page<NoteSummary> tagged = noteRepository.findSummaries(work.id,
+                Set.of("q1", "draft"), 2, null, firstPage);
+        assertEquals(List.of(report.id), tagged.map(NoteSummary::id).getContent());
+
+        Page<NoteSummary> matching = noteRepository.findSummaries(null, Set.of(""), 0,
+                "%100\\%%", firstPage);
+        assertEquals(List.of(plan.id), matching.map(NoteSummary::id).getContent());
+
+        Page<NoteSummary> paged = noteRepository.findSummaries(null, Set.of(""), 0, null,
+                PageRequest.of(1, 2, Sort.by("title")));
+        assertEquals(5, paged.getTotalElements());
+        assertEquals(2, paged.getContent().size());
+    }
+
+    @Test
+    public void testStreamAll() {
+        Note third = noteRepository.saveAndFlush(new Note("testTitle3", "#tag", null));
+        entityManager.clear();
+
+        try (Stream<Note> notes = noteRepository.streamAll()) {
+            List<Note> streamed = notes.toList();
+            assertEquals(List.of(note1.id, note2.id, third.id),
+                    streamed.stream().map(note -> note.id).toList());
+            assertEquals(Set.of("tag"), streamed.get(2).getTags());
+        }
+    }
+
+    @Test
+    public void testFindTagsAndStreamUntagged() {
+        Note tagged = noteRepository.save(new Note("tagged", "#work #urgent", null));
+        Note heading = noteRepository.save(new Note("heading", "# Heading", null));
+        noteRepository.flush();
+        entityManager.clear();
+
+        assertEquals(Set.of("work", "urgent"), noteRepository.findTags(tagged.id));
+        assertEquals(Set.of(), noteRepository.findTags(heading.id));
+        try (Stream<Note> untagged = noteRepository.streamUntagged()) {
+            assertEquals(List.of(heading.id), untagged.map(note -> note.id).toList());
+        }
+    }
+
+    private static Set<Long> idsOf(List<Note> notes) {
+        return Set.copyOf(notes.stream().map(note -> note.id).toList());
+    }
+
     @Test
     public void testDelete() {
         assertTrue(noteRepository.existsById(note1.id));
@@ -0,0 +1,160 @@
+package server.api;
+
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.database.NoteLog;
+import server.database.NoteShards;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteShardsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testCollectionsAreSpreadOverShards() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 3)) {
+            shards.put(entry(shards.nextId(), "A", 3L));
+            shards.put(entry(shards.nextId(), "B", 4L));
+            shards.put(entry(shards.nextId(), "C", 4L));
+            shards.put(entry(shards.nextId(), "D", null));
+
+            assertEquals(List.of(new NoteShards.Stats(0, 1, 2), new NoteShards.Stats(1, 1, 2),
+                    new NoteShards.Stats(2, 0, 0)), shards.stats());
+            assertTrue(Files.exists(directory.resolve("shard-2.mv.db")));
+        }
+    }
+
+    @Test
+    public void testPutGetDelete() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 2)) {
+            long id = shards.nextId();
+            NoteLog.Entry note = entry(id, "Title", 1L);
+            assertTrue(shards.put(note));
+
+            assertEquals(note, shards.get(id));
+            assertTrue(shards.contains(id));
+            assertNull(shards.get(id + 1));
+            assertNotEquals(id, shards.nextId());
+
+            assertTrue(shards.delete(id));
+            assertFalse(shards.delete(id));
+            assertNull(shards.get(id));
+        }
+    }
+
+    @Test
+    public void testDuplicateTitleIsRejected() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 2)) {
+            assertTrue(shards.put(entry(1, "Title", 1L)));
+            assertFalse(shards.put(entry(2, "Title", 1L)));
+            assertTrue(shards.put(entry(2, "Title", 2L)));
+            assertTrue(shards.put(entry(3, "Title", null)));
+            assertTrue(shards.put(entry(4, "Title", null)));
+            assertNull(shards.get(5));
+        }
+    }
+
+    @Test
+    public void testNoteMovesToTheShardOfItsNewCollection() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 2)) {
+            shards.put(entry(1, "Title", 2L));
+            shards.put(entry(1, "Title", 3L));
+
+            assertEquals(3L, shards.get(1).collectionId());
+            assertEquals(List.of(0L, 1L),
+                    shards.stats().stream().map(NoteShards.Stats::notes).toList());
+        }
+    }
+
+    @Test
+    public void testReopenKeepsNotesAndShardMap() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 2)) {
+            shards.put(entry(shards.nextId(), "Title", 3L));
+        }
+        // collection 3 stays on shard 1, although it would now get shard 0
+        try (NoteShards shards = new NoteShards(directory, 3)) {
+            assertEquals("Title", shards.get(1).title());
+            assertEquals(1, shards.findSummaries(3L, Set.of(), null, 0, 10).totalNotes());
+            assertEquals(2, shards.nextId());
+        }
+        assertThrows(IllegalStateException.class, () -> new NoteShards(directory, 1));
+    }
+
+    @Test
+    public void testFindSummariesMergesShards() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 3)) {
+            String[] titles = {"e", "a", "d", "b", "f", "c"};
+            for (int i = 0; i < titles.length; i++) {
+                shards.put(new NoteLog.Entry(i + 1, titles[i], "content #" + (i % 2),
+                        (long) i, i % 2 == 0 ? Set.of("even") : Set.of()));
+            }
+
+            NoteSummaryPage second = shards.findSummaries(null, Set.of(), null, 1, 2);
+            assertEquals(List.of("c", "d"), titles(second));
+            assertEquals(6, second.totalNotes());
+
+            NoteSummaryPage even = shards.findSummaries(null, Set.of("even"), null, 0, 10);
+            assertEquals(List.of("d", "e", "f"), titles(even));
+            assertEquals(List.of(new NoteSummary(4, "b", 3L)),
+                    shards.findSummaries(3L, Set.of(), "%#1%", 0, 10).notes());
+            assertEquals(0, shards.findSummaries(42L, Set.of(), null, 0, 10).totalNotes());
+        }
+    }
+
+    @Test
+    public void testForEachMergesShardsById() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 4)) {
+            for (int i = 1; i <= 1000; i++) {
+                shards.put(new NoteLog.Entry(i, "Note " + i, "content", (long) i % 7,
+                        Set.of("tag" + i % 3)));
+            }
+
+            List<NoteLog.Entry> entries = new ArrayList<>();
+            shards.forEach(entries::add);
+
+            assertEquals(1000, entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals(i + 1, entries.get(i).id());
+            }
+            assertEquals(Set.of("tag1"), entries.get(0).tags());
+        }
+    }
+
+    @Test
+    public void testCompactKeepsNotes() throws SQLException {
+        try (NoteShards shards = new NoteShards(directory, 2)) {
+            for (int i = 1; i <= 100; i++) {
+                shards.put(entry(i, "Note " + i, 1L));
+            }
+            for (int i = 1; i <= 90; i++) {
+                shards.delete(i);
+            }
+
+            shards.compact(1);
+            shards.compact(0);
+
+            assertEquals("Note 95", shards.get(95).title());
+            assertTrue(shards.put(entry(101, "Note 101", 1L)));
+            assertEquals(11, shards.stats().get(1).notes());
+        }
+    }
+
+    private static NoteLog.Entry entry(long id, String title, Long collectionId) {
+        return new NoteLog.Entry(id, title, "content #a", collectionId, Set.of("a"));
+    }
+
+    private static List<String> titles(NoteSummaryPage page) {
+        return page.notes().stream().map(NoteSummary::title).toList();
+    }
+}
@@ -0,0 +1,48 @@
+package server.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import server.database.CollectionRepository;
+import server.database.NoteShards;
+import server.services.NoteService;
+import server.services.ShardedNoteServiceImpl;
+import server.services.TagService;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ShardControllerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testShardedNotes() throws SQLException {
+        ShardedNoteServiceImpl noteService = new ShardedNoteServiceImpl(
+                new NoteShards(directory, 2), mock(CollectionRepository.class),
+                mock(TagService.class));
+        try {
+            ShardController controller = new ShardController(noteService);
+
+            assertEquals(List.of(new NoteShards.Stats(0, 0, 0), new NoteShards.Stats(1, 0, 0)),
+                    controller.getAll().getBody());
+            assertEquals(HttpStatus.OK, controller.compact(1).getStatusCode());
+            assertEquals(HttpStatus.NOT_FOUND, controller.compact(2).getStatusCode());
+        } finally {
+            noteService.close();
+        }
+    }
+
+    @Test
+    public void testNotesNotSharded() {
+        ShardController controller = new ShardController(mock(NoteService.class));
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.getAll().getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.compact(0).getStatusCode());
+    }
+}
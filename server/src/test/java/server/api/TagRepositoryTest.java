@@ -1,5 +1,6 @@
 package server.api;
 
+import commons.Note;
 import commons.Tag;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -16,6 +17,8 @@ import server.database.TagRepository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -70,6 +73,21 @@ public class TagRepositoryTest {
         assertEquals("testTitle", page.getContent().getFirst().title);
     }
 
+    @Test
+    public void testFindNoteIDs() {
+        Note both = new Note("both", "#testTitle #testTitle2", null);
+        Note one = new Note("one", "#testTitle", null);
+        entityManager.persist(both);
+        entityManager.persist(one);
+        entityManager.flush();
+
+        List<Object[]> rows = tagRepository.findNoteIDs(Set.of("testTitle", "other"));
+        assertEquals(Set.of(List.of("testTitle", both.id), List.of("testTitle", one.id)),
+                rows.stream().map(List::of).collect(Collectors.toSet()));
+        assertEquals(Set.of("testTitle"),
+                Set.copyOf(tagRepository.findTitles(Set.of("testTitle", "other"))));
+    }
+
     @Test
     public void testFindById() {
         Tag savedTag = tagRepository.findAll().getFirst();
@@ -0,0 +1,179 @@
+package server.services;
+
+import commons.Collection;
+import commons.Files;
+import commons.Note;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import server.database.ImageRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:archive")
+class ArchiveServiceImplTest {
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private CollectionService collectionService;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private TagService tagService;
+
+    @Test
+    void exportThenImport_CopiesNotesAndImages() throws IOException {
+        Collection work = collectionService.saveCollection(new Collection("Work", "url"));
+        Collection other = collectionService.saveCollection(new Collection("Other", "url"));
+        imageRepository.save(new Files("logo.png", "image/png", new byte[] {1, 2, 3}));
+        imageRepository.save(new Files("unused.png", "image/png", new byte[] {4}));
+        noteService.saveNote(new Note("Plan", "![logo](logo.png) #q1", work));
+        noteService.saveNote(new Note("a/b: c?", "second", work));
+        noteService.saveNote(new Note("Elsewhere", "third", other));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        archiveService.exportCollection(work, archive);
+
+        assertEquals(List.of("manifest.json", "images/logo.png", "notes/Plan.md",
+                "notes/a%2Fb%3A c%3F.md"), entryNames(archive.toByteArray()));
+
+        Collection copy = archiveService.importCollection(
+                new ByteArrayInputStream(archive.toByteArray()), "Work copy");
+        assertEquals("Work copy", copy.title);
+        List<Note> notes = new ArrayList<>();
+        noteService.forEachNoteInCollection(copy.id, notes::add);
+        assertEquals(List.of("Plan", "a/b: c?"), notes.stream().map(Note::getTitle).toList());
+        assertEquals("![logo](logo.png) #q1", notes.get(0).getContent());
+        assertEquals(Set.of("q1"), notes.get(0).getTags());
+        assertTrue(tagService.findTagById("q1").noteIDs.contains(notes.get(0).id));
+        assertEquals(copy, notes.get(1).collection);
+        // the image was there already
+        assertEquals(1, imageRepository.findByNameIn(List.of("logo.png")).size());
+
+        assertNull(archiveService.importCollection(
+                new ByteArrayInputStream(archive.toByteArray()), null));
+    }
+
+    @Test
+    void importCollection_AddsMissingImages() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            write(zip, "manifest.json", "{\"format\":1,\"title\":\"Imported\",\"serverUrl\":\"url\","
+                    + "\"notes\":1,\"images\":[{\"file\":\"images/new.png\",\"name\":\"new.png\","
+                    + "\"type\":\"image/png\"}]}");
+            write(zip, "images/new.png", "png");
+            write(zip, "notes/100%25.md", "![new](new.png)");
+        }
+
+        Collection imported = archiveService.importCollection(
+                new ByteArrayInputStream(archive.toByteArray()), " ");
+
+        assertEquals("Imported", imported.title);
+        assertEquals("image/png",
+                imageRepository.findByNameIn(List.of("new.png")).getFirst().getType());
+        List<Note> notes = new ArrayList<>();
+        noteService.forEachNoteInCollection(imported.id, notes::add);
+        assertEquals("100%", notes.getFirst().title);
+    }
+
+    @Test
+    void importCollection_NotAnArchive_Throws() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            write(zip, "notes/Note.md", "content");
+        }
+
+        assertThrows(ZipException.class, () -> archiveService.importCollection(
+                new ByteArrayInputStream(archive.toByteArray()), null));
+        assertThrows(ZipException.class, () -> archiveService.importCollection(
+                new ByteArrayInputStream(new byte[0]), null));
+    }
+
+    @Test
+    void importCollection_Failure_RemovesWhatWasSaved() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            write(zip, "manifest.json", "{\"format\":1,\"title\":\"Broken\",\"serverUrl\":\"url\","
+                    + "\"notes\":501,\"images\":[{\"file\":\"images/broken.png\","
+                    + "\"name\":\"broken.png\",\"type\":\"image/png\"}]}");
+            write(zip, "images/broken.png", "png");
+            // one batch is saved before the invalid name
+            for (int i = 0; i < 500; i++) {
+                write(zip, "notes/Note " + i + ".md", "content");
+            }
+            write(zip, "notes/100%zz.md", "invalid");
+        }
+        int notes = noteService.findAllNotes().size();
+
+        assertThrows(ZipException.class, () -> archiveService.importCollection(
+                new ByteArrayInputStream(archive.toByteArray()), null));
+
+        assertTrue(collectionService.findAllCollections().stream()
+                .noneMatch(collection -> collection.title.equals("Broken")));
+        assertEquals(notes, noteService.findAllNotes().size());
+        assertTrue(imageRepository.findByNameIn(List.of("broken.png")).isEmpty());
+    }
+
+    @Test
+    void saveNotes_SkipsTakenTitles() {
+        Collection collection = collectionService.saveCollection(new Collection("Batch", "url"));
+        noteService.saveNote(new Note("Taken", "content", collection));
+
+        List<Note> saved = noteService.saveNotes(List.of(new Note("New", "#a", collection),
+                new Note("New", "again", collection), new Note("Taken", "content", collection),
+                new Note("Taken", "content", null)));
+
+        assertEquals(2, saved.size());
+        assertEquals("#a", noteService.findNote(saved.getFirst().id).getContent());
+        assertEquals(Set.of(saved.getFirst().id), tagService.findTagById("a").noteIDs);
+        assertEquals(2, noteService.findNoteSummaries(collection.id, null, null, 0, 10)
+                .totalNotes());
+    }
+
+    @Test
+    void encodeName_EscapesReservedCharacters() throws ZipException {
+        String name = "a/b\\c:d*e?f\"g<h>i|j%k\nl m";
+        String encoded = ArchiveServiceImpl.encodeName(name);
+
+        assertEquals("a%2Fb%5Cc%3Ad%2Ae%3Ff%22g%3Ch%3Ei%7Cj%25k%0Al m", encoded);
+        assertEquals(name, ArchiveServiceImpl.decodeName(encoded));
+        assertThrows(ZipException.class, () -> ArchiveServiceImpl.decodeName("a%4"));
+        assertThrows(ZipException.class, () -> ArchiveServiceImpl.decodeName("a%zz"));
+    }
+
+    private static List<String> entryNames(byte[] archive) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private static void write(ZipOutputStream zip, String name, String content)
+            throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,133 @@
+package server.services;
+
+import commons.CollaborativeText;
+import commons.Note;
+import commons.TextOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CollaborationServiceImplTest {
+
+    private CollaborationServiceImpl collaborationService;
+
+    @Mock
+    private NoteService noteService;
+
+    private Note note;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        collaborationService = new CollaborationServiceImpl(noteService, 600000);
+        note = new Note("Title", "hello world", null);
+        note.id = 1L;
+        when(noteService.findNote(1L)).thenReturn(note);
+        when(noteService.saveNote(any(Note.class))).thenAnswer(i -> i.getArgument(0));
+    }
+
+    private CollaborativeText load(String site) {
+        CollaborativeText text = new CollaborativeText(site);
+        assertTrue(text.applyAll(collaborationService.getSnapshot(1L)));
+        return text;
+    }
+
+    @Test
+    void getSnapshot_UnknownNote_ReturnsNull() {
+        assertNull(collaborationService.getSnapshot(2L));
+        assertNull(collaborationService.getText(2L));
+    }
+
+    @Test
+    void getSnapshot_BuildsSavedContent() {
+        assertEquals("hello world", load("a").text());
+        assertEquals("hello world", collaborationService.getText(1L));
+        verify(noteService, times(1)).findNote(1L);
+    }
+
+    @Test
+    void applyEdit_ConcurrentEdits_Merge() {
+        CollaborativeText a = load("a");
+        CollaborativeText b = load("b");
+        List<String> passedOn = new ArrayList<>();
+
+        String merged = collaborationService.applyEdit(1L, a.edit("hello brave world"),
+                passedOn::add);
+        assertEquals("hello brave world", merged);
+        merged = collaborationService.applyEdit(1L, b.edit("hello world!"), passedOn::add);
+
+        assertEquals("hello brave world!", merged);
+        assertEquals(List.of("hello brave world", "hello brave world!"), passedOn);
+        assertEquals(merged, collaborationService.getText(1L));
+    }
+
+    @Test
+    void applyEdit_OperationsOfAnotherText_ReturnsNull() {
+        load("a");
+        List<TextOperation> operations = CollaborativeText.of("other", "abc").edit("ab");
+        List<String> passedOn = new ArrayList<>();
+
+        assertNull(collaborationService.applyEdit(1L, operations, passedOn::add));
+        assertNull(collaborationService.applyEdit(2L, operations, passedOn::add));
+        assertTrue(passedOn.isEmpty());
+        assertEquals("hello world", collaborationService.getText(1L));
+    }
+
+    @Test
+    void saveDocuments_SavesEditedContentOnce() {
+        CollaborativeText a = load("a");
+        collaborationService.saveDocuments();
+        verify(noteService, never()).saveNote(any(Note.class));
+
+        collaborationService.applyEdit(1L, a.edit("hello"), _ -> { });
+        collaborationService.saveDocuments();
+        collaborationService.saveDocuments();
+
+        verify(noteService, times(1)).saveNote(note);
+        assertEquals("hello", note.getContent());
+    }
+
+    @Test
+    void saveDocuments_ForgetsIdleTexts() {
+        collaborationService = new CollaborationServiceImpl(noteService, -1);
+        CollaborativeText a = load("a");
+        collaborationService.applyEdit(1L, a.edit("hello"), _ -> { });
+
+        collaborationService.saveDocuments();
+        assertEquals("hello", collaborationService.getText(1L));
+        collaborationService.saveDocuments();
+        assertNull(collaborationService.getText(1L));
+
+        // the new text has other characters, so edits of the old one are rejected
+        assertNull(collaborationService.applyEdit(1L, a.edit("hello!"), _ -> { }));
+        assertEquals("hello", load("b").text());
+    }
+
+    @Test
+    void saveDocuments_DeletedNote_ForgetsText() {
+        CollaborativeText a = load("a");
+        collaborationService.applyEdit(1L, a.edit("hello"), _ -> { });
+        when(noteService.findNote(1L)).thenReturn(null);
+
+        collaborationService.saveDocuments();
+
+        verify(noteService, never()).saveNote(any(Note.class));
+        assertNull(collaborationService.getText(1L));
+    }
+
+    @Test
+    void closeDocument_ForgetsText() {
+        load("a");
+        collaborationService.closeDocument(1L);
+        assertNull(collaborationService.getText(1L));
+        collaborationService.closeDocument(1L);
+    }
+}
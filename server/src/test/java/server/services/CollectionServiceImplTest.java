@@ -5,6 +5,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import server.database.CollectionRepository;
 
 import java.util.ArrayList;
@@ -25,21 +27,21 @@ public class CollectionServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        collectionService = new CollectionServiceImpl(collectionRepository);
+        collectionService = new CollectionServiceImpl(collectionRepository,
+                new ConcurrentMapCacheManager());
     }
 
     @Test
     void findCollection_ValidId_ReturnsCollection() {
         Collection mockCollection = new Collection();
         mockCollection.id = 1L;
-        when(collectionRepository.existsById(1L)).thenReturn(true);
         when(collectionRepository.findById(1L)).thenReturn(Optional.of(mockCollection));
 
         Collection result = collectionService.findCollection(1L);
 
         assertNotNull(result);
         assertEquals(1L, result.id);
-        verify(collectionRepository, times(1)).existsById(1L);
+        verify(collectionRepository, never()).existsById(any(Long.class));
         verify(collectionRepository, times(1)).findById(1L);
     }
 
@@ -54,13 +56,12 @@ public class CollectionServiceImplTest {
 
     @Test
     void findNote_InvalidId_ReturnsNull() {
-        when(collectionRepository.existsById(1L)).thenReturn(false);
+        when(collectionRepository.findById(1L)).thenReturn(Optional.empty());
 
         Collection result = collectionService.findCollection(1L);
 
         assertNull(result);
-        verify(collectionRepository, times(1)).existsById(1L);
-        verify(collectionRepository, never()).findById(any(Long.class));
+        verify(collectionRepository, times(1)).findById(1L);
     }
 
     @Test
@@ -99,6 +100,27 @@ public class CollectionServiceImplTest {
         verify(collectionRepository, never()).save(any(Collection.class));
     }
 
+    @Test
+    void saveCollection_DuplicateTitle_ReturnsNull() {
+        Collection duplicate = new Collection("Title", "url");
+        duplicate.id = 2L;
+        when(collectionRepository.existsByTitleAndIdNot("Title", 2L)).thenReturn(true);
+
+        Collection result = collectionService.saveCollection(duplicate);
+
+        assertNull(result);
+        verify(collectionRepository, never()).save(any(Collection.class));
+    }
+
+    @Test
+    void saveCollection_ConcurrentDuplicateTitle_ReturnsNull() {
+        Collection duplicate = new Collection("Title", "url");
+        when(collectionRepository.save(duplicate))
+                .thenThrow(new DataIntegrityViolationException("uk_collection_title"));
+
+        assertNull(collectionService.saveCollection(duplicate));
+    }
+
     @Test
     void deleteCollection_ExistingCollection_DeletesAndReturnsCollection() {
         Collection existingCollection = new Collection();
@@ -0,0 +1,185 @@
+package server.services;
+
+import commons.Collection;
+import commons.Note;
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import server.database.CollectionRepository;
+import server.database.NoteLog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LogNoteServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private LogNoteServiceImpl noteService;
+
+    @Mock
+    private TagService tagService;
+
+    @Mock
+    private CollectionRepository collectionRepository;
+
+    private Collection collection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        collection = new Collection("Work", "url");
+        collection.id = 7L;
+        when(collectionRepository.findById(7L)).thenReturn(Optional.of(collection));
+        when(collectionRepository.findAll()).thenReturn(List.of(collection));
+        noteService = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        noteService.close();
+    }
+
+    @Test
+    void saveNote_NewNote_AssignsIdAndStores() {
+        Note saved = noteService.saveNote(new Note("Title", "Content #tag", collection));
+
+        assertEquals(1L, saved.id);
+        Note found = noteService.findNote(1L);
+        assertEquals("Title", found.title);
+        assertEquals("Content #tag", found.getContent());
+        assertEquals(Set.of("tag"), found.getTags());
+        assertEquals(collection, found.collection);
+        verify(tagService).updateTags(Set.of(), Set.of("tag"));
+    }
+
+    @Test
+    void saveNote_DuplicateTitleInCollection_ReturnsNull() {
+        Note first = noteService.saveNote(new Note("Title", "Content", collection));
+
+        assertNull(noteService.saveNote(new Note("Title", "Other", collection)));
+        assertNotNull(noteService.saveNote(new Note("Title", "Other", null)));
+        first.setContent("Edited");
+        assertNotNull(noteService.saveNote(first));
+    }
+
+    @Test
+    void saveNote_InvalidNote_ReturnsNull() {
+        Note note = new Note();
+        note.setContent("Content");
+
+        assertNull(noteService.saveNote(note));
+        assertTrue(noteService.findAllNotes().isEmpty());
+    }
+
+    @Test
+    void deleteNote_ExistingNote_Deletes() {
+        Note note = noteService.saveNote(new Note("Title", "Content", collection));
+
+        assertEquals(note, noteService.deleteNote(note));
+        assertNull(noteService.findNote(note.id));
+        assertNull(noteService.deleteNote(note));
+        verify(tagService, times(2)).updateTags(Set.of(), Set.of());
+    }
+
+    @Test
+    void notesSurviveRestart() throws IOException {
+        Note first = noteService.saveNote(new Note("First", "One", collection));
+        noteService.saveNote(new Note("Second", "Two", null));
+        first.setContent("One, edited");
+        noteService.saveNote(first);
+        noteService.close();
+
+        noteService = open();
+
+        List<Note> notes = noteService.findAllNotes();
+        assertEquals(List.of("One, edited", "Two"),
+                notes.stream().map(Note::getContent).toList());
+        assertNull(noteService.saveNote(new Note("First", "Again", collection)));
+        assertEquals(3L, noteService.saveNote(new Note("Third", "Three", null)).id);
+    }
+
+    @Test
+    void forEachNote_PassesNotesInIdOrder() {
+        noteService.saveNote(new Note("First", "One", collection));
+        Note second = noteService.saveNote(new Note("Second", "Two #tag", null));
+        noteService.saveNote(new Note("Third", "Three", collection));
+        second.setContent("Two, edited");
+        noteService.saveNote(second);
+
+        List<Note> notes = new ArrayList<>();
+        noteService.forEachNote(notes::add);
+
+        assertEquals(List.of(1L, 2L, 3L), notes.stream().map(Note::getId).toList());
+        assertEquals("Two, edited", notes.get(1).getContent());
+        assertEquals(collection, notes.get(2).collection);
+        verify(collectionRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void findNoteSummaries_FiltersAndPages() {
+        Note report = noteService.saveNote(new Note("Report", "Numbers #q1", collection));
+        Note plan = noteService.saveNote(new Note("Plan", "Done #q1", collection));
+        noteService.saveNote(new Note("Other", "numbers", null));
+
+        NoteSummaryPage inCollection = noteService.findNoteSummaries(7L, Set.of("q1"), null, 0, 10);
+        assertEquals(List.of(new NoteSummary(plan.id, "Plan", 7L),
+                new NoteSummary(report.id, "Report", 7L)), inCollection.notes());
+
+        NoteSummaryPage matching = noteService.findNoteSummaries(null, null, "NUMBERS", 0, 1);
+        assertEquals(2, matching.totalNotes());
+        assertEquals(List.of("Other"), matching.notes().stream().map(NoteSummary::title).toList());
+
+        assertTrue(noteService.findNoteSummaries(null, Set.of("none"), null, 0, 10)
+                .notes().isEmpty());
+        assertNull(noteService.findNoteSummaries(null, null, null, 0, 0));
+    }
+
+    @Test
+    void findNoteIDsByTag_FollowsSavesAndDeletes() throws IOException {
+        Note report = noteService.saveNote(new Note("Report", "#q1 #draft", null));
+        Note plan = noteService.saveNote(new Note("Plan", "#q1", null));
+        report.setContent("#q1");
+        noteService.saveNote(report);
+        noteService.deleteNote(plan);
+
+        assertEquals(Map.of("q1", Set.of(report.id)),
+                noteService.findNoteIDsByTag(Set.of("q1", "draft")));
+        verify(tagService).updateTags(Set.of("q1", "draft"), Set.of("q1"));
+        verify(tagService).updateTags(Set.of("q1"), Set.of());
+
+        noteService.close();
+        noteService = open();
+        assertEquals(Map.of("q1", Set.of(report.id)),
+                noteService.findNoteIDsByTag(Set.of("q1", "draft")));
+    }
+
+    @Test
+    void removeTagFromNote_RemovesTag() {
+        Note note = noteService.saveNote(new Note("Title", "#a #b", null));
+
+        noteService.removeTagFromNote(note.id, "a");
+
+        assertEquals(Set.of("b"), noteService.getTagsForNote(note.id));
+        assertNull(noteService.getTagsForNote(42L));
+    }
+
+    private LogNoteServiceImpl open() throws IOException {
+        return new LogNoteServiceImpl(new NoteLog(directory, 1 << 16, false),
+                collectionRepository, tagService);
+    }
+}
@@ -0,0 +1,55 @@
+package server.services;
+
+import commons.Note;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"notes.storage=log", "spring.datasource.url=jdbc:h2:mem:logtags"})
+class LogNoteStorageTagsTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private TagService tagService;
+
+    @DynamicPropertySource
+    static void logDirectory(DynamicPropertyRegistry registry) {
+        registry.add("notes.log.directory", () -> directory.toString());
+    }
+
+    @Test
+    void savedNotes_AreFoundByTheirTags() {
+        assertInstanceOf(LogNoteServiceImpl.class, noteService);
+        Note hello = noteService.saveNote(new Note("Hello", "hello #alpha", null));
+        Note other = noteService.saveNote(new Note("Other", "#alpha #beta", null));
+
+        assertEquals(Set.of(hello.id, other.id), tagService.findTagById("alpha").noteIDs);
+        assertEquals(2, noteService.findNoteSummaries(null, Set.of("alpha"), null, 0, 10)
+                .totalNotes());
+        assertTrue(tagService.findAllTags().stream().anyMatch(
+                tag -> tag.title.equals("beta") && tag.noteIDs.equals(Set.of(other.id))));
+
+        other.setContent("#alpha");
+        noteService.saveNote(other);
+        noteService.deleteNote(hello);
+
+        assertEquals(Set.of(other.id), tagService.findTagById("alpha").noteIDs);
+        assertNull(tagService.findTagById("beta"));
+        assertEquals(List.of("alpha"),
+                tagService.findAllTags().stream().map(tag -> tag.title).toList());
+    }
+}
@@ -2,15 +2,23 @@ package server.services;
 
 import commons.Collection;
 import commons.Note;
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import server.database.NoteRepository;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -28,7 +36,8 @@ class NoteServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        noteService = new NoteServiceImpl(noteRepository, tagService);
+        noteService = new NoteServiceImpl(noteRepository, tagService,
+                new ConcurrentMapCacheManager());
     }
 
     @Test
@@ -67,6 +76,18 @@ class NoteServiceImplTest {
         assertEquals("Test Title", result.title);
     }
 
+    @Test
+    void saveNote_ChangedTags_UpdatesTags() {
+        Note note = new Note("Title", "#kept #added", null);
+        note.id = 4L;
+        when(noteRepository.findTags(4L)).thenReturn(Set.of("kept", "removed"));
+        when(noteRepository.save(note)).thenReturn(note);
+
+        noteService.saveNote(note);
+
+        verify(tagService).updateTags(Set.of("kept", "removed"), Set.of("kept", "added"));
+    }
+
     @Test
     void saveNote_InvalidNote_ReturnsNull() {
         Note invalidNote = new Note(); // Missing required fields
@@ -80,6 +101,49 @@ class NoteServiceImplTest {
         verify(noteRepository, never()).save(any(Note.class));
     }
 
+    @Test
+    void saveNote_DuplicateTitleInCollection_ReturnsNull() {
+        Note duplicate = new Note("Test Title", "Content", new Collection());
+        duplicate.id = 3L;
+        when(noteRepository.existsByCollectionAndTitleAndIdNot(
+                duplicate.collection, "Test Title", 3L)).thenReturn(true);
+
+        Note result = noteService.saveNote(duplicate);
+
+        assertNull(result);
+        verify(noteRepository, never()).save(any(Note.class));
+    }
+
+    @Test
+    void saveNote_ConcurrentDuplicateTitle_ReturnsNull() {
+        Note duplicate = new Note("Test Title", "#tag", new Collection());
+        when(noteRepository.save(duplicate))
+                .thenThrow(new DataIntegrityViolationException("uk_note_collection_title"));
+
+        assertNull(noteService.saveNote(duplicate));
+        verify(tagService, never()).updateTags(any(), any());
+    }
+
+    @Test
+    void findNoteSummaries_PassesFiltersToRepository() {
+        when(noteRepository.findSummaries(eq(2L), eq(Set.of("a")), eq(1L), eq("%50\\%\\_x\\_%"),
+                any(Pageable.class))).thenReturn(new PageImpl<>(
+                        List.of(new NoteSummary(1L, "Title", 2L)), PageRequest.of(0, 10), 11));
+
+        NoteSummaryPage result = noteService.findNoteSummaries(2L, Set.of("a"), "50%_X_", 0, 10);
+
+        assertEquals(List.of(new NoteSummary(1L, "Title", 2L)), result.notes());
+        assertEquals(11, result.totalNotes());
+    }
+
+    @Test
+    void findNoteSummaries_InvalidPage_ReturnsNull() {
+        assertNull(noteService.findNoteSummaries(null, null, null, -1, 10));
+        assertNull(noteService.findNoteSummaries(null, null, null, 0, 0));
+        assertNull(noteService.findNoteSummaries(null, null, null, 0, 501));
+        verify(noteRepository, never()).findSummaries(any(), any(), anyLong(), any(), any());
+    }
+
     @Test
     void deleteNote_ExistingNote_DeletesAndReturnsNote() {
         Note existingNote = new Note();
@@ -90,6 +154,7 @@ class NoteServiceImplTest {
 
         assertNotNull(result);
         verify(noteRepository, times(1)).delete(existingNote);
+        verify(tagService).updateTags(Set.of(), Set.of());
     }
 
     @Test
@@ -0,0 +1,246 @@
+package server.services;
+
+import commons.Collection;
+import commons.Files;
+import commons.Note;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import server.CacheConfig;
+import server.api.CacheController;
+import server.database.CollectionRepository;
+import server.database.ImageRepository;
+import server.database.NoteRepository;
+import server.database.TagRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({CacheConfig.class, NoteServiceImpl.class, CollectionServiceImpl.class,
+        ImageServiceImpl.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ServiceCacheTest {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private CollectionService collectionService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private NoteRepository noteRepository;
+
+    @MockBean
+    private CollectionRepository collectionRepository;
+
+    @MockBean
+    private TagRepository tagRepository;
+
+    @MockBean
+    private ImageRepository imageRepository;
+
+    @MockBean
+    private TagService tagService;
+
+    // for the entity manager NoteServiceImpl detaches streamed notes with
+    @MockBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void findNote_ReadsDatabaseOnce() {
+        Note note = note(1L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+
+        assertEquals(note, noteService.findNote(1L));
+        assertEquals(note, noteService.findNote(1L));
+
+        verify(noteRepository, times(1)).findById(1L);
+        verify(noteRepository, never()).existsById(any(Long.class));
+    }
+
+    @Test
+    void findNote_MissingNoteIsNotCached() {
+        when(noteRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertNull(noteService.findNote(2L));
+        assertNull(noteService.findNote(2L));
+
+        verify(noteRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void findNote_ReturnsCopies() {
+        Note note = note(1L);
+        note.collection = new Collection("Work", "url");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+
+        Note first = noteService.findNote(1L);
+        first.title = "Changed";
+        first.setContent("#changed");
+        first.collection.title = "Changed";
+        Note second = noteService.findNote(1L);
+
+        assertNotSame(note, second);
+        assertEquals(note, second);
+        assertEquals("Work", note.collection.title);
+        verify(noteRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void findCollection_ReturnsCopies() {
+        Collection collection = new Collection("Work", "url");
+        collection.id = 3L;
+        when(collectionRepository.findById(3L)).thenReturn(Optional.of(collection));
+        when(collectionRepository.findAll()).thenReturn(List.of(collection));
+
+        collectionService.findCollection(3L).title = "Changed";
+        collectionService.findAllCollections().getFirst().title = "Changed";
+
+        assertEquals("Work", collectionService.findCollection(3L).title);
+        List<Collection> all = collectionService.findAllCollections();
+        assertEquals("Work", all.getFirst().title);
+        assertThrows(UnsupportedOperationException.class, () -> all.add(collection));
+        assertEquals("Work", collection.title);
+        verify(collectionRepository, times(1)).findById(3L);
+        verify(collectionRepository, times(1)).findAll();
+    }
+
+    @Test
+    void saveNote_InvalidatesNote() {
+        Note note = note(1L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteRepository.save(any(Note.class))).thenAnswer(call -> call.getArgument(0));
+        noteService.findNote(1L);
+
+        noteService.saveNote(note);
+        noteService.findNote(1L);
+
+        verify(noteRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void failedSave_KeepsSavedNote() {
+        Note note = note(1L);
+        note.collection = new Collection("Work", "url");
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteRepository.existsByCollectionAndTitleAndIdNot(any(), any(), anyLong()))
+                .thenReturn(true);
+
+        Note changed = noteService.findNote(1L);
+        changed.title = "Taken";
+        assertNull(noteService.saveNote(changed));
+
+        assertEquals("Title", noteService.findNote(1L).title);
+    }
+
+    @Test
+    void findAllNotes_IsNotCached() {
+        when(noteRepository.findAll()).thenReturn(List.of(note(1L)));
+
+        noteService.findAllNotes();
+        noteService.findAllNotes();
+
+        verify(noteRepository, times(2)).findAll();
+    }
+
+    @Test
+    void deleteNote_InvalidatesNote() {
+        Note note = note(1L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
+        when(noteRepository.existsById(1L)).thenReturn(true);
+        noteService.findNote(1L);
+
+        noteService.deleteNote(note);
+        noteService.findNote(1L);
+
+        verify(noteRepository, times(2)).findById(1L);
+        assertNull(noteService.deleteNote(null));
+    }
+
+    @Test
+    void saveCollection_InvalidatesCollectionsAndNotes() {
+        Collection collection = new Collection("Work", "url");
+        collection.id = 3L;
+        when(collectionRepository.findById(3L)).thenReturn(Optional.of(collection));
+        when(collectionRepository.findAll()).thenReturn(List.of(collection));
+        when(collectionRepository.save(collection)).thenReturn(collection);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note(1L)));
+        collectionService.findCollection(3L);
+        collectionService.findAllCollections();
+        noteService.findNote(1L);
+
+        collectionService.saveCollection(collection);
+        collectionService.findCollection(3L);
+        collectionService.findAllCollections();
+        noteService.findNote(1L);
+
+        verify(collectionRepository, times(2)).findById(3L);
+        verify(collectionRepository, times(2)).findAll();
+        verify(noteRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void getImageETag_ReadsImageOnce() {
+        Files image = new Files("cat.png", "image/png", new byte[] {1, 2, 3});
+        when(imageRepository.existsById(1L)).thenReturn(true);
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+
+        String eTag = imageService.getImageETag(1L);
+        assertEquals(eTag, imageService.getImageETag(1L));
+
+        assertEquals("\"039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81\"",
+                eTag);
+        verify(imageRepository, times(1)).findById(1L);
+        assertNull(imageService.getImageETag(2L));
+    }
+
+    @Test
+    void deleteImage_InvalidatesETag() {
+        Files image = new Files("cat.png", "image/png", new byte[] {1, 2, 3});
+        when(imageRepository.existsById(1L)).thenReturn(true);
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+        imageService.getImageETag(1L);
+
+        imageService.deleteImage(1L);
+        imageService.getImageETag(1L);
+
+        verify(imageRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void cacheController_ReportsHitRates() {
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(note(1L)));
+        for (int i = 0; i < 4; i++) {
+            noteService.findNote(1L);
+        }
+
+        CacheController.CacheStatistics notes = new CacheController(cacheManager).getAll()
+                .stream()
+                .filter(statistics -> statistics.name().equals(CacheConfig.NOTES))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(new CacheController.CacheStatistics(CacheConfig.NOTES, 1, 3, 1, 0.75, 0),
+                notes);
+    }
+
+    private static Note note(long id) {
+        Note note = new Note("Title", "Content", null);
+        note.id = id;
+        return note;
+    }
+}
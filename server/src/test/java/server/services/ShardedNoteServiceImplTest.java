@@ -0,0 +1,239 @@
+package server.services;
+
+import commons.Collection;
+import commons.Note;
+import commons.NoteSummary;
+import commons.NoteSummaryPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import server.database.CollectionRepository;
+import server.database.NoteShards;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShardedNoteServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private ShardedNoteServiceImpl noteService;
+
+    @Mock
+    private TagService tagService;
+
+    @Mock
+    private CollectionRepository collectionRepository;
+
+    private Collection work;
+    private Collection home;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        work = new Collection("Work", "url");
+        work.id = 6L;
+        home = new Collection("Home", "url");
+        home.id = 7L;
+        when(collectionRepository.findById(6L)).thenReturn(Optional.of(work));
+        when(collectionRepository.findById(7L)).thenReturn(Optional.of(home));
+        when(collectionRepository.findAll()).thenReturn(List.of(work, home));
+        noteService = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        noteService.close();
+    }
+
+    @Test
+    void saveNote_NewNote_AssignsIdAndStores() {
+        Note saved = noteService.saveNote(new Note("Title", "Content #tag", work));
+
+        assertEquals(1L, saved.id);
+        Note found = noteService.findNote(1L);
+        assertEquals("Title", found.title);
+        assertEquals("Content #tag", found.getContent());
+        assertEquals(Set.of("tag"), found.getTags());
+        assertEquals(work, found.collection);
+        verify(tagService).updateTags(Set.of(), Set.of("tag"));
+    }
+
+    @Test
+    void saveNote_DuplicateTitleInCollection_ReturnsNull() {
+        Note first = noteService.saveNote(new Note("Title", "Content", work));
+        Note duplicate = new Note("Title", "Other", work);
+
+        assertNull(noteService.saveNote(duplicate));
+        assertEquals(0L, duplicate.id);
+        assertNotNull(noteService.saveNote(new Note("Title", "Other", home)));
+        assertNotNull(noteService.saveNote(new Note("Title", "Other", null)));
+        first.setContent("Edited");
+        assertNotNull(noteService.saveNote(first));
+    }
+
+    @Test
+    void saveNote_ConcurrentMoves_KeepNoteInOneShard() throws Exception {
+        Note note = noteService.saveNote(new Note("Title", "Content", work));
+        ExecutorService savers = Executors.newFixedThreadPool(4);
+        List<Future<Note>> saves = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Note copy = new Note("Title", "Content " + i, i % 2 == 0 ? home : work);
+            copy.id = note.id;
+            saves.add(savers.submit(() -> noteService.saveNote(copy)));
+        }
+        for (Future<Note> save : saves) {
+            assertNotNull(save.get());
+        }
+        savers.shutdown();
+
+        assertEquals(1L, noteService.findShardStats().stream()
+                .mapToLong(NoteShards.Stats::notes).sum());
+        assertNotNull(noteService.findNote(note.id));
+    }
+
+    @Test
+    void saveNote_OtherCollection_MovesNote() {
+        Note note = noteService.saveNote(new Note("Title", "Content", work));
+        note.collection = home;
+
+        noteService.saveNote(note);
+
+        assertEquals(home, noteService.findNotesCollection(note.id));
+        assertEquals(List.of(0L, 1L), noteService.findShardStats().stream()
+                .map(NoteShards.Stats::notes).toList());
+    }
+
+    @Test
+    void open_FinishesInterruptedMoves() throws SQLException {
+        Note moved = noteService.saveNote(new Note("Moved", "Old", work));
+        Note copied = noteService.saveNote(new Note("Copied", "First", work));
+        noteService.close();
+        // written to the shard of home, but not deleted from the shard of work yet
+        try (Connection first = shard(0); Connection second = shard(1);
+             Statement statement = second.createStatement()) {
+            statement.execute("insert into note values (" + moved.id + ", 7, 'Moved', 'New')");
+            statement.execute("insert into note values (" + copied.id
+                    + ", 7, 'Copied', 'Second')");
+            first.createStatement().execute("insert into note_moves values ("
+                    + moved.id + ", 0, 1)");
+        }
+
+        noteService = open();
+
+        Note found = noteService.findNote(moved.id);
+        assertEquals("New", found.getContent());
+        assertEquals(home, found.collection);
+        // without a recorded move, the copy in the first shard is kept
+        assertEquals("First", noteService.findNote(copied.id).getContent());
+        assertEquals(List.of(1L, 1L), noteService.findShardStats().stream()
+                .map(NoteShards.Stats::notes).toList());
+    }
+
+    @Test
+    void deleteNote_ExistingNote_Deletes() {
+        Note note = noteService.saveNote(new Note("Title", "Content", work));
+
+        assertEquals(note, noteService.deleteNote(note));
+        assertNull(noteService.findNote(note.id));
+        assertNull(noteService.deleteNote(note));
+        verify(tagService, times(2)).updateTags(Set.of(), Set.of());
+    }
+
+    @Test
+    void forEachNote_MergesShardsInIdOrder() {
+        noteService.saveNote(new Note("First", "One", work));
+        noteService.saveNote(new Note("Second", "Two", home));
+        noteService.saveNote(new Note("Third", "Three", null));
+
+        List<Note> notes = new ArrayList<>();
+        noteService.forEachNote(notes::add);
+
+        assertEquals(List.of(1L, 2L, 3L), notes.stream().map(Note::getId).toList());
+        assertEquals(home, notes.get(1).collection);
+        assertEquals(notes, noteService.findAllNotes());
+        verify(collectionRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void findNoteSummaries_FiltersAndPagesAcrossShards() {
+        Note report = noteService.saveNote(new Note("Report", "Numbers #q1", work));
+        Note plan = noteService.saveNote(new Note("Plan", "Done #q1", home));
+        noteService.saveNote(new Note("Other", "numbers 100%", null));
+
+        NoteSummaryPage tagged = noteService.findNoteSummaries(null, Set.of("q1"), null, 0, 10);
+        assertEquals(List.of(new NoteSummary(plan.id, "Plan", 7L),
+                new NoteSummary(report.id, "Report", 6L)), tagged.notes());
+
+        NoteSummaryPage matching = noteService.findNoteSummaries(null, null, "NUMBERS", 1, 1);
+        assertEquals(2, matching.totalNotes());
+        assertEquals(List.of("Report"),
+                matching.notes().stream().map(NoteSummary::title).toList());
+
+        assertEquals(1, noteService.findNoteSummaries(null, null, "0%", 0, 10).totalNotes());
+        assertTrue(noteService.findNoteSummaries(6L, Set.of("none"), null, 0, 10)
+                .notes().isEmpty());
+        assertNull(noteService.findNoteSummaries(null, null, null, 0, 0));
+    }
+
+    @Test
+    void findNoteIDsByTag_FindsNotesOfAllShards() {
+        Note report = noteService.saveNote(new Note("Report", "#q1 #draft", work));
+        Note plan = noteService.saveNote(new Note("Plan", "#q1", home));
+        noteService.saveNote(new Note("Other", "#q2", null));
+        report.setContent("#q1");
+        noteService.saveNote(report);
+
+        assertEquals(Map.of("q1", Set.of(report.id, plan.id)),
+                noteService.findNoteIDsByTag(Set.of("q1", "draft")));
+        verify(tagService).updateTags(Set.of("q1", "draft"), Set.of("q1"));
+    }
+
+    @Test
+    void removeTagFromNote_RemovesTag() {
+        Note note = noteService.saveNote(new Note("Title", "#a #b", null));
+
+        noteService.removeTagFromNote(note.id, "a");
+
+        assertEquals(Set.of("b"), noteService.getTagsForNote(note.id));
+        assertNull(noteService.getTagsForNote(42L));
+    }
+
+    @Test
+    void compactShard_KeepsNotes() {
+        Note note = noteService.saveNote(new Note("Title", "Content", home));
+
+        assertTrue(noteService.compactShard(1));
+        assertFalse(noteService.compactShard(2));
+
+        assertEquals("Content", noteService.findNote(note.id).getContent());
+    }
+
+    private Connection shard(int shard) throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:file:"
+                + directory.resolve("shard-" + shard).toAbsolutePath(), "sa", "");
+    }
+
+    private ShardedNoteServiceImpl open() throws SQLException {
+        return new ShardedNoteServiceImpl(new NoteShards(directory, 2), collectionRepository,
+                tagService);
+    }
+}